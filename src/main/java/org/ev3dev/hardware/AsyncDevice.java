@@ -0,0 +1,282 @@
+package org.ev3dev.hardware;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/***
+ * The asynchronous view of a Device, returned by <code>Device.async()</code>.<br>
+ * <br>
+ * Operations don't block the calling thread. They are queued per device and run in order on the threads of the
+ *  <code>DeviceExecutor</code>, and return a CompletableFuture. Failures, such as an <code>EV3LibraryException</code>,
+ *  complete the future exceptionally instead of being thrown.<br>
+ * <br>
+ * A worker drains the queue of a device in batches, so driving many devices needs no more threads than the
+ *  <code>DeviceExecutor</code> pool size. Writes to an attribute that has a write still waiting in the queue, with nothing
+ *  but other writes queued after it, replace the value of that write instead of being queued again. Both futures
+ *  complete when the last value is written.
+ * <pre>
+ * CompletableFuture.allOf(
+ *     leftMotor.async().runForever(),
+ *     rightMotor.async().runForever(),
+ *     led.async().setAttribute(LED.SYSFS_PROPERTY_BRIGHTNESS, "255")
+ * ).join();
+ * </pre>
+ * @author Anthony
+ *
+ */
+public class AsyncDevice {
+
+	/**
+	 * The maximum number of operations of one device run in a row, before the worker moves on to other devices
+	 */
+	public static final int MAX_BATCH_SIZE = 32;
+
+	private final Device device;
+
+	private final Executor executor;
+
+	private final ArrayDeque<Operation> queue = new ArrayDeque<Operation>();
+
+	private final Map<String, Write> pendingWrites = new HashMap<String, Write>();
+
+	private boolean draining = false;
+
+	private long coalescedWrites = 0;
+
+	private final Runnable drainer = new Runnable(){
+		public void run(){
+			drain();
+		}
+	};
+
+	/**
+	 * Creates a new AsyncDevice running on the shared <code>DeviceExecutor</code>
+	 * @param device The Device
+	 */
+	protected AsyncDevice(Device device){
+		this.device = device;
+		this.executor = DeviceExecutor.getInstance();
+	}
+
+	/**
+	 * Returns the Device of this asynchronous view
+	 * @return The Device
+	 */
+	public Device getDevice(){
+		return device;
+	}
+
+	/**
+	 * Reads the property specified, see <code>Device.getAttribute()</code>
+	 * @param property The property name
+	 * @return A future completed with the value of the property
+	 */
+	public CompletableFuture<String> getAttribute(final String property){
+		return submit(new Callable<String>(){
+			public String call(){
+				return device.getAttribute(property);
+			}
+		});
+	}
+
+	/**
+	 * Reads the property specified as a decimal integer, see <code>Device.getIntAttribute()</code>
+	 * @param property The property name
+	 * @return A future completed with the value of the property
+	 */
+	public CompletableFuture<Integer> getIntAttribute(final String property){
+		return submit(new Callable<Integer>(){
+			public Integer call(){
+				return device.getIntAttribute(property);
+			}
+		});
+	}
+
+	/**
+	 * Reads the property specified as a list of values separated by spaces, see <code>Device.getListAttribute()</code>
+	 * @param property The property name
+	 * @return A future completed with the values of the property
+	 */
+	public CompletableFuture<String[]> getListAttribute(final String property){
+		return submit(new Callable<String[]>(){
+			public String[] call(){
+				return device.getListAttribute(property);
+			}
+		});
+	}
+
+	/**
+	 * Writes the property specified, see <code>Device.setAttribute()</code>. The write may be merged with a queued write to the same property.
+	 * @param property The property name
+	 * @param new_value The new value of the property
+	 * @return A future completed once the value, or a later value merged into the same write, is written
+	 */
+	public CompletableFuture<Void> setAttribute(String property, String new_value){
+		return write(property, new_value, 0, false);
+	}
+
+	/**
+	 * Writes a decimal integer to the property specified, see <code>Device.setIntAttribute()</code>. The write may be merged with a queued write to the same property.
+	 * @param property The property name
+	 * @param new_value The new value of the property
+	 * @return A future completed once the value, or a later value merged into the same write, is written
+	 */
+	public CompletableFuture<Void> setIntAttribute(String property, int new_value){
+		return write(property, null, new_value, true);
+	}
+
+	/**
+	 * Queues any blocking call on the Device, in order with the other operations of this device.
+	 *  Queued writes are never merged across a call.
+	 * @param call The call
+	 * @param <T> The type of the result
+	 * @return A future completed with the result of the call, or exceptionally with what it threw
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> call){
+		Call<T> operation = new Call<T>(call);
+		synchronized (queue){
+			pendingWrites.clear();
+			enqueue(operation);
+		}
+		return operation.future;
+	}
+
+	/**
+	 * Returns the number of writes merged into a queued write instead of being written
+	 * @return The number of merged writes
+	 */
+	public long getCoalescedWriteCount(){
+		synchronized (queue){
+			return coalescedWrites;
+		}
+	}
+
+	private CompletableFuture<Void> write(String property, String value, int intValue, boolean isInt){
+		synchronized (queue){
+			Write write = pendingWrites.get(property);
+			if (write != null){
+				write.set(value, intValue, isInt);
+				coalescedWrites++;
+				return write.future;
+			}
+			write = new Write(property);
+			write.set(value, intValue, isInt);
+			pendingWrites.put(property, write);
+			enqueue(write);
+			return write.future;
+		}
+	}
+
+	private void enqueue(Operation operation){
+		queue.add(operation);
+		if (!draining){
+			draining = true;
+			executor.execute(drainer);
+		}
+	}
+
+	private void drain(){
+		Operation operation;
+		for (int n = 0; ; n++){
+			synchronized (queue){
+				if (queue.isEmpty()){
+					draining = false;
+					return;
+				}
+				if (n == MAX_BATCH_SIZE){
+					//Let the other devices have the worker
+					executor.execute(drainer);
+					return;
+				}
+				operation = queue.poll();
+				if (operation instanceof Write){
+					pendingWrites.remove(((Write) operation).property, operation);
+				}
+			}
+			operation.run();
+		}
+	}
+
+	/**
+	 * A queued operation
+	 */
+	private abstract static class Operation {
+
+		abstract void run();
+	}
+
+	/**
+	 * A queued call
+	 */
+	private static class Call<T> extends Operation {
+
+		private final Callable<T> call;
+
+		private final CompletableFuture<T> future = new CompletableFuture<T>();
+
+		private Call(Callable<T> call){
+			this.call = call;
+		}
+
+		@Override
+		void run(){
+			try {
+				future.complete(call.call());
+			} catch (Throwable e){
+				future.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * A queued write, whose value can be replaced until it is run
+	 */
+	private class Write extends Operation {
+
+		private final String property;
+
+		private final CompletableFuture<Void> future = new CompletableFuture<Void>();
+
+		private String value;
+
+		private int intValue;
+
+		private boolean isInt;
+
+		private Write(String property){
+			this.property = property;
+		}
+
+		private void set(String value, int intValue, boolean isInt){
+			this.value = value;
+			this.intValue = intValue;
+			this.isInt = isInt;
+		}
+
+		@Override
+		void run(){
+			String value;
+			int intValue;
+			boolean isInt;
+			synchronized (queue){
+				value = this.value;
+				intValue = this.intValue;
+				isInt = this.isInt;
+			}
+			try {
+				if (isInt){
+					device.setIntAttribute(property, intValue);
+				} else {
+					device.setAttribute(property, value);
+				}
+				future.complete(null);
+			} catch (Throwable e){
+				future.completeExceptionally(e);
+			}
+		}
+	}
+}
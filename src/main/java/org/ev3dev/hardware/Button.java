@@ -1,11 +1,8 @@
 package org.ev3dev.hardware;
 
-import java.io.DataInputStream;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-
+import org.ev3dev.exception.EV3LibraryException;
 import org.ev3dev.exception.InvalidButtonException;
+import org.ev3dev.io.DeviceFileSystem;
 
 /***
  * Provides a generic button reading mechanism that can be adapted to platform specific implementations.
@@ -15,7 +12,10 @@ import org.ev3dev.exception.InvalidButtonException;
  */
 public class Button {
 	
-	public static final String SYSTEM_EVENT_PATH = "/dev/input/by-path/platform-gpio-keys.0-event";
+	/**
+	 * The path of the button event device, opened through <code>DeviceFileSystem.getDefault()</code>
+	 */
+	public static final String SYSTEM_EVENT_PATH = DeviceFileSystem.DEV_PATH + "input/by-path/platform-gpio-keys.0-event";
 	
 	public static final int BUTTON_UP = 103;
 	
@@ -46,31 +46,79 @@ public class Button {
 	}
 	
 	/**
-	 * Returns whether the button is pressed.
+	 * Returns whether the button is pressed. The state is kept up to date by <code>InputEventReader.getSystemReader()</code>
+	 *  from the button events, so this doesn't do any I/O. A button held down before the reader started reads as released.
 	 * @return Boolean that the button is pressed.
+	 * @throws EV3LibraryException If the button event device can't be read
 	 */
-	public boolean isPressed(){
-		try {
-			DataInputStream in = new DataInputStream(new FileInputStream(SYSTEM_EVENT_PATH));
-			byte[] val = new byte[16];
-			in.readFully(val);
-			in.close();
-			return test_bit(button, val);
-		} catch (FileNotFoundException e){
-			System.err.println("Error: Are you running this on your EV3? You must run it on your EV3.\n If you still have problems, report a issue to \"mob41/ev3dev-lang-java\".");
-			e.printStackTrace();
-			System.exit(-1);
-			return false;
-		} catch (IOException e){
-			System.err.println("### ERROR MESSAGE ###\nError: Unexpected error! Report an issue to \"mob41/ev3dev-lang-java\" now, with logs!\n === STACK TRACE ===");
-			e.printStackTrace();
-			System.err.println("=== END STACK TRACE ===\nError: Unexpected error! Report an issue to \"mob41/ev3dev-lang-java\" now, with logs!\n ### END MESSAGE ###");
-			System.exit(-1);
-			return false;
-		}
+	public boolean isPressed() throws EV3LibraryException{
+		return InputEventReader.getSystemReader().isPressed(button);
+	}
+	
+	/**
+	 * Blocks until the button is pressed. Only presses after this call count.
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return Whether the button was pressed, <code>false</code> if the timeout elapsed
+	 * @throws EV3LibraryException If the button event device can't be read
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public boolean waitForPress(long timeout) throws EV3LibraryException, InterruptedException{
+		return InputEventReader.getSystemReader().waitForPress(button, timeout);
+	}
+	
+	/**
+	 * Blocks until any button is pressed. Only presses after this call count.
+	 * @return The button pressed (e.g. <code>BUTTON_ENTER</code>)
+	 * @throws EV3LibraryException If the button event device can't be read
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public static int waitForAnyPress() throws EV3LibraryException, InterruptedException{
+		return InputEventReader.getSystemReader().waitForAnyPress();
+	}
+	
+	/**
+	 * Blocks until any button is pressed. Only presses after this call count.
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return The button pressed (e.g. <code>BUTTON_ENTER</code>), or -1 if the timeout elapsed
+	 * @throws EV3LibraryException If the button event device can't be read
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public static int waitForAnyPress(long timeout) throws EV3LibraryException, InterruptedException{
+		return InputEventReader.getSystemReader().waitForAnyPress(timeout);
+	}
+	
+	/**
+	 * Registers a listener called when the button is pressed (see <code>InputEventLoop</code>)
+	 * @param listener The PressListener
+	 * @throws EV3LibraryException If the button event device can't be read
+	 */
+	public void addPressListener(PressListener listener) throws EV3LibraryException{
+		InputEventLoop.getInstance().addPressListener(button, listener);
 	}
 	
-	private static boolean test_bit(int bit, byte[] bytes){
-	    return ((bytes[bit / 8] & (1 << (bit % 8))) == 1 ? false : true);
+	/**
+	 * Registers a listener called when the button is released (see <code>InputEventLoop</code>)
+	 * @param listener The PressListener
+	 * @throws EV3LibraryException If the button event device can't be read
+	 */
+	public void addReleaseListener(PressListener listener) throws EV3LibraryException{
+		InputEventLoop.getInstance().addReleaseListener(button, listener);
+	}
+	
+	/**
+	 * Registers a listener called when the button is pressed or released (see <code>InputEventLoop</code>)
+	 * @param listener The PressListener
+	 * @throws EV3LibraryException If the button event device can't be read
+	 */
+	public void onChange(PressListener listener) throws EV3LibraryException{
+		InputEventLoop.getInstance().onChange(button, listener);
+	}
+	
+	/**
+	 * Unregisters a listener registered on this button
+	 * @param listener The PressListener
+	 */
+	public void removeListener(PressListener listener){
+		InputEventLoop.getInstance().removeListener(button, listener);
 	}
 }
@@ -0,0 +1,26 @@
+package org.ev3dev.hardware;
+
+/***
+ * How a Device keeps the value of an attribute in memory.
+ * @author Anthony
+ *
+ */
+public enum CachePolicy {
+
+	/**
+	 * The attribute changes on its own (e.g. <code>position</code>, <code>state</code>). It is read from Sysfs every time.
+	 */
+	VOLATILE,
+
+	/**
+	 * The attribute never changes while the device is connected (e.g. <code>driver_name</code>, <code>address</code>).
+	 *  It is read from Sysfs once and kept in the <code>DeviceDescriptor</code> of the device until it is detached.
+	 */
+	STATIC,
+
+	/**
+	 * The attribute is only changed by the application (e.g. setpoints, <code>stop_action</code>). The value last read or
+	 *  written is kept in memory, reads are served from it and writes of the same value are skipped.
+	 */
+	WRITE_THROUGH
+}
@@ -1,10 +1,15 @@
 package org.ev3dev.hardware;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.ev3dev.exception.EV3LibraryException;
 
 import org.ev3dev.hardware.ports.LegoPort;
+import org.ev3dev.io.AttributeChannel;
+import org.ev3dev.io.DeviceFileSystem;
 import org.ev3dev.io.Sysfs;
 
 /**
@@ -31,19 +36,37 @@ public abstract class Device {
 	
 	private LegoPort port;
 	
+	private final DeviceFileSystem fs;
+	
 	private boolean connected = false;
 	
+	private final Map<String, Attribute> attributes = new HashMap<String, Attribute>();
+	
+	private volatile DeviceDescriptor descriptor = null;
+	
+	private volatile AsyncDevice async = null;
+	
 	/***
-	 * Generic way to create a device
+	 * Generic way to create a device, on <code>DeviceFileSystem.getDefault()</code>
 	 * @param className The Sysfs Class name
 	 */
 	public Device(String className){
+		this(className, DeviceFileSystem.getDefault());
+	}
+	
+	/***
+	 * Generic way to create a device
+	 * @param className The Sysfs Class name
+	 * @param fs The DeviceFileSystem the device is controlled through
+	 */
+	public Device(String className, DeviceFileSystem fs){
 		this.port = null;
 		this.className = className;
+		this.fs = fs;
 	}
 
 	/**
-	 * Create a new device with a <b>LegoPort</b>, <b>ClassName</b>, <b>classNamePrefix</b>
+	 * Create a new device with a <b>LegoPort</b>, <b>ClassName</b>, <b>classNamePrefix</b>. The device is controlled through the DeviceFileSystem of the port.
 	 * @param port A LegoPort delared before.
 	 * @param className Sysfs class name
 	 * @param classNamePrefix The filename prefix inside the "Sysfs class" (e.g. motor[n], which "motor" is the prefix)
@@ -53,6 +76,7 @@ public abstract class Device {
 		this.port = port;
 		this.className = className;
 		this.classNamePrefix = classNamePrefix;
+		this.fs = port.getFileSystem();
 		
 		address = port.getAddress();
 		
@@ -60,9 +84,14 @@ public abstract class Device {
 		if (!connected){
 			System.out.println(className + "-" + this.hashCode() + ": No port connected. Searching until port \"" + address + "\" connected...");
 			
-			while (!connected){
-				connected = checkIsConnected();
+			try {
+				classFullName = DeviceManager.getInstance(fs).awaitDevice(className, address, 0);
+			} catch (InterruptedException e){
+				Thread.currentThread().interrupt();
+				throw new EV3LibraryException("Interrupted while waiting for port \"" + address + "\" to be connected", e);
 			}
+			closeAttributeChannels();
+			connected = true;
 
 			System.out.println(className + "-" + this.hashCode() + ": Connected to " + address);
 		}
@@ -79,6 +108,7 @@ public abstract class Device {
 	 */
 	public void setClassName(String className){
 		this.className = className;
+		closeAttributeChannels();
 	}
 	
 	/**
@@ -87,6 +117,7 @@ public abstract class Device {
 	 */
 	public void setClassFullname(String classFullName){
 		this.classFullName = classFullName;
+		closeAttributeChannels();
 	}
 	
 	/**
@@ -113,6 +144,14 @@ public abstract class Device {
 		return port;
 	}
 	
+	/**
+	 * Returns the DeviceFileSystem this Device is controlled through
+	 * @return The DeviceFileSystem
+	 */
+	public DeviceFileSystem getFileSystem(){
+		return fs;
+	}
+	
 	/**
 	 * Get the filename prefix inside the Sysfs class (prefix (e.g. motor)) of this Device
 	 * @return The filename inside the Sysfs class (e.g. "/sys/class/motor/motor0" <b>motor</b> is a prefix)
@@ -130,43 +169,457 @@ public abstract class Device {
 	}
 	
 	/***
-	 * Reads the property specified.
+	 * Reads the property specified. Depending on <code>getCachePolicy()</code>, the value may come from memory.
 	 * @param property The property name
 	 * @return The value of the property
 	 */
 	public final String getAttribute(String property) throws EV3LibraryException{
+		Attribute attribute = getAttributeEntry(property);
+		if (attribute.policy == CachePolicy.VOLATILE){
+			return readAttribute(attribute, property);
+		}
+		if (attribute.policy == CachePolicy.STATIC){
+			return getStaticAttribute(attribute, property);
+		}
+		synchronized (attribute){
+			if (attribute.valid){
+				if (attribute.value == null){
+					attribute.value = Integer.toString(attribute.intValue);
+				}
+				return attribute.value;
+			}
+			String str = readAttribute(attribute, property);
+			attribute.cache(str);
+			return str;
+		}
+	}
+	
+	/***
+	 * Writes the property specified. If the property is <code>CachePolicy.WRITE_THROUGH</code> and already holds the value, nothing is written.
+	 * @param property The property name
+	 * @param new_value The new value of the property
+	 */
+	public final void setAttribute(String property, String new_value) throws EV3LibraryException{
+		Attribute attribute = getAttributeEntry(property);
+		if (attribute.policy == CachePolicy.VOLATILE){
+			writeAttribute(attribute, property, new_value);
+			return;
+		}
+		if (attribute.policy == CachePolicy.STATIC){
+			writeAttribute(attribute, property, new_value);
+			putStaticAttribute(property, new_value);
+			return;
+		}
+		synchronized (attribute){
+			if (attribute.policy == CachePolicy.WRITE_THROUGH && attribute.valid && new_value.equals(attribute.value)){
+				return;
+			}
+			attribute.valid = false;
+			writeAttribute(attribute, property, new_value);
+			attribute.cache(new_value);
+		}
+	}
+	
+	/***
+	 * Reads the property specified as a decimal integer. Unlike <code>Integer.parseInt(getAttribute(property))</code>, this does not create any garbage.
+	 *  Depending on <code>getCachePolicy()</code>, the value may come from memory.
+	 * @param property The property name
+	 * @return The value of the property
+	 */
+	public final int getIntAttribute(String property) throws EV3LibraryException{
+		Attribute attribute = getAttributeEntry(property);
+		if (attribute.policy == CachePolicy.VOLATILE){
+			return readIntAttribute(attribute, property);
+		}
+		if (attribute.policy == CachePolicy.STATIC){
+			return Integer.parseInt(getStaticAttribute(attribute, property));
+		}
+		synchronized (attribute){
+			if (attribute.valid){
+				if (!attribute.hasInt){
+					attribute.intValue = Integer.parseInt(attribute.value);
+					attribute.hasInt = true;
+				}
+				return attribute.intValue;
+			}
+			int value = readIntAttribute(attribute, property);
+			attribute.cache(value);
+			return value;
+		}
+	}
+	
+	/***
+	 * Reads the property specified as a list of values separated by spaces (e.g. <code>commands</code>).
+	 *  The list of a <code>CachePolicy.STATIC</code> property is only split once per attached device.
+	 * @param property The property name
+	 * @return The values of the property
+	 */
+	public final String[] getListAttribute(String property) throws EV3LibraryException{
+		Attribute attribute = getAttributeEntry(property);
+		if (attribute.policy != CachePolicy.STATIC){
+			return Sysfs.separateSpace(getAttribute(property));
+		}
+		DeviceDescriptor descriptor = getDescriptor();
+		String[] list = descriptor == null ? null : descriptor.getList(property);
+		if (list == null){
+			list = Sysfs.separateSpace(getStaticAttribute(attribute, property));
+			if (descriptor != null){
+				descriptor.putList(property, list);
+			}
+		}
+		return list.clone();
+	}
+	
+	/***
+	 * Reads the property specified as a list of flags separated by spaces (e.g. <code>state</code>), as a bitmask.
+	 *  Unlike <code>getListAttribute()</code>, this does not create any garbage.
+	 * @param property The property name
+	 * @param flags The flag names. Bit N of the result is set if <code>flags[N]</code> is present, at most 32 flags.
+	 * @return The bitmask of the flags present. Unknown flags are ignored.
+	 */
+	public final int getFlagsAttribute(String property, String[] flags) throws EV3LibraryException{
+		Attribute attribute = getAttributeEntry(property);
+		if (attribute.policy != CachePolicy.VOLATILE){
+			int mask = 0;
+			for (String value : getListAttribute(property)){
+				for (int i = 0; i < flags.length; i++){
+					if (flags[i].equals(value)){
+						mask |= 1 << i;
+					}
+				}
+			}
+			return mask;
+		}
 		try {
-			String str = Sysfs.getAttribute(className, classFullName, property);
+			int mask = attribute.channel.readFlags(flags);
 			connected = true;
-			return str;
+			return mask;
+		} catch (IOException e){
+			attributeFailed();
+			throw new EV3LibraryException("Get device attribute failed: " + property, e);
+		}
+	}
+	
+	/***
+	 * Reads the raw bytes of the property specified (e.g. <code>bin_data</code>) into the buffer specified, from its current position.
+	 *  The value is never kept in memory.
+	 * @param property The property name
+	 * @param dst The buffer to read into
+	 * @return The number of bytes read
+	 */
+	public final int getBinaryAttribute(String property, ByteBuffer dst) throws EV3LibraryException{
+		Attribute attribute = getAttributeEntry(property);
+		try {
+			int n = attribute.channel.read(dst);
+			connected = true;
+			return n;
 		} catch (IOException e){
-			connected = false;
+			attributeFailed();
 			throw new EV3LibraryException("Get device attribute failed: " + property, e);
 		}
 	}
 	
 	/***
-	 * Writes the property specified.
+	 * Writes a decimal integer to the property specified. Unlike <code>setAttribute(property, Integer.toString(new_value))</code>, this does not create any garbage.
+	 *  If the property is <code>CachePolicy.WRITE_THROUGH</code> and already holds the value, nothing is written.
 	 * @param property The property name
 	 * @param new_value The new value of the property
 	 */
-	public final void setAttribute(String property, String new_value) throws EV3LibraryException{
+	public final void setIntAttribute(String property, int new_value) throws EV3LibraryException{
+		Attribute attribute = getAttributeEntry(property);
+		if (attribute.policy == CachePolicy.VOLATILE){
+			writeIntAttribute(attribute, property, new_value);
+			return;
+		}
+		if (attribute.policy == CachePolicy.STATIC){
+			writeIntAttribute(attribute, property, new_value);
+			putStaticAttribute(property, Integer.toString(new_value));
+			return;
+		}
+		synchronized (attribute){
+			if (attribute.policy == CachePolicy.WRITE_THROUGH && attribute.valid && attribute.hasInt && attribute.intValue == new_value){
+				return;
+			}
+			attribute.valid = false;
+			writeIntAttribute(attribute, property, new_value);
+			attribute.cache(new_value);
+		}
+	}
+	
+	/**
+	 * Returns the metadata of the attached device, shared by every Device object controlling it.
+	 * @return The DeviceDescriptor, or <code>null</code> if the device node is not known yet
+	 */
+	public DeviceDescriptor getDescriptor(){
+		DeviceDescriptor descriptor = this.descriptor;
+		if (descriptor == null || !descriptor.isValid()){
+			String node = classFullName;
+			if (node == null){
+				return null;
+			}
+			descriptor = DeviceDescriptor.getDescriptor(fs, className, node);
+			this.descriptor = descriptor;
+		}
+		return descriptor;
+	}
+	
+	/**
+	 * Reads a property whose value only depends on the mode of the device (e.g. <code>decimals</code>). It is read from Sysfs
+	 *  the first time it is used in each mode, and then kept in the <code>DeviceDescriptor</code>.
+	 * @param mode The current mode of the device
+	 * @param property The property name
+	 * @return The value of the property in this mode
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	protected final String getModeAttribute(String mode, String property) throws EV3LibraryException{
+		DeviceDescriptor descriptor = getDescriptor();
+		String value = descriptor == null ? null : descriptor.getModeValue(mode, property);
+		if (value == null){
+			value = getAttribute(property);
+			if (descriptor != null){
+				descriptor.putModeValue(mode, property, value);
+			}
+		}
+		return value;
+	}
+	
+	/**
+	 * Returns the asynchronous view of this Device. Its operations are queued and run in order on the
+	 *  <code>DeviceExecutor</code> threads, and return CompletableFutures instead of blocking.
+	 * @return The AsyncDevice of this Device
+	 */
+	public AsyncDevice async(){
+		AsyncDevice async = this.async;
+		if (async == null){
+			synchronized (this){
+				async = this.async;
+				if (async == null){
+					async = newAsyncDevice();
+					this.async = async;
+				}
+			}
+		}
+		return async;
+	}
+	
+	/**
+	 * Creates the asynchronous view returned by <code>async()</code>. Subclasses return their own type with more operations.
+	 * @return A new AsyncDevice
+	 */
+	protected AsyncDevice newAsyncDevice(){
+		return new AsyncDevice(this);
+	}
+	
+	/**
+	 * Opens the file of an attribute for writing ahead of time, so the first write doesn't pay for opening it.
+	 * @param property The property name
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public final void openAttributeChannel(String property) throws EV3LibraryException{
+		Attribute attribute = getAttributeEntry(property);
+		try {
+			attribute.channel.openForWrite();
+		} catch (IOException e){
+			attributeFailed();
+			throw new EV3LibraryException("Open device attribute failed: " + property, e);
+		}
+	}
+	
+	/**
+	 * Closes all the attribute files kept open by this Device and forgets all the values kept in memory.
+	 *  The files will be re-opened on the next read or write. The old channels are disposed, so a thread
+	 *  that was still using one fails instead of re-opening a file that is no longer tracked.
+	 */
+	public void closeAttributeChannels(){
+		synchronized (attributes){
+			for (Attribute attribute : attributes.values()){
+				attribute.valid = false;
+				try {
+					attribute.channel.dispose();
+				} catch (IOException ignore){}
+			}
+			attributes.clear();
+		}
+		descriptor = null;
+	}
+	
+	/**
+	 * Forgets all the attribute values kept in memory, so they are read from Sysfs again.
+	 *  Use this if another program may have changed them.
+	 */
+	public void invalidateAttributeCache(){
+		invalidateAttributeCache(null);
+		invalidateCache();
+	}
+	
+	/**
+	 * Forgets the attribute values of a cache policy kept in memory, e.g. the setpoints after a <code>reset</code> command
+	 * @param policy The CachePolicy, or <code>null</code> for all
+	 */
+	protected void invalidateAttributeCache(CachePolicy policy){
+		synchronized (attributes){
+			for (Attribute attribute : attributes.values()){
+				if (policy == null || attribute.policy == policy){
+					attribute.valid = false;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns how the value of an attribute is kept in memory. Subclasses classify the attributes of their Sysfs class,
+	 *  anything unknown is <code>CachePolicy.VOLATILE</code>.
+	 * @param property The property name
+	 * @return The CachePolicy
+	 */
+	protected CachePolicy getCachePolicy(String property){
+		return CachePolicy.VOLATILE;
+	}
+	
+	/**
+	 * Returns the cached entry of the property specified, creating it if necessary
+	 * @param property The property name
+	 * @return The Attribute of the property
+	 */
+	private Attribute getAttributeEntry(String property){
+		synchronized (attributes){
+			Attribute attribute = attributes.get(property);
+			if (attribute == null){
+				attribute = new Attribute(new AttributeChannel(fs, DeviceFileSystem.getAttributePath(className, classFullName, property)), getCachePolicy(property));
+				attributes.put(property, attribute);
+			}
+			return attribute;
+		}
+	}
+	
+	private String getStaticAttribute(Attribute attribute, String property) throws EV3LibraryException{
+		DeviceDescriptor descriptor = getDescriptor();
+		String value = descriptor == null ? null : descriptor.getValue(property);
+		if (value == null){
+			value = readAttribute(attribute, property);
+			if (descriptor != null){
+				descriptor.putValue(property, value);
+			}
+		}
+		return value;
+	}
+	
+	private void putStaticAttribute(String property, String value){
+		DeviceDescriptor descriptor = getDescriptor();
+		if (descriptor != null){
+			descriptor.putValue(property, value);
+		}
+	}
+	
+	private String readAttribute(Attribute attribute, String property) throws EV3LibraryException{
 		try {
-			Sysfs.setAttribute(className, classFullName, property, new_value);
+			String str = attribute.channel.read();
 			connected = true;
+			return str;
 		} catch (IOException e){
-			connected = false;
+			attributeFailed();
+			throw new EV3LibraryException("Get device attribute failed: " + property, e);
+		}
+	}
+	
+	private void writeAttribute(Attribute attribute, String property, String new_value) throws EV3LibraryException{
+		try {
+			attribute.channel.write(new_value);
+			connected = true;
+		} catch (IOException e){
+			attributeFailed();
+			throw new EV3LibraryException("Set device attribute failed: " + property, e);
+		}
+	}
+	
+	private int readIntAttribute(Attribute attribute, String property) throws EV3LibraryException{
+		try {
+			int value = attribute.channel.readInt();
+			connected = true;
+			return value;
+		} catch (IOException e){
+			attributeFailed();
+			throw new EV3LibraryException("Get device attribute failed: " + property, e);
+		}
+	}
+	
+	private void writeIntAttribute(Attribute attribute, String property, int new_value) throws EV3LibraryException{
+		try {
+			attribute.channel.writeInt(new_value);
+			connected = true;
+		} catch (IOException e){
+			attributeFailed();
 			throw new EV3LibraryException("Set device attribute failed: " + property, e);
 		}
 	}
 	
+	/**
+	 * Marks this Device as disconnected and drops all the attribute channels after an I/O failure, as the device node has probably gone away.
+	 *  The other channels are dropped too: kept open on a node that has gone, each of them would fail once in turn.
+	 */
+	private void attributeFailed(){
+		connected = false;
+		//The node may come back with another device, and the DeviceManager may not be running to notice
+		String node = classFullName;
+		if (node != null){
+			DeviceDescriptor.invalidate(fs, className, node);
+		}
+		closeAttributeChannels();
+		invalidateCache();
+	}
+	
+	/**
+	 * Called after an attribute read or write failed, or by <code>invalidateAttributeCache()</code>.
+	 *  Subclasses that keep attribute values in memory themselves should drop them here.
+	 */
+	protected void invalidateCache(){
+		
+	}
+	
 	private boolean checkIsConnected(){
 		try {
-			classFullName = Sysfs.searchClassFullName(className, classNamePrefix, address);
+			classFullName = fs.getRegistry().resolve(className, address);
 		} catch (Exception ignore){
 			classFullName = null;
 			return false;
 		}
+		closeAttributeChannels();
 		return classFullName != null;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * The open channel of an attribute and its value kept in memory
+	 */
+	private static class Attribute {
+		
+		private final AttributeChannel channel;
+		
+		private final CachePolicy policy;
+		
+		private volatile boolean valid = false;
+		
+		private boolean hasInt = false;
+		
+		private int intValue;
+		
+		private String value = null;
+		
+		private Attribute(AttributeChannel channel, CachePolicy policy){
+			this.channel = channel;
+			this.policy = policy;
+		}
+		
+		private void cache(String value){
+			this.value = value;
+			this.hasInt = false;
+			this.valid = true;
+		}
+		
+		private void cache(int value){
+			this.intValue = value;
+			this.hasInt = true;
+			this.value = null;
+			this.valid = true;
+		}
+	}
+}
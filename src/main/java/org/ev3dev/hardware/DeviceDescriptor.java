@@ -0,0 +1,192 @@
+package org.ev3dev.hardware;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ev3dev.io.DeviceFileSystem;
+
+/***
+ * The metadata of one attached device, e.g. its driver name, its supported commands and the
+ *  <code>decimals</code>, <code>units</code> and <code>num_values</code> of each of its modes.<br>
+ * <br>
+ * These attributes don't change while a device is attached, so they are read from Sysfs once and shared
+ *  by every Device object controlling the same device node. A descriptor is dropped when its node is detached
+ *  or re-attached (see <code>DeviceManager</code>), and a new one is loaded on the next use.<br>
+ * <br>
+ * The tables of a mode are only filled the first time the device is used in that mode. The descriptors of each
+ *  <code>DeviceFileSystem</code> are kept apart.
+ * @author Anthony
+ *
+ */
+public class DeviceDescriptor {
+
+	private static final Map<DeviceFileSystem, Map<String, DeviceDescriptor>> DESCRIPTORS =
+			Collections.synchronizedMap(new WeakHashMap<DeviceFileSystem, Map<String, DeviceDescriptor>>());
+
+	private final String className;
+
+	private final String classFullName;
+
+	private final Map<String, String> values = new ConcurrentHashMap<String, String>();
+
+	private final Map<String, String[]> lists = new ConcurrentHashMap<String, String[]>();
+
+	private final Map<String, Map<String, String>> modes = new ConcurrentHashMap<String, Map<String, String>>();
+
+	private volatile boolean valid = true;
+
+	private DeviceDescriptor(String className, String classFullName){
+		this.className = className;
+		this.classFullName = classFullName;
+	}
+
+	/**
+	 * Returns the descriptor of a device node of <code>DeviceFileSystem.getDefault()</code>, creating an empty one if necessary
+	 * @param className The Sysfs class name (e.g. tacho-motor)
+	 * @param classFullName The node name (e.g. motor0)
+	 * @return The DeviceDescriptor
+	 */
+	public static DeviceDescriptor getDescriptor(String className, String classFullName){
+		return getDescriptor(DeviceFileSystem.getDefault(), className, classFullName);
+	}
+
+	/**
+	 * Returns the descriptor of a device node, creating an empty one if necessary
+	 * @param fs The DeviceFileSystem of the device
+	 * @param className The Sysfs class name (e.g. tacho-motor)
+	 * @param classFullName The node name (e.g. motor0)
+	 * @return The DeviceDescriptor
+	 */
+	public static DeviceDescriptor getDescriptor(DeviceFileSystem fs, String className, String classFullName){
+		String key = className + "/" + classFullName;
+		Map<String, DeviceDescriptor> descriptors = getDescriptors(fs);
+		DeviceDescriptor descriptor = descriptors.get(key);
+		if (descriptor == null){
+			synchronized (descriptors){
+				descriptor = descriptors.get(key);
+				if (descriptor == null){
+					descriptor = new DeviceDescriptor(className, classFullName);
+					descriptors.put(key, descriptor);
+				}
+			}
+		}
+		return descriptor;
+	}
+
+	/**
+	 * Drops the descriptor of a device node of <code>DeviceFileSystem.getDefault()</code>, e.g. because it was detached.
+	 *  Device objects holding it load a new one on their next use.
+	 * @param className The Sysfs class name (e.g. tacho-motor)
+	 * @param classFullName The node name (e.g. motor0)
+	 */
+	public static void invalidate(String className, String classFullName){
+		invalidate(DeviceFileSystem.getDefault(), className, classFullName);
+	}
+
+	/**
+	 * Drops the descriptor of a device node, e.g. because it was detached. Device objects holding it load a new one on their next use.
+	 * @param fs The DeviceFileSystem of the device
+	 * @param className The Sysfs class name (e.g. tacho-motor)
+	 * @param classFullName The node name (e.g. motor0)
+	 */
+	public static void invalidate(DeviceFileSystem fs, String className, String classFullName){
+		DeviceDescriptor descriptor = getDescriptors(fs).remove(className + "/" + classFullName);
+		if (descriptor != null){
+			descriptor.valid = false;
+		}
+	}
+
+	private static Map<String, DeviceDescriptor> getDescriptors(DeviceFileSystem fs){
+		synchronized (DESCRIPTORS){
+			Map<String, DeviceDescriptor> descriptors = DESCRIPTORS.get(fs);
+			if (descriptors == null){
+				descriptors = new ConcurrentHashMap<String, DeviceDescriptor>();
+				DESCRIPTORS.put(fs, descriptors);
+			}
+			return descriptors;
+		}
+	}
+
+	/**
+	 * Returns the Sysfs class name of the device
+	 * @return The class name (e.g. tacho-motor)
+	 */
+	public String getClassName(){
+		return className;
+	}
+
+	/**
+	 * Returns the node name of the device
+	 * @return The node name (e.g. motor0)
+	 */
+	public String getClassFullName(){
+		return classFullName;
+	}
+
+	/**
+	 * Returns whether the descriptor still describes an attached device
+	 * @return A Boolean
+	 */
+	public boolean isValid(){
+		return valid;
+	}
+
+	/**
+	 * Returns the value of an attribute, if it was loaded
+	 * @param property The property name
+	 * @return The value, or <code>null</code> if it was not loaded yet
+	 */
+	public String getValue(String property){
+		return values.get(property);
+	}
+
+	/**
+	 * Returns the value of a list attribute, split at the spaces, if it was loaded
+	 * @param property The property name
+	 * @return The list, or <code>null</code> if it was not loaded yet. The array must not be modified.
+	 */
+	public String[] getList(String property){
+		return lists.get(property);
+	}
+
+	/**
+	 * Returns the value of an attribute in a mode, if it was loaded
+	 * @param mode The mode
+	 * @param property The property name (e.g. decimals)
+	 * @return The value, or <code>null</code> if it was not loaded yet
+	 */
+	public String getModeValue(String mode, String property){
+		Map<String, String> table = modes.get(mode);
+		return table == null ? null : table.get(property);
+	}
+
+	void putValue(String property, String value){
+		values.put(property, value);
+		lists.remove(property);
+	}
+
+	void putList(String property, String[] list){
+		lists.put(property, list);
+	}
+
+	void putModeValue(String mode, String property, String value){
+		Map<String, String> table = modes.get(mode);
+		if (table == null){
+			synchronized (modes){
+				table = modes.get(mode);
+				if (table == null){
+					table = new ConcurrentHashMap<String, String>();
+					modes.put(mode, table);
+				}
+			}
+		}
+		table.put(property, value);
+	}
+
+	@Override
+	public String toString(){
+		return "DeviceDescriptor[" + className + "/" + classFullName + ", values=" + values + ", modes=" + modes.keySet() + "]";
+	}
+}
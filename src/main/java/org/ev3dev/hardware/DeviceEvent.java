@@ -0,0 +1,68 @@
+package org.ev3dev.hardware;
+
+/***
+ * Describes a device node that has been attached to or detached from a port.
+ * @author Anthony
+ *
+ */
+public class DeviceEvent {
+
+	private final boolean attached;
+
+	private final String className;
+
+	private final String classFullName;
+
+	private final String address;
+
+	/**
+	 * Creates a new DeviceEvent
+	 * @param attached Whether the device was attached (<code>true</code>) or detached (<code>false</code>)
+	 * @param className The Sysfs class name (e.g. tacho-motor)
+	 * @param classFullName The Sysfs node name (e.g. motor0)
+	 * @param address The port address (e.g. outA)
+	 */
+	public DeviceEvent(boolean attached, String className, String classFullName, String address){
+		this.attached = attached;
+		this.className = className;
+		this.classFullName = classFullName;
+		this.address = address;
+	}
+
+	/**
+	 * Returns whether the device was attached
+	 * @return <code>true</code> if attached, <code>false</code> if detached
+	 */
+	public boolean isAttached(){
+		return attached;
+	}
+
+	/**
+	 * Returns the Sysfs class name of the device
+	 * @return The class name (e.g. tacho-motor)
+	 */
+	public String getClassName(){
+		return className;
+	}
+
+	/**
+	 * Returns the Sysfs node name of the device
+	 * @return The node name (e.g. motor0)
+	 */
+	public String getClassFullName(){
+		return classFullName;
+	}
+
+	/**
+	 * Returns the port address of the device
+	 * @return The address (e.g. outA)
+	 */
+	public String getAddress(){
+		return address;
+	}
+
+	@Override
+	public String toString(){
+		return (attached ? "Attached " : "Detached ") + className + "/" + classFullName + " at " + address;
+	}
+}
@@ -0,0 +1,114 @@
+package org.ev3dev.hardware;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * The bounded pool of threads running the Sysfs I/O of the asynchronous device API (see <code>Device.async()</code>).<br>
+ * <br>
+ * However many devices are driven asynchronously, at most <code>getPoolSize()</code> threads are blocked on file I/O.
+ *  The threads are daemons and exit after being idle for a while.<br>
+ * <br>
+ * Blocking calls that don't belong to a Device, such as <code>PowerSupply</code> or <code>LegoPort</code>, can be
+ *  run on the same threads:
+ * <pre>
+ * CompletableFuture&lt;Integer&gt; voltage = DeviceExecutor.getInstance().submit(PowerSupply::getMeasuredVoltage);
+ * </pre>
+ * @author Anthony
+ *
+ */
+public class DeviceExecutor implements Executor {
+
+	/**
+	 * The default number of I/O threads
+	 */
+	public static final int DEFAULT_POOL_SIZE = 2;
+
+	private static final long KEEP_ALIVE_SECONDS = 30;
+
+	private static final DeviceExecutor INSTANCE = new DeviceExecutor();
+
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * Returns the shared DeviceExecutor instance
+	 * @return The DeviceExecutor
+	 */
+	public static DeviceExecutor getInstance(){
+		return INSTANCE;
+	}
+
+	private DeviceExecutor(){
+		final AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(DEFAULT_POOL_SIZE, DEFAULT_POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory(){
+			public Thread newThread(Runnable r){
+				Thread thread = new Thread(r, "ev3dev-io-" + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Sets the maximum number of I/O threads.<br>
+	 * (Default: <code>DEFAULT_POOL_SIZE</code>)
+	 * @param size The number of threads
+	 */
+	public void setPoolSize(int size){
+		if (size <= 0){
+			throw new IllegalArgumentException("The pool size must be positive: " + size);
+		}
+		if (size > executor.getMaximumPoolSize()){
+			executor.setMaximumPoolSize(size);
+			executor.setCorePoolSize(size);
+		} else {
+			executor.setCorePoolSize(size);
+			executor.setMaximumPoolSize(size);
+		}
+	}
+
+	/**
+	 * Returns the maximum number of I/O threads
+	 * @return The number of threads
+	 */
+	public int getPoolSize(){
+		return executor.getMaximumPoolSize();
+	}
+
+	/**
+	 * Runs a task on an I/O thread
+	 * @param task The task
+	 */
+	@Override
+	public void execute(Runnable task){
+		executor.execute(task);
+	}
+
+	/**
+	 * Runs a blocking call on an I/O thread
+	 * @param call The call
+	 * @param <T> The type of the result
+	 * @return A future completed with the result of the call, or exceptionally with what it threw
+	 */
+	public <T> CompletableFuture<T> submit(final Callable<T> call){
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		executor.execute(new Runnable(){
+			public void run(){
+				try {
+					future.complete(call.call());
+				} catch (Throwable e){
+					future.completeExceptionally(e);
+				}
+			}
+		});
+		return future;
+	}
+}
@@ -0,0 +1,17 @@
+package org.ev3dev.hardware;
+
+/***
+ * Receives the attach and detach events from the <code>DeviceManager</code>.
+ * Listeners are always called from the DeviceManager thread, so they should return quickly. The changes found by
+ * other threads, e.g. the one creating a device, are queued for it.
+ * @author Anthony
+ *
+ */
+public interface DeviceListener {
+
+	/**
+	 * Called when a device is attached or detached
+	 * @param event The DeviceEvent
+	 */
+	public void onDeviceEvent(DeviceEvent event);
+}
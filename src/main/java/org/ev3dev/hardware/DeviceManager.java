@@ -0,0 +1,387 @@
+package org.ev3dev.hardware;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.ev3dev.exception.EV3LibraryException;
+import org.ev3dev.hardware.ports.LegoPort;
+import org.ev3dev.io.DeviceFileSystem;
+import org.ev3dev.io.DeviceRegistry;
+
+/***
+ * Watches the ev3dev Sysfs classes for devices being plugged in or unplugged.<br>
+ * <br>
+ * A single background thread keeps the <code>DeviceRegistry</code> up to date. It waits on a
+ * <code>WatchService</code> over <code>/sys/class/*</code> when the kernel delivers events for it, and
+ * otherwise polls with an exponential backoff, so threads waiting for a device are blocked instead of
+ * spinning. The thread only runs while there are waiters or listeners.<br>
+ * <br>
+ * The registry is also refreshed by other threads, e.g. the one creating a device. The changes they find are queued, and
+ *  the listeners are always called from the DeviceManager thread, in the order of the changes. A listener that throws is
+ *  passed to the uncaught exception handler of the thread.<br>
+ * <br>
+ * The <code>DeviceDescriptor</code> of a device node is dropped whenever the node is found to be detached or re-attached.<br>
+ * <br>
+ * Each <code>DeviceFileSystem</code> has its own DeviceManager. A file-system that isn't on disk is only polled.
+ * @author Anthony
+ *
+ */
+public class DeviceManager implements DeviceRegistry.ChangeListener {
+
+	/**
+	 * The shortest time between two scans, in milliseconds
+	 */
+	public static final long MIN_POLL_INTERVAL = 20;
+
+	/**
+	 * The longest time between two scans while a thread is waiting for a device, in milliseconds
+	 */
+	public static final long MAX_AWAIT_POLL_INTERVAL = 100;
+
+	/**
+	 * The longest time between two scans while only listeners are registered, in milliseconds
+	 */
+	public static final long MAX_POLL_INTERVAL = 500;
+
+	/**
+	 * The longest time the thread sleeps on the <code>WatchService</code> without checking for queued events and new waiters, in milliseconds
+	 */
+	static final long WAKE_UP_INTERVAL = 10;
+
+	private static final String[] DEVICE_CLASSES = {"tacho-motor", "dc-motor", "servo-motor", "lego-sensor"};
+
+	private static final Map<DeviceFileSystem, WeakReference<DeviceManager>> INSTANCES = new WeakHashMap<DeviceFileSystem, WeakReference<DeviceManager>>();
+
+	private final DeviceFileSystem fs;
+
+	private final DeviceRegistry registry;
+
+	private final List<DeviceListener> attachListeners = new CopyOnWriteArrayList<DeviceListener>();
+
+	private final List<DeviceListener> detachListeners = new CopyOnWriteArrayList<DeviceListener>();
+
+	private final Object lock = new Object();
+
+	private final ArrayDeque<DeviceEvent> events = new ArrayDeque<DeviceEvent>();
+
+	private int waiters = 0;
+
+	private boolean resetBackoff = false;
+
+	private Thread thread = null;
+
+	/**
+	 * Returns the DeviceManager of <code>DeviceFileSystem.getDefault()</code>
+	 * @return The DeviceManager
+	 */
+	public static DeviceManager getInstance(){
+		return getInstance(DeviceFileSystem.getDefault());
+	}
+
+	/**
+	 * Returns the DeviceManager of the DeviceFileSystem specified
+	 * @param fs The DeviceFileSystem
+	 * @return The DeviceManager
+	 */
+	public static DeviceManager getInstance(DeviceFileSystem fs){
+		synchronized (INSTANCES){
+			WeakReference<DeviceManager> ref = INSTANCES.get(fs);
+			DeviceManager manager = ref == null ? null : ref.get();
+			if (manager == null){
+				//The registry keeps the manager as a listener for as long as the file-system is used
+				manager = new DeviceManager(fs);
+				INSTANCES.put(fs, new WeakReference<DeviceManager>(manager));
+			}
+			return manager;
+		}
+	}
+
+	private DeviceManager(DeviceFileSystem fs){
+		this.fs = fs;
+		this.registry = fs.getRegistry();
+		registry.addChangeListener(this);
+	}
+
+	/**
+	 * Returns the DeviceFileSystem watched
+	 * @return The DeviceFileSystem
+	 */
+	public DeviceFileSystem getFileSystem(){
+		return fs;
+	}
+
+	/**
+	 * Registers a listener to be called when a device is attached.
+	 *  Only the devices found after the registration are reported.
+	 * @param listener The DeviceListener
+	 */
+	public void onAttach(DeviceListener listener){
+		attachListeners.add(listener);
+		wake();
+	}
+
+	/**
+	 * Registers a listener to be called when a device is detached.
+	 * @param listener The DeviceListener
+	 */
+	public void onDetach(DeviceListener listener){
+		detachListeners.add(listener);
+		wake();
+	}
+
+	/**
+	 * Unregisters a listener registered by <code>onAttach()</code> or <code>onDetach()</code>
+	 * @param listener The DeviceListener
+	 */
+	public void removeListener(DeviceListener listener){
+		attachListeners.remove(listener);
+		detachListeners.remove(listener);
+	}
+
+	/**
+	 * Blocks until a motor or sensor is attached to the port specified.
+	 * @param port The LegoPort
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return The DeviceEvent describing the device, or <code>null</code> if the timeout elapsed
+	 * @throws EV3LibraryException If the port address couldn't be read
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public DeviceEvent awaitDevice(LegoPort port, long timeout) throws EV3LibraryException, InterruptedException{
+		return await(DEVICE_CLASSES, port.getAddress(), timeout);
+	}
+
+	/**
+	 * Blocks until a device of the class specified is attached to the address specified.
+	 * @param className The Sysfs class name (e.g. tacho-motor)
+	 * @param address The port address (e.g. outA)
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return The node name (e.g. motor0), or <code>null</code> if the timeout elapsed
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public String awaitDevice(String className, String address, long timeout) throws InterruptedException{
+		DeviceEvent event = await(new String[]{className}, address, timeout);
+		return event == null ? null : event.getClassFullName();
+	}
+
+	@Override
+	public void nodeAdded(String className, String node, String address){
+		DeviceDescriptor.invalidate(fs, className, node);
+		synchronized (lock){
+			lock.notifyAll();
+			if (!attachListeners.isEmpty()){
+				queue(new DeviceEvent(true, className, node, address));
+			}
+		}
+	}
+
+	@Override
+	public void nodeRemoved(String className, String node, String address){
+		DeviceDescriptor.invalidate(fs, className, node);
+		synchronized (lock){
+			if (!detachListeners.isEmpty()){
+				queue(new DeviceEvent(false, className, node, address));
+			}
+		}
+	}
+
+	/**
+	 * Queues an event for the DeviceManager thread, which may not be the thread that refreshed the registry
+	 * @param event The DeviceEvent
+	 */
+	private void queue(DeviceEvent event){
+		events.add(event);
+		if (Thread.currentThread() != thread){
+			wakeLocked();
+		}
+	}
+
+	private DeviceEvent await(String[] classNames, String address, long timeout) throws InterruptedException{
+		DeviceEvent event = find(classNames, address, true);
+		if (event != null){
+			return event;
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		long remaining;
+		synchronized (lock){
+			waiters++;
+			wakeLocked();
+			try {
+				while ((event = find(classNames, address, false)) == null){
+					if (timeout <= 0){
+						lock.wait();
+						continue;
+					}
+					remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+					if (remaining <= 0){
+						return null;
+					}
+					lock.wait(remaining);
+				}
+				return event;
+			} finally {
+				waiters--;
+			}
+		}
+	}
+
+	private DeviceEvent find(String[] classNames, String address, boolean resolve){
+		String node;
+		for (String className : classNames){
+			node = resolve ? registry.resolve(className, address) : registry.lookup(className, address);
+			if (node != null){
+				return new DeviceEvent(true, className, node, address);
+			}
+		}
+		return null;
+	}
+
+	private void dispatch(DeviceEvent event){
+		for (DeviceListener listener : event.isAttached() ? attachListeners : detachListeners){
+			try {
+				listener.onDeviceEvent(event);
+			} catch (RuntimeException e){
+				Thread thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+			}
+		}
+	}
+
+	private void wake(){
+		synchronized (lock){
+			wakeLocked();
+		}
+	}
+
+	private void wakeLocked(){
+		resetBackoff = true;
+		lock.notifyAll();
+		if (thread == null){
+			thread = new Thread(new Runnable(){
+				public void run(){
+					watch();
+				}
+			}, "ev3dev-device-manager");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private void watch(){
+		WatchService watcher = openWatchService();
+		long interval = MIN_POLL_INTERVAL;
+		long wait;
+		long end;
+		boolean changed;
+		WatchKey key;
+		DeviceEvent event;
+		try {
+			while (true){
+				synchronized (lock){
+					if (waiters == 0 && attachListeners.isEmpty() && detachListeners.isEmpty()){
+						events.clear();
+						thread = null;
+						return;
+					}
+					if (resetBackoff){
+						interval = MIN_POLL_INTERVAL;
+						resetBackoff = false;
+					}
+				}
+				changed = false;
+				for (String className : DeviceRegistry.INDEXED_CLASSES){
+					changed |= registry.refresh(className);
+				}
+				while (true){
+					synchronized (lock){
+						event = events.poll();
+					}
+					if (event == null){
+						break;
+					}
+					changed = true;
+					dispatch(event);
+				}
+				interval = changed ? MIN_POLL_INTERVAL : Math.min(interval * 2, MAX_POLL_INTERVAL);
+				synchronized (lock){
+					wait = waiters > 0 ? Math.min(interval, MAX_AWAIT_POLL_INTERVAL) : interval;
+					if (watcher == null && !resetBackoff){
+						lock.wait(wait);
+					}
+				}
+				if (watcher != null){
+					//Sleep in steps, so the events queued by other threads and new waiters wake the thread up
+					end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(wait);
+					while (true){
+						key = watcher.poll(Math.min(wait, WAKE_UP_INTERVAL), TimeUnit.MILLISECONDS);
+						if (key != null){
+							break;
+						}
+						synchronized (lock){
+							if (resetBackoff){
+								break;
+							}
+						}
+						wait = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+						if (wait <= 0){
+							break;
+						}
+					}
+					if (key != null){
+						key.pollEvents();
+						key.reset();
+						interval = MIN_POLL_INTERVAL;
+					}
+				}
+			}
+		} catch (InterruptedException e){
+			synchronized (lock){
+				thread = null;
+			}
+		} finally {
+			if (watcher != null){
+				try {
+					watcher.close();
+				} catch (IOException ignore){}
+			}
+		}
+	}
+
+	private WatchService openWatchService(){
+		if (fs.toRealPath(DeviceFileSystem.SYSFS_CLASS_PATH) == null){
+			return null;
+		}
+		WatchService watcher;
+		try {
+			watcher = FileSystems.getDefault().newWatchService();
+		} catch (IOException | UnsupportedOperationException e){
+			return null;
+		}
+		int registered = 0;
+		Path dir;
+		for (String className : DeviceRegistry.INDEXED_CLASSES){
+			dir = fs.toRealPath(DeviceFileSystem.SYSFS_CLASS_PATH + className);
+			try {
+				dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+				registered++;
+			} catch (IOException ignore){}
+		}
+		if (registered == 0){
+			try {
+				watcher.close();
+			} catch (IOException ignore){}
+			return null;
+		}
+		return watcher;
+	}
+}
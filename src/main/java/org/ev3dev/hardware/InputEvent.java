@@ -0,0 +1,107 @@
+package org.ev3dev.hardware;
+
+/***
+ * A key event decoded from the <code>struct input_event</code> stream of an evdev device by an <code>InputEventReader</code>
+ * @author Anthony
+ *
+ */
+public class InputEvent {
+
+	/**
+	 * The <code>value</code> of a key release
+	 */
+	public static final int VALUE_RELEASE = 0;
+
+	/**
+	 * The <code>value</code> of a key press
+	 */
+	public static final int VALUE_PRESS = 1;
+
+	/**
+	 * The <code>value</code> of a key autorepeat
+	 */
+	public static final int VALUE_REPEAT = 2;
+
+	private final long timestamp;
+
+	private final int type;
+
+	private final int code;
+
+	private final int value;
+
+	/**
+	 * Creates a new InputEvent
+	 * @param timestamp The time of the event in microseconds, as given by the kernel
+	 * @param type The event type (e.g. <code>InputEventReader.EV_KEY</code>)
+	 * @param code The key code (e.g. <code>Button.BUTTON_UP</code>)
+	 * @param value The event value (e.g. <code>VALUE_PRESS</code>)
+	 */
+	public InputEvent(long timestamp, int type, int code, int value){
+		this.timestamp = timestamp;
+		this.type = type;
+		this.code = code;
+		this.value = value;
+	}
+
+	/**
+	 * Returns the time of the event, from the <code>struct timeval</code> of the kernel
+	 * @return The time in microseconds
+	 */
+	public long getTimestamp(){
+		return timestamp;
+	}
+
+	/**
+	 * Returns the event type
+	 * @return The type (e.g. <code>InputEventReader.EV_KEY</code>)
+	 */
+	public int getType(){
+		return type;
+	}
+
+	/**
+	 * Returns the key code
+	 * @return The code (e.g. <code>Button.BUTTON_UP</code>)
+	 */
+	public int getCode(){
+		return code;
+	}
+
+	/**
+	 * Returns the event value
+	 * @return The value (e.g. <code>VALUE_PRESS</code>)
+	 */
+	public int getValue(){
+		return value;
+	}
+
+	/**
+	 * Returns whether this is a key press
+	 * @return A Boolean
+	 */
+	public boolean isPress(){
+		return value == VALUE_PRESS;
+	}
+
+	/**
+	 * Returns whether this is a key release
+	 * @return A Boolean
+	 */
+	public boolean isRelease(){
+		return value == VALUE_RELEASE;
+	}
+
+	/**
+	 * Returns whether this is a key autorepeat, sent while a key is held down
+	 * @return A Boolean
+	 */
+	public boolean isRepeat(){
+		return value == VALUE_REPEAT;
+	}
+
+	@Override
+	public String toString(){
+		return "InputEvent[" + timestamp + ", type " + type + ", code " + code + ", value " + value + "]";
+	}
+}
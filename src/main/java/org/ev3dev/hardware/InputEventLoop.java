@@ -0,0 +1,397 @@
+package org.ev3dev.hardware;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.ev3dev.exception.EV3LibraryException;
+import org.ev3dev.hardware.sensors.TouchSensor;
+
+/***
+ * Dispatches the press and release events of buttons and touch sensors to their <code>PressListener</code>s, on one shared thread.<br>
+ * <br>
+ * The buttons are tracked by <code>InputEventReader.getSystemReader()</code>, which wakes the thread
+ *  up when a key changes. The touch sensors are read every sampling period, and only while a listener is registered on one.
+ *  A new state is only reported once it has been stable for the debounce time. Dispatching an event doesn't allocate memory.<br>
+ * <br>
+ * The thread only runs while listeners are registered. Listeners are called from it, so they should return quickly.
+ *  A listener that throws is passed to the uncaught exception handler of the thread, and the other listeners are still called.
+ * <pre>
+ * new Button(Button.BUTTON_ENTER).addPressListener(pressed -&gt; menu.select());
+ * touchSensor.onChange(pressed -&gt; System.out.println(pressed ? "Pressed" : "Released"));
+ * </pre>
+ * @author Anthony
+ *
+ */
+public class InputEventLoop {
+
+	/**
+	 * The default time between two reads of the touch sensors, in milliseconds
+	 */
+	public static final long DEFAULT_SAMPLING_PERIOD = 10;
+
+	/**
+	 * The default time a new state must be stable for before it is reported, in milliseconds
+	 */
+	public static final long DEFAULT_DEBOUNCE = 20;
+
+	private static final int PRESS = 1;
+
+	private static final int RELEASE = 2;
+
+	private static final String PROPERTY_TOUCH_VALUE = "value" + TouchSensor.SYSFS_VALUE_INDEX;
+
+	private static final Watch[] NO_WATCHES = new Watch[0];
+
+	private static final Registration[] NO_REGISTRATIONS = new Registration[0];
+
+	private static final InputEventLoop INSTANCE = new InputEventLoop();
+
+	private final Object lock = new Object();
+
+	private volatile InputEventReader reader = null;
+
+	private volatile Watch[] watches = NO_WATCHES;
+
+	private volatile long samplingPeriodNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SAMPLING_PERIOD);
+
+	private volatile long debounceNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_DEBOUNCE);
+
+	private volatile Thread thread = null;
+
+	/**
+	 * Returns the shared InputEventLoop instance
+	 * @return The InputEventLoop
+	 */
+	public static InputEventLoop getInstance(){
+		return INSTANCE;
+	}
+
+	private InputEventLoop(){
+
+	}
+
+	/**
+	 * Sets the time between two reads of the touch sensors.<br>
+	 * (Default: <code>DEFAULT_SAMPLING_PERIOD</code>)
+	 * @param period The period in milliseconds
+	 */
+	public void setSamplingPeriod(long period){
+		if (period <= 0){
+			throw new IllegalArgumentException("The sampling period must be positive: " + period);
+		}
+		samplingPeriodNanos = TimeUnit.MILLISECONDS.toNanos(period);
+		wakeUp();
+	}
+
+	/**
+	 * Returns the time between two reads of the touch sensors
+	 * @return The period in milliseconds
+	 */
+	public long getSamplingPeriod(){
+		return TimeUnit.NANOSECONDS.toMillis(samplingPeriodNanos);
+	}
+
+	/**
+	 * Sets the time a new state must be stable for before it is reported.<br>
+	 * (Default: <code>DEFAULT_DEBOUNCE</code>)
+	 * @param debounce The time in milliseconds, or 0 to report every change seen
+	 */
+	public void setDebounce(long debounce){
+		if (debounce < 0){
+			throw new IllegalArgumentException("The debounce time must not be negative: " + debounce);
+		}
+		debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounce);
+		wakeUp();
+	}
+
+	/**
+	 * Returns the time a new state must be stable for before it is reported
+	 * @return The time in milliseconds
+	 */
+	public long getDebounce(){
+		return TimeUnit.NANOSECONDS.toMillis(debounceNanos);
+	}
+
+	/**
+	 * Registers a listener called when the button specified is pressed
+	 * @param button The button (e.g. <code>Button.BUTTON_ENTER</code>)
+	 * @param listener The PressListener
+	 * @throws EV3LibraryException If the button event device can't be read
+	 */
+	public void addPressListener(int button, PressListener listener) throws EV3LibraryException{
+		add(button, null, listener, PRESS);
+	}
+
+	/**
+	 * Registers a listener called when the button specified is released
+	 * @param button The button (e.g. <code>Button.BUTTON_ENTER</code>)
+	 * @param listener The PressListener
+	 * @throws EV3LibraryException If the button event device can't be read
+	 */
+	public void addReleaseListener(int button, PressListener listener) throws EV3LibraryException{
+		add(button, null, listener, RELEASE);
+	}
+
+	/**
+	 * Registers a listener called when the button specified is pressed or released
+	 * @param button The button (e.g. <code>Button.BUTTON_ENTER</code>)
+	 * @param listener The PressListener
+	 * @throws EV3LibraryException If the button event device can't be read
+	 */
+	public void onChange(int button, PressListener listener) throws EV3LibraryException{
+		add(button, null, listener, PRESS | RELEASE);
+	}
+
+	/**
+	 * Registers a listener called when the touch sensor specified is pressed
+	 * @param sensor The TouchSensor
+	 * @param listener The PressListener
+	 */
+	public void addPressListener(TouchSensor sensor, PressListener listener){
+		add(-1, sensor, listener, PRESS);
+	}
+
+	/**
+	 * Registers a listener called when the touch sensor specified is released
+	 * @param sensor The TouchSensor
+	 * @param listener The PressListener
+	 */
+	public void addReleaseListener(TouchSensor sensor, PressListener listener){
+		add(-1, sensor, listener, RELEASE);
+	}
+
+	/**
+	 * Registers a listener called when the touch sensor specified is pressed or released
+	 * @param sensor The TouchSensor
+	 * @param listener The PressListener
+	 */
+	public void onChange(TouchSensor sensor, PressListener listener){
+		add(-1, sensor, listener, PRESS | RELEASE);
+	}
+
+	/**
+	 * Unregisters a listener from the button specified
+	 * @param button The button (e.g. <code>Button.BUTTON_ENTER</code>)
+	 * @param listener The PressListener
+	 */
+	public void removeListener(int button, PressListener listener){
+		remove(button, null, listener);
+	}
+
+	/**
+	 * Unregisters a listener from the touch sensor specified
+	 * @param sensor The TouchSensor
+	 * @param listener The PressListener
+	 */
+	public void removeListener(TouchSensor sensor, PressListener listener){
+		remove(-1, sensor, listener);
+	}
+
+	private void add(int button, TouchSensor sensor, PressListener listener, int kinds){
+		if (listener == null){
+			throw new NullPointerException();
+		}
+		synchronized (lock){
+			if (sensor == null && reader == null){
+				InputEventReader r = InputEventReader.getSystemReader();
+				r.addChangeCallback(new Runnable(){
+					public void run(){
+						wakeUp();
+					}
+				});
+				reader = r;
+			}
+			Watch watch = find(button, sensor);
+			if (watch == null){
+				watch = new Watch(button, sensor);
+				Watch[] w = new Watch[watches.length + 1];
+				System.arraycopy(watches, 0, w, 0, watches.length);
+				w[watches.length] = watch;
+				watches = w;
+			}
+			Registration[] r = new Registration[watch.registrations.length + 1];
+			System.arraycopy(watch.registrations, 0, r, 0, watch.registrations.length);
+			r[watch.registrations.length] = new Registration(listener, kinds);
+			watch.registrations = r;
+			if (thread == null){
+				thread = new Thread(new Runnable(){
+					public void run(){
+						loop();
+					}
+				}, "ev3dev-input-loop");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+	}
+
+	private void remove(int button, TouchSensor sensor, PressListener listener){
+		synchronized (lock){
+			Watch watch = find(button, sensor);
+			if (watch == null){
+				return;
+			}
+			int n = 0;
+			Registration[] r = new Registration[watch.registrations.length];
+			for (Registration registration : watch.registrations){
+				if (registration.listener != listener){
+					r[n++] = registration;
+				}
+			}
+			if (n > 0){
+				watch.registrations = n == r.length ? watch.registrations : Arrays.copyOf(r, n);
+				return;
+			}
+			watch.registrations = NO_REGISTRATIONS;
+			n = 0;
+			Watch[] w = new Watch[watches.length - 1];
+			for (Watch other : watches){
+				if (other != watch){
+					w[n++] = other;
+				}
+			}
+			watches = w;
+		}
+		wakeUp();
+	}
+
+	private Watch find(int button, TouchSensor sensor){
+		for (Watch watch : watches){
+			if (watch.sensor == sensor && (sensor != null || watch.button == button)){
+				return watch;
+			}
+		}
+		return null;
+	}
+
+	private void wakeUp(){
+		Thread t = thread;
+		if (t != null){
+			LockSupport.unpark(t);
+		}
+	}
+
+	private void loop(){
+		Watch[] w;
+		Watch watch;
+		long now;
+		long wait;
+		long debounce;
+		boolean sampling;
+		boolean raw;
+		while (true){
+			w = watches;
+			if (w.length == 0){
+				synchronized (lock){
+					if (watches.length == 0){
+						thread = null;
+						return;
+					}
+				}
+				continue;
+			}
+			now = System.nanoTime();
+			debounce = debounceNanos;
+			wait = Long.MAX_VALUE;
+			sampling = false;
+			for (int i = 0; i < w.length; i++){
+				watch = w[i];
+				if (watch.sensor != null){
+					sampling = true;
+					try {
+						raw = watch.sensor.getIntAttribute(PROPERTY_TOUCH_VALUE) != 0;
+					} catch (EV3LibraryException | NumberFormatException e){
+						//Unplugged, keep the last state
+						continue;
+					}
+					if (!watch.initialized){
+						watch.stable = raw;
+						watch.initialized = true;
+						continue;
+					}
+				} else {
+					raw = reader.isPressed(watch.button);
+				}
+				if (raw == watch.stable){
+					watch.pending = false;
+					continue;
+				}
+				if (!watch.pending){
+					watch.pending = true;
+					watch.pendingSince = now;
+				}
+				if (now - watch.pendingSince >= debounce){
+					watch.pending = false;
+					watch.stable = raw;
+					dispatch(watch, raw);
+				} else {
+					wait = Math.min(wait, watch.pendingSince + debounce - now);
+				}
+			}
+			if (sampling){
+				wait = Math.min(wait, samplingPeriodNanos);
+			}
+			if (wait == Long.MAX_VALUE){
+				LockSupport.park(this);
+			} else {
+				LockSupport.parkNanos(this, wait);
+			}
+		}
+	}
+
+	private static void dispatch(Watch watch, boolean pressed){
+		Registration[] r = watch.registrations;
+		int kind = pressed ? PRESS : RELEASE;
+		for (int i = 0; i < r.length; i++){
+			if ((r[i].kinds & kind) != 0){
+				try {
+					r[i].listener.onPressChange(pressed);
+				} catch (RuntimeException e){
+					Thread thread = Thread.currentThread();
+					thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The debounced state and the listeners of one button or touch sensor
+	 */
+	private static class Watch {
+
+		private final int button;
+
+		private final TouchSensor sensor;
+
+		private volatile Registration[] registrations = NO_REGISTRATIONS;
+
+		private boolean initialized = false;
+
+		private boolean stable = false;
+
+		private boolean pending = false;
+
+		private long pendingSince = 0;
+
+		private Watch(int button, TouchSensor sensor){
+			this.button = button;
+			this.sensor = sensor;
+		}
+	}
+
+	/**
+	 * A listener and the events it is registered for
+	 */
+	private static class Registration {
+
+		private final PressListener listener;
+
+		private final int kinds;
+
+		private Registration(PressListener listener, int kinds){
+			this.listener = listener;
+			this.kinds = kinds;
+		}
+	}
+}
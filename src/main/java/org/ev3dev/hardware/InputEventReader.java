@@ -0,0 +1,383 @@
+package org.ev3dev.hardware;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.ev3dev.exception.EV3LibraryException;
+import org.ev3dev.io.DeviceFileSystem;
+
+/***
+ * Keeps an evdev event device open and tracks the state of its keys from the <code>struct input_event</code> stream.<br>
+ * <br>
+ * A daemon thread blocks on the device, decodes the events from a reused buffer and keeps the state of every key in
+ *  an atomic bitmap, so <code>isPressed()</code> is a memory read. The key events are also queued, for programs that
+ *  want every press in order (see <code>takeEvent()</code>). The thread keeps running once started.<br>
+ * <br>
+ * evdev only reports changes, so a key held down before the reader started reads as released until it is released and pressed again.<br>
+ * <br>
+ * Any file of <code>input_event</code> structs can stand in for the device, such as a FIFO or a regular file:
+ *  at the end of the file, the reader waits for more data to be appended.
+ * @author Anthony
+ *
+ */
+public class InputEventReader {
+
+	/**
+	 * The <code>type</code> of key events
+	 */
+	public static final int EV_KEY = 0x01;
+
+	/**
+	 * The largest key code
+	 */
+	public static final int KEY_MAX = 0x2ff;
+
+	/**
+	 * The size of <code>struct input_event</code> on 32-bit systems such as the EV3: a <code>struct timeval</code> of two 32-bit longs,
+	 *  then a 16-bit type, a 16-bit code and a 32-bit value
+	 */
+	public static final int EVENT_SIZE_32 = 16;
+
+	/**
+	 * The size of <code>struct input_event</code> on 64-bit systems, whose <code>struct timeval</code> has two 64-bit longs
+	 */
+	public static final int EVENT_SIZE_64 = 24;
+
+	/**
+	 * The size of <code>struct input_event</code> for the JVM running
+	 */
+	public static final int DEFAULT_EVENT_SIZE = "64".equals(System.getProperty("sun.arch.data.model")) ? EVENT_SIZE_64 : EVENT_SIZE_32;
+
+	/**
+	 * The maximum number of events kept in the queue. The oldest events are dropped when it is full.
+	 */
+	public static final int EVENT_QUEUE_CAPACITY = 64;
+
+	private static final int EVENTS_PER_READ = 64;
+
+	/**
+	 * The time between two reads at the end of a regular file or FIFO, in milliseconds
+	 */
+	private static final long TAIL_INTERVAL = 10;
+
+	/**
+	 * The time before opening the device again after an error, in milliseconds
+	 */
+	private static final long RETRY_INTERVAL = 100;
+
+	private static InputEventReader systemReader = null;
+
+	private final DeviceFileSystem fs;
+
+	private final String path;
+
+	private final int eventSize;
+
+	private final AtomicLongArray keys = new AtomicLongArray(KEY_MAX / 64 + 1);
+
+	private final int[] pressCounts = new int[KEY_MAX + 1];
+
+	private final ArrayDeque<InputEvent> events = new ArrayDeque<InputEvent>(EVENT_QUEUE_CAPACITY);
+
+	private final List<Runnable> callbacks = new CopyOnWriteArrayList<Runnable>();
+
+	private final Object lock = new Object();
+
+	private long presses = 0;
+
+	private int lastPressed = -1;
+
+	private Thread thread = null;
+
+	/**
+	 * Returns the shared reader of the EV3 buttons (<code>Button.SYSTEM_EVENT_PATH</code>), started. It reads the buttons
+	 *  of <code>DeviceFileSystem.getDefault()</code> at the time of the first call.
+	 * @return The InputEventReader
+	 * @throws EV3LibraryException If the event device can't be read
+	 */
+	public static synchronized InputEventReader getSystemReader() throws EV3LibraryException{
+		if (systemReader == null){
+			InputEventReader reader = new InputEventReader(Button.SYSTEM_EVENT_PATH);
+			reader.start();
+			systemReader = reader;
+		}
+		return systemReader;
+	}
+
+	/**
+	 * Creates a new InputEventReader on <code>DeviceFileSystem.getDefault()</code>, for the <code>input_event</code> size of the JVM running
+	 * @param path The path of the event device
+	 */
+	public InputEventReader(String path){
+		this(path, DEFAULT_EVENT_SIZE);
+	}
+
+	/**
+	 * Creates a new InputEventReader on <code>DeviceFileSystem.getDefault()</code>
+	 * @param path The path of the event device
+	 * @param eventSize The size of <code>struct input_event</code>, <code>EVENT_SIZE_32</code> or <code>EVENT_SIZE_64</code>
+	 */
+	public InputEventReader(String path, int eventSize){
+		this(DeviceFileSystem.getDefault(), path, eventSize);
+	}
+
+	/**
+	 * Creates a new InputEventReader
+	 * @param fs The DeviceFileSystem the event device is opened through
+	 * @param path The path of the event device
+	 * @param eventSize The size of <code>struct input_event</code>, <code>EVENT_SIZE_32</code> or <code>EVENT_SIZE_64</code>
+	 */
+	public InputEventReader(DeviceFileSystem fs, String path, int eventSize){
+		if (eventSize != EVENT_SIZE_32 && eventSize != EVENT_SIZE_64){
+			throw new IllegalArgumentException("The event size must be 16 or 24: " + eventSize);
+		}
+		this.fs = fs;
+		this.path = path;
+		this.eventSize = eventSize;
+	}
+
+	/**
+	 * Starts the reader thread, if not started yet
+	 * @throws EV3LibraryException If the event device can't be read
+	 */
+	public synchronized void start() throws EV3LibraryException{
+		if (thread != null){
+			return;
+		}
+		if (!fs.exists(path)){
+			throw new EV3LibraryException("Cannot read the event device " + path + ". Are you running this on your EV3?");
+		}
+		thread = new Thread(new Runnable(){
+			public void run(){
+				read();
+			}
+		}, "ev3dev-input-reader");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Returns whether a key is down
+	 * @param code The key code (e.g. <code>Button.BUTTON_UP</code>)
+	 * @return Whether the key is down
+	 */
+	public boolean isPressed(int code){
+		return (keys.get(code >>> 6) & (1L << code)) != 0;
+	}
+
+	/**
+	 * Blocks until the key specified is pressed. Only presses after this call count.
+	 * @param code The key code (e.g. <code>Button.BUTTON_UP</code>)
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return Whether the key was pressed, <code>false</code> if the timeout elapsed
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public boolean waitForPress(int code, long timeout) throws InterruptedException{
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		long remaining;
+		synchronized (lock){
+			int count = pressCounts[code];
+			while (pressCounts[code] == count){
+				if (timeout <= 0){
+					lock.wait();
+					continue;
+				}
+				remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remaining <= 0){
+					return false;
+				}
+				lock.wait(remaining);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Blocks until any key is pressed. Only presses after this call count.
+	 * @return The code of the key pressed
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public int waitForAnyPress() throws InterruptedException{
+		return waitForAnyPress(0);
+	}
+
+	/**
+	 * Blocks until any key is pressed. Only presses after this call count.
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return The code of the key pressed, or -1 if the timeout elapsed
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public int waitForAnyPress(long timeout) throws InterruptedException{
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		long remaining;
+		synchronized (lock){
+			long count = presses;
+			while (presses == count){
+				if (timeout <= 0){
+					lock.wait();
+					continue;
+				}
+				remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remaining <= 0){
+					return -1;
+				}
+				lock.wait(remaining);
+			}
+			return lastPressed;
+		}
+	}
+
+	/**
+	 * Removes the oldest key event from the queue
+	 * @return The InputEvent, or <code>null</code> if the queue is empty
+	 */
+	public InputEvent pollEvent(){
+		synchronized (lock){
+			return events.poll();
+		}
+	}
+
+	/**
+	 * Removes the oldest key event from the queue, waiting for one if the queue is empty
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return The InputEvent, or <code>null</code> if the timeout elapsed
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public InputEvent takeEvent(long timeout) throws InterruptedException{
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		long remaining;
+		synchronized (lock){
+			while (events.isEmpty()){
+				if (timeout <= 0){
+					lock.wait();
+					continue;
+				}
+				remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remaining <= 0){
+					return null;
+				}
+				lock.wait(remaining);
+			}
+			return events.poll();
+		}
+	}
+
+	/**
+	 * Empties the event queue
+	 */
+	public void clearEvents(){
+		synchronized (lock){
+			events.clear();
+		}
+	}
+
+	/**
+	 * Registers a callback run on the reader thread after key states have changed
+	 * @param callback The callback
+	 */
+	void addChangeCallback(Runnable callback){
+		callbacks.add(callback);
+	}
+
+	private void read(){
+		ByteBuffer buffer = ByteBuffer.allocateDirect(eventSize * EVENTS_PER_READ).order(ByteOrder.nativeOrder());
+		int n;
+		int offset;
+		boolean changed;
+		while (true){
+			try (FileChannel channel = fs.open(path, false)){
+				buffer.clear();
+				while (true){
+					n = channel.read(buffer);
+					if (n < 0){
+						//End of a regular file or FIFO: wait for more to be written
+						Thread.sleep(TAIL_INTERVAL);
+						continue;
+					}
+					buffer.flip();
+					changed = false;
+					for (offset = buffer.position(); buffer.limit() - offset >= eventSize; offset += eventSize){
+						changed |= decode(buffer, offset);
+					}
+					buffer.position(offset);
+					buffer.compact();
+					if (changed){
+						for (Runnable callback : callbacks){
+							callback.run();
+						}
+					}
+				}
+			} catch (IOException e){
+				//The device is gone: no key is down any more
+				releaseAll();
+			} catch (InterruptedException e){
+				return;
+			}
+			try {
+				Thread.sleep(RETRY_INTERVAL);
+			} catch (InterruptedException e){
+				return;
+			}
+		}
+	}
+
+	private boolean decode(ByteBuffer buffer, int offset){
+		int type = buffer.getShort(offset + eventSize - 8) & 0xffff;
+		int code = buffer.getShort(offset + eventSize - 6) & 0xffff;
+		int value = buffer.getInt(offset + eventSize - 4);
+		if (type != EV_KEY || code > KEY_MAX){
+			return false;
+		}
+		long timestamp;
+		if (eventSize == EVENT_SIZE_64){
+			timestamp = buffer.getLong(offset) * 1000000L + buffer.getLong(offset + 8);
+		} else {
+			timestamp = (buffer.getInt(offset) & 0xffffffffL) * 1000000L + buffer.getInt(offset + 4);
+		}
+		boolean changed = false;
+		if (value != InputEvent.VALUE_REPEAT){
+			changed = setKey(code, value != InputEvent.VALUE_RELEASE);
+		}
+		synchronized (lock){
+			if (events.size() == EVENT_QUEUE_CAPACITY){
+				events.poll();
+			}
+			events.add(new InputEvent(timestamp, type, code, value));
+			if (value == InputEvent.VALUE_PRESS){
+				pressCounts[code]++;
+				presses++;
+				lastPressed = code;
+			}
+			lock.notifyAll();
+		}
+		return changed;
+	}
+
+	private boolean setKey(int code, boolean down){
+		long bit = 1L << code;
+		long old;
+		do {
+			old = keys.get(code >>> 6);
+		} while (!keys.compareAndSet(code >>> 6, old, down ? old | bit : old & ~bit));
+		return ((old & bit) != 0) != down;
+	}
+
+	private void releaseAll(){
+		boolean changed = false;
+		for (int i = 0; i < keys.length(); i++){
+			changed |= keys.getAndSet(i, 0) != 0;
+		}
+		if (changed){
+			for (Runnable callback : callbacks){
+				callback.run();
+			}
+		}
+	}
+}
@@ -1,12 +1,11 @@
 package org.ev3dev.hardware;
 
-import java.io.DataOutputStream;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import org.ev3dev.exception.EV3LibraryException;
+import org.ev3dev.io.DeviceFileSystem;
 
 /**
  * Provides an interface to draw to the EV3's LCD
@@ -15,15 +14,39 @@ import org.ev3dev.exception.EV3LibraryException;
  */
 public class LCD {
 	
-	public static final String FB_PATH = "/dev/fb0";
+	/**
+	 * The path of the framebuffer device, opened through the DeviceFileSystem of the LCD
+	 */
+	public static final String FB_PATH = DeviceFileSystem.DEV_PATH + "fb0";
 	
 	//This should not be hard-coded, however just for testing
 	public static final int SCREEN_WIDTH = 178;
 	
 	public static final int SCREEN_HEIGHT = 128;
 
+	private final DeviceFileSystem fs;
+
+	/**
+	 * Creates a new LCD, drawing to the framebuffer of <code>DeviceFileSystem.getDefault()</code>
+	 */
 	public LCD() {
-		
+		this(DeviceFileSystem.getDefault());
+	}
+	
+	/**
+	 * Creates a new LCD
+	 * @param fs The DeviceFileSystem the framebuffer is opened through
+	 */
+	public LCD(DeviceFileSystem fs) {
+		this.fs = fs;
+	}
+	
+	/**
+	 * Returns the DeviceFileSystem the framebuffer is opened through
+	 * @return The DeviceFileSystem
+	 */
+	public DeviceFileSystem getFileSystem(){
+		return fs;
 	}
 	
 	/**
@@ -32,18 +55,72 @@ public class LCD {
 	 * @throws EV3LibraryException
 	 */
 	public void draw(byte[] data) throws EV3LibraryException{
-		File file = new File(FB_PATH);
-		if (!file.exists()){
+		if (!fs.exists(FB_PATH)){
 			throw new EV3LibraryException("The framebuffer device does not exist! Are you using a EV3?");
 		}
-		try {
-			DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
-			out.write(data);
-			out.flush();
-			out.close();
+		try (FileChannel out = fs.open(FB_PATH, true)){
+			ByteBuffer buf = ByteBuffer.wrap(data);
+			while (buf.hasRemaining()){
+				out.write(buf);
+			}
 		} catch (IOException e) {
 			throw new EV3LibraryException("Unable to draw the LCD", e);
 		}
 	}
+	
+	/**
+	 * Draws the changed parts of a frame into the EV3 framebuffer: the bytes <code>[starts[y], ends[y])</code> of each line <code>y</code>
+	 *  of <code>[top, bottom)</code>. Lines with <code>starts[y] &gt;= ends[y]</code> are skipped. Spans that follow each other
+	 *  in the framebuffer are written together.
+	 * @param data The whole frame, the same as for <code>draw()</code>
+	 * @param lineLength The number of bytes of a line of the frame
+	 * @param starts The first changed byte of each line
+	 * @param ends The byte after the last changed byte of each line
+	 * @param top The first line to look at
+	 * @param bottom The line after the last one to look at
+	 * @return The number of bytes written
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public int drawSpans(byte[] data, int lineLength, int[] starts, int[] ends, int top, int bottom) throws EV3LibraryException{
+		if (!fs.exists(FB_PATH)){
+			throw new EV3LibraryException("The framebuffer device does not exist! Are you using a EV3?");
+		}
+		int written = 0;
+		int offset = -1;
+		int length = 0;
+		int start;
+		try (FileChannel out = fs.open(FB_PATH, true)){
+			for (int y = top; y < bottom; y++){
+				if (starts[y] >= ends[y]){
+					continue;
+				}
+				start = y * lineLength + starts[y];
+				if (offset >= 0 && offset + length == start){
+					length += ends[y] - starts[y];
+					continue;
+				}
+				if (offset >= 0){
+					written += write(out, data, offset, length);
+				}
+				offset = start;
+				length = ends[y] - starts[y];
+			}
+			if (offset >= 0){
+				written += write(out, data, offset, length);
+			}
+		} catch (IOException e) {
+			throw new EV3LibraryException("Unable to draw the LCD", e);
+		}
+		return written;
+	}
+	
+	private static int write(FileChannel out, byte[] data, int offset, int length) throws IOException{
+		ByteBuffer buf = ByteBuffer.wrap(data, offset, length);
+		long position = offset;
+		while (buf.hasRemaining()){
+			position += out.write(buf, position);
+		}
+		return length;
+	}
 
 }
@@ -4,11 +4,14 @@ import java.awt.Color;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Rectangle;
 import java.awt.Shape;
+import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
 import java.text.AttributedCharacterIterator;
+import java.util.Arrays;
 
 import org.ev3dev.exception.EV3LibraryException;
 
@@ -20,8 +23,14 @@ public class LCDGraphics extends Graphics {
 	
 	public static final int BUF_SIZE = LINE_LEN * ROWS;
 	
+	private static final int ARC_SCALE = 1024;
+
 	private LCD lcd;
 	
+	private final LCDPresenter presenter;
+
+	private final LCDGraphics surface;
+	
 	private boolean whiteColor = false;
 	
 	private byte[] buf;
@@ -31,32 +40,271 @@ public class LCDGraphics extends Graphics {
 	private int transy = 0;
 	
 	private Font font;
+	
+	private int clipX1 = 0;
+
+	private int clipY1 = 0;
+
+	private int clipX2 = LCD.SCREEN_WIDTH;
+
+	private int clipY2 = ROWS;
+
+	private boolean clipping = false;
+
+	private boolean arc = false;
+
+	private boolean arcWide;
+
+	private long arcAx;
 
+	private long arcAy;
+
+	private long arcBx;
+
+	private long arcBy;
+
+	private int arcCx2;
+
+	private int arcCy2;
+
+	private final int[] range1 = new int[2];
+
+	private final int[] range2 = new int[2];
+
+	private final int[] spanLeft = new int[ROWS];
+
+	private final int[] spanRight = new int[ROWS];
+
+	private final byte[] lineCopy = new byte[LINE_LEN];
+	
+	private final int[] dirtyStart;
+	
+	private final int[] dirtyEnd;
+	
+	private int dirtyTop = ROWS;
+	
+	private int dirtyBottom = 0;
+	
+	private int lastFlushBytes = 0;
+	
+	private long flushedBytes = 0;
+	
+	private long flushedFrames = 0;
+	
+	private long skippedFrames = 0;
+
+	/**
+	 * Creates a new LCDGraphics. The whole buffer is dirty, so the first flush draws the whole screen.
+	 * @param lcd The LCD to draw to
+	 */
 	public LCDGraphics(LCD lcd) {
+		this(lcd, null);
+	}
+	
+	/**
+	 * Creates a new LCDGraphics whose flushes are drawn by the presenter thread of an LCDPresenter, so they return at once.
+	 *  The whole buffer is dirty, so the first flush draws the whole screen.
+	 * @param presenter The LCDPresenter
+	 */
+	public LCDGraphics(LCDPresenter presenter) {
+		this(presenter.getLCD(), presenter);
+	}
+	
+	private LCDGraphics(LCD lcd, LCDPresenter presenter) {
 		this.lcd = lcd;
+		this.presenter = presenter;
+		surface = this;
 		buf = new byte[BUF_SIZE];
+		dirtyStart = new int[ROWS];
+		dirtyEnd = new int[ROWS];
+		markAllDirty();
+	}
+
+	private LCDGraphics(LCDGraphics g) {
+		lcd = g.lcd;
+		presenter = g.presenter;
+		surface = g.surface;
+		buf = g.buf;
+		dirtyStart = g.dirtyStart;
+		dirtyEnd = g.dirtyEnd;
+		whiteColor = g.whiteColor;
+		transx = g.transx;
+		transy = g.transy;
+		font = g.font;
+		clipX1 = g.clipX1;
+		clipY1 = g.clipY1;
+		clipX2 = g.clipX2;
+		clipY2 = g.clipY2;
+	}
+	
+	/**
+	 * Returns the LCDPresenter drawing the flushes of this LCDGraphics
+	 * @return The LCDPresenter, or <code>null</code> if they are drawn by the thread flushing
+	 */
+	public LCDPresenter getPresenter(){
+		return presenter;
 	}
 	
 	/**
-	 * Applies the Graphics context onto the ev3dev's LCD
+	 * Applies the Graphics context onto the ev3dev's LCD. Only the bytes changed since the last flush are written,
+	 *  or the whole buffer if nothing changed. With an LCDPresenter, the frame is handed to its thread instead.
 	 */
 	public void flush(){
-		lcd.draw(buf);
+		if (!isDirty()){
+			markAllDirty();
+		}
+		write();
+	}
+	
+	/**
+	 * Applies the bytes changed since the last flush onto the ev3dev's LCD, if any
+	 * @return Whether anything was written
+	 */
+	public boolean flushIfDirty(){
+		if (!isDirty()){
+			surface.skippedFrames++;
+			return false;
+		}
+		write();
+		return true;
+	}
+	
+	/**
+	 * Returns whether anything was drawn since the last flush
+	 * @return A Boolean
+	 */
+	public boolean isDirty(){
+		return surface.dirtyTop < surface.dirtyBottom;
+	}
+	
+	/**
+	 * Marks the whole buffer as changed, so the next flush draws the whole screen (e.g. after another program drew on it)
+	 */
+	public void markAllDirty(){
+		markDirty(0, ROWS, 0, LINE_LEN);
+	}
+	
+	/**
+	 * Returns the number of bytes written by the last flush. With an LCDPresenter, the number of bytes changed
+	 *  (see <code>LCDPresenter.getLastPresentBytes()</code> for the bytes written).
+	 * @return The number of bytes
+	 */
+	public int getLastFlushBytes(){
+		return surface.lastFlushBytes;
+	}
+	
+	/**
+	 * Returns the number of bytes written by all the flushes
+	 * @return The number of bytes
+	 */
+	public long getFlushedBytes(){
+		return surface.flushedBytes;
+	}
+	
+	/**
+	 * Returns the number of flushes that wrote something
+	 * @return The number of frames
+	 */
+	public long getFlushedFrames(){
+		return surface.flushedFrames;
+	}
+	
+	/**
+	 * Returns the number of calls to <code>flushIfDirty()</code> that were skipped because nothing changed
+	 * @return The number of frames
+	 */
+	public long getSkippedFrames(){
+		return surface.skippedFrames;
+	}
+	
+	/**
+	 * Marks the bytes <code>[start, end)</code> of the lines <code>[top, bottom)</code> as changed. The range is clipped to the buffer.
+	 * @param top The first line
+	 * @param bottom The line after the last one
+	 * @param start The first byte of each line
+	 * @param end The byte after the last one
+	 */
+	private void markDirty(int top, int bottom, int start, int end){
+		top = Math.max(top, 0);
+		bottom = Math.min(bottom, ROWS);
+		start = Math.max(start, 0);
+		end = Math.min(end, LINE_LEN);
+		if (top >= bottom || start >= end){
+			return;
+		}
+		for (int y = top; y < bottom; y++){
+			if (dirtyStart[y] >= dirtyEnd[y]){
+				dirtyStart[y] = start;
+				dirtyEnd[y] = end;
+			} else {
+				dirtyStart[y] = Math.min(dirtyStart[y], start);
+				dirtyEnd[y] = Math.max(dirtyEnd[y], end);
+			}
+		}
+		surface.dirtyTop = Math.min(surface.dirtyTop, top);
+		surface.dirtyBottom = Math.max(surface.dirtyBottom, bottom);
 	}
 
 	/**
-	 * Not implemented
+	 * Marks the bytes <code>[start, end)</code> of a line as changed, without clipping
+	 * @param y The line
+	 * @param start The first byte
+	 * @param end The byte after the last one
+	 */
+	private void markRow(int y, int start, int end){
+		if (dirtyStart[y] >= dirtyEnd[y]){
+			dirtyStart[y] = start;
+			dirtyEnd[y] = end;
+		} else {
+			if (start < dirtyStart[y]){
+				dirtyStart[y] = start;
+			}
+			if (end > dirtyEnd[y]){
+				dirtyEnd[y] = end;
+			}
+		}
+		if (y < surface.dirtyTop){
+			surface.dirtyTop = y;
+		}
+		if (y >= surface.dirtyBottom){
+			surface.dirtyBottom = y + 1;
+		}
+	}
+	
+	private void write(){
+		LCDGraphics s = surface;
+		if (presenter != null){
+			presenter.submit(buf, LINE_LEN, dirtyStart, dirtyEnd, s.dirtyTop, s.dirtyBottom);
+			s.lastFlushBytes = 0;
+			for (int y = s.dirtyTop; y < s.dirtyBottom; y++){
+				s.lastFlushBytes += dirtyEnd[y] - dirtyStart[y];
+			}
+		} else {
+			s.lastFlushBytes = lcd.drawSpans(buf, LINE_LEN, dirtyStart, dirtyEnd, s.dirtyTop, s.dirtyBottom);
+		}
+		s.flushedBytes += s.lastFlushBytes;
+		s.flushedFrames++;
+		for (int y = s.dirtyTop; y < s.dirtyBottom; y++){
+			dirtyStart[y] = 0;
+			dirtyEnd[y] = 0;
+		}
+		s.dirtyTop = ROWS;
+		s.dirtyBottom = 0;
+	}
+
+	/**
+	 * Creates a new LCDGraphics drawing into the same buffer, with its own color, translation and clip.
+	 *  Flushing either of them flushes everything drawn by both.
 	 */
 	@Override
 	public Graphics create() {
-		// TODO Auto-generated method stub
-		return null;
+		return new LCDGraphics(this);
 	}
 
 	@Override
 	public void translate(int x, int y) {
-		this.transx = x;
-		this.transy = y;
+		this.transx += x;
+		this.transy += y;
 	}
 	
 	public void setWhiteColor(){
@@ -74,7 +322,7 @@ public class LCDGraphics extends Graphics {
 
 	@Override
 	public void setColor(Color c) throws EV3LibraryException{
-		if (c == null || !c.equals(Color.BLACK) || !c.equals(Color.WHITE)){
+		if (c == null || !(c.equals(Color.BLACK) || c.equals(Color.WHITE))){
 			throw new EV3LibraryException("The EV3 LCD only supports Color.BLACK and Color.WHITE");
 		}
 		whiteColor = c.equals(Color.WHITE);
@@ -120,174 +368,773 @@ public class LCDGraphics extends Graphics {
 		return null;
 	}
 
+	/**
+	 * Returns the bounds of the clip, which is never larger than the screen
+	 */
 	@Override
 	public Rectangle getClipBounds() {
-		// TODO Auto-generated method stub
-		return null;
+		return new Rectangle(clipX1 - transx, clipY1 - transy, clipX2 - clipX1, clipY2 - clipY1);
 	}
 
 	@Override
 	public void clipRect(int x, int y, int width, int height) {
-		// TODO Auto-generated method stub
-		
+		x += transx;
+		y += transy;
+		setDeviceClip(Math.max(x, clipX1), Math.max(y, clipY1), Math.min(x + width, clipX2), Math.min(y + height, clipY2));
 	}
 
 	@Override
 	public void setClip(int x, int y, int width, int height) {
-		// TODO Auto-generated method stub
-		
+		x += transx;
+		y += transy;
+		setDeviceClip(x, y, x + width, y + height);
 	}
 
+	/**
+	 * Returns the clip, which is always a rectangle
+	 */
 	@Override
 	public Shape getClip() {
-		// TODO Auto-generated method stub
-		return null;
+		return getClipBounds();
 	}
 
+	/**
+	 * Sets the clip to the bounds of a Shape, or to the whole screen with <code>null</code>. Only rectangular clips are supported.
+	 */
 	@Override
 	public void setClip(Shape clip) {
-		// TODO Auto-generated method stub
+		if (clip == null){
+			setDeviceClip(0, 0, LCD.SCREEN_WIDTH, ROWS);
+			return;
+		}
+		Rectangle r = clip.getBounds();
+		setClip(r.x, r.y, r.width, r.height);
+	}
 		
+	/**
+	 * Sets the clip in screen coordinates, limited to the screen
+	 * @param x1 The first column
+	 * @param y1 The first line
+	 * @param x2 The column after the last one
+	 * @param y2 The line after the last one
+	 */
+	private void setDeviceClip(int x1, int y1, int x2, int y2){
+		clipX1 = Math.max(x1, 0);
+		clipY1 = Math.max(y1, 0);
+		clipX2 = Math.max(Math.min(x2, LCD.SCREEN_WIDTH), clipX1);
+		clipY2 = Math.max(Math.min(y2, ROWS), clipY1);
 	}
 
+	/**
+	 * Starts drawing a primitive within a bounding box in screen coordinates. The box is compared to the clip once,
+	 *  so that the pixels of a primitive inside the clip are not checked one by one.
+	 * @param x1 The first column
+	 * @param y1 The first line
+	 * @param x2 The last column
+	 * @param y2 The last line
+	 * @return Whether any of the box is inside the clip
+	 */
+	private boolean clip(int x1, int y1, int x2, int y2){
+		if (clipX1 >= clipX2 || clipY1 >= clipY2 || x2 < clipX1 || x1 >= clipX2 || y2 < clipY1 || y1 >= clipY2){
+			return false;
+		}
+		clipping = x1 < clipX1 || x2 >= clipX2 || y1 < clipY1 || y2 >= clipY2;
+		arc = false;
+		return true;
+	}
+
+	/**
+	 * Copies an area of the buffer by a distance given by dx and dy. The parts of the area that would be copied from
+	 *  outside the screen or to outside the clip are skipped. Lines are copied with <code>System.arraycopy()</code> when dx is a multiple of 8,
+	 *  and a byte at a time otherwise.
+	 */
 	@Override
 	public void copyArea(int x, int y, int width, int height, int dx, int dy) {
-		
+		x += transx;
+		y += transy;
+		int x1 = Math.max(Math.max(x, 0), clipX1 - dx);
+		int x2 = Math.min(Math.min(x + width, LCD.SCREEN_WIDTH), clipX2 - dx);
+		int y1 = Math.max(Math.max(y, 0), clipY1 - dy);
+		int y2 = Math.min(Math.min(y + height, ROWS), clipY2 - dy);
+		if (x1 >= x2 || y1 >= y2 || (dx == 0 && dy == 0)){
+			return;
+		}
+		int first = (x1 + dx) >>> 3;
+		int last = (x2 + dx - 1) >>> 3;
+		if (dx == 0 && x1 == 0 && x2 == LCD.SCREEN_WIDTH){
+			//Whole lines, the lines can be copied together
+			System.arraycopy(buf, y1 * LINE_LEN, buf, (y1 + dy) * LINE_LEN, (y2 - y1) * LINE_LEN);
+		} else {
+			int firstMask = 0xff << ((x1 + dx) & 7);
+			int lastMask = 0xff >>> (7 - ((x2 + dx - 1) & 7));
+			if (first == last){
+				firstMask &= lastMask;
+			}
+			//Copy the lines in the order that reads each of them before it is overwritten
+			if (dy > 0){
+				for (int row = y2 - 1; row >= y1; row--){
+					copyLine(row, row + dy, dx, first, last, firstMask, lastMask);
+				}
+			} else {
+				for (int row = y1; row < y2; row++){
+					copyLine(row, row + dy, dx, first, last, firstMask, lastMask);
+				}
+			}
+		}
+		markDirty(y1 + dy, y2 + dy, first, last + 1);
+	}
+	
+	/**
+	 * Scrolls the whole screen by dx and dy, within the clip. The parts uncovered become white.
+	 * @param dx The distance to the right in pixels
+	 * @param dy The distance down in pixels
+	 */
+	public void scroll(int dx, int dy){
+		copyArea(-transx, -transy, LCD.SCREEN_WIDTH, ROWS, dx, dy);
+		if (dy > 0){
+			fill(0, 0, LCD.SCREEN_WIDTH, dy, false);
+		} else if (dy < 0){
+			fill(0, ROWS + dy, LCD.SCREEN_WIDTH, -dy, false);
+		}
+		if (dx > 0){
+			fill(0, 0, dx, ROWS, false);
+		} else if (dx < 0){
+			fill(LCD.SCREEN_WIDTH + dx, 0, -dx, ROWS, false);
+		}
+	}
+	
+	/**
+	 * Copies the bytes <code>[first, last]</code> of a line to another line, the pixels moved by dx
+	 * @param from The line copied
+	 * @param to The line copied to
+	 * @param dx The distance to the right in pixels
+	 * @param first The first byte of the destination
+	 * @param last The last byte of the destination
+	 * @param firstMask The bits of the first byte copied
+	 * @param lastMask The bits of the last byte copied
+	 */
+	private void copyLine(int from, int to, int dx, int first, int last, int firstMask, int lastMask){
+		int dst = to * LINE_LEN;
+		System.arraycopy(buf, from * LINE_LEN, lineCopy, 0, LINE_LEN);
+		if ((dx & 7) == 0){
+			int shift = dx >> 3;
+			setBits(dst + first, lineCopy[first - shift], firstMask);
+			if (last > first){
+				System.arraycopy(lineCopy, first + 1 - shift, buf, dst + first + 1, last - first - 1);
+				setBits(dst + last, lineCopy[last - shift], lastMask);
+			}
+			return;
+		}
+		int mask;
+		int source;
+		int b;
+		int value;
+		for (int i = first; i <= last; i++){
+			mask = i == first ? firstMask : (i == last ? lastMask : 0xff);
+			//The 8 pixels from source onwards, from the two bytes they are in
+			source = i * 8 - dx;
+			b = source >> 3;
+			value = 0;
+			if (b >= 0 && b < LINE_LEN){
+				value = lineCopy[b] & 0xff;
+			}
+			if (b + 1 >= 0 && b + 1 < LINE_LEN){
+				value |= (lineCopy[b + 1] & 0xff) << 8;
+			}
+			setBits(dst + i, value >>> (source & 7), mask);
+		}
 	}
 	
+	/**
+	 * Draws a line with Bresenham's algorithm, in integers only. Horizontal and vertical lines are filled as spans.
+	 */
 	@Override
-	public void drawLine(int x1, int y1, int x2, int y2) { //Uses Bresenham's line algorithm
-		boolean steep = Math.abs(y2 - y1) > Math.abs(x2 - x1);
-		
-		if (steep){
-			int tmp = x1;
-			x1 = y1;
-			y1 = tmp;
-			
-			tmp = x2;
-			x2 = y2;
-			y2 = x2;
+	public void drawLine(int x1, int y1, int x2, int y2) {
+		x1 += transx;
+		y1 += transy;
+		x2 += transx;
+		y2 += transy;
+		if (y1 == y2){
+			fill(Math.min(x1, x2), y1, Math.abs(x2 - x1) + 1, 1, !whiteColor);
+			return;
 		}
-		
-		if (x1 > x2){
-			int tmp = x1;
-			x1 = x2;
-			x2 = tmp;
-			
-			tmp = y1;
-			y1 = y2;
-			y2 = tmp;
+		if (x1 == x2){
+			fill(x1, Math.min(y1, y2), 1, Math.abs(y2 - y1) + 1, !whiteColor);
+			return;
 		}
-		
-		double deltax = x2 - x1;
-		double deltay = Math.abs(y2 - y1);
-		
-		double err = deltax / 2;
-		
-		int xlen = x2 - x1;
-		int y = y1;
-		
-		int ystep;
-		if (y1 < y2){
-			ystep = 1;
-		} else {
-			ystep = -1;
+		if (!clip(Math.min(x1, x2), Math.min(y1, y2), Math.max(x1, x2), Math.max(y1, y2))){
+			return;
 		}
-		
-		for (int i = 0; i < xlen; i++){
-			if (steep){
-				plot(y,i);
-			} else {
-				plot(i,y);
+		int dx = Math.abs(x2 - x1);
+		int dy = -Math.abs(y2 - y1);
+		int sx = x1 < x2 ? 1 : -1;
+		int sy = y1 < y2 ? 1 : -1;
+		int err = dx + dy;
+		int e2;
+		while (true){
+			pixel(x1, y1);
+			if (x1 == x2 && y1 == y2){
+				break;
+			}
+			e2 = 2 * err;
+			if (e2 >= dy){
+				err += dy;
+				x1 += sx;
 			}
-			
-			err -= deltay;
-			if (err < 0){
-				y += ystep;
-				err += deltax;
+			if (e2 <= dx){
+				err += dx;
+				y1 += sy;
 			}
 		}
 	}
 	
 	/**
-	 * Plot the specified (x,y) position with the selected color (Color.BLACK or Color.WHITE)
+	 * Plot the specified (x,y) position with the selected color (Color.BLACK or Color.WHITE). Positions outside the clip are ignored.
 	 * @param x Position x
 	 * @param y Position y
 	 */
 	public void plot(int x, int y){
-		buf[y * LINE_LEN + x / 8] = (byte) (whiteColor ? 0x00 : 0xff);
+		x += transx;
+		y += transy;
+		if (x < clipX1 || x >= clipX2 || y < clipY1 || y >= clipY2){
+			return;
+		}
+		setBits(y * LINE_LEN + (x >>> 3), whiteColor ? 0 : 0xff, 1 << (x & 7));
+		markRow(y, x >>> 3, (x >>> 3) + 1);
+	}
+	
+	/**
+	 * Returns whether the specified (x,y) position is black
+	 * @param x Position x
+	 * @param y Position y
+	 * @return A Boolean, <code>false</code> outside the screen
+	 */
+	public boolean getPixel(int x, int y){
+		x += transx;
+		y += transy;
+		if (x < 0 || x >= LCD.SCREEN_WIDTH || y < 0 || y >= ROWS){
+			return false;
+		}
+		return (buf[y * LINE_LEN + (x >>> 3)] & (1 << (x & 7))) != 0;
+	}
+
+	/**
+	 * Sets a pixel of the primitive being drawn, in screen coordinates. It is checked against the clip
+	 *  only if the primitive crosses it.
+	 * @param x Position x
+	 * @param y Position y
+	 */
+	private void pixel(int x, int y){
+		if (clipping && (x < clipX1 || x >= clipX2 || y < clipY1 || y >= clipY2)){
+			return;
+		}
+		setBits(y * LINE_LEN + (x >>> 3), whiteColor ? 0 : 0xff, 1 << (x & 7));
+		markRow(y, x >>> 3, (x >>> 3) + 1);
 	}
 
 	@Override
 	public void fillRect(int x, int y, int width, int height) {
-		for (int i = 0; i < height; i++){
-			for (int j = 0; j < width; j++){
-				buf[(((i+y) * LINE_LEN)) + (x + j) / 8] = (byte) (whiteColor ? 0x00 : 0xff);
-			}
-		}
+		fill(x + transx, y + transy, width, height, !whiteColor);
 	}
 
 	@Override
 	public void clearRect(int x, int y, int width, int height) {
-		for (int i = 0; i < height; i++){
-			for (int j = 0; j < width; j++){
-				buf[(((i+y) * LINE_LEN)) + (x + j) / 8] = (byte) 0x00;
-			}
+		fill(x + transx, y + transy, width, height, false);
+	}
+	
+	/**
+	 * Fills a rectangle in screen coordinates, clipped once. Rectangles as wide as the screen are filled in one go.
+	 * @param x Position x
+	 * @param y Position y
+	 * @param width The width in pixels
+	 * @param height The height in pixels
+	 * @param black Whether to fill with black or with white
+	 */
+	private void fill(int x, int y, int width, int height, boolean black){
+		if (width <= 0 || height <= 0){
+			return;
 		}
+		int x1 = Math.max(x, clipX1);
+		int x2 = Math.min(x + width, clipX2);
+		int y1 = Math.max(y, clipY1);
+		int y2 = Math.min(y + height, clipY2);
+		if (x1 >= x2 || y1 >= y2){
+			return;
+		}
+		int value = black ? 0xff : 0;
+		if (x1 == 0 && x2 == LCD.SCREEN_WIDTH){
+			//Whole lines, the padding after the screen width included
+			Arrays.fill(buf, y1 * LINE_LEN, y2 * LINE_LEN, (byte) value);
+			markDirty(y1, y2, 0, LINE_LEN);
+			return;
+		}
+		for (int row = y1; row < y2; row++){
+			span(row, x1, x2, value);
+		}
+	}
+
+	/**
+	 * Fills the pixels <code>[x1, x2)</code> of a line in screen coordinates, clipped. The partial bytes at both ends
+	 *  are masked and the whole bytes between them are filled at once.
+	 * @param y The line
+	 * @param x1 The first column
+	 * @param x2 The column after the last one
+	 * @param value 0xff for black or 0 for white
+	 */
+	private void span(int y, int x1, int x2, int value){
+		if (y < clipY1 || y >= clipY2){
+			return;
+		}
+		x1 = Math.max(x1, clipX1);
+		x2 = Math.min(x2, clipX2);
+		if (x1 >= x2){
+			return;
+		}
+		int line = y * LINE_LEN;
+		int first = x1 >>> 3;
+		int last = (x2 - 1) >>> 3;
+		int firstMask = 0xff << (x1 & 7);
+		int lastMask = 0xff >>> (7 - ((x2 - 1) & 7));
+		if (first == last){
+			setBits(line + first, value, firstMask & lastMask);
+		} else {
+			setBits(line + first, value, firstMask);
+			Arrays.fill(buf, line + first + 1, line + last, (byte) value);
+			setBits(line + last, value, lastMask);
+		}
+		markRow(y, first, last + 1);
+	}
+	
+	/**
+	 * Sets the bits of a byte of the buffer selected by a mask to those of a value
+	 * @param index The index of the byte
+	 * @param value The value
+	 * @param mask The bits to set
+	 */
+	private void setBits(int index, int value, int mask){
+		buf[index] = (byte) ((buf[index] & ~mask) | (value & mask));
 	}
 
 	@Override
 	public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
-		// TODO Auto-generated method stub
-		
+		if (width < 0 || height < 0){
+			return;
+		}
+		x += transx;
+		y += transy;
+		arcWidth = Math.min(Math.abs(arcWidth), width);
+		arcHeight = Math.min(Math.abs(arcHeight), height);
+		if (!clip(x, y, x + width, y + height)){
+			return;
+		}
+		if (arcWidth > 0 && arcHeight > 0){
+			ellipse(x, y, x + arcWidth, y + arcHeight, width - arcWidth, height - arcHeight, false);
+		}
+		int left = x + arcWidth / 2;
+		int right = x + width - arcWidth / 2;
+		int top = y + arcHeight / 2;
+		int bottom = y + height - arcHeight / 2;
+		fill(left, y, right - left + 1, 1, !whiteColor);
+		fill(left, y + height, right - left + 1, 1, !whiteColor);
+		fill(x, top, 1, bottom - top + 1, !whiteColor);
+		fill(x + width, top, 1, bottom - top + 1, !whiteColor);
 	}
 
 	@Override
 	public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
-		// TODO Auto-generated method stub
-		
+		if (width <= 0 || height <= 0){
+			return;
+		}
+		x += transx;
+		y += transy;
+		arcWidth = Math.min(Math.abs(arcWidth), width);
+		arcHeight = Math.min(Math.abs(arcHeight), height);
+		if (arcWidth == 0 || arcHeight == 0){
+			fill(x, y, width, height, !whiteColor);
+			return;
+		}
+		if (!clip(x, y, x + width - 1, y + height - 1)){
+			return;
+		}
+		fillEllipse(x, y, x + arcWidth - 1, y + arcHeight - 1, width - arcWidth, height - arcHeight);
 	}
 
 	@Override
 	public void drawOval(int x, int y, int width, int height) {
-		// TODO Auto-generated method stub
-		
+		if (width < 0 || height < 0){
+			return;
+		}
+		x += transx;
+		y += transy;
+		if (!clip(x, y, x + width, y + height)){
+			return;
+		}
+		ellipse(x, y, x + width, y + height, 0, 0, false);
 	}
 
 	@Override
 	public void fillOval(int x, int y, int width, int height) {
-		// TODO Auto-generated method stub
-		
+		if (width <= 0 || height <= 0){
+			return;
+		}
+		x += transx;
+		y += transy;
+		if (!clip(x, y, x + width - 1, y + height - 1)){
+			return;
+		}
+		fillEllipse(x, y, x + width - 1, y + height - 1, 0, 0);
 	}
 
 	@Override
 	public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
-		// TODO Auto-generated method stub
-		
+		if (width < 0 || height < 0){
+			return;
+		}
+		x += transx;
+		y += transy;
+		if (!clip(x, y, x + width, y + height) || !setArc(x, y, x + width, y + height, startAngle, arcAngle)){
+			return;
+		}
+		ellipse(x, y, x + width, y + height, 0, 0, false);
 	}
 
 	@Override
 	public void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
-		// TODO Auto-generated method stub
+		if (width <= 0 || height <= 0){
+			return;
+		}
+		x += transx;
+		y += transy;
+		if (!clip(x, y, x + width - 1, y + height - 1) || !setArc(x, y, x + width - 1, y + height - 1, startAngle, arcAngle)){
+			return;
+		}
+		fillEllipse(x, y, x + width - 1, y + height - 1, 0, 0);
+	}
 		
+	/**
+	 * Limits the ellipse being drawn to an arc. The angles are relative to the bounding box, so 45 degrees always points
+	 *  to its upper right corner. The directions of the ends are the only values computed with floating point, once per arc.
+	 * @param x0 The first column of the box
+	 * @param y0 The first line of the box
+	 * @param x1 The last column of the box
+	 * @param y1 The last line of the box
+	 * @param startAngle The beginning angle in degrees
+	 * @param arcAngle The angular extent of the arc in degrees, counter-clockwise
+	 * @return Whether there is anything to draw
+	 */
+	private boolean setArc(int x0, int y0, int x1, int y1, int startAngle, int arcAngle){
+		if (arcAngle == 0){
+			return false;
+		}
+		if (arcAngle >= 360 || arcAngle <= -360){
+			return true;
+		}
+		if (arcAngle < 0){
+			startAngle += arcAngle;
+			arcAngle = -arcAngle;
+		}
+		double start = Math.toRadians(startAngle);
+		double end = Math.toRadians(startAngle + arcAngle);
+		long w = x1 - x0;
+		long h = y1 - y0;
+		//The points on the arc are counter-clockwise from A and clockwise from B, so on the left of A and of -B
+		arcAx = Math.round(Math.cos(start) * w * ARC_SCALE);
+		arcAy = Math.round(Math.sin(start) * h * ARC_SCALE);
+		arcBx = -Math.round(Math.cos(end) * w * ARC_SCALE);
+		arcBy = -Math.round(Math.sin(end) * h * ARC_SCALE);
+		arcWide = arcAngle > 180;
+		arcCx2 = x0 + x1;
+		arcCy2 = y0 + y1;
+		arc = true;
+		return true;
+	}
+
+	/**
+	 * Returns whether a pixel is on the arc being drawn
+	 * @param x Position x
+	 * @param y Position y
+	 * @return A Boolean
+	 */
+	private boolean inArc(int x, int y){
+		//Twice the position from the center, upwards
+		long u = 2L * x - arcCx2;
+		long v = arcCy2 - 2L * y;
+		boolean a = arcAx * v - arcAy * u >= 0;
+		boolean b = arcBx * v - arcBy * u >= 0;
+		return arcWide ? a || b : a && b;
+	}
+
+	/**
+	 * Fills the pixels of <code>[left, right]</code> of a line that are on the arc being drawn
+	 * @param y The line
+	 * @param left The first column
+	 * @param right The last column
+	 * @param value 0xff for black or 0 for white
+	 */
+	private void arcSpan(int y, int left, int right, int value){
+		long v = arcCy2 - 2L * y;
+		range1[0] = left;
+		range1[1] = right;
+		range2[0] = left;
+		range2[1] = right;
+		halfPlane(arcAx, arcAy, v, range1);
+		halfPlane(arcBx, arcBy, v, range2);
+		if (!arcWide){
+			span(y, Math.max(range1[0], range2[0]), Math.min(range1[1], range2[1]) + 1, value);
+		} else if (range1[0] > range1[1] || range2[0] > range2[1] || range1[1] + 1 < range2[0] || range2[1] + 1 < range1[0]){
+			span(y, range1[0], range1[1] + 1, value);
+			span(y, range2[0], range2[1] + 1, value);
+		} else {
+			span(y, Math.min(range1[0], range2[0]), Math.max(range1[1], range2[1]) + 1, value);
+		}
+	}
+
+	/**
+	 * Limits a range of columns of a line to the pixels on the left of a direction from the center of the arc
+	 * @param dx The direction x
+	 * @param dy The direction y, upwards
+	 * @param v Twice the position of the line from the center, upwards
+	 * @param range The first and the last column, limited in place
+	 */
+	private void halfPlane(long dx, long dy, long v, int[] range){
+		//dx * v - dy * u >= 0, with u = 2 * x - arcCx2
+		if (dy == 0){
+			if (dx * v < 0){
+				range[1] = range[0] - 1;
+			}
+		} else if (dy > 0){
+			range[1] = (int) Math.min(range[1], Math.floorDiv(Math.floorDiv(dx * v, dy) + arcCx2, 2));
+		} else {
+			range[0] = (int) Math.max(range[0], -Math.floorDiv(Math.floorDiv(dx * v, -dy) - arcCx2, 2));
+		}
+	}
+
+	/**
+	 * Fills an ellipse, or the corners of a round rectangle, one span per line. Lines between the corners are filled whole.
+	 * @param x0 The first column of the ellipse
+	 * @param y0 The first line of the ellipse
+	 * @param x1 The last column of the ellipse
+	 * @param y1 The last line of the ellipse
+	 * @param ox The distance the right half is moved by
+	 * @param oy The distance the bottom half is moved by
+	 */
+	private void fillEllipse(int x0, int y0, int x1, int y1, int ox, int oy){
+		int top = Math.max(y0, clipY1);
+		int bottom = Math.min(y1 + oy, clipY2 - 1);
+		for (int y = top; y <= bottom; y++){
+			spanLeft[y] = Integer.MAX_VALUE;
+			spanRight[y] = Integer.MIN_VALUE;
+		}
+		ellipse(x0, y0, x1, y1, ox, oy, true);
+		int value = whiteColor ? 0 : 0xff;
+		for (int y = top; y <= bottom; y++){
+			if (spanLeft[y] > spanRight[y]){
+				spanLeft[y] = x0;
+				spanRight[y] = x1 + ox;
+			}
+			if (arc){
+				arcSpan(y, spanLeft[y], spanRight[y], value);
+			} else {
+				span(y, spanLeft[y], spanRight[y] + 1, value);
+			}
+		}
+	}
+
+	/**
+	 * Scan converts the ellipse in the box <code>[x0, x1] x [y0, y1]</code> with A. Zingl's midpoint algorithm, in integers only.
+	 *  The right half is moved by ox and the bottom half by oy, to draw the corners of a round rectangle. The pixels of the outline
+	 *  are set, or with fill, the outermost pixels of each line are stored into <code>spanLeft</code> and <code>spanRight</code>.
+	 * @param x0 The first column
+	 * @param y0 The first line
+	 * @param x1 The last column
+	 * @param y1 The last line
+	 * @param ox The distance the right half is moved by
+	 * @param oy The distance the bottom half is moved by
+	 * @param fill Whether to store the spans instead of setting the outline
+	 */
+	private void ellipse(int x0, int y0, int x1, int y1, int ox, int oy, boolean fill){
+		long a = x1 - x0;
+		long b = y1 - y0;
+		long b1 = b & 1;
+		long dx = 4 * (1 - a) * b * b;
+		long dy = 4 * (b1 + 1) * a * a;
+		long err = dx + dy + b1 * a * a;
+		long e2;
+		y0 += (b + 1) / 2;
+		y1 = y0 - (int) b1;
+		a *= 8 * a;
+		b1 = 8 * b * b;
+		do {
+			point(x1 + ox, y0 + oy, fill);
+			point(x0, y0 + oy, fill);
+			point(x0, y1, fill);
+			point(x1 + ox, y1, fill);
+			e2 = 2 * err;
+			if (e2 <= dy){
+				y0++;
+				y1--;
+				dy += a;
+				err += dy;
+			}
+			if (e2 >= dx || 2 * err > dy){
+				x0++;
+				x1--;
+				dx += b1;
+				err += dx;
+			}
+		} while (x0 <= x1);
+		//Flat ellipses stop too early, finish their tips
+		while (y0 - y1 <= b){
+			point(x0 - 1, y0 + oy, fill);
+			point(x1 + 1 + ox, y0 + oy, fill);
+			point(x0 - 1, y1, fill);
+			point(x1 + 1 + ox, y1, fill);
+			y0++;
+			y1--;
+		}
+	}
+
+	/**
+	 * Sets a pixel of an ellipse's outline, or stores it as an end of its line's span
+	 * @param x Position x
+	 * @param y Position y
+	 * @param fill Whether to store the span
+	 */
+	private void point(int x, int y, boolean fill){
+		if (fill){
+			if (y >= clipY1 && y < clipY2){
+				if (x < spanLeft[y]){
+					spanLeft[y] = x;
+				}
+				if (x > spanRight[y]){
+					spanRight[y] = x;
+				}
+			}
+		} else if (!arc || inArc(x, y)){
+			pixel(x, y);
+		}
 	}
 
 	@Override
 	public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
-		// TODO Auto-generated method stub
-		
+		for (int i = 1; i < nPoints; i++){
+			drawLine(xPoints[i - 1], yPoints[i - 1], xPoints[i], yPoints[i]);
+		}
 	}
 
 	@Override
 	public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) {
-		// TODO Auto-generated method stub
-		
+		drawPolyline(xPoints, yPoints, nPoints);
+		if (nPoints > 2){
+			drawLine(xPoints[nPoints - 1], yPoints[nPoints - 1], xPoints[0], yPoints[0]);
+		}
 	}
 
+	/**
+	 * Fills a polygon with the even-odd rule, scanning the lines with an active edge table. The pixels whose centers are
+	 *  inside are filled, one span at a time. Edges are stepped from line to line in integers only.
+	 */
 	@Override
 	public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
-		// TODO Auto-generated method stub
-		
+		if (nPoints < 3){
+			return;
+		}
+		int[] edgeTop = new int[nPoints];
+		int[] edgeBottom = new int[nPoints];
+		int[] edgeX = new int[nPoints];
+		int[] edgeRem = new int[nPoints];
+		int[] edgeStep = new int[nPoints];
+		int[] edgeStepRem = new int[nPoints];
+		int[] edgeDen = new int[nPoints];
+		int[] active = new int[nPoints];
+		int edges = 0;
+		int top = Integer.MAX_VALUE;
+		int bottom = Integer.MIN_VALUE;
+		int xa;
+		int ya;
+		int xb;
+		int yb;
+		int tmp;
+		for (int i = 0; i < nPoints; i++){
+			xa = xPoints[i] + transx;
+			ya = yPoints[i] + transy;
+			xb = xPoints[(i + 1) % nPoints] + transx;
+			yb = yPoints[(i + 1) % nPoints] + transy;
+			if (ya == yb){
+				continue;
+			}
+			if (ya > yb){
+				tmp = xa;
+				xa = xb;
+				xb = tmp;
+				tmp = ya;
+				ya = yb;
+				yb = tmp;
+			}
+			edgeTop[edges] = ya;
+			edgeBottom[edges] = yb;
+			//The edge at the center of line y is xa + (2 * (y - ya) + 1) * (xb - xa) / den, den = 2 * (yb - ya),
+			// edgeX is the first pixel whose center is on its right, edgeRem what was rounded up, times den
+			edgeDen[edges] = 2 * (yb - ya);
+			edgeStep[edges] = (int) Math.floorDiv(2L * (xb - xa), edgeDen[edges]);
+			edgeStepRem[edges] = (int) (2L * (xb - xa) - (long) edgeStep[edges] * edgeDen[edges]);
+			edgeX[edges] = xa;
+			edgeRem[edges] = xb - xa;
+			top = Math.min(top, ya);
+			bottom = Math.max(bottom, yb);
+			edges++;
+		}
+		top = Math.max(top, clipY1);
+		bottom = Math.min(bottom, clipY2);
+		if (edges == 0 || top >= bottom){
+			return;
+		}
+		for (int i = 0; i < edges; i++){
+			//Start each edge at its first visible line
+			ya = Math.max(edgeTop[i], top);
+			long numerator = (2L * edgeX[i] - 1) * (edgeDen[i] / 2) + (2L * (ya - edgeTop[i]) + 1) * edgeRem[i];
+			edgeX[i] = (int) -Math.floorDiv(-numerator, edgeDen[i]);
+			edgeRem[i] = (int) ((long) edgeX[i] * edgeDen[i] - numerator);
+			edgeTop[i] = ya;
+		}
+		int count = 0;
+		int value = whiteColor ? 0 : 0xff;
+		int e;
+		int j;
+		for (int y = top; y < bottom; y++){
+			//Update the active edges, kept sorted by x
+			j = 0;
+			for (int i = 0; i < count; i++){
+				if (edgeBottom[active[i]] > y){
+					active[j++] = active[i];
+				}
+			}
+			count = j;
+			for (int i = 0; i < edges; i++){
+				if (edgeTop[i] == y && edgeBottom[i] > y){
+					active[count++] = i;
+				}
+			}
+			for (int i = 1; i < count; i++){
+				e = active[i];
+				for (j = i - 1; j >= 0 && edgeX[active[j]] > edgeX[e]; j--){
+					active[j + 1] = active[j];
+				}
+				active[j + 1] = e;
+			}
+			for (int i = 0; i + 1 < count; i += 2){
+				span(y, edgeX[active[i]], edgeX[active[i + 1]], value);
+			}
+			for (int i = 0; i < count; i++){
+				e = active[i];
+				edgeX[e] += edgeStep[e];
+				edgeRem[e] -= edgeStepRem[e];
+				if (edgeRem[e] < 0){
+					edgeX[e]++;
+					edgeRem[e] += edgeDen[e];
+				}
+			}
+		}
 	}
 
 	@Override
@@ -306,40 +1153,144 @@ public class LCDGraphics extends Graphics {
 
 	@Override
 	public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
-		// TODO Auto-generated method stub
-		return false;
+		return drawImage(img, x, y, null, observer);
 	}
 
 	@Override
 	public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
-		// TODO Auto-generated method stub
-		return false;
+		return drawImage(img, x, y, width, height, null, observer);
 	}
 
 	@Override
 	public boolean drawImage(Image img, int x, int y, Color bgcolor, ImageObserver observer) {
-		// TODO Auto-generated method stub
-		return false;
+		BufferedImage image = toBufferedImage(img, observer);
+		if (image == null){
+			return false;
+		}
+		drawImage(image, x, y, x + image.getWidth(), y + image.getHeight(), 0, 0, image.getWidth(), image.getHeight(), bgcolor);
+		return true;
 	}
 
 	@Override
 	public boolean drawImage(Image img, int x, int y, int width, int height, Color bgcolor, ImageObserver observer) {
-		// TODO Auto-generated method stub
-		return false;
+		BufferedImage image = toBufferedImage(img, observer);
+		if (image == null){
+			return false;
+		}
+		drawImage(image, x, y, x + width, y + height, 0, 0, image.getWidth(), image.getHeight(), bgcolor);
+		return true;
 	}
 
 	@Override
 	public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2,
 			ImageObserver observer) {
-		// TODO Auto-generated method stub
-		return false;
+		return drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null, observer);
 	}
 
+	/**
+	 * Draws an image scaled to the nearest pixel. Dark pixels are drawn black and light ones white. Transparent pixels
+	 *  are skipped, or drawn with the background color if there is one.
+	 */
 	@Override
 	public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2,
 			Color bgcolor, ImageObserver observer) {
-		// TODO Auto-generated method stub
-		return false;
+		BufferedImage image = toBufferedImage(img, observer);
+		if (image == null){
+			return false;
+		}
+		drawImage(image, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, bgcolor);
+		return true;
+	}
+
+	/**
+	 * Draws the area <code>[sx1, sx2) x [sy1, sy2)</code> of an image into <code>[dx1, dx2) x [dy1, dy2)</code>, scaled to the nearest
+	 *  pixel and mirrored if the corners are swapped. The source pixel of each column is worked out once.
+	 */
+	private void drawImage(BufferedImage image, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, Color bgcolor){
+		if (dx1 == dx2 || dy1 == dy2 || sx1 == sx2 || sy1 == sy2){
+			return;
+		}
+		dx1 += transx;
+		dx2 += transx;
+		dy1 += transy;
+		dy2 += transy;
+		int x1 = Math.max(Math.min(dx1, dx2), clipX1);
+		int x2 = Math.min(Math.max(dx1, dx2), clipX2);
+		int y1 = Math.max(Math.min(dy1, dy2), clipY1);
+		int y2 = Math.min(Math.max(dy1, dy2), clipY2);
+		if (x1 >= x2 || y1 >= y2){
+			return;
+		}
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int background = bgcolor == null ? -1 : (isDark(bgcolor.getRGB()) ? 0xff : 0);
+		int[] columns = new int[x2 - x1];
+		for (int x = x1; x < x2; x++){
+			columns[x - x1] = sx1 + (int) Math.floorDiv((2L * (x - dx1) + 1) * (sx2 - sx1), 2L * (dx2 - dx1));
+		}
+		int[] pixels = new int[width];
+		int sy;
+		int line;
+		int sx;
+		int argb;
+		int value;
+		for (int y = y1; y < y2; y++){
+			sy = sy1 + (int) Math.floorDiv((2L * (y - dy1) + 1) * (sy2 - sy1), 2L * (dy2 - dy1));
+			if (sy < 0 || sy >= height){
+				continue;
+			}
+			image.getRGB(0, sy, width, 1, pixels, 0, width);
+			line = y * LINE_LEN;
+			for (int x = x1; x < x2; x++){
+				sx = columns[x - x1];
+				if (sx < 0 || sx >= width){
+					continue;
+				}
+				argb = pixels[sx];
+				if ((argb >>> 24) < 0x80){
+					if (background < 0){
+						continue;
+					}
+					value = background;
+				} else {
+					value = isDark(argb) ? 0xff : 0;
+				}
+				setBits(line + (x >>> 3), value, 1 << (x & 7));
+			}
+			markRow(y, x1 >>> 3, ((x2 - 1) >>> 3) + 1);
+		}
+	}
+
+	/**
+	 * Returns whether a color is closer to black than to white
+	 * @param rgb The color, 8 bits per channel
+	 * @return A Boolean
+	 */
+	private static boolean isDark(int rgb){
+		int luma = 77 * ((rgb >> 16) & 0xff) + 150 * ((rgb >> 8) & 0xff) + 29 * (rgb & 0xff);
+		return luma < 128 << 8;
+	}
+
+	/**
+	 * Returns an image as a BufferedImage, drawing it into one if necessary
+	 * @param img The image
+	 * @param observer The object notified while the image is loaded
+	 * @return The BufferedImage, or <code>null</code> if the image isn't loaded yet
+	 */
+	private static BufferedImage toBufferedImage(Image img, ImageObserver observer){
+		if (img instanceof BufferedImage){
+			return (BufferedImage) img;
+		}
+		int width = img.getWidth(observer);
+		int height = img.getHeight(observer);
+		if (width <= 0 || height <= 0){
+			return null;
+		}
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		boolean loaded = g.drawImage(img, 0, 0, observer);
+		g.dispose();
+		return loaded ? image : null;
 	}
 
 	@Override
@@ -0,0 +1,346 @@
+package org.ev3dev.hardware;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ev3dev.exception.EV3LibraryException;
+
+/***
+ * Draws the frames of an <code>LCDGraphics</code> onto an LCD from a background thread, so drawing
+ *  never blocks the threads that render.<br>
+ * <br>
+ * Three buffers are used: the <code>LCDGraphics</code> renders into its own buffer, <code>flush()</code> copies the
+ *  finished frame into the pending buffer and returns, and the presenter thread swaps the pending buffer with the one it
+ *  draws from. Frames are drawn at most <code>getMaxFrameRate()</code> times per second. A frame flushed before
+ *  the previous one was drawn replaces it (it is dropped), and only the spans changed since the last drawn
+ *  frame are written.<br>
+ * <br>
+ * A frame that fails to be drawn doesn't stop the thread: the failure is kept and thrown by the next <code>flush()</code>
+ *  or by <code>close()</code>.
+ * <pre>
+ * LCDPresenter presenter = new LCDPresenter(new MappedLCD(), 20);
+ * LCDGraphics g = new LCDGraphics(presenter);
+ * g.fillRect(0, 0, 10, 10);
+ * g.flush(); //Returns at once
+ * </pre>
+ * @author Anthony
+ *
+ */
+public class LCDPresenter {
+
+	/**
+	 * The default maximum number of frames drawn per second
+	 */
+	public static final int DEFAULT_MAX_FRAME_RATE = 30;
+
+	private final LCD lcd;
+
+	private final Object lock = new Object();
+
+	private volatile long minIntervalNanos;
+
+	private byte[] pending = null;
+
+	private int[] pendingStarts;
+
+	private int[] pendingEnds;
+
+	private int pendingTop;
+
+	private int pendingBottom;
+
+	private boolean hasPending = false;
+
+	private byte[] presenting;
+
+	private int[] presentingStarts;
+
+	private int[] presentingEnds;
+
+	private int lineLength;
+
+	private boolean busy = false;
+
+	private boolean closed = false;
+
+	private EV3LibraryException failure = null;
+
+	private Thread thread = null;
+
+	private long presentedFrames = 0;
+
+	private long droppedFrames = 0;
+
+	private long presentedBytes = 0;
+
+	private int lastPresentBytes = 0;
+
+	/**
+	 * Creates a new LCDPresenter, drawing at most <code>DEFAULT_MAX_FRAME_RATE</code> frames per second
+	 * @param lcd The LCD to draw to
+	 */
+	public LCDPresenter(LCD lcd){
+		this(lcd, DEFAULT_MAX_FRAME_RATE);
+	}
+
+	/**
+	 * Creates a new LCDPresenter
+	 * @param lcd The LCD to draw to
+	 * @param maxFrameRate The maximum number of frames drawn per second
+	 */
+	public LCDPresenter(LCD lcd, int maxFrameRate){
+		this.lcd = lcd;
+		setMaxFrameRate(maxFrameRate);
+	}
+
+	/**
+	 * Returns the LCD drawn to
+	 * @return The LCD
+	 */
+	public LCD getLCD(){
+		return lcd;
+	}
+
+	/**
+	 * Sets the maximum number of frames drawn per second
+	 * @param maxFrameRate The number of frames
+	 */
+	public void setMaxFrameRate(int maxFrameRate){
+		if (maxFrameRate <= 0){
+			throw new IllegalArgumentException("The frame rate must be positive: " + maxFrameRate);
+		}
+		minIntervalNanos = TimeUnit.SECONDS.toNanos(1) / maxFrameRate;
+	}
+
+	/**
+	 * Returns the maximum number of frames drawn per second
+	 * @return The number of frames
+	 */
+	public int getMaxFrameRate(){
+		return (int) (TimeUnit.SECONDS.toNanos(1) / minIntervalNanos);
+	}
+
+	/**
+	 * Hands a finished frame to the presenter thread. The frame is copied, so the caller can go on drawing into it.
+	 *  A frame that wasn't drawn yet is replaced.
+	 * @param frame The whole frame
+	 * @param lineLength The number of bytes of a line
+	 * @param starts The first changed byte of each line
+	 * @param ends The byte after the last changed byte of each line
+	 * @param top The first changed line
+	 * @param bottom The line after the last changed line
+	 * @throws IllegalStateException If the presenter is closed
+	 * @throws EV3LibraryException If a previous frame failed to be drawn, this frame isn't taken
+	 */
+	void submit(byte[] frame, int lineLength, int[] starts, int[] ends, int top, int bottom) throws EV3LibraryException{
+		synchronized (lock){
+			if (closed){
+				throw new IllegalStateException("The LCDPresenter is closed");
+			}
+			rethrowFailure();
+			if (pending == null){
+				pending = new byte[frame.length];
+				presenting = new byte[frame.length];
+				pendingStarts = new int[starts.length];
+				pendingEnds = new int[starts.length];
+				presentingStarts = new int[starts.length];
+				presentingEnds = new int[starts.length];
+				pendingTop = starts.length;
+				pendingBottom = 0;
+				this.lineLength = lineLength;
+			}
+			System.arraycopy(frame, 0, pending, 0, frame.length);
+			if (hasPending){
+				droppedFrames++;
+			}
+			for (int y = top; y < bottom; y++){
+				if (starts[y] >= ends[y]){
+					continue;
+				}
+				if (pendingStarts[y] >= pendingEnds[y]){
+					pendingStarts[y] = starts[y];
+					pendingEnds[y] = ends[y];
+				} else {
+					pendingStarts[y] = Math.min(pendingStarts[y], starts[y]);
+					pendingEnds[y] = Math.max(pendingEnds[y], ends[y]);
+				}
+			}
+			pendingTop = Math.min(pendingTop, top);
+			pendingBottom = Math.max(pendingBottom, bottom);
+			hasPending = true;
+			lock.notifyAll();
+			if (thread == null){
+				thread = new Thread(new Runnable(){
+					public void run(){
+						present();
+					}
+				}, "ev3dev-lcd-presenter");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+	}
+
+	/**
+	 * Blocks until every frame flushed so far has been drawn or dropped
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return Whether the presenter is idle, <code>false</code> if the timeout elapsed
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public boolean awaitIdle(long timeout) throws InterruptedException{
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		long remaining;
+		synchronized (lock){
+			while (hasPending || busy){
+				if (timeout <= 0){
+					lock.wait();
+					continue;
+				}
+				remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remaining <= 0){
+					return false;
+				}
+				lock.wait(remaining);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Stops the presenter thread once the last frame flushed has been drawn. Frames can't be flushed any more.
+	 * @throws EV3LibraryException If a frame failed to be drawn since the last flush
+	 */
+	public void close() throws EV3LibraryException{
+		synchronized (lock){
+			closed = true;
+			lock.notifyAll();
+			rethrowFailure();
+		}
+	}
+
+	/**
+	 * Throws the failure kept by the presenter thread, once
+	 * @throws EV3LibraryException If a frame failed to be drawn
+	 */
+	private void rethrowFailure() throws EV3LibraryException{
+		EV3LibraryException e = failure;
+		if (e != null){
+			failure = null;
+			throw new EV3LibraryException("Unable to draw a previous frame", e);
+		}
+	}
+
+	/**
+	 * Returns the number of frames drawn
+	 * @return The number of frames
+	 */
+	public long getPresentedFrames(){
+		synchronized (lock){
+			return presentedFrames;
+		}
+	}
+
+	/**
+	 * Returns the number of frames replaced by a newer one before they were drawn
+	 * @return The number of frames
+	 */
+	public long getDroppedFrames(){
+		synchronized (lock){
+			return droppedFrames;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes written to the LCD by all the frames drawn
+	 * @return The number of bytes
+	 */
+	public long getPresentedBytes(){
+		synchronized (lock){
+			return presentedBytes;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes written to the LCD by the last frame drawn
+	 * @return The number of bytes
+	 */
+	public int getLastPresentBytes(){
+		synchronized (lock){
+			return lastPresentBytes;
+		}
+	}
+
+	private void present(){
+		long next = System.nanoTime();
+		long wait;
+		int top;
+		int bottom;
+		int bytes;
+		byte[] frame;
+		int[] swap;
+		try {
+			while (true){
+				synchronized (lock){
+					while (!hasPending && !closed){
+						lock.wait();
+					}
+					if (!hasPending){
+						thread = null;
+						lock.notifyAll();
+						return;
+					}
+					busy = true;
+				}
+				//Wait for the next slot, frames flushed meanwhile replace the pending one
+				wait = next - System.nanoTime();
+				if (wait > 0){
+					TimeUnit.NANOSECONDS.sleep(wait);
+				}
+				synchronized (lock){
+					frame = pending;
+					pending = presenting;
+					presenting = frame;
+					swap = pendingStarts;
+					pendingStarts = presentingStarts;
+					presentingStarts = swap;
+					swap = pendingEnds;
+					pendingEnds = presentingEnds;
+					presentingEnds = swap;
+					top = pendingTop;
+					bottom = pendingBottom;
+					pendingTop = presentingStarts.length;
+					pendingBottom = 0;
+					hasPending = false;
+				}
+				try {
+					bytes = lcd.drawSpans(frame, lineLength, presentingStarts, presentingEnds, top, bottom);
+				} catch (EV3LibraryException e){
+					synchronized (lock){
+						//The first failure is kept, the frames after it are likely to fail the same way
+						if (failure == null){
+							failure = e;
+						}
+					}
+					bytes = 0;
+				}
+				for (int y = top; y < bottom; y++){
+					presentingStarts[y] = 0;
+					presentingEnds[y] = 0;
+				}
+				next = System.nanoTime() + minIntervalNanos;
+				synchronized (lock){
+					presentedFrames++;
+					presentedBytes += bytes;
+					lastPresentBytes = bytes;
+					busy = false;
+					lock.notifyAll();
+				}
+			}
+		} catch (InterruptedException e){
+			synchronized (lock){
+				busy = false;
+				thread = null;
+				lock.notifyAll();
+			}
+		}
+	}
+}
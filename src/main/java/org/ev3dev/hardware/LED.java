@@ -1,9 +1,8 @@
 package org.ev3dev.hardware;
 
-import java.io.File;
-
 import org.ev3dev.exception.EV3LibraryException;
 import org.ev3dev.exception.InvalidLEDException;
+import org.ev3dev.io.DeviceFileSystem;
 import org.ev3dev.io.Sysfs;
 
 /***
@@ -98,16 +97,26 @@ public class LED extends Device{
 	 * @throws InvalidLEDException If the specified <code>ledName</code> does not exist
 	 */
 	public LED(String ledName) throws InvalidLEDException{
-		super(CLASS_NAME);
-		File file = new File(Sysfs.getSysfsPath() + CLASS_NAME + "/" + ledName);
-		if (!file.exists()){
+		this(ledName, DeviceFileSystem.getDefault());
+	}
+	
+	/**
+	 * <b>This function is for advanced users.</b><br>
+	 * Creates a new LED instance directly with a <code>ledName</code>, on the DeviceFileSystem specified
+	 * @param ledName LED Name that exists in <code>/sys/class/leds</code>
+	 * @param fs The DeviceFileSystem the LED is controlled through
+	 * @throws InvalidLEDException If the specified <code>ledName</code> does not exist
+	 */
+	public LED(String ledName, DeviceFileSystem fs) throws InvalidLEDException{
+		super(CLASS_NAME, fs);
+		if (!fs.exists(DeviceFileSystem.SYSFS_CLASS_PATH + CLASS_NAME + "/" + ledName)){
 			throw new InvalidLEDException("The specified LED does not exist");
 		}
-		this.setClassName(ledName);
+		this.setClassFullname(ledName);
 	}
 	
 	/**
-	 * Returns the maximum allowable brightness value.
+	 * Returns the maximum allowable brightness value. It is only read once.
 	 * @return The maximum allowable brightness value.
 	 * @throws EV3LibraryException If I/O goes wrong
 	 */
@@ -150,7 +159,8 @@ public class LED extends Device{
 	}
 	
 	/**
-	 * Returns a list of available triggers.
+	 * Returns a list of available triggers. The trigger in use is marked with brackets (e.g. <code>[none]</code>),
+	 *  see <code>getActiveTrigger()</code>.
 	 * @return A String Array with a list of available triggers
 	 * @throws EV3LibraryException If I/O goes wrong
 	 */
@@ -159,6 +169,21 @@ public class LED extends Device{
 		return Sysfs.separateSpace(str);
 	}
 	
+	/**
+	 * Returns the trigger in use, i.e. the one marked with brackets in the list of available triggers.
+	 * @return The LED trigger in use, or <code>null</code> if none is marked
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public String getActiveTrigger() throws EV3LibraryException{
+		String str = getTriggersViaString();
+		int start = str.indexOf('[');
+		int end = str.indexOf(']', start + 1);
+		if (start < 0 || end < 0){
+			return null;
+		}
+		return str.substring(start + 1, end);
+	}
+	
 	/**
 	 * Gets the led trigger. A trigger is a kernel based source of led events. Triggers can either be simple or complex.
 	 *  A simple trigger isn't configurable and is designed to slot into existing subsystems with minimal additional code.
@@ -244,4 +269,9 @@ public class LED extends Device{
 	public String getDriverName() throws EV3LibraryException {
 		return null;
 	}
+	
+	@Override
+	protected CachePolicy getCachePolicy(String property){
+		return SYSFS_PROPERTY_MAX_BRIGHTNESS.equals(property) ? CachePolicy.STATIC : CachePolicy.VOLATILE;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,278 @@
+package org.ev3dev.hardware;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.ev3dev.exception.EV3LibraryException;
+import org.ev3dev.io.DeviceFileSystem;
+
+/**
+ * An LCD that maps the framebuffer into memory once, so drawing a frame is a single bulk copy instead of
+ *  opening, writing and closing <code>/dev/fb0</code>.<br>
+ * <br>
+ * The geometry is read from the framebuffer's Sysfs attributes (<code>/sys/class/graphics/fb0</code>). Frames are
+ *  given the same way as to <code>LCD.draw()</code>, 1 bit per pixel with the lowest bit first and 1 for black, and are
+ *  copied as they are when the framebuffer has the same format. Other framebuffers (e.g. 32 bits per pixel)
+ *  get a converted copy. Without the Sysfs attributes (e.g. a regular file standing for the framebuffer),
+ *  the geometry of the EV3 is assumed.<br>
+ * <br>
+ * Java can only map regular files: mapping a character device such as the real <code>/dev/fb0</code> fails, as
+ *  <code>FileChannel.map()</code> tries to grow it to the size of the mapping. A framebuffer that is a device node
+ *  (see <code>DeviceFileSystem.isDevice()</code>) is therefore kept open instead, and the frames are drawn into a copy
+ *  in memory and written with positioned writes, one per line changed (one per frame for <code>draw()</code>).
+ *  This still saves opening and closing the framebuffer for every frame. <code>isMapped()</code> tells which is used.
+ * @author Anthony
+ *
+ */
+public class MappedLCD extends LCD {
+
+	/**
+	 * The path of the framebuffer's Sysfs attributes
+	 */
+	public static final String FB_SYSFS_PATH = DeviceFileSystem.SYSFS_CLASS_PATH + "graphics/fb0/";
+
+	/**
+	 * The Sysfs class's <code>virtual_size</code> property name, the width and height separated by a comma
+	 */
+	public static final String SYSFS_PROPERTY_VIRTUAL_SIZE = "virtual_size";
+
+	/**
+	 * The Sysfs class's <code>stride</code> property name, the number of bytes of a line
+	 */
+	public static final String SYSFS_PROPERTY_STRIDE = "stride";
+
+	/**
+	 * The Sysfs class's <code>bits_per_pixel</code> property name
+	 */
+	public static final String SYSFS_PROPERTY_BITS_PER_PIXEL = "bits_per_pixel";
+
+	private final int width;
+
+	private final int height;
+
+	private final int stride;
+
+	private final int bitsPerPixel;
+
+	private final ByteBuffer buffer;
+
+	private final FileChannel channel;
+
+	private byte[] converted = null;
+
+	/**
+	 * Creates a new MappedLCD on the framebuffer of <code>DeviceFileSystem.getDefault()</code>
+	 * @throws EV3LibraryException If the framebuffer can't be mapped or its format isn't supported
+	 */
+	public MappedLCD() throws EV3LibraryException{
+		this(DeviceFileSystem.getDefault());
+	}
+
+	/**
+	 * Creates a new MappedLCD
+	 * @param fs The DeviceFileSystem the framebuffer is opened through
+	 * @throws EV3LibraryException If the framebuffer can't be mapped or its format isn't supported
+	 */
+	public MappedLCD(DeviceFileSystem fs) throws EV3LibraryException{
+		super(fs);
+		if (!fs.exists(FB_PATH)){
+			throw new EV3LibraryException("The framebuffer device does not exist! Are you using a EV3?");
+		}
+		if (fs.exists(FB_SYSFS_PATH + SYSFS_PROPERTY_VIRTUAL_SIZE)){
+			try {
+				String[] size = fs.readAttribute(FB_SYSFS_PATH + SYSFS_PROPERTY_VIRTUAL_SIZE).split(",");
+				width = Integer.parseInt(size[0].trim());
+				height = Integer.parseInt(size[1].trim());
+				bitsPerPixel = Integer.parseInt(fs.readAttribute(FB_SYSFS_PATH + SYSFS_PROPERTY_BITS_PER_PIXEL).trim());
+				stride = Integer.parseInt(fs.readAttribute(FB_SYSFS_PATH + SYSFS_PROPERTY_STRIDE).trim());
+			} catch (IOException | RuntimeException e){
+				throw new EV3LibraryException("Unable to read the framebuffer geometry", e);
+			}
+		} else {
+			width = SCREEN_WIDTH;
+			height = SCREEN_HEIGHT;
+			bitsPerPixel = 1;
+			stride = LCDGraphics.LINE_LEN;
+		}
+		if (bitsPerPixel != 1 && bitsPerPixel != 32){
+			throw new EV3LibraryException("Unsupported framebuffer format: " + bitsPerPixel + " bits per pixel");
+		}
+		if (fs.isDevice(FB_PATH)){
+			try {
+				channel = fs.open(FB_PATH, true);
+			} catch (IOException e){
+				throw new EV3LibraryException("Unable to open the framebuffer", e);
+			}
+			buffer = ByteBuffer.allocate(stride * height);
+			return;
+		}
+		channel = null;
+		try {
+			buffer = fs.map(FB_PATH, stride * height);
+		} catch (IOException | UnsupportedOperationException e){
+			throw new EV3LibraryException("Unable to map the framebuffer", e);
+		}
+	}
+
+	/**
+	 * Returns whether the framebuffer is mapped into memory, or is a device node written with positioned writes
+	 * @return Whether the framebuffer is mapped
+	 */
+	public boolean isMapped(){
+		return channel == null;
+	}
+
+	/**
+	 * Returns the width of the screen
+	 * @return The width in pixels
+	 */
+	public int getWidth(){
+		return width;
+	}
+
+	/**
+	 * Returns the height of the screen
+	 * @return The height in pixels
+	 */
+	public int getHeight(){
+		return height;
+	}
+
+	/**
+	 * Returns the number of bytes of a line of the framebuffer
+	 * @return The stride in bytes
+	 */
+	public int getStride(){
+		return stride;
+	}
+
+	/**
+	 * Returns the number of bits of a pixel of the framebuffer
+	 * @return 1 or 32
+	 */
+	public int getBitsPerPixel(){
+		return bitsPerPixel;
+	}
+
+	/**
+	 * Returns the size of a frame that is copied as it is, 1 bit per pixel with the stride of the framebuffer
+	 * @return The frame size in bytes
+	 */
+	public int getFrameSize(){
+		return bitsPerPixel == 1 ? stride * height : (width + 7) / 8 * height;
+	}
+
+	/**
+	 * Draws a frame into the mapped framebuffer
+	 * @param data The frame, 1 bit per pixel, <code>height</code> lines of the same length
+	 *  (e.g. 128 (height) * 24 (line length) = 3072 bytes from <code>LCDGraphics</code>)
+	 * @throws EV3LibraryException If the lines are too short for the screen width
+	 */
+	@Override
+	public synchronized void draw(byte[] data) throws EV3LibraryException{
+		int lineLength = data.length / height;
+		if (lineLength * 8 < width){
+			throw new EV3LibraryException("The frame is too small: " + data.length + " bytes for " + width + "x" + height);
+		}
+		buffer.clear();
+		if (bitsPerPixel == 1 && lineLength == stride){
+			buffer.put(data, 0, stride * height);
+		} else {
+			for (int y = 0; y < height; y++){
+				convert(data, lineLength, y, 0, lineLength);
+			}
+			buffer.put(converted);
+		}
+		write(0, stride * height);
+	}
+
+	/**
+	 * Draws the changed parts of a frame into the mapped framebuffer, with one bulk copy per line
+	 * @return The number of bytes written to the framebuffer
+	 * @throws EV3LibraryException If the lines are too short for the screen width
+	 */
+	@Override
+	public synchronized int drawSpans(byte[] data, int lineLength, int[] starts, int[] ends, int top, int bottom) throws EV3LibraryException{
+		if (lineLength * 8 < width){
+			throw new EV3LibraryException("The lines are too short: " + lineLength + " bytes for " + width + " pixels");
+		}
+		int written = 0;
+		int length;
+		bottom = Math.min(bottom, height);
+		for (int y = Math.max(top, 0); y < bottom; y++){
+			if (starts[y] >= ends[y]){
+				continue;
+			}
+			if (bitsPerPixel == 1 && lineLength == stride){
+				buffer.position(y * stride + starts[y]);
+				buffer.put(data, y * lineLength + starts[y], ends[y] - starts[y]);
+				write(y * stride + starts[y], ends[y] - starts[y]);
+				written += ends[y] - starts[y];
+				continue;
+			}
+			length = convert(data, lineLength, y, starts[y], ends[y]);
+			if (length > 0){
+				buffer.position(y * stride + starts[y] * bitsPerPixel);
+				buffer.put(converted, y * stride + starts[y] * bitsPerPixel, length);
+				write(y * stride + starts[y] * bitsPerPixel, length);
+				written += length;
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Writes a part of the copy in memory to a framebuffer that isn't mapped
+	 * @param offset The offset of the part in the framebuffer
+	 * @param length The number of bytes to write
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	private void write(int offset, int length) throws EV3LibraryException{
+		if (channel == null){
+			return;
+		}
+		ByteBuffer part = buffer.duplicate();
+		part.limit(offset + length);
+		part.position(offset);
+		try {
+			while (part.hasRemaining()){
+				channel.write(part, part.position());
+			}
+		} catch (IOException e){
+			throw new EV3LibraryException("Unable to write the framebuffer", e);
+		}
+	}
+
+	/**
+	 * Converts the bytes <code>[start, end)</code> of a line of a frame to the format of the framebuffer, into <code>converted</code>
+	 *  at the same place as in the framebuffer
+	 * @return The number of bytes converted
+	 */
+	private int convert(byte[] data, int lineLength, int y, int start, int end){
+		if (converted == null){
+			converted = new byte[stride * height];
+		}
+		int line = y * lineLength;
+		if (bitsPerPixel == 1){
+			end = Math.min(end, stride);
+			if (start >= end){
+				return 0;
+			}
+			System.arraycopy(data, line + start, converted, y * stride + start, end - start);
+			return end - start;
+		}
+		int last = Math.min(end * 8, width);
+		int offset = y * stride + start * 32;
+		byte value;
+		for (int x = start * 8; x < last; x++){
+			//XRGB: black is 0, white is all ones
+			value = (data[line + (x >>> 3)] & (1 << (x & 7))) != 0 ? 0 : (byte) 0xff;
+			converted[offset++] = value;
+			converted[offset++] = value;
+			converted[offset++] = value;
+			converted[offset++] = value;
+		}
+		return Math.max(last - start * 8, 0) * 4;
+	}
+}
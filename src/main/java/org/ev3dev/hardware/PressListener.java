@@ -0,0 +1,16 @@
+package org.ev3dev.hardware;
+
+/***
+ * Receives the press and release events of a <code>Button</code> or a <code>TouchSensor</code>.
+ *  Listeners are called from the <code>InputEventLoop</code> thread, so they should return quickly.
+ * @author Anthony
+ *
+ */
+public interface PressListener {
+
+	/**
+	 * Called when the button or sensor is pressed or released, once the new state has been stable for the debounce time
+	 * @param pressed Whether it is pressed (<code>true</code>) or released (<code>false</code>)
+	 */
+	public void onPressChange(boolean pressed);
+}
@@ -0,0 +1,137 @@
+package org.ev3dev.hardware;
+
+/***
+ * An immutable set of values read by a <code>SamplingEngine</code> in one tick.<br>
+ * <br>
+ * Sensors and motors are addressed by the index returned from <code>SamplingEngine.addSensor()</code>
+ * and <code>SamplingEngine.addMotor()</code>. If a device couldn't be read in this tick, it is marked
+ * invalid and its values are the ones of the previous tick.
+ * @author Anthony
+ *
+ */
+public class SampleSnapshot {
+
+	private final long sequence;
+
+	private final long timestamp;
+
+	private final int[][] sensorValues;
+
+	private final boolean[] sensorValid;
+
+	private final int[] motorPositions;
+
+	private final int[] motorSpeeds;
+
+	private final int[] motorStates;
+
+	private final boolean[] motorValid;
+
+	SampleSnapshot(long sequence, long timestamp, int[][] sensorValues, boolean[] sensorValid,
+			int[] motorPositions, int[] motorSpeeds, int[] motorStates, boolean[] motorValid){
+		this.sequence = sequence;
+		this.timestamp = timestamp;
+		this.sensorValues = sensorValues;
+		this.sensorValid = sensorValid;
+		this.motorPositions = motorPositions;
+		this.motorSpeeds = motorSpeeds;
+		this.motorStates = motorStates;
+		this.motorValid = motorValid;
+	}
+
+	/**
+	 * Returns the tick number of this snapshot, starting from 1
+	 * @return The tick number
+	 */
+	public long getSequence(){
+		return sequence;
+	}
+
+	/**
+	 * Returns the time this snapshot was taken, from <code>System.nanoTime()</code>
+	 * @return The timestamp in nanoseconds
+	 */
+	public long getTimestamp(){
+		return timestamp;
+	}
+
+	/**
+	 * Returns the number of sensors in this snapshot
+	 * @return The number of sensors
+	 */
+	public int getSensorCount(){
+		return sensorValues.length;
+	}
+
+	/**
+	 * Returns the number of motors in this snapshot
+	 * @return The number of motors
+	 */
+	public int getMotorCount(){
+		return motorPositions.length;
+	}
+
+	/**
+	 * Returns a value[N] attribute of a sensor
+	 * @param sensor The sensor index
+	 * @param valueIndex The value index [N]
+	 * @return The raw value, without decimal places applied
+	 */
+	public int getSensorValue(int sensor, int valueIndex){
+		return sensorValues[sensor][valueIndex];
+	}
+
+	/**
+	 * Returns the number of values sampled for a sensor
+	 * @param sensor The sensor index
+	 * @return The number of values
+	 */
+	public int getSensorValueCount(int sensor){
+		return sensorValues[sensor].length;
+	}
+
+	/**
+	 * Returns whether a sensor was read successfully in this tick
+	 * @param sensor The sensor index
+	 * @return Whether the values are up to date
+	 */
+	public boolean isSensorValid(int sensor){
+		return sensorValid[sensor];
+	}
+
+	/**
+	 * Returns the position of a motor in tacho counts
+	 * @param motor The motor index
+	 * @return The position
+	 */
+	public int getMotorPosition(int motor){
+		return motorPositions[motor];
+	}
+
+	/**
+	 * Returns the speed of a motor in tacho counts per second
+	 * @param motor The motor index
+	 * @return The speed
+	 */
+	public int getMotorSpeed(int motor){
+		return motorSpeeds[motor];
+	}
+
+	/**
+	 * Returns the state of a motor, as a bitmask of <code>Motor.STATE_RUNNING</code>, <code>Motor.STATE_STALLED</code>...
+	 * @param motor The motor index
+	 * @return The state flags
+	 */
+	public int getMotorStateFlags(int motor){
+		return motorStates[motor];
+	}
+
+	/**
+	 * Returns whether a motor was read successfully in this tick
+	 * @param motor The motor index
+	 * @return Whether the values are up to date
+	 */
+	public boolean isMotorValid(int motor){
+		return motorValid[motor];
+	}
+}
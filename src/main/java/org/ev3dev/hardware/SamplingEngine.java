@@ -0,0 +1,334 @@
+package org.ev3dev.hardware;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.ev3dev.exception.EV3LibraryException;
+import org.ev3dev.hardware.motors.Motor;
+import org.ev3dev.hardware.sensors.Sensor;
+
+/***
+ * Reads a set of sensors and motors on one dedicated thread at a fixed rate.<br>
+ * <br>
+ * Every tick reads the configured <code>value[N]</code> attributes of each sensor and the
+ * <code>position</code>, <code>speed</code> and <code>state</code> flags of each motor, and publishes them
+ * as one immutable <code>SampleSnapshot</code>. Other threads get the latest consistent snapshot with
+ * <code>getSnapshot()</code>, which is a single memory read, instead of issuing their own file I/O.<br>
+ * <br>
+ * Example:
+ * <pre>
+ * SamplingEngine engine = new SamplingEngine(10, TimeUnit.MILLISECONDS);
+ * int gyro = engine.addSensor(gyroSensor, 1);
+ * int left = engine.addMotor(leftMotor);
+ * engine.start();
+ * ...
+ * SampleSnapshot s = engine.getSnapshot();
+ * int angle = s.getSensorValue(gyro, 0);
+ * int position = s.getMotorPosition(left);
+ * </pre>
+ * Devices can only be added while the engine is stopped.<br>
+ * <br>
+ * Tick listeners (see <code>addTickListener()</code>) run on the sampling thread after each snapshot. The sensor streams of
+ *  <code>Sensor.values()</code> are published this way, by the shared engine of their period (see <code>getSharedEngine()</code>).
+ * @author Anthony
+ *
+ */
+public class SamplingEngine {
+
+	private static final String PROPERTY_VALUE_PREFIX = "value";
+
+	private static final Map<Long, SamplingEngine> SHARED_ENGINES = new HashMap<Long, SamplingEngine>();
+
+	private final long periodNanos;
+
+	private final boolean shared;
+
+	private final CopyOnWriteArrayList<Runnable> tickListeners = new CopyOnWriteArrayList<Runnable>();
+
+	private final List<Sensor> sensors = new ArrayList<Sensor>();
+
+	private final List<String[]> sensorProperties = new ArrayList<String[]>();
+
+	private final List<Motor> motors = new ArrayList<Motor>();
+
+	private final AtomicReference<SampleSnapshot> snapshot = new AtomicReference<SampleSnapshot>();
+
+	private volatile boolean running = false;
+
+	private Thread thread = null;
+
+	private Thread stoppingThread = null;
+
+	private long overruns = 0;
+
+	/**
+	 * Creates a new SamplingEngine
+	 * @param period The time between two ticks
+	 * @param unit The unit of <code>period</code>
+	 */
+	public SamplingEngine(long period, TimeUnit unit){
+		this(unit.toNanos(period), false);
+	}
+
+	private SamplingEngine(long periodNanos, boolean shared){
+		if (periodNanos <= 0){
+			throw new IllegalArgumentException("The period must be positive: " + periodNanos + " ns");
+		}
+		this.periodNanos = periodNanos;
+		this.shared = shared;
+	}
+
+	/**
+	 * Returns the engine of a period shared by the whole program, which publishes the sensor streams of <code>Sensor.values()</code>.
+	 *  It starts with its first tick listener, and its thread sleeps while it has none. Devices can't be added to it.
+	 * @param period The time between two ticks
+	 * @param unit The unit of <code>period</code>
+	 * @return The shared SamplingEngine of the period
+	 */
+	public static SamplingEngine getSharedEngine(long period, TimeUnit unit){
+		long periodNanos = unit.toNanos(period);
+		synchronized (SHARED_ENGINES){
+			SamplingEngine engine = SHARED_ENGINES.get(periodNanos);
+			if (engine == null){
+				engine = new SamplingEngine(periodNanos, true);
+				SHARED_ENGINES.put(periodNanos, engine);
+			}
+			return engine;
+		}
+	}
+
+	/**
+	 * Returns the time between two ticks
+	 * @return The period in nanoseconds
+	 */
+	public long getPeriodNanos(){
+		return periodNanos;
+	}
+
+	/**
+	 * Adds a listener run on the sampling thread at every tick, after the snapshot has been taken. A listener that throws
+	 *  is passed to the uncaught exception handler of the thread, and keeps being run. A shared engine is started by its first listener.
+	 * @param listener The listener
+	 */
+	public void addTickListener(Runnable listener){
+		if (listener == null){
+			throw new NullPointerException();
+		}
+		tickListeners.add(listener);
+		if (shared){
+			synchronized (this){
+				if (!running){
+					start();
+				} else {
+					LockSupport.unpark(thread);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes a tick listener
+	 * @param listener The listener
+	 */
+	public void removeTickListener(Runnable listener){
+		tickListeners.remove(listener);
+	}
+
+	/**
+	 * Adds a sensor to be sampled. The sensor is read in whatever mode it is in.
+	 * @param sensor The Sensor
+	 * @param numValues The number of value[N] attributes to read, starting from value0
+	 * @return The index of the sensor in the snapshots
+	 * @throws EV3LibraryException If the engine is running
+	 */
+	public synchronized int addSensor(Sensor sensor, int numValues) throws EV3LibraryException{
+		checkStopped();
+		String[] properties = new String[numValues];
+		for (int i = 0; i < numValues; i++){
+			properties[i] = PROPERTY_VALUE_PREFIX + i;
+		}
+		sensors.add(sensor);
+		sensorProperties.add(properties);
+		return sensors.size() - 1;
+	}
+
+	/**
+	 * Adds a motor to be sampled.
+	 * @param motor The Motor
+	 * @return The index of the motor in the snapshots
+	 * @throws EV3LibraryException If the engine is running
+	 */
+	public synchronized int addMotor(Motor motor) throws EV3LibraryException{
+		checkStopped();
+		motors.add(motor);
+		return motors.size() - 1;
+	}
+
+	/**
+	 * Starts the sampling thread. The first snapshot is taken immediately.
+	 * @throws EV3LibraryException If the thread of the last <code>stop()</code> hasn't finished yet
+	 */
+	public synchronized void start() throws EV3LibraryException{
+		if (running){
+			return;
+		}
+		if (stoppingThread != null && stoppingThread.isAlive()){
+			//It would see running again and keep sampling alongside the new thread
+			throw new EV3LibraryException("The SamplingEngine cannot be started before the last stop() has finished");
+		}
+		stoppingThread = null;
+		running = true;
+		final Sensor[] s = sensors.toArray(new Sensor[sensors.size()]);
+		final String[][] p = sensorProperties.toArray(new String[sensorProperties.size()][]);
+		final Motor[] m = motors.toArray(new Motor[motors.size()]);
+		thread = new Thread(new Runnable(){
+			public void run(){
+				loop(s, p, m);
+			}
+		}, "ev3dev-sampling-engine");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the sampling thread and waits for it to finish. The last snapshot stays available.
+	 *  If this is interrupted, the thread still stops on its own, and <code>start()</code> fails until it has.
+	 * @throws InterruptedException If interrupted while waiting for the thread
+	 */
+	public void stop() throws InterruptedException{
+		Thread t;
+		synchronized (this){
+			running = false;
+			t = thread;
+			thread = null;
+			if (t != null){
+				stoppingThread = t;
+			}
+		}
+		if (t != null){
+			LockSupport.unpark(t);
+			//A tick listener may stop the engine from its own thread
+			if (t != Thread.currentThread()){
+				t.join();
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the sampling thread is running
+	 * @return Whether it is running
+	 */
+	public boolean isRunning(){
+		return running;
+	}
+
+	/**
+	 * Returns the latest snapshot
+	 * @return The latest SampleSnapshot, or <code>null</code> if no tick has completed yet
+	 */
+	public SampleSnapshot getSnapshot(){
+		return snapshot.get();
+	}
+
+	/**
+	 * Returns the number of ticks skipped because reading the devices took longer than the period
+	 * @return The number of skipped ticks
+	 */
+	public synchronized long getOverruns(){
+		return overruns;
+	}
+
+	private void loop(Sensor[] s, String[][] p, Motor[] m){
+		long next = System.nanoTime();
+		long sequence = 0;
+		long now;
+		long skipped;
+		while (running){
+			if (shared && tickListeners.isEmpty()){
+				//Nothing to publish, sleep until addTickListener()
+				LockSupport.park(this);
+				next = System.nanoTime();
+				continue;
+			}
+			if (s.length > 0 || m.length > 0){
+				snapshot.set(sample(++sequence, s, p, m, snapshot.get()));
+			}
+			for (Runnable listener : tickListeners){
+				try {
+					listener.run();
+				} catch (RuntimeException e){
+					Thread thread = Thread.currentThread();
+					thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+				}
+			}
+			next += periodNanos;
+			now = System.nanoTime();
+			if (now - next > 0){
+				//Too slow, skip the ticks missed instead of bursting
+				skipped = (now - next) / periodNanos + 1;
+				next += skipped * periodNanos;
+				synchronized (this){
+					overruns += skipped;
+				}
+			}
+			while (running && (now = System.nanoTime()) - next < 0){
+				LockSupport.parkNanos(this, next - now);
+			}
+		}
+	}
+
+	private static SampleSnapshot sample(long sequence, Sensor[] s, String[][] p, Motor[] m, SampleSnapshot last){
+		if (last != null && (last.getSensorCount() != s.length || last.getMotorCount() != m.length)){
+			last = null;
+		}
+		int[][] values = new int[s.length][];
+		boolean[] sensorValid = new boolean[s.length];
+		for (int i = 0; i < s.length; i++){
+			values[i] = new int[p[i].length];
+			try {
+				for (int j = 0; j < p[i].length; j++){
+					values[i][j] = s[i].getIntAttribute(p[i][j]);
+				}
+				sensorValid[i] = true;
+			} catch (EV3LibraryException | NumberFormatException e){
+				for (int j = 0; last != null && j < p[i].length; j++){
+					values[i][j] = last.getSensorValue(i, j);
+				}
+			}
+		}
+		int[] positions = new int[m.length];
+		int[] speeds = new int[m.length];
+		int[] states = new int[m.length];
+		boolean[] motorValid = new boolean[m.length];
+		for (int i = 0; i < m.length; i++){
+			try {
+				positions[i] = m[i].getIntAttribute(Motor.SYSFS_PROPERTY_POSITION);
+				speeds[i] = m[i].getIntAttribute(Motor.SYSFS_PROPERTY_SPEED);
+				states[i] = m[i].getStateFlags();
+				motorValid[i] = true;
+			} catch (EV3LibraryException | NumberFormatException e){
+				if (last != null){
+					positions[i] = last.getMotorPosition(i);
+					speeds[i] = last.getMotorSpeed(i);
+					states[i] = last.getMotorStateFlags(i);
+				}
+			}
+		}
+		return new SampleSnapshot(sequence, System.nanoTime(), values, sensorValid, positions, speeds, states, motorValid);
+	}
+
+	private void checkStopped() throws EV3LibraryException{
+		if (shared){
+			throw new EV3LibraryException("Devices cannot be added to a shared SamplingEngine");
+		}
+		if (running){
+			throw new EV3LibraryException("Devices cannot be added while the SamplingEngine is running");
+		}
+	}
+}
@@ -1,10 +1,9 @@
 package org.ev3dev.hardware;
 
-import java.awt.Color;
-import java.awt.Graphics;
 import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.Arrays;
 
 import javax.imageio.ImageIO;
 
@@ -15,16 +14,28 @@ import javax.imageio.ImageIO;
  */
 public class VirtualLCD extends LCD{
 
+	private static final int BLACK = 0xff000000;
+	
+	private static final int WHITE = 0xffffffff;
+	
 	private BufferedImage image;
 	
+	private final int[] pixels = new int[SCREEN_WIDTH];
+	
 	/**
-	 * Creates a new virtual LCD instance
+	 * Creates a new virtual LCD instance. Without the default image (e.g. not on the class path), the screen starts white.
 	 */
 	public VirtualLCD(){
-		//image = new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT, BufferedImage.TYPE_INT_ARGB);
 		try {
 			image = ImageIO.read(VirtualLCD.class.getResource("/org/ev3dev/hardware/defaultvirtuallcd.fw.png"));
-		} catch (IOException e) {
+		} catch (IOException | IllegalArgumentException e) {
+		}
+		if (image == null){
+			image = new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+			Arrays.fill(pixels, WHITE);
+			for (int y = 0; y < SCREEN_HEIGHT; y++){
+				image.setRGB(0, y, SCREEN_WIDTH, 1, pixels, 0, SCREEN_WIDTH);
+			}
 		}
 	}
 	
@@ -46,25 +57,50 @@ public class VirtualLCD extends LCD{
 	}
 	
 	/**
-	 * This function overrides the original draw() function to draw directly into a BufferedImage
+	 * This function overrides the original draw() function to draw directly into a BufferedImage.
+	 *  Each bit is a pixel, the lowest bit first and 1 for black.
 	 */
 	@Override
-	public void draw(byte[] data){
+	public synchronized void draw(byte[] data){
 		if (data == null){
 			return;
 		}
-		
-		Graphics g = image.getGraphics();
-		for (int i = 0; i < 128; i++){
-			for (int j = 0; j < 178; j++){
-				if (data[i * 24 + j / 8] == (byte) 0xff){
-					g.setColor(Color.BLACK);
-					g.drawLine(j, i, j, i);
-				} else {
-					g.setColor(Color.WHITE);
-					g.drawLine(j, i, j, i);
-				}
+		int lineLength = data.length / SCREEN_HEIGHT;
+		for (int y = 0; y < SCREEN_HEIGHT; y++){
+			drawLine(data, lineLength, y, 0, lineLength);
+		}
+	}
+	
+	/**
+	 * This function overrides the original drawSpans() function to redraw only the changed parts of the BufferedImage
+	 * @return The number of bytes in the spans
+	 */
+	@Override
+	public synchronized int drawSpans(byte[] data, int lineLength, int[] starts, int[] ends, int top, int bottom){
+		int n = 0;
+		bottom = Math.min(bottom, SCREEN_HEIGHT);
+		for (int y = Math.max(top, 0); y < bottom; y++){
+			if (starts[y] < ends[y]){
+				drawLine(data, lineLength, y, starts[y], ends[y]);
+				n += ends[y] - starts[y];
 			}
 		}
+		return n;
+	}
+	
+	/**
+	 * Decodes the bytes <code>[start, end)</code> of a line of a frame into the image
+	 */
+	private void drawLine(byte[] data, int lineLength, int y, int start, int end){
+		int first = start * 8;
+		int last = Math.min(Math.min(end, lineLength) * 8, SCREEN_WIDTH);
+		if (first >= last){
+			return;
+		}
+		int line = y * lineLength;
+		for (int x = first; x < last; x++){
+			pixels[x] = (data[line + (x >>> 3)] & (1 << (x & 7))) != 0 ? BLACK : WHITE;
+		}
+		image.setRGB(first, y, last - first, 1, pixels, first, SCREEN_WIDTH);
 	}
 }
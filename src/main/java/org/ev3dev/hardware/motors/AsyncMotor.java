@@ -0,0 +1,211 @@
+package org.ev3dev.hardware.motors;
+
+import java.util.EnumSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import org.ev3dev.hardware.AsyncDevice;
+
+/***
+ * The asynchronous view of a Motor, returned by <code>Motor.async()</code>.<br>
+ * <br>
+ * Setpoint writes may be merged with a queued write of the same setpoint (see <code>AsyncDevice</code>).
+ *  Commands are run in the order they were issued, after the writes queued before them.
+ *  Waiting for a state doesn't hold any thread: the future is completed by the shared state watcher
+ *  once the commands queued before the wait have been sent.
+ * <pre>
+ * motor.async().execute(moveCommand)
+ *     .thenCompose(v -&gt; motor.async().awaitIdle(0))
+ *     .thenRun(() -&gt; System.out.println("Done"));
+ * </pre>
+ * @author Anthony
+ *
+ */
+public class AsyncMotor extends AsyncDevice {
+
+	private final Motor motor;
+
+	/**
+	 * Creates a new AsyncMotor
+	 * @param motor The Motor
+	 */
+	protected AsyncMotor(Motor motor){
+		super(motor);
+		this.motor = motor;
+	}
+
+	@Override
+	public Motor getDevice(){
+		return motor;
+	}
+
+	/**
+	 * Reads the current position of the motor in tacho counts
+	 * @return A future completed with the position
+	 */
+	public CompletableFuture<Integer> getPosition(){
+		return getIntAttribute(Motor.SYSFS_PROPERTY_POSITION);
+	}
+
+	/**
+	 * Reads the current motor speed in tacho counts per second
+	 * @return A future completed with the speed
+	 */
+	public CompletableFuture<Integer> getSpeed(){
+		return getIntAttribute(Motor.SYSFS_PROPERTY_SPEED);
+	}
+
+	/**
+	 * Reads the state flags, see <code>Motor.getStateFlags()</code>
+	 * @return A future completed with the state flags
+	 */
+	public CompletableFuture<Integer> getStateFlags(){
+		return submit(new Callable<Integer>(){
+			public Integer call(){
+				return motor.getStateFlags();
+			}
+		});
+	}
+
+	/**
+	 * Writes the speed setpoint
+	 * @param speed_sp The target speed in tacho counts per second
+	 * @return A future completed once written
+	 */
+	public CompletableFuture<Void> setSpeed_SP(int speed_sp){
+		return setIntAttribute(Motor.SYSFS_PROPERTY_SPEED_SP, speed_sp);
+	}
+
+	/**
+	 * Writes the position setpoint
+	 * @param position_sp The target position in tacho counts
+	 * @return A future completed once written
+	 */
+	public CompletableFuture<Void> setPosition_SP(int position_sp){
+		return setIntAttribute(Motor.SYSFS_PROPERTY_POSITION_SP, position_sp);
+	}
+
+	/**
+	 * Writes the time setpoint
+	 * @param time_sp The time in milliseconds
+	 * @return A future completed once written
+	 */
+	public CompletableFuture<Void> setTime_SP(int time_sp){
+		return setIntAttribute(Motor.SYSFS_PROPERTY_TIME_SP, time_sp);
+	}
+
+	/**
+	 * Writes the duty cycle setpoint
+	 * @param duty_cycle_sp The duty cycle in percent (-100 to 100)
+	 * @return A future completed once written
+	 */
+	public CompletableFuture<Void> setDutyCycleSP(int duty_cycle_sp){
+		return setIntAttribute(Motor.SYSFS_PROPERTY_DUTY_CYCLE_SP, duty_cycle_sp);
+	}
+
+	/**
+	 * Writes the ramp up setpoint
+	 * @param ramp_up_sp The time in milliseconds to ramp from 0 to 100% of the max speed
+	 * @return A future completed once written
+	 */
+	public CompletableFuture<Void> setRamp_Up_SP(int ramp_up_sp){
+		return setIntAttribute(Motor.SYSFS_PROPERTY_RAMP_UP_SP, ramp_up_sp);
+	}
+
+	/**
+	 * Writes the ramp down setpoint
+	 * @param ramp_down_sp The time in milliseconds to ramp from 100% to 0 of the max speed
+	 * @return A future completed once written
+	 */
+	public CompletableFuture<Void> setRamp_Down_SP(int ramp_down_sp){
+		return setIntAttribute(Motor.SYSFS_PROPERTY_RAMP_DOWN_SP, ramp_down_sp);
+	}
+
+	/**
+	 * Writes the stop action
+	 * @param stop_action A stop action listed by <code>Motor.getStopActions()</code>
+	 * @return A future completed once written
+	 */
+	public CompletableFuture<Void> setStopAction(String stop_action){
+		return setAttribute(Motor.SYSFS_PROPERTY_STOP_ACTION, stop_action);
+	}
+
+	/**
+	 * Applies a MotorCommand, see <code>Motor.execute()</code>
+	 * @param command The MotorCommand
+	 * @return A future completed once the command is sent
+	 */
+	public CompletableFuture<Void> execute(final MotorCommand command){
+		return submit(new Callable<Void>(){
+			public Void call(){
+				motor.execute(command);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Sends a command to the motor controller
+	 * @param command The command (e.g. <code>Motor.SYSFS_COMMAND_RUN_FOREVER</code>)
+	 * @return A future completed once the command is sent
+	 */
+	public CompletableFuture<Void> sendCommand(final String command){
+		return submit(new Callable<Void>(){
+			public Void call(){
+				motor.sendCommand(command);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Causes the motor to run until another command is sent
+	 * @return A future completed once the command is sent
+	 */
+	public CompletableFuture<Void> runForever(){
+		return sendCommand(Motor.SYSFS_COMMAND_RUN_FOREVER);
+	}
+
+	/**
+	 * Stops the motor using its stop action
+	 * @return A future completed once the command is sent
+	 */
+	public CompletableFuture<Void> stop(){
+		return sendCommand(Motor.SYSFS_COMMAND_STOP);
+	}
+
+	/**
+	 * Resets the motor
+	 * @return A future completed once the command is sent
+	 */
+	public CompletableFuture<Void> reset(){
+		return sendCommand(Motor.SYSFS_COMMAND_RESET);
+	}
+
+	/**
+	 * Waits until all the states specified are set, see <code>Motor.awaitState()</code>. No thread is blocked while waiting.
+	 * @param states The states to wait for
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return A future completed with whether the states were reached, <code>false</code> if the timeout elapsed
+	 */
+	public CompletableFuture<Boolean> awaitState(EnumSet<MotorState> states, long timeout){
+		return await(MotorState.toFlags(states), MotorState.toFlags(states), timeout);
+	}
+
+	/**
+	 * Waits until the motor is no longer running, see <code>Motor.awaitIdle()</code>. No thread is blocked while waiting.
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return A future completed with whether the motor stopped, <code>false</code> if the timeout elapsed
+	 */
+	public CompletableFuture<Boolean> awaitIdle(long timeout){
+		return await(Motor.STATE_RUNNING, 0, timeout);
+	}
+
+	private CompletableFuture<Boolean> await(final int mask, final int expected, final long timeout){
+		return submit(new Callable<CompletableFuture<Boolean>>(){
+			public CompletableFuture<Boolean> call(){
+				return MotorStateWatcher.getInstance().awaitAsync(motor, mask, expected, timeout);
+			}
+		}).thenCompose(future -> future);
+	}
+}
@@ -1,8 +1,12 @@
 package org.ev3dev.hardware.motors;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.ev3dev.exception.EV3LibraryException;
 import org.ev3dev.exception.InvalidMotorException;
 import org.ev3dev.exception.InvalidPortException;
+import org.ev3dev.hardware.CachePolicy;
 import org.ev3dev.hardware.Device;
 import org.ev3dev.hardware.ports.LegoPort;
 import org.ev3dev.io.Sysfs;
@@ -112,6 +116,17 @@ public class DCMotor extends Device{
 
 	private String address;
 	
+	private static final Map<String, CachePolicy> CACHE_POLICIES = new HashMap<String, CachePolicy>();
+	
+	static {
+		for (String property : new String[]{SYSFS_PROPERTY_ADDRESS, SYSFS_PROPERTY_COMMANDS, SYSFS_PROPERTY_DRIVER_NAME, SYSFS_PROPERTY_STOP_ACTIONS}){
+			CACHE_POLICIES.put(property, CachePolicy.STATIC);
+		}
+		for (String property : new String[]{SYSFS_PROPERTY_DUTY_CYCLE_SP, SYSFS_PROPERTY_POLARITY, SYSFS_PROPERTY_RAMP_UP_SP, SYSFS_PROPERTY_RAMP_DOWN_SP, SYSFS_PROPERTY_STOP_ACTION, SYSFS_PROPERTY_TIME_SP}){
+			CACHE_POLICIES.put(property, CachePolicy.WRITE_THROUGH);
+		}
+	}
+	
 	/***
 	 * Creates a new DC motor object.
 	 * @param port LegoPort
@@ -192,8 +207,7 @@ public class DCMotor extends Device{
 	 * @throws EV3LibraryException If I/O goes wrong
 	 */
 	public String[] getCommands() throws EV3LibraryException{
-		String str = this.getAttribute(SYSFS_PROPERTY_COMMANDS);
-		return Sysfs.separateSpace(str);
+		return this.getListAttribute(SYSFS_PROPERTY_COMMANDS);
 	}
 	
 	/**
@@ -388,8 +402,7 @@ public class DCMotor extends Device{
 	 * @throws EV3LibraryException If I/O goes wrong
 	 */
 	public String[] getStopActions() throws EV3LibraryException{
-		String str = getStopActionsViaString();
-		return Sysfs.separateSpace(str);
+		return this.getListAttribute(SYSFS_PROPERTY_STOP_ACTIONS);
 	}
 	
 	/**
@@ -410,4 +423,10 @@ public class DCMotor extends Device{
 	public void setTime_SP(int time_sp) throws EV3LibraryException{
 		this.setAttribute(SYSFS_PROPERTY_TIME_SP, Integer.toString(time_sp));
 	}
+	
+	@Override
+	protected CachePolicy getCachePolicy(String property){
+		CachePolicy policy = CACHE_POLICIES.get(property);
+		return policy == null ? CachePolicy.VOLATILE : policy;
+	}
 }
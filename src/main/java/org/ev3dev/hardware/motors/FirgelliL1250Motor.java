@@ -2,6 +2,7 @@ package org.ev3dev.hardware.motors;
 
 import org.ev3dev.exception.EV3LibraryException;
 import org.ev3dev.exception.InvalidPortException;
+import org.ev3dev.hardware.CachePolicy;
 import org.ev3dev.hardware.ports.LegoPort;
 
 public class FirgelliL1250Motor extends Motor {
@@ -76,5 +77,13 @@ public class FirgelliL1250Motor extends Motor {
 		String str = this.getAttribute(SYSFS_PROPERTY_FULL_TRAVEL_COUNT);
 		return Integer.parseInt(str);
 	}
+	
+	@Override
+	protected CachePolicy getCachePolicy(String property){
+		if (SYSFS_PROPERTY_COUNT_PER_M.equals(property) || SYSFS_PROPERTY_FULL_TRAVEL_COUNT.equals(property)){
+			return CachePolicy.STATIC;
+		}
+		return super.getCachePolicy(property);
+	}
 
 }
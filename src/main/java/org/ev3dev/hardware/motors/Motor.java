@@ -8,8 +8,14 @@ package org.ev3dev.hardware.motors;
 
 //-----------------------------------------------------------------------------
 
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.ev3dev.exception.EV3LibraryException;
 import org.ev3dev.exception.InvalidPortException;
+import org.ev3dev.hardware.AsyncDevice;
+import org.ev3dev.hardware.CachePolicy;
 import org.ev3dev.hardware.Device;
 import org.ev3dev.hardware.ports.LegoPort;
 import org.ev3dev.io.Sysfs;
@@ -65,6 +71,11 @@ public class Motor extends Device{
 	 */
 	public static final String SYSFS_PROPERTY_DUTY_CYCLE_SP = "duty_cycle_sp";
 	
+	/**
+	 * The Sysfs class's <code>max_speed</code> property name
+	 */
+	public static final String SYSFS_PROPERTY_MAX_SPEED = "max_speed";
+	
 	/**
 	 * The Sysfs class's <code>polarity</code> property name
 	 */
@@ -170,6 +181,56 @@ public class Motor extends Device{
 	 */
 	public static final String SYSFS_COMMAND_RESET = "reset";
 	
+	/**
+	 * The Sysfs class's <code>running</code> state flag
+	 */
+	public static final String SYSFS_STATE_RUNNING = "running";
+	
+	/**
+	 * The Sysfs class's <code>ramping</code> state flag
+	 */
+	public static final String SYSFS_STATE_RAMPING = "ramping";
+	
+	/**
+	 * The Sysfs class's <code>holding</code> state flag
+	 */
+	public static final String SYSFS_STATE_HOLDING = "holding";
+	
+	/**
+	 * The Sysfs class's <code>overloaded</code> state flag
+	 */
+	public static final String SYSFS_STATE_OVERLOADED = "overloaded";
+	
+	/**
+	 * The Sysfs class's <code>stalled</code> state flag
+	 */
+	public static final String SYSFS_STATE_STALLED = "stalled";
+	
+	/**
+	 * The bit of the <code>running</code> state flag in <code>getStateFlags()</code>
+	 */
+	public static final int STATE_RUNNING = 1;
+	
+	/**
+	 * The bit of the <code>ramping</code> state flag in <code>getStateFlags()</code>
+	 */
+	public static final int STATE_RAMPING = 1 << 1;
+	
+	/**
+	 * The bit of the <code>holding</code> state flag in <code>getStateFlags()</code>
+	 */
+	public static final int STATE_HOLDING = 1 << 2;
+	
+	/**
+	 * The bit of the <code>overloaded</code> state flag in <code>getStateFlags()</code>
+	 */
+	public static final int STATE_OVERLOADED = 1 << 3;
+	
+	/**
+	 * The bit of the <code>stalled</code> state flag in <code>getStateFlags()</code>
+	 */
+	public static final int STATE_STALLED = 1 << 4;
+	
 	/**
 	 * This Sysfs's class name (e.g. <code>/sys/class/lego-sensor</code>, and <code>lego-sensor</code> is the class name)
 	 */
@@ -184,6 +245,23 @@ public class Motor extends Device{
 
 	private String address;
 	
+	private static final Map<String, CachePolicy> CACHE_POLICIES = new HashMap<String, CachePolicy>();
+	
+	private static final String[] STATE_FLAGS = {SYSFS_STATE_RUNNING, SYSFS_STATE_RAMPING, SYSFS_STATE_HOLDING,
+		SYSFS_STATE_OVERLOADED, SYSFS_STATE_STALLED};
+	
+	static {
+		for (String property : new String[]{SYSFS_PROPERTY_ADDRESS, SYSFS_PROPERTY_COMMANDS, SYSFS_PROPERTY_COUNT_PER_ROT,
+				SYSFS_PROPERTY_DRIVER_NAME, SYSFS_PROPERTY_MAX_SPEED, SYSFS_PROPERTY_STOP_ACTIONS}){
+			CACHE_POLICIES.put(property, CachePolicy.STATIC);
+		}
+		for (String property : new String[]{SYSFS_PROPERTY_DUTY_CYCLE_SP, SYSFS_PROPERTY_POLARITY, SYSFS_PROPERTY_POSITION_P,
+				SYSFS_PROPERTY_POSITION_I, SYSFS_PROPERTY_POSITION_D, SYSFS_PROPERTY_POSITION_SP, SYSFS_PROPERTY_SPEED_SP,
+				SYSFS_PROPERTY_RAMP_UP_SP, SYSFS_PROPERTY_RAMP_DOWN_SP, SYSFS_PROPERTY_STOP_ACTION, SYSFS_PROPERTY_TIME_SP}){
+			CACHE_POLICIES.put(property, CachePolicy.WRITE_THROUGH);
+		}
+	}
+	
 //-----------------------------------------------------------------------------
 	
 	/***
@@ -247,6 +325,10 @@ public class Motor extends Device{
 			return;
 		}
 		this.setAttribute(SYSFS_PROPERTY_COMMAND, command);
+		if (SYSFS_COMMAND_RESET.equals(command)){
+			//All the setpoints are back to their defaults
+			invalidateAttributeCache(CachePolicy.WRITE_THROUGH);
+		}
 	}
 	
 	/***
@@ -345,8 +427,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return null;
 		}
-		String str = this.getAttribute(SYSFS_PROPERTY_COMMANDS);
-		return Sysfs.separateSpace(str);
+		return this.getListAttribute(SYSFS_PROPERTY_COMMANDS);
 	}
 	
 	/**
@@ -362,8 +443,17 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return -1;
 		}
-		String countperrot = this.getAttribute(SYSFS_PROPERTY_COUNT_PER_ROT);
-		return Integer.parseInt(countperrot);
+		return this.getIntAttribute(SYSFS_PROPERTY_COUNT_PER_ROT);
+	}
+	
+	/**
+	 * Returns the maximum value that is accepted by <code>speed_sp</code>, in tacho counts per second.
+	 *  It is only read once.
+	 * @return The maximum speed
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public int getMaxSpeed() throws EV3LibraryException{
+		return this.getIntAttribute(SYSFS_PROPERTY_MAX_SPEED);
 	}
 	
 	//getCountPerM() Linear Motor (Just for mark down)
@@ -390,8 +480,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return -1;
 		}
-		String dutycycle = this.getAttribute(SYSFS_PROPERTY_DUTY_CYCLE);
-		return Integer.parseInt(dutycycle);
+		return this.getIntAttribute(SYSFS_PROPERTY_DUTY_CYCLE);
 	}
 	
 	/**
@@ -405,8 +494,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return -1;
 		}
-		String dutycyclesp = this.getAttribute(SYSFS_PROPERTY_DUTY_CYCLE_SP);
-		return Integer.parseInt(dutycyclesp);
+		return this.getIntAttribute(SYSFS_PROPERTY_DUTY_CYCLE_SP);
 	}
 	
 	/**
@@ -420,7 +508,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return;
 		}
-		this.setAttribute(SYSFS_PROPERTY_DUTY_CYCLE_SP, Integer.toString(sp));
+		this.setIntAttribute(SYSFS_PROPERTY_DUTY_CYCLE_SP, sp);
 	}
 	
 	//getFullTravelCount() Linear Motor Only (Mark down)
@@ -461,8 +549,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return -1;
 		}
-		String str = this.getAttribute("position_p");
-		return Integer.parseInt(str);
+		return this.getIntAttribute(SYSFS_PROPERTY_POSITION);
 	}
 	
 	/**
@@ -475,7 +562,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return;
 		}
-		this.setAttribute(SYSFS_PROPERTY_POSITION, Integer.toString(position));
+		this.setIntAttribute(SYSFS_PROPERTY_POSITION, position);
 	}
 	
 	/**
@@ -487,8 +574,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return -1;
 		}
-		String str = this.getAttribute(SYSFS_PROPERTY_POSITION_P);
-		return Integer.parseInt(str);
+		return this.getIntAttribute(SYSFS_PROPERTY_POSITION_P);
 	}
 	
 	/**
@@ -500,8 +586,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return -1;
 		}
-		String str = this.getAttribute(SYSFS_PROPERTY_POSITION_I);
-		return Integer.parseInt(str);
+		return this.getIntAttribute(SYSFS_PROPERTY_POSITION_I);
 	}
 	
 	/**
@@ -513,8 +598,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return -1;
 		}
-		String str = this.getAttribute(SYSFS_PROPERTY_POSITION_D);
-		return Integer.parseInt(str);
+		return this.getIntAttribute(SYSFS_PROPERTY_POSITION_D);
 	}
 	
 	/**
@@ -526,7 +610,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return;
 		}
-		this.setAttribute(SYSFS_PROPERTY_POSITION_P, Integer.toString(position_p));
+		this.setIntAttribute(SYSFS_PROPERTY_POSITION_P, position_p);
 	}
 	
 	/**
@@ -538,7 +622,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return;
 		}
-		this.setAttribute(SYSFS_PROPERTY_POSITION_I, Integer.toString(position_i));
+		this.setIntAttribute(SYSFS_PROPERTY_POSITION_I, position_i);
 	}
 	
 	/**
@@ -550,7 +634,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return;
 		}
-		this.setAttribute(SYSFS_PROPERTY_POSITION_D, Integer.toString(position_d));
+		this.setIntAttribute(SYSFS_PROPERTY_POSITION_D, position_d);
 	}
 	
 	/**
@@ -563,8 +647,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return -1;
 		}
-		String str = this.getAttribute(SYSFS_PROPERTY_POSITION_SP);
-		return Integer.parseInt(str);
+		return this.getIntAttribute(SYSFS_PROPERTY_POSITION_SP);
 	}
 
 	/**
@@ -577,7 +660,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return;
 		}
-		this.setAttribute(SYSFS_PROPERTY_POSITION_SP, Integer.toString(position_sp));
+		this.setIntAttribute(SYSFS_PROPERTY_POSITION_SP, position_sp);
 	}
 	
 	/**
@@ -590,8 +673,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return -1;
 		}
-		String str = this.getAttribute(SYSFS_PROPERTY_SPEED);
-		return Integer.parseInt(str);
+		return this.getIntAttribute(SYSFS_PROPERTY_SPEED);
 	}
 	
 	/**
@@ -604,8 +686,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return -1;
 		}
-		String str = this.getAttribute(SYSFS_PROPERTY_SPEED);
-		return Integer.parseInt(str);
+		return this.getIntAttribute(SYSFS_PROPERTY_SPEED_SP);
 	}
 	
 	/**
@@ -618,7 +699,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return;
 		}
-		this.setAttribute(SYSFS_PROPERTY_SPEED_SP, Integer.toString(speed_sp));
+		this.setIntAttribute(SYSFS_PROPERTY_SPEED_SP, speed_sp);
 	}
 	
 	/**
@@ -634,8 +715,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return -1;
 		}
-		String str = this.getAttribute(SYSFS_PROPERTY_RAMP_UP_SP);
-		return Integer.parseInt(str);
+		return this.getIntAttribute(SYSFS_PROPERTY_RAMP_UP_SP);
 	}
 	
 	/**
@@ -651,7 +731,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return;
 		}
-		this.setAttribute(SYSFS_PROPERTY_RAMP_UP_SP, Integer.toString(ramp_up_sp));
+		this.setIntAttribute(SYSFS_PROPERTY_RAMP_UP_SP, ramp_up_sp);
 	}
 	
 	/**
@@ -666,8 +746,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return -1;
 		}
-		String str = this.getAttribute(SYSFS_PROPERTY_RAMP_DOWN_SP);
-		return Integer.parseInt(str);
+		return this.getIntAttribute(SYSFS_PROPERTY_RAMP_DOWN_SP);
 	}
 	
 	/**
@@ -682,7 +761,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return;
 		}
-		this.setAttribute(SYSFS_PROPERTY_RAMP_DOWN_SP, Integer.toString(ramp_down_sp));
+		this.setIntAttribute(SYSFS_PROPERTY_RAMP_DOWN_SP, ramp_down_sp);
 	}
 	
 	/**
@@ -715,6 +794,74 @@ public class Motor extends Device{
 		return Sysfs.separateSpace(str);
 	}
 	
+	/**
+	 * Reading returns the state flags as a bitmask of <code>STATE_RUNNING</code>, <code>STATE_RAMPING</code>, <code>STATE_HOLDING</code>,
+	 *  <code>STATE_OVERLOADED</code> and <code>STATE_STALLED</code>. The flags are matched straight from the attribute,
+	 *  so polling the state in a loop does not create any garbage:
+	 * <pre>
+	 * while ((motor.getStateFlags() &amp; Motor.STATE_RUNNING) != 0){
+	 *     ...
+	 * }
+	 * </pre>
+	 * @return The state flags, or 0 if the motor is not connected
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public int getStateFlags() throws EV3LibraryException{
+		if (!this.isConnected()){
+			return 0;
+		}
+		return this.getFlagsAttribute(SYSFS_PROPERTY_STATE, STATE_FLAGS);
+	}
+	
+	/**
+	 * Reading returns the state flags as a set of MotorStates.
+	 * @return A new EnumSet of the state flags
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public EnumSet<MotorState> getStateSet() throws EV3LibraryException{
+		return MotorState.fromFlags(getStateFlags());
+	}
+	
+	/**
+	 * Blocks until all the states specified are set, e.g. <code>EnumSet.of(MotorState.HOLDING)</code> after a
+	 *  <code>run-to-abs-pos</code> command with the <code>hold</code> stop action.<br>
+	 * <br>
+	 * The waiting threads don't poll the motor themselves. One shared background thread reads the <code>state</code> of every
+	 *  motor waited for, woken by the kernel's notifications of <code>state</code> changes where they are supported,
+	 *  and polling with a backoff otherwise.
+	 * @param states The states to wait for
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return Whether the states were reached, <code>false</code> if the timeout elapsed
+	 * @throws EV3LibraryException If I/O goes wrong
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public boolean awaitState(EnumSet<MotorState> states, long timeout) throws EV3LibraryException, InterruptedException{
+		int flags = MotorState.toFlags(states);
+		return MotorStateWatcher.getInstance().await(this, flags, flags, timeout);
+	}
+	
+	/**
+	 * Blocks until the motor is no longer running, e.g. until a <code>run-to-*-pos</code> or <code>run-timed</code> command
+	 *  has completed. See <code>awaitState()</code> for how the state is watched.
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return Whether the motor stopped, <code>false</code> if the timeout elapsed
+	 * @throws EV3LibraryException If I/O goes wrong
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public boolean awaitIdle(long timeout) throws EV3LibraryException, InterruptedException{
+		return MotorStateWatcher.getInstance().await(this, STATE_RUNNING, 0, timeout);
+	}
+	
+	/**
+	 * Blocks until the motor is no longer running, e.g. until a <code>run-to-*-pos</code> or <code>run-timed</code> command
+	 *  has completed. See <code>awaitState()</code> for how the state is watched.
+	 * @throws EV3LibraryException If I/O goes wrong
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public void awaitIdle() throws EV3LibraryException, InterruptedException{
+		awaitIdle(0);
+	}
+	
 	/**
 	 * Reading returns the current stop command. Writing sets the stop command. The value determines the motors behavior when command is set to stop.
 	 *  Also, it determines the motors behavior when a run command completes. See stop_commands for a list of possible values.
@@ -781,8 +928,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return null;
 		}
-		String str = getStopCommandsViaString();
-		return Sysfs.separateSpace(str);
+		return this.getListAttribute(SYSFS_PROPERTY_STOP_ACTIONS);
 	}
 	
 	/**
@@ -794,8 +940,7 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return -1;
 		}
-		String str = this.getAttribute(SYSFS_PROPERTY_TIME_SP);
-		return Integer.parseInt(str);
+		return this.getIntAttribute(SYSFS_PROPERTY_TIME_SP);
 	}
 	
 	/**
@@ -807,9 +952,77 @@ public class Motor extends Device{
 		if (!this.isConnected()){
 			return;
 		}
-		this.setAttribute(SYSFS_PROPERTY_TIME_SP, Integer.toString(time_sp));
+		this.setIntAttribute(SYSFS_PROPERTY_TIME_SP, time_sp);
 	}
 	
 //~autogen
+	
+	/**
+	 * Applies a MotorCommand: writes its setpoints and stop action, then sends its run command.<br>
+	 * <br>
+	 * The setpoints and the stop action are <code>CachePolicy.WRITE_THROUGH</code> attributes, so those that already
+	 *  hold the same value are not written again. Values written by other programs are not seen, see <code>invalidateAttributeCache()</code>.
+	 * @param command The MotorCommand
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public void execute(MotorCommand command) throws EV3LibraryException{
+		if (!this.isConnected()){
+			return;
+		}
+		stage(command);
+		if (command.getCommand() != null){
+			sendCommand(command.getCommand());
+		}
+	}
+	
+	/**
+	 * Writes the setpoints and stop action of a MotorCommand that differ from the last written ones, without sending its command
+	 * @param command The MotorCommand
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	void stage(MotorCommand command) throws EV3LibraryException{
+		for (int i = 0; i < MotorCommand.SETPOINT_COUNT; i++){
+			if (command.isSet(i)){
+				this.setIntAttribute(MotorCommand.SETPOINT_PROPERTIES[i], command.getSetpoint(i));
+			}
+		}
+		if (command.getStopAction() != null){
+			this.setAttribute(SYSFS_PROPERTY_STOP_ACTION, command.getStopAction());
+		}
+	}
+	
+	/**
+	 * Opens the attribute files used by a MotorCommand ahead of time,
+	 *  so the first <code>execute()</code> doesn't pay for opening them.
+	 * @param command The MotorCommand
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public void prepare(MotorCommand command) throws EV3LibraryException{
+		for (int i = 0; i < MotorCommand.SETPOINT_COUNT; i++){
+			if (command.isSet(i)){
+				this.openAttributeChannel(MotorCommand.SETPOINT_PROPERTIES[i]);
+			}
+		}
+		if (command.getStopAction() != null){
+			this.openAttributeChannel(SYSFS_PROPERTY_STOP_ACTION);
+		}
+		this.openAttributeChannel(SYSFS_PROPERTY_COMMAND);
+	}
+	
+	@Override
+	protected CachePolicy getCachePolicy(String property){
+		CachePolicy policy = CACHE_POLICIES.get(property);
+		return policy == null ? CachePolicy.VOLATILE : policy;
+	}
+	
+	@Override
+	public AsyncMotor async(){
+		return (AsyncMotor) super.async();
+	}
+	
+	@Override
+	protected AsyncDevice newAsyncDevice(){
+		return new AsyncMotor(this);
+	}
 }
 //-----------------------------------------------------------------------------
\ No newline at end of file
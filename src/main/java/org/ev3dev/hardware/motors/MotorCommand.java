@@ -0,0 +1,319 @@
+package org.ev3dev.hardware.motors;
+
+/***
+ * An immutable set of setpoints and a run command, applied to a motor in one call by <code>Motor.execute()</code>.<br>
+ * <br>
+ * A MotorCommand can be built once and executed many times, on any number of motors. Only the setpoints
+ *  set in the builder are written, and a motor skips those that already hold the same value.<br>
+ * <br>
+ * Example:
+ * <pre>
+ * MotorCommand move = new MotorCommand.Builder(Motor.SYSFS_COMMAND_RUN_TO_REL_POS)
+ *     .setSpeed_SP(500)
+ *     .setPosition_SP(360)
+ *     .setStopAction("hold")
+ *     .build();
+ * motor.execute(move);
+ * </pre>
+ * @author Anthony
+ *
+ */
+public class MotorCommand {
+
+	static final int SP_SPEED = 0;
+
+	static final int SP_POSITION = 1;
+
+	static final int SP_TIME = 2;
+
+	static final int SP_DUTY_CYCLE = 3;
+
+	static final int SP_RAMP_UP = 4;
+
+	static final int SP_RAMP_DOWN = 5;
+
+	static final int SETPOINT_COUNT = 6;
+
+	static final String[] SETPOINT_PROPERTIES = {
+		Motor.SYSFS_PROPERTY_SPEED_SP,
+		Motor.SYSFS_PROPERTY_POSITION_SP,
+		Motor.SYSFS_PROPERTY_TIME_SP,
+		Motor.SYSFS_PROPERTY_DUTY_CYCLE_SP,
+		Motor.SYSFS_PROPERTY_RAMP_UP_SP,
+		Motor.SYSFS_PROPERTY_RAMP_DOWN_SP
+	};
+
+	private final String command;
+
+	private final int[] setpoints;
+
+	private final int setpointMask;
+
+	private final String stopAction;
+
+	private MotorCommand(Builder builder){
+		this.command = builder.command;
+		this.setpoints = builder.setpoints.clone();
+		this.setpointMask = builder.setpointMask;
+		this.stopAction = builder.stopAction;
+	}
+
+	/**
+	 * Returns the run command sent after the setpoints
+	 * @return The command (e.g. run-to-rel-pos), or <code>null</code> if only setpoints are written
+	 */
+	public String getCommand(){
+		return command;
+	}
+
+	/**
+	 * Returns the stop action written before the command
+	 * @return The stop action, or <code>null</code> if it is not set
+	 */
+	public String getStopAction(){
+		return stopAction;
+	}
+
+	/**
+	 * Returns whether the speed setpoint is set
+	 * @return A Boolean
+	 */
+	public boolean hasSpeed_SP(){
+		return isSet(SP_SPEED);
+	}
+
+	/**
+	 * Returns the speed setpoint in tacho counts per second
+	 * @return The speed setpoint
+	 */
+	public int getSpeed_SP(){
+		return setpoints[SP_SPEED];
+	}
+
+	/**
+	 * Returns whether the position setpoint is set
+	 * @return A Boolean
+	 */
+	public boolean hasPosition_SP(){
+		return isSet(SP_POSITION);
+	}
+
+	/**
+	 * Returns the position setpoint in tacho counts
+	 * @return The position setpoint
+	 */
+	public int getPosition_SP(){
+		return setpoints[SP_POSITION];
+	}
+
+	/**
+	 * Returns whether the time setpoint is set
+	 * @return A Boolean
+	 */
+	public boolean hasTime_SP(){
+		return isSet(SP_TIME);
+	}
+
+	/**
+	 * Returns the time setpoint in milliseconds
+	 * @return The time setpoint
+	 */
+	public int getTime_SP(){
+		return setpoints[SP_TIME];
+	}
+
+	/**
+	 * Returns whether the duty cycle setpoint is set
+	 * @return A Boolean
+	 */
+	public boolean hasDutyCycleSP(){
+		return isSet(SP_DUTY_CYCLE);
+	}
+
+	/**
+	 * Returns the duty cycle setpoint in percent
+	 * @return The duty cycle setpoint
+	 */
+	public int getDutyCycleSP(){
+		return setpoints[SP_DUTY_CYCLE];
+	}
+
+	/**
+	 * Returns whether the ramp up setpoint is set
+	 * @return A Boolean
+	 */
+	public boolean hasRamp_Up_SP(){
+		return isSet(SP_RAMP_UP);
+	}
+
+	/**
+	 * Returns the ramp up setpoint in milliseconds
+	 * @return The ramp up setpoint
+	 */
+	public int getRamp_Up_SP(){
+		return setpoints[SP_RAMP_UP];
+	}
+
+	/**
+	 * Returns whether the ramp down setpoint is set
+	 * @return A Boolean
+	 */
+	public boolean hasRamp_Down_SP(){
+		return isSet(SP_RAMP_DOWN);
+	}
+
+	/**
+	 * Returns the ramp down setpoint in milliseconds
+	 * @return The ramp down setpoint
+	 */
+	public int getRamp_Down_SP(){
+		return setpoints[SP_RAMP_DOWN];
+	}
+
+	boolean isSet(int setpoint){
+		return (setpointMask & (1 << setpoint)) != 0;
+	}
+
+	int getSetpoint(int setpoint){
+		return setpoints[setpoint];
+	}
+
+	/**
+	 * Returns a new Builder holding the values of this command, to derive a modified command
+	 * @return A Builder
+	 */
+	public Builder toBuilder(){
+		Builder builder = new Builder(command);
+		System.arraycopy(setpoints, 0, builder.setpoints, 0, SETPOINT_COUNT);
+		builder.setpointMask = setpointMask;
+		builder.stopAction = stopAction;
+		return builder;
+	}
+
+	@Override
+	public String toString(){
+		StringBuilder sb = new StringBuilder("MotorCommand[");
+		for (int i = 0; i < SETPOINT_COUNT; i++){
+			if (isSet(i)){
+				sb.append(SETPOINT_PROPERTIES[i]).append('=').append(setpoints[i]).append(", ");
+			}
+		}
+		if (stopAction != null){
+			sb.append(Motor.SYSFS_PROPERTY_STOP_ACTION).append('=').append(stopAction).append(", ");
+		}
+		return sb.append(Motor.SYSFS_PROPERTY_COMMAND).append('=').append(command).append(']').toString();
+	}
+
+	/***
+	 * Builds a MotorCommand
+	 * @author Anthony
+	 *
+	 */
+	public static class Builder {
+
+		private String command;
+
+		private final int[] setpoints = new int[SETPOINT_COUNT];
+
+		private int setpointMask = 0;
+
+		private String stopAction = null;
+
+		/**
+		 * Creates a new Builder
+		 * @param command The run command sent after the setpoints (e.g. <code>Motor.SYSFS_COMMAND_RUN_TO_REL_POS</code>),
+		 *  or <code>null</code> to only write setpoints
+		 */
+		public Builder(String command){
+			this.command = command;
+		}
+
+		/**
+		 * Sets the run command
+		 * @param command The command, or <code>null</code> to only write setpoints
+		 * @return This Builder
+		 */
+		public Builder setCommand(String command){
+			this.command = command;
+			return this;
+		}
+
+		/**
+		 * Sets the speed setpoint
+		 * @param speed_sp The target speed in tacho counts per second
+		 * @return This Builder
+		 */
+		public Builder setSpeed_SP(int speed_sp){
+			return set(SP_SPEED, speed_sp);
+		}
+
+		/**
+		 * Sets the position setpoint
+		 * @param position_sp The target position in tacho counts
+		 * @return This Builder
+		 */
+		public Builder setPosition_SP(int position_sp){
+			return set(SP_POSITION, position_sp);
+		}
+
+		/**
+		 * Sets the time setpoint
+		 * @param time_sp The time in milliseconds
+		 * @return This Builder
+		 */
+		public Builder setTime_SP(int time_sp){
+			return set(SP_TIME, time_sp);
+		}
+
+		/**
+		 * Sets the duty cycle setpoint
+		 * @param duty_cycle_sp The duty cycle in percent (-100 to 100)
+		 * @return This Builder
+		 */
+		public Builder setDutyCycleSP(int duty_cycle_sp){
+			return set(SP_DUTY_CYCLE, duty_cycle_sp);
+		}
+
+		/**
+		 * Sets the ramp up setpoint
+		 * @param ramp_up_sp The ramp up time in milliseconds
+		 * @return This Builder
+		 */
+		public Builder setRamp_Up_SP(int ramp_up_sp){
+			return set(SP_RAMP_UP, ramp_up_sp);
+		}
+
+		/**
+		 * Sets the ramp down setpoint
+		 * @param ramp_down_sp The ramp down time in milliseconds
+		 * @return This Builder
+		 */
+		public Builder setRamp_Down_SP(int ramp_down_sp){
+			return set(SP_RAMP_DOWN, ramp_down_sp);
+		}
+
+		/**
+		 * Sets the stop action
+		 * @param stop_action A stop action listed by <code>Motor.getStopCommands()</code>
+		 * @return This Builder
+		 */
+		public Builder setStopAction(String stop_action){
+			this.stopAction = stop_action;
+			return this;
+		}
+
+		/**
+		 * Builds the MotorCommand. The Builder can be reused afterwards.
+		 * @return A new MotorCommand
+		 */
+		public MotorCommand build(){
+			return new MotorCommand(this);
+		}
+
+		private Builder set(int setpoint, int value){
+			setpoints[setpoint] = value;
+			setpointMask |= 1 << setpoint;
+			return this;
+		}
+	}
+}
@@ -0,0 +1,362 @@
+package org.ev3dev.hardware.motors;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+import org.ev3dev.exception.EV3LibraryException;
+
+/***
+ * Starts and stops a set of motors together.<br>
+ * <br>
+ * A command is applied in two phases. First the setpoints of every motor are written, which may take a while.
+ *  Then the <code>command</code> attributes are written back-to-back from files that are already open, so the motors
+ *  start as close together as possible. In parallel mode, each motor has its own worker thread and all of them are
+ *  released by a barrier at once, instead of writing one after the other on the calling thread.<br>
+ * <br>
+ * The skew of each start, i.e. the time between the first and the last <code>command</code> write completing,
+ *  is measured so the improvement can be verified.<br>
+ * <br>
+ * Example:
+ * <pre>
+ * MotorGroup base = new MotorGroup(leftMotor, rightMotor);
+ * base.execute(new MotorCommand.Builder(Motor.SYSFS_COMMAND_RUN_FOREVER).setSpeed_SP(400).build());
+ * ...
+ * base.stop();
+ * System.out.println("Skew: " + base.getLastSkew() + " ns");
+ * </pre>
+ * @author Anthony
+ *
+ */
+public class MotorGroup {
+
+	private final Motor[] motors;
+
+	private final String[] commands;
+
+	private final long[] completed;
+
+	private final RuntimeException[] errors;
+
+	private boolean parallel = false;
+
+	private Thread[] workers = null;
+
+	private CyclicBarrier startBarrier = null;
+
+	private CyclicBarrier doneBarrier = null;
+
+	private volatile boolean closed = false;
+
+	private boolean prepared = false;
+
+	private long lastSkew = 0;
+
+	private long maxSkew = 0;
+
+	private long totalSkew = 0;
+
+	private long starts = 0;
+
+	/**
+	 * Creates a new MotorGroup
+	 * @param motors The motors in the group
+	 */
+	public MotorGroup(Motor... motors){
+		if (motors.length == 0){
+			throw new IllegalArgumentException("A MotorGroup needs at least one motor");
+		}
+		this.motors = motors.clone();
+		this.commands = new String[motors.length];
+		this.completed = new long[motors.length];
+		this.errors = new RuntimeException[motors.length];
+	}
+
+	/**
+	 * Returns the number of motors in the group
+	 * @return The number of motors
+	 */
+	public int size(){
+		return motors.length;
+	}
+
+	/**
+	 * Returns a motor of the group
+	 * @param index The index of the motor, in the order given to the constructor
+	 * @return The Motor
+	 */
+	public Motor getMotor(int index){
+		return motors[index];
+	}
+
+	/**
+	 * Sets whether the <code>command</code> writes are issued from one worker thread per motor, released together by a barrier.
+	 *  Otherwise they are issued back-to-back on the calling thread.<br>
+	 * (Default: disabled)
+	 * @param parallel A Boolean
+	 */
+	public synchronized void setParallel(boolean parallel){
+		if (closed){
+			throw new EV3LibraryException("The MotorGroup is closed");
+		}
+		if (this.parallel == parallel){
+			return;
+		}
+		if (!parallel){
+			stopWorkers();
+		}
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Returns whether the <code>command</code> writes are issued from worker threads
+	 * @return A Boolean
+	 */
+	public synchronized boolean isParallel(){
+		return parallel;
+	}
+
+	/**
+	 * Opens the attribute files used by a MotorCommand on every motor ahead of time
+	 * @param command The MotorCommand
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public void prepare(MotorCommand command) throws EV3LibraryException{
+		for (Motor motor : motors){
+			motor.prepare(command);
+		}
+	}
+
+	/**
+	 * Applies the same MotorCommand to every motor. The setpoints of all the motors are written first,
+	 *  then the commands are sent together.
+	 * @param command The MotorCommand
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public synchronized void execute(MotorCommand command) throws EV3LibraryException{
+		for (int i = 0; i < motors.length; i++){
+			motors[i].stage(command);
+			commands[i] = command.getCommand();
+		}
+		start();
+	}
+
+	/**
+	 * Applies one MotorCommand per motor, in the order of the motors. The setpoints of all the motors are written first,
+	 *  then the commands are sent together.
+	 * @param commands The MotorCommands, one for each motor
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public synchronized void execute(MotorCommand... commands) throws EV3LibraryException{
+		if (commands.length != motors.length){
+			throw new IllegalArgumentException("Expected " + motors.length + " commands, got " + commands.length);
+		}
+		for (int i = 0; i < motors.length; i++){
+			motors[i].stage(commands[i]);
+			this.commands[i] = commands[i].getCommand();
+		}
+		start();
+	}
+
+	/**
+	 * Sends the same command to every motor together, without writing any setpoint
+	 * @param command The command (e.g. <code>Motor.SYSFS_COMMAND_RUN_FOREVER</code>)
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public synchronized void sendCommand(String command) throws EV3LibraryException{
+		for (int i = 0; i < motors.length; i++){
+			commands[i] = command;
+		}
+		start();
+	}
+
+	/**
+	 * Causes every motor to run until another command is sent
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public void runForever() throws EV3LibraryException{
+		sendCommand(Motor.SYSFS_COMMAND_RUN_FOREVER);
+	}
+
+	/**
+	 * Stops every motor using its stop action
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public void stop() throws EV3LibraryException{
+		sendCommand(Motor.SYSFS_COMMAND_STOP);
+	}
+
+	/**
+	 * Resets every motor
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public void reset() throws EV3LibraryException{
+		sendCommand(Motor.SYSFS_COMMAND_RESET);
+	}
+
+	/**
+	 * Returns the skew of the last start, i.e. the time between the first and the last <code>command</code> write completing
+	 * @return The skew in nanoseconds
+	 */
+	public synchronized long getLastSkew(){
+		return lastSkew;
+	}
+
+	/**
+	 * Returns the largest skew measured since the last <code>resetSkewStatistics()</code>
+	 * @return The skew in nanoseconds
+	 */
+	public synchronized long getMaxSkew(){
+		return maxSkew;
+	}
+
+	/**
+	 * Returns the average skew measured since the last <code>resetSkewStatistics()</code>
+	 * @return The skew in nanoseconds, or 0 if nothing was started
+	 */
+	public synchronized long getAverageSkew(){
+		return starts == 0 ? 0 : totalSkew / starts;
+	}
+
+	/**
+	 * Returns the number of starts measured since the last <code>resetSkewStatistics()</code>
+	 * @return The number of starts
+	 */
+	public synchronized long getStartCount(){
+		return starts;
+	}
+
+	/**
+	 * Clears the skew statistics
+	 */
+	public synchronized void resetSkewStatistics(){
+		lastSkew = 0;
+		maxSkew = 0;
+		totalSkew = 0;
+		starts = 0;
+	}
+
+	/**
+	 * Stops the worker threads. The group can't be used afterwards.
+	 */
+	public synchronized void close(){
+		if (closed){
+			return;
+		}
+		stopWorkers();
+		closed = true;
+	}
+
+	private void start() throws EV3LibraryException{
+		if (closed){
+			throw new EV3LibraryException("The MotorGroup is closed");
+		}
+		if (!prepared){
+			for (Motor motor : motors){
+				motor.openAttributeChannel(Motor.SYSFS_PROPERTY_COMMAND);
+			}
+			prepared = true;
+		}
+		for (int i = 0; i < motors.length; i++){
+			errors[i] = null;
+		}
+		if (parallel && motors.length > 1){
+			startParallel();
+		} else {
+			for (int i = 0; i < motors.length; i++){
+				send(i);
+			}
+		}
+		long first = Long.MAX_VALUE;
+		long last = Long.MIN_VALUE;
+		for (int i = 0; i < motors.length; i++){
+			if (errors[i] != null){
+				throw errors[i];
+			}
+			if (commands[i] != null){
+				first = Math.min(first, completed[i]);
+				last = Math.max(last, completed[i]);
+			}
+		}
+		if (first <= last){
+			lastSkew = last - first;
+			maxSkew = Math.max(maxSkew, lastSkew);
+			totalSkew += lastSkew;
+			starts++;
+		}
+	}
+
+	private void startParallel() throws EV3LibraryException{
+		if (workers == null){
+			startWorkers();
+		}
+		try {
+			startBarrier.await();
+			doneBarrier.await();
+		} catch (InterruptedException e){
+			Thread.currentThread().interrupt();
+			stopWorkers();
+			throw new EV3LibraryException("Interrupted while starting the motors", e);
+		} catch (BrokenBarrierException e){
+			stopWorkers();
+			throw new EV3LibraryException("A motor worker thread has stopped", e);
+		}
+	}
+
+	/**
+	 * Writes the command of a motor. Any exception is recorded in <code>errors</code> and rethrown by <code>start()</code>
+	 *  on the calling thread, so a worker always reaches the done barrier.
+	 * @param index The index of the motor
+	 */
+	private void send(int index){
+		if (commands[index] == null){
+			return;
+		}
+		try {
+			motors[index].sendCommand(commands[index]);
+		} catch (RuntimeException e){
+			errors[index] = e;
+		}
+		completed[index] = System.nanoTime();
+	}
+
+	private void startWorkers(){
+		startBarrier = new CyclicBarrier(motors.length + 1);
+		doneBarrier = new CyclicBarrier(motors.length + 1);
+		workers = new Thread[motors.length];
+		final CyclicBarrier start = startBarrier;
+		final CyclicBarrier done = doneBarrier;
+		for (int i = 0; i < motors.length; i++){
+			final int index = i;
+			workers[i] = new Thread(new Runnable(){
+				public void run(){
+					try {
+						while (true){
+							start.await();
+							send(index);
+							done.await();
+						}
+					} catch (InterruptedException | BrokenBarrierException ignore){
+					} finally {
+						//If this worker dies for any reason, the caller must not wait for it forever
+						start.reset();
+						done.reset();
+					}
+				}
+			}, "ev3dev-motor-group-" + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	private void stopWorkers(){
+		if (workers == null){
+			return;
+		}
+		for (Thread worker : workers){
+			worker.interrupt();
+		}
+		workers = null;
+		startBarrier = null;
+		doneBarrier = null;
+	}
+}
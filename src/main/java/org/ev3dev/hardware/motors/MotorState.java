@@ -0,0 +1,90 @@
+package org.ev3dev.hardware.motors;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/***
+ * The flags of the <code>state</code> attribute of a tacho motor
+ * @author Anthony
+ *
+ */
+public enum MotorState {
+
+	/**
+	 * Power is being sent to the motor
+	 */
+	RUNNING(Motor.SYSFS_STATE_RUNNING, Motor.STATE_RUNNING),
+
+	/**
+	 * The motor is ramping up or down and has not yet reached a constant output level
+	 */
+	RAMPING(Motor.SYSFS_STATE_RAMPING, Motor.STATE_RAMPING),
+
+	/**
+	 * The motor is not turning, but rather attempting to hold a fixed position
+	 */
+	HOLDING(Motor.SYSFS_STATE_HOLDING, Motor.STATE_HOLDING),
+
+	/**
+	 * The motor is at full power, but cannot reach the speed setpoint
+	 */
+	OVERLOADED(Motor.SYSFS_STATE_OVERLOADED, Motor.STATE_OVERLOADED),
+
+	/**
+	 * The motor is not turning when it should be
+	 */
+	STALLED(Motor.SYSFS_STATE_STALLED, Motor.STATE_STALLED);
+
+	private final String sysfsName;
+
+	private final int bit;
+
+	private MotorState(String sysfsName, int bit){
+		this.sysfsName = sysfsName;
+		this.bit = bit;
+	}
+
+	/**
+	 * Returns the name of the flag in the <code>state</code> attribute
+	 * @return The Sysfs name (e.g. running)
+	 */
+	public String getSysfsName(){
+		return sysfsName;
+	}
+
+	/**
+	 * Returns the bit of the flag in <code>Motor.getStateFlags()</code>
+	 * @return The bit (e.g. <code>Motor.STATE_RUNNING</code>)
+	 */
+	public int getBit(){
+		return bit;
+	}
+
+	/**
+	 * Returns the states of a bitmask returned by <code>Motor.getStateFlags()</code>
+	 * @param flags The state flags
+	 * @return A new EnumSet
+	 */
+	public static EnumSet<MotorState> fromFlags(int flags){
+		EnumSet<MotorState> states = EnumSet.noneOf(MotorState.class);
+		for (MotorState state : values()){
+			if ((flags & state.bit) != 0){
+				states.add(state);
+			}
+		}
+		return states;
+	}
+
+	/**
+	 * Returns the bitmask of a set of states, as returned by <code>Motor.getStateFlags()</code>
+	 * @param states The states
+	 * @return The state flags
+	 */
+	public static int toFlags(Set<MotorState> states){
+		int flags = 0;
+		for (MotorState state : states){
+			flags |= state.bit;
+		}
+		return flags;
+	}
+}
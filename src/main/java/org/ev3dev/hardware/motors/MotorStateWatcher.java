@@ -0,0 +1,354 @@
+package org.ev3dev.hardware.motors;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.ev3dev.exception.EV3LibraryException;
+import org.ev3dev.hardware.DeviceDescriptor;
+import org.ev3dev.io.DeviceFileSystem;
+
+/***
+ * Waits for the state flags of motors on behalf of any number of threads, using one shared background thread.<br>
+ * <br>
+ * The thread reads the <code>state</code> attribute of each motor being waited for once per round, however many threads
+ *  wait for it. ev3dev signals changes of <code>state</code> with <code>sysfs_notify()</code>, which the kernel also reports
+ *  to inotify, so the thread sleeps on a <code>WatchService</code> over the motor directories. Until such an event has been seen,
+ *  or if no <code>WatchService</code> is available, it polls with an exponential backoff. The thread only runs while a thread is waiting.<br>
+ * <br>
+ * A new waiter wakes the thread up: it sleeps on the <code>WatchService</code> at most <code>WAKE_UP_INTERVAL</code> at a time, so the
+ *  directory of a new motor is watched and a nearer deadline is taken into account right away, not after the current sleep.<br>
+ * <br>
+ * Waits can also complete a future instead of blocking a thread, for the asynchronous API.
+ * @author Anthony
+ *
+ */
+class MotorStateWatcher {
+
+	/**
+	 * The shortest time between two rounds, in milliseconds
+	 */
+	static final long MIN_POLL_INTERVAL = 1;
+
+	/**
+	 * The longest time between two rounds while the kernel's notifications are not known to work, in milliseconds
+	 */
+	static final long MAX_POLL_INTERVAL = 32;
+
+	/**
+	 * The longest time between two rounds once the kernel's notifications are known to work, in milliseconds
+	 */
+	static final long MAX_NOTIFIED_POLL_INTERVAL = 250;
+
+	/**
+	 * The longest time the thread sleeps on the <code>WatchService</code> without checking for new waiters, in milliseconds
+	 */
+	static final long WAKE_UP_INTERVAL = 10;
+
+	private static final String STATE_FILE_NAME = Motor.SYSFS_PROPERTY_STATE;
+
+	private static final MotorStateWatcher INSTANCE = new MotorStateWatcher();
+
+	private final Object lock = new Object();
+
+	private final List<Waiter> waiters = new ArrayList<Waiter>();
+
+	private boolean resetBackoff = false;
+
+	private Thread thread = null;
+
+	static MotorStateWatcher getInstance(){
+		return INSTANCE;
+	}
+
+	private MotorStateWatcher(){
+
+	}
+
+	/**
+	 * Blocks until <code>(motor.getStateFlags() &amp; mask) == expected</code>
+	 * @param motor The Motor
+	 * @param mask The flags to look at
+	 * @param expected The value of the flags to wait for
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return Whether the state was reached, <code>false</code> if the timeout elapsed
+	 * @throws EV3LibraryException If the state couldn't be read
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	boolean await(Motor motor, int mask, int expected, long timeout) throws EV3LibraryException, InterruptedException{
+		if ((motor.getStateFlags() & mask) == expected){
+			return true;
+		}
+		Waiter waiter = new Waiter(motor, mask, expected, null, 0);
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		long remaining;
+		synchronized (lock){
+			add(waiter);
+			try {
+				while (!waiter.done){
+					if (timeout <= 0){
+						lock.wait();
+						continue;
+					}
+					remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+					if (remaining <= 0){
+						return false;
+					}
+					lock.wait(remaining);
+				}
+			} finally {
+				waiters.remove(waiter);
+			}
+			if (waiter.error != null){
+				throw waiter.error;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Returns a future completed when <code>(motor.getStateFlags() &amp; mask) == expected</code>, without blocking any thread
+	 * @param motor The Motor
+	 * @param mask The flags to look at
+	 * @param expected The value of the flags to wait for
+	 * @param timeout The maximum time to wait in milliseconds, or 0 to wait forever
+	 * @return A future completed with whether the state was reached, <code>false</code> if the timeout elapsed,
+	 *  or exceptionally if the state couldn't be read
+	 */
+	CompletableFuture<Boolean> awaitAsync(Motor motor, int mask, int expected, long timeout){
+		CompletableFuture<Boolean> future = new CompletableFuture<Boolean>();
+		try {
+			if ((motor.getStateFlags() & mask) == expected){
+				future.complete(true);
+				return future;
+			}
+		} catch (RuntimeException e){
+			future.completeExceptionally(e);
+			return future;
+		}
+		long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+		synchronized (lock){
+			add(new Waiter(motor, mask, expected, future, deadline));
+		}
+		return future;
+	}
+
+	private void add(Waiter waiter){
+		waiters.add(waiter);
+		resetBackoff = true;
+		lock.notifyAll();
+		if (thread == null){
+			thread = new Thread(new Runnable(){
+				public void run(){
+					watch();
+				}
+			}, "ev3dev-motor-state-watcher");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private void watch(){
+		WatchService watcher = openWatchService();
+		Set<Path> watched = new HashSet<Path>();
+		Map<Motor, Integer> lastFlags = new IdentityHashMap<Motor, Integer>();
+		Map<Motor, Integer> flags = new IdentityHashMap<Motor, Integer>();
+		Map<Motor, RuntimeException> errors = new IdentityHashMap<Motor, RuntimeException>();
+		List<Motor> motors = new ArrayList<Motor>();
+		List<Waiter> completed = new ArrayList<Waiter>();
+		long interval = MIN_POLL_INTERVAL;
+		long wait;
+		long now;
+		long end;
+		long earliest;
+		boolean notified = false;
+		boolean changed;
+		boolean released;
+		Integer value;
+		Path dir;
+		WatchKey key;
+		Waiter waiter;
+		try {
+			while (true){
+				motors.clear();
+				synchronized (lock){
+					if (waiters.isEmpty()){
+						thread = null;
+						return;
+					}
+					if (resetBackoff){
+						interval = MIN_POLL_INTERVAL;
+						resetBackoff = false;
+					}
+					for (Waiter w : waiters){
+						if (!motors.contains(w.motor)){
+							motors.add(w.motor);
+						}
+					}
+				}
+				changed = false;
+				for (Motor motor : motors){
+					if (watcher != null && (dir = getDirectory(motor)) != null && watched.add(dir)){
+						try {
+							dir.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY);
+						} catch (IOException ignore){}
+					}
+					try {
+						value = motor.getStateFlags();
+						flags.put(motor, value);
+						changed |= !value.equals(lastFlags.put(motor, value));
+					} catch (RuntimeException e){
+						errors.put(motor, e);
+						lastFlags.remove(motor);
+					}
+				}
+				now = System.nanoTime();
+				earliest = Long.MAX_VALUE;
+				synchronized (lock){
+					released = false;
+					for (Iterator<Waiter> it = waiters.iterator(); it.hasNext();){
+						waiter = it.next();
+						if (errors.containsKey(waiter.motor)){
+							waiter.error = errors.get(waiter.motor);
+						} else if ((value = flags.get(waiter.motor)) == null || (value & waiter.mask) != waiter.expected){
+							if (waiter.future == null || waiter.deadline == 0){
+								continue;
+							}
+							if (now - waiter.deadline < 0){
+								earliest = Math.min(earliest, waiter.deadline - now);
+								continue;
+							}
+							waiter.timedOut = true;
+						}
+						waiter.done = true;
+						it.remove();
+						if (waiter.future != null){
+							completed.add(waiter);
+						} else {
+							released = true;
+						}
+					}
+					if (released){
+						lock.notifyAll();
+					}
+				}
+				for (Waiter w : completed){
+					if (w.error != null){
+						w.future.completeExceptionally(w.error);
+					} else {
+						w.future.complete(!w.timedOut);
+					}
+				}
+				completed.clear();
+				flags.clear();
+				errors.clear();
+				interval = changed ? MIN_POLL_INTERVAL : Math.min(interval * 2, notified ? MAX_NOTIFIED_POLL_INTERVAL : MAX_POLL_INTERVAL);
+				wait = Math.max(MIN_POLL_INTERVAL, Math.min(interval, TimeUnit.NANOSECONDS.toMillis(earliest) + 1));
+				if (watcher != null && !watched.isEmpty()){
+					//Sleep in steps, so add() can wake the thread up
+					end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(wait);
+					while (true){
+						key = watcher.poll(Math.min(wait, WAKE_UP_INTERVAL), TimeUnit.MILLISECONDS);
+						if (key != null){
+							break;
+						}
+						synchronized (lock){
+							if (resetBackoff){
+								break;
+							}
+						}
+						wait = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+						if (wait <= 0){
+							break;
+						}
+					}
+					while (key != null){
+						for (WatchEvent<?> event : key.pollEvents()){
+							if (event.context() != null && STATE_FILE_NAME.equals(event.context().toString())){
+								notified = true;
+								interval = MIN_POLL_INTERVAL;
+							}
+						}
+						key.reset();
+						key = watcher.poll();
+					}
+				} else {
+					synchronized (lock){
+						if (!resetBackoff){
+							lock.wait(wait);
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e){
+			synchronized (lock){
+				thread = null;
+			}
+		} finally {
+			if (watcher != null){
+				try {
+					watcher.close();
+				} catch (IOException ignore){}
+			}
+		}
+	}
+
+	private static Path getDirectory(Motor motor){
+		DeviceDescriptor descriptor = motor.getDescriptor();
+		if (descriptor == null){
+			return null;
+		}
+		return motor.getFileSystem().toRealPath(DeviceFileSystem.SYSFS_CLASS_PATH + descriptor.getClassName() + "/" + descriptor.getClassFullName());
+	}
+
+	private static WatchService openWatchService(){
+		try {
+			return FileSystems.getDefault().newWatchService();
+		} catch (IOException | UnsupportedOperationException e){
+			return null;
+		}
+	}
+
+	/**
+	 * A thread or a future waiting for the state of a motor
+	 */
+	private static class Waiter {
+
+		private final Motor motor;
+
+		private final int mask;
+
+		private final int expected;
+
+		private final CompletableFuture<Boolean> future;
+
+		private final long deadline;
+
+		private boolean done = false;
+
+		private boolean timedOut = false;
+
+		private RuntimeException error = null;
+
+		private Waiter(Motor motor, int mask, int expected, CompletableFuture<Boolean> future, long deadline){
+			this.motor = motor;
+			this.mask = mask;
+			this.expected = expected;
+			this.future = future;
+			this.deadline = deadline;
+		}
+	}
+}
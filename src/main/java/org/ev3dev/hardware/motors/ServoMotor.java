@@ -1,8 +1,12 @@
 package org.ev3dev.hardware.motors;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.ev3dev.exception.EV3LibraryException;
 import org.ev3dev.exception.InvalidMotorException;
 import org.ev3dev.exception.InvalidPortException;
+import org.ev3dev.hardware.CachePolicy;
 import org.ev3dev.hardware.Device;
 import org.ev3dev.hardware.ports.LegoPort;
 import org.ev3dev.io.Sysfs;
@@ -86,6 +90,17 @@ public class ServoMotor extends Device{
 
 	private String address;
 	
+	private static final Map<String, CachePolicy> CACHE_POLICIES = new HashMap<String, CachePolicy>();
+	
+	static {
+		for (String property : new String[]{SYSFS_PROPERTY_ADDRESS, SYSFS_PROPERTY_DRIVER_NAME}){
+			CACHE_POLICIES.put(property, CachePolicy.STATIC);
+		}
+		for (String property : new String[]{SYSFS_PROPERTY_POLARITY, SYSFS_PROPERTY_POSITION_SP, SYSFS_PROPERTY_MAX_PULSE_SP, SYSFS_PROPERTY_MID_PULSE_SP, SYSFS_PROPERTY_MIN_PULSE_SP, SYSFS_PROPERTY_RATE_SP}){
+			CACHE_POLICIES.put(property, CachePolicy.WRITE_THROUGH);
+		}
+	}
+	
 	/***
 	 * Creates a new motor object.
 	 * @param port LegoPort
@@ -297,4 +312,10 @@ public class ServoMotor extends Device{
 		String str = getStateViaString();
 		return Sysfs.separateSpace(str);
 	}
+	
+	@Override
+	protected CachePolicy getCachePolicy(String property){
+		CachePolicy policy = CACHE_POLICIES.get(property);
+		return policy == null ? CachePolicy.VOLATILE : policy;
+	}
 }
@@ -4,6 +4,7 @@ import java.io.IOException;
 
 import org.ev3dev.exception.EV3LibraryException;
 import org.ev3dev.exception.InvalidPortException;
+import org.ev3dev.io.DeviceFileSystem;
 import org.ev3dev.io.Sysfs;
 
 /***
@@ -30,6 +31,8 @@ public class LegoPort{
 	
 	private int port = 0;
 	
+	private final DeviceFileSystem fs;
+	
 	/**
 	 * The sysfs class name of LegoPort
 	 */
@@ -76,17 +79,36 @@ public class LegoPort{
 	public static final int OUTPUT_D = 7;
 	
 	/**
-	 * Creates a new LegoPort object.
+	 * Creates a new LegoPort object, on <code>DeviceFileSystem.getDefault()</code>.
 	 * @param port A INPUT/OUTPUT Integer field from LegoPort class.
 	 * @throws InvalidPortException If the specified port is lower than INPUT_1, higher than OUTPUT_D
 	 */
 	public LegoPort(int port) throws InvalidPortException{
+		this(port, DeviceFileSystem.getDefault());
+	}
+	
+	/**
+	 * Creates a new LegoPort object. The devices created on this port are controlled through the same DeviceFileSystem.
+	 * @param port A INPUT/OUTPUT Integer field from LegoPort class.
+	 * @param fs The DeviceFileSystem the port is controlled through
+	 * @throws InvalidPortException If the specified port is lower than INPUT_1, higher than OUTPUT_D
+	 */
+	public LegoPort(int port, DeviceFileSystem fs) throws InvalidPortException{
 		if (port < INPUT_1){
 			throw new InvalidPortException("Port is lower than " + INPUT_1 + ", Port: " + port);
 		} else if (port > OUTPUT_D){
 			throw new InvalidPortException("Port is higher than " + OUTPUT_D + ", Port: " + port);
 		}
 		this.port = port;
+		this.fs = fs;
+	}
+	
+	/**
+	 * Returns the DeviceFileSystem this port is controlled through
+	 * @return The DeviceFileSystem
+	 */
+	public DeviceFileSystem getFileSystem(){
+		return fs;
 	}
 	
 	/**
@@ -97,7 +119,7 @@ public class LegoPort{
 	public String getAddress() throws EV3LibraryException{
 		String address;
 		try {
-			address = Sysfs.getAttribute(CLASS_NAME, "port" + port, "address");
+			address = fs.readAttribute(DeviceFileSystem.getAttributePath(CLASS_NAME, "port" + port, "address"));
 		} catch (IOException e) {
 			throw new EV3LibraryException("Get address attribute failed", e);
 		}
@@ -112,7 +134,7 @@ public class LegoPort{
 	public String getDriverName() throws EV3LibraryException{
 		String drivername;
 		try {
-			drivername = Sysfs.getAttribute(CLASS_NAME, "port" + port, "driver_name");
+			drivername = fs.readAttribute(DeviceFileSystem.getAttributePath(CLASS_NAME, "port" + port, "driver_name"));
 		} catch (IOException e) {
 			throw new EV3LibraryException("Get driver name attribute failed", e);
 		}
@@ -127,7 +149,7 @@ public class LegoPort{
 	public String[] getModes() throws EV3LibraryException{
 		String modesstr;
 		try {
-			modesstr = Sysfs.getAttribute(CLASS_NAME, "port" + port, "modes");
+			modesstr = fs.readAttribute(DeviceFileSystem.getAttributePath(CLASS_NAME, "port" + port, "modes"));
 		} catch (IOException e) {
 			throw new EV3LibraryException("Get modes attribute failed", e);
 		}
@@ -145,7 +167,7 @@ public class LegoPort{
 	public String getMode() throws EV3LibraryException{
 		String mode;
 		try {
-			mode = Sysfs.getAttribute(CLASS_NAME, "port" + port, "mode");
+			mode = fs.readAttribute(DeviceFileSystem.getAttributePath(CLASS_NAME, "port" + port, "mode"));
 		} catch (IOException e) {
 			throw new EV3LibraryException("Get mode attribute failed", e);
 		}
@@ -162,7 +184,7 @@ public class LegoPort{
 	 */
 	public void setMode(String mode) throws EV3LibraryException{
 		try {
-			Sysfs.setAttribute(CLASS_NAME, "port" + port, "mode", mode);
+			fs.writeAttribute(DeviceFileSystem.getAttributePath(CLASS_NAME, "port" + port, "mode"), mode);
 		} catch (IOException e) {
 			throw new EV3LibraryException("Set mode attribute failed", e);
 		}
@@ -177,7 +199,7 @@ public class LegoPort{
 	 */
 	public void setDevice(String driver) throws EV3LibraryException{
 		try {
-			Sysfs.setAttribute(CLASS_NAME, "port" + port, "set_device", driver);
+			fs.writeAttribute(DeviceFileSystem.getAttributePath(CLASS_NAME, "port" + port, "set_device"), driver);
 		} catch (IOException e) {
 			throw new EV3LibraryException("Set device attribute failed", e);
 		}
@@ -193,7 +215,7 @@ public class LegoPort{
 	public String getStatus() throws EV3LibraryException{
 		String status;
 		try {
-			status = Sysfs.getAttribute(CLASS_NAME, "port" + port, "status");
+			status = fs.readAttribute(DeviceFileSystem.getAttributePath(CLASS_NAME, "port" + port, "status"));
 		} catch (IOException e) {
 			throw new EV3LibraryException("Get status attribute failed", e);
 		}
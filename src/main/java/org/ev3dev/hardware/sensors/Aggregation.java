@@ -0,0 +1,24 @@
+package org.ev3dev.hardware.sensors;
+
+/***
+ * How <code>Samples.window()</code> combines the samples of a window into one
+ * @author Anthony
+ *
+ */
+public enum Aggregation {
+
+	/**
+	 * The mean of each value, rounded to the nearest fixed-point value
+	 */
+	MEAN,
+
+	/**
+	 * The smallest of each value
+	 */
+	MIN,
+
+	/**
+	 * The largest of each value
+	 */
+	MAX
+}
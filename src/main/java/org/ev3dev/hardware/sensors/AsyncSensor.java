@@ -0,0 +1,98 @@
+package org.ev3dev.hardware.sensors;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import org.ev3dev.hardware.AsyncDevice;
+
+/***
+ * The asynchronous view of a Sensor, returned by <code>Sensor.async()</code>.<br>
+ * <br>
+ * Reads queued after <code>setMode()</code> see the new mode.
+ * @author Anthony
+ *
+ */
+public class AsyncSensor extends AsyncDevice {
+
+	private final Sensor sensor;
+
+	/**
+	 * Creates a new AsyncSensor
+	 * @param sensor The Sensor
+	 */
+	protected AsyncSensor(Sensor sensor){
+		super(sensor);
+		this.sensor = sensor;
+	}
+
+	@Override
+	public Sensor getDevice(){
+		return sensor;
+	}
+
+	/**
+	 * Returns the current mode, see <code>Sensor.getMode()</code>
+	 * @return A future completed with the mode
+	 */
+	public CompletableFuture<String> getMode(){
+		return submit(new Callable<String>(){
+			public String call(){
+				return sensor.getMode();
+			}
+		});
+	}
+
+	/**
+	 * Sets the current mode, see <code>Sensor.setMode()</code>
+	 * @param mode The mode listed using <code>getModes()</code>
+	 * @return A future completed once the mode is written
+	 */
+	public CompletableFuture<Void> setMode(final String mode){
+		return submit(new Callable<Void>(){
+			public Void call(){
+				sensor.setMode(mode);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Reads all the values of the current mode in fixed-point form, see <code>Sensor.readValues(int[])</code>
+	 * @return A future completed with a new array of <code>num_values</code> values
+	 */
+	public CompletableFuture<int[]> readValues(){
+		return submit(new Callable<int[]>(){
+			public int[] call(){
+				int[] values = new int[Sensor.MAX_NUM_VALUES];
+				return Arrays.copyOf(values, sensor.readValues(values));
+			}
+		});
+	}
+
+	/**
+	 * Reads all the values of the current mode with the decimal places applied, see <code>Sensor.readValues(float[])</code>
+	 * @return A future completed with a new array of <code>num_values</code> values
+	 */
+	public CompletableFuture<float[]> readScaledValues(){
+		return submit(new Callable<float[]>(){
+			public float[] call(){
+				float[] values = new float[Sensor.MAX_NUM_VALUES];
+				return Arrays.copyOf(values, sensor.readValues(values));
+			}
+		});
+	}
+
+	/**
+	 * Reads one value[N] attribute in fixed-point form
+	 * @param index The index of the value, below <code>num_values</code>
+	 * @return A future completed with the value, or completed exceptionally with an <code>IndexOutOfBoundsException</code> if the index is out of range
+	 */
+	public CompletableFuture<Integer> getValue(int index){
+		if (index < 0 || index >= Sensor.MAX_NUM_VALUES){
+			return CompletableFuture.failedFuture(
+					new IndexOutOfBoundsException("The value index must be between 0 and " + (Sensor.MAX_NUM_VALUES - 1) + ": " + index));
+		}
+		return getIntAttribute("value" + index);
+	}
+}
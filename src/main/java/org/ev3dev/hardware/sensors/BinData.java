@@ -0,0 +1,231 @@
+package org.ev3dev.hardware.sensors;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.ev3dev.exception.EV3LibraryException;
+
+/***
+ * Decodes the <code>bin_data</code> attribute of a sensor.<br>
+ * <br>
+ * <code>bin_data</code> holds all the values of the current mode in one binary block, laid out as given by
+ *  <code>bin_data_format</code>. A BinData owns a reused direct buffer: fill it with <code>clear()</code> and a read,
+ *  then decode each value in place without creating any objects.<br>
+ * <br>
+ * The multi-byte formats without the <code>_be</code> suffix are in the EV3's byte order (little-endian).
+ * @author Anthony
+ *
+ */
+public class BinData {
+
+	/**
+	 * The size of the <code>bin_data</code> attribute in bytes
+	 */
+	public static final int SIZE = 32;
+
+	private static final float[] POWERS_OF_TEN = {1f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f};
+
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+	private Format format = null;
+
+	/**
+	 * Creates a new BinData with no format
+	 */
+	public BinData(){
+
+	}
+
+	/**
+	 * Creates a new BinData
+	 * @param format The format of the values
+	 */
+	public BinData(Format format){
+		this.format = format;
+	}
+
+	/**
+	 * Sets the format of the values
+	 * @param format The Format
+	 */
+	public void setFormat(Format format){
+		this.format = format;
+	}
+
+	/**
+	 * Returns the format of the values
+	 * @return The Format
+	 */
+	public Format getFormat(){
+		return format;
+	}
+
+	/**
+	 * Clears the buffer and returns it, ready to be filled by a read of <code>bin_data</code>
+	 * @return The buffer
+	 */
+	public ByteBuffer clear(){
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Returns the number of whole values in the buffer
+	 * @return The number of values
+	 */
+	public int getValueCount(){
+		return buffer.position() / format.getSize();
+	}
+
+	/**
+	 * Returns a value as an integer. Float values are rounded.
+	 * @param index The value index
+	 * @return The value
+	 */
+	public int getInt(int index){
+		int offset = index * format.getSize();
+		switch (format){
+		case U8:
+			return buffer.get(offset) & 0xff;
+		case S8:
+			return buffer.get(offset);
+		case U16:
+			return buffer.getShort(offset) & 0xffff;
+		case S16:
+			return buffer.getShort(offset);
+		case S16_BE:
+			return Short.reverseBytes(buffer.getShort(offset));
+		case S32:
+			return buffer.getInt(offset);
+		case S32_BE:
+			return Integer.reverseBytes(buffer.getInt(offset));
+		case FLOAT:
+			return Math.round(buffer.getFloat(offset));
+		default:
+			throw new EV3LibraryException("Unsupported bin_data_format: " + format);
+		}
+	}
+
+	/**
+	 * Returns a value as a float
+	 * @param index The value index
+	 * @return The value
+	 */
+	public float getFloat(int index){
+		if (format == Format.FLOAT){
+			return buffer.getFloat(index * format.getSize());
+		}
+		return getInt(index);
+	}
+
+	/**
+	 * Returns a value in the same fixed-point form as the <code>value[N]</code> attributes,
+	 *  i.e. multiplied by 10 to the power of <code>decimals</code>. Only float values are scaled.
+	 * @param index The value index
+	 * @param decimals The number of decimal places
+	 * @return The fixed-point value
+	 */
+	public int getFixedPoint(int index, int decimals){
+		if (format == Format.FLOAT){
+			return Math.round(buffer.getFloat(index * format.getSize()) * POWERS_OF_TEN[decimals]);
+		}
+		return getInt(index);
+	}
+
+	/**
+	 * Applies decimal places to a fixed-point value, with a single division
+	 * @param value The fixed-point value (e.g. a <code>value[N]</code> attribute)
+	 * @param decimals The number of decimal places
+	 * @return The scaled value
+	 */
+	public static float scale(int value, int decimals){
+		return decimals == 0 ? value : value / POWERS_OF_TEN[decimals];
+	}
+
+	/***
+	 * The formats of <code>bin_data_format</code>
+	 * @author Anthony
+	 *
+	 */
+	public enum Format {
+
+		/**
+		 * Unsigned 8-bit integer
+		 */
+		U8("u8", 1),
+
+		/**
+		 * Signed 8-bit integer
+		 */
+		S8("s8", 1),
+
+		/**
+		 * Unsigned 16-bit integer, little-endian
+		 */
+		U16("u16", 2),
+
+		/**
+		 * Signed 16-bit integer, little-endian
+		 */
+		S16("s16", 2),
+
+		/**
+		 * Signed 16-bit integer, big-endian
+		 */
+		S16_BE("s16_be", 2),
+
+		/**
+		 * Signed 32-bit integer, little-endian
+		 */
+		S32("s32", 4),
+
+		/**
+		 * Signed 32-bit integer, big-endian
+		 */
+		S32_BE("s32_be", 4),
+
+		/**
+		 * IEEE 754 32-bit floating point, little-endian
+		 */
+		FLOAT("float", 4);
+
+		private final String sysfsName;
+
+		private final int size;
+
+		private Format(String sysfsName, int size){
+			this.sysfsName = sysfsName;
+			this.size = size;
+		}
+
+		/**
+		 * Returns the name used by <code>bin_data_format</code>
+		 * @return The Sysfs name (e.g. s16_be)
+		 */
+		public String getSysfsName(){
+			return sysfsName;
+		}
+
+		/**
+		 * Returns the size of one value in bytes
+		 * @return The size
+		 */
+		public int getSize(){
+			return size;
+		}
+
+		/**
+		 * Returns the Format of a <code>bin_data_format</code> value
+		 * @param sysfsName The Sysfs name (e.g. s16_be)
+		 * @return The Format, or <code>null</code> if it is unknown
+		 */
+		public static Format fromSysfsName(String sysfsName){
+			for (Format format : values()){
+				if (format.sysfsName.equals(sysfsName)){
+					return format;
+				}
+			}
+			return null;
+		}
+	}
+}
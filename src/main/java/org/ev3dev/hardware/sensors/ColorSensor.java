@@ -99,8 +99,7 @@ public class ColorSensor extends Sensor {
 				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_REFLECTED_LIGHT_INTENSITY_MODE + ")! Yours: " + this.getMode());
 			}
 		}
-		String str = this.getAttribute("value" + SYSFS_REFLECTED_LIGHT_INTENSITY_VALUE_INDEX);
-		return Integer.parseInt(str);
+		return this.readValue(SYSFS_REFLECTED_LIGHT_INTENSITY_VALUE_INDEX);
 	}
 	
 	/**
@@ -117,8 +116,7 @@ public class ColorSensor extends Sensor {
 				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_AMBIENT_LIGHT_INTENSITY_MODE + ")! Yours: " + this.getMode());
 			}
 		}
-		String str = this.getAttribute("value" + SYSFS_AMBIENT_LIGHT_INTENSITY_VALUE_INDEX);
-		return Integer.parseInt(str);
+		return this.readValue(SYSFS_AMBIENT_LIGHT_INTENSITY_VALUE_INDEX);
 	}
 	
 	/**
@@ -143,8 +141,7 @@ public class ColorSensor extends Sensor {
 				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_COLOR_MODE + ")! Yours: " + this.getMode());
 			}
 		}
-		String str = this.getAttribute("value" + SYSFS_COLOR_VALUE_INDEX);
-		return Integer.parseInt(str);
+		return this.readValue(SYSFS_COLOR_VALUE_INDEX);
 	}
 	
 	/**
@@ -161,8 +158,7 @@ public class ColorSensor extends Sensor {
 				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_RGB_MODE + ")! Yours: " + this.getMode());
 			}
 		}
-		String str = this.getAttribute("value" + SYSFS_RGB_R_VALUE_INDEX);
-		return Integer.parseInt(str);
+		return this.readValue(SYSFS_RGB_R_VALUE_INDEX);
 	}
 	
 	/**
@@ -179,8 +175,7 @@ public class ColorSensor extends Sensor {
 				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_RGB_MODE + ")! Yours: " + this.getMode());
 			}
 		}
-		String str = this.getAttribute("value" + SYSFS_RGB_G_VALUE_INDEX);
-		return Integer.parseInt(str);
+		return this.readValue(SYSFS_RGB_G_VALUE_INDEX);
 	}
 	
 	/**
@@ -197,8 +192,30 @@ public class ColorSensor extends Sensor {
 				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_RGB_MODE + ")! Yours: " + this.getMode());
 			}
 		}
-		String str = this.getAttribute("value" + SYSFS_RGB_B_VALUE_INDEX);
-		return Integer.parseInt(str);
+		return this.readValue(SYSFS_RGB_B_VALUE_INDEX);
+	}
+	
+	/**
+	 * Reads the red, green and blue components of the detected color at once, in the range 0-1020.
+	 *  All three are read from the same sample, with one read of <code>bin_data</code>, unless <code>setBinDataEnabled(false)</code> was called.
+	 * @param rgb An array of at least 3 elements, which receives the red, green and blue components
+	 * @return The array specified
+	 * @throws EV3LibraryException If I/O goes wrong
+	 * @throws InvalidModeException The mode selected wasn't valid, or <b>Auto Switch Mode</b> has disabled.
+	 */
+	public int[] getRGB(int[] rgb) throws EV3LibraryException, InvalidModeException{
+		if (rgb.length < 3){
+			throw new IllegalArgumentException("The array must hold at least 3 values");
+		}
+		if (!this.getMode().equals(SYSFS_RGB_MODE)){
+			if (autoSwitchMode){
+				this.setMode(SYSFS_RGB_MODE);
+			} else {
+				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_RGB_MODE + ")! Yours: " + this.getMode());
+			}
+		}
+		this.readValues(rgb);
+		return rgb;
 	}
 	
 	/**
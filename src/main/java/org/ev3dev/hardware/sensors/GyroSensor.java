@@ -1,5 +1,7 @@
 package org.ev3dev.hardware.sensors;
 
+import java.util.concurrent.TimeUnit;
+
 import org.ev3dev.exception.EV3LibraryException;
 import org.ev3dev.exception.InvalidModeException;
 import org.ev3dev.exception.InvalidPortException;
@@ -68,8 +70,7 @@ public class GyroSensor extends Sensor {
 				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_ANGLE_MODE + ")! Yours: " + this.getMode());
 			}
 		}
-		String str = this.getAttribute("value" + SYSFS_ANGLE_VALUE_INDEX);
-		return Integer.parseInt(str);
+		return this.readValue(SYSFS_ANGLE_VALUE_INDEX);
 	}
 	
 	/**
@@ -86,10 +87,29 @@ public class GyroSensor extends Sensor {
 				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_RATE_MODE + ")! Yours: " + this.getMode());
 			}
 		}
-		String str = this.getAttribute("value" + SYSFS_RATE_VALUE_INDEX);
-		return Integer.parseInt(str);
+		return this.readValue(SYSFS_RATE_VALUE_INDEX);
 	}
 
+	/**
+	 * Returns the stream of the rate, read at a fixed rate and shared by all its subscribers (see <code>Sensor.values()</code>).
+	 * @param period The time between two samples
+	 * @param unit The unit of <code>period</code>
+	 * @return The SamplePublisher
+	 */
+	public SamplePublisher rates(long period, TimeUnit unit){
+		return this.values(SYSFS_RATE_MODE, period, unit);
+	}
+	
+	/**
+	 * Returns the stream of the angle, read at a fixed rate and shared by all its subscribers (see <code>Sensor.values()</code>).
+	 * @param period The time between two samples
+	 * @param unit The unit of <code>period</code>
+	 * @return The SamplePublisher
+	 */
+	public SamplePublisher angles(long period, TimeUnit unit){
+		return this.values(SYSFS_ANGLE_MODE, period, unit);
+	}
+	
 	/**
 	 * Set Auto Switch Mode to be enabled or disabled.<br>
 	 * (Default: enabled)
@@ -3,6 +3,7 @@ package org.ev3dev.hardware.sensors;
 import org.ev3dev.exception.EV3LibraryException;
 import org.ev3dev.exception.InvalidPortException;
 import org.ev3dev.exception.InvalidSensorException;
+import org.ev3dev.hardware.CachePolicy;
 import org.ev3dev.hardware.ports.LegoPort;
 
 /**
@@ -55,6 +56,7 @@ public class I2CSensor extends Sensor {
 	
 	/**
 	 * Returns the firmware version of the sensor if available. Currently only I2C/NXT sensors support this.
+	 *  It is only read once.
 	 * @return The firmware version
 	 * @throws EV3LibraryException If I/O goes wrong
 	 */
@@ -84,4 +86,9 @@ public class I2CSensor extends Sensor {
 	public void setPollMs(int ms) throws EV3LibraryException{
 		this.setAttribute(SYSFS_PROPERTY_POLL_MS, Integer.toString(ms));
 	}
+	
+	@Override
+	protected CachePolicy getCachePolicy(String property){
+		return SYSFS_PROPERTY_FIRMWARE_VERSION.equals(property) ? CachePolicy.STATIC : super.getCachePolicy(property);
+	}
 }
@@ -58,8 +58,7 @@ public class InfraredSensor extends Sensor {
 				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_PROXIMITY_REQUIRED_MODE + ")! Yours: " + this.getMode());
 			}
 		}
-		String str = this.getAttribute("value" + SYSFS_PROXIMITY_VALUE_INDEX);
-		return Integer.parseInt(str);
+		return this.readValue(SYSFS_PROXIMITY_VALUE_INDEX);
 	}
 	
 	/**
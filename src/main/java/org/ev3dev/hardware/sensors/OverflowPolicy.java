@@ -0,0 +1,20 @@
+package org.ev3dev.hardware.sensors;
+
+/***
+ * What a <code>SamplePublisher</code> does with a new sample when the buffer of a subscriber is full.
+ *  A sensor can't be slowed down, so a subscriber that requests less than the sampling rate always loses samples.
+ * @author Anthony
+ *
+ */
+public enum OverflowPolicy {
+
+	/**
+	 * The oldest buffered sample is dropped, so the subscriber always gets the latest values
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * The new sample is dropped, so the subscriber gets the samples following the ones it already got
+	 */
+	DROP_LATEST
+}
@@ -0,0 +1,112 @@
+package org.ev3dev.hardware.sensors;
+
+import java.util.Arrays;
+
+/***
+ * One immutable reading of all the values of a sensor mode, published by a <code>SamplePublisher</code>.<br>
+ * <br>
+ * The values are kept in the fixed-point form of the value[N] attributes. Use <code>getScaledValue()</code>
+ *  to apply the decimal places.
+ * @author Anthony
+ *
+ */
+public class Sample {
+
+	private final long sequence;
+
+	private final long timestamp;
+
+	private final String mode;
+
+	private final int decimals;
+
+	private final int[] values;
+
+	/**
+	 * Creates a new Sample. The array is not copied and must not be modified afterwards.
+	 * @param sequence The tick number
+	 * @param timestamp The <code>System.nanoTime()</code> at which the values were read
+	 * @param mode The sensor mode
+	 * @param decimals The number of decimal places of the values
+	 * @param values The values in fixed-point form
+	 */
+	Sample(long sequence, long timestamp, String mode, int decimals, int[] values){
+		this.sequence = sequence;
+		this.timestamp = timestamp;
+		this.mode = mode;
+		this.decimals = decimals;
+		this.values = values;
+	}
+
+	/**
+	 * Returns the number of the tick this sample was read at, starting from 1.
+	 *  A gap between two consecutive samples means samples were dropped or filtered out.
+	 * @return The sequence number
+	 */
+	public long getSequence(){
+		return sequence;
+	}
+
+	/**
+	 * Returns the time at which the values were read
+	 * @return The <code>System.nanoTime()</code> of the read
+	 */
+	public long getTimestamp(){
+		return timestamp;
+	}
+
+	/**
+	 * Returns the sensor mode the values were read in
+	 * @return The mode
+	 */
+	public String getMode(){
+		return mode;
+	}
+
+	/**
+	 * Returns the number of decimal places of the values, see <code>Sensor.getDecimals()</code>
+	 * @return The number of decimal places
+	 */
+	public int getDecimals(){
+		return decimals;
+	}
+
+	/**
+	 * Returns the number of values
+	 * @return The number of values
+	 */
+	public int getValueCount(){
+		return values.length;
+	}
+
+	/**
+	 * Returns a value in fixed-point form
+	 * @param index The index of the value
+	 * @return The value
+	 */
+	public int getValue(int index){
+		return values[index];
+	}
+
+	/**
+	 * Returns a value with the decimal places applied
+	 * @param index The index of the value
+	 * @return The value
+	 */
+	public float getScaledValue(int index){
+		return BinData.scale(values[index], decimals);
+	}
+
+	/**
+	 * Returns a copy of the values in fixed-point form
+	 * @return A new array
+	 */
+	public int[] getValues(){
+		return values.clone();
+	}
+
+	@Override
+	public String toString(){
+		return "Sample[" + sequence + ", " + mode + ", " + Arrays.toString(values) + "]";
+	}
+}
@@ -0,0 +1,352 @@
+package org.ev3dev.hardware.sensors;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+
+/***
+ * Publishes the values of one sensor mode at a fixed rate, returned by <code>Sensor.values()</code>.<br>
+ * <br>
+ * The sensor is read once per tick, however many subscribers there are, and each Sample is offered to every subscriber.
+ *  The publishers are read on the tick of the shared <code>SamplingEngine</code> of their period, which only has work to do
+ *  while a publisher has subscribers. The publishers of one sensor are read together, those of the mode the sensor is in first.
+ *  The sensor is switched to the mode of the publisher before reading, so publishers of different modes of one sensor
+ *  switch its mode on every tick.<br>
+ * <br>
+ * Every subscriber has its own bounded buffer, drained on the common <code>ForkJoinPool</code> as it requests samples,
+ *  unless it subscribes with its own Executor. A subscriber that blocks in <code>onNext()</code> should have its own Executor,
+ *  as the EV3 has a single core and so a single thread in the common pool. When the buffer is full, a sample is dropped according to the <code>OverflowPolicy</code>. If the sensor can't be read,
+ *  the subscribers get <code>onError()</code> and the publisher stops until it is subscribed again.
+ * <pre>
+ * gyro.values(GyroSensor.SYSFS_RATE_MODE, 10, TimeUnit.MILLISECONDS).subscribe(subscriber);
+ * Samples.window(gyro.values(GyroSensor.SYSFS_RATE_MODE, 10, TimeUnit.MILLISECONDS), 10, Aggregation.MEAN).subscribe(logger);
+ * </pre>
+ * @author Anthony
+ *
+ */
+public class SamplePublisher implements Flow.Publisher<Sample> {
+
+	/**
+	 * The default number of samples buffered for each subscriber
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 16;
+
+	/**
+	 * The maximum number of samples delivered to a subscriber in a row, before the thread moves on to other subscribers
+	 */
+	private static final int MAX_BATCH_SIZE = 32;
+
+	private final Sensor sensor;
+
+	private final String mode;
+
+	private final SensorSampler sampler;
+
+	private final CopyOnWriteArrayList<SampleSubscription> subscriptions = new CopyOnWriteArrayList<SampleSubscription>();
+
+	private final int[] buffer = new int[Sensor.MAX_NUM_VALUES];
+
+	private long sequence = 0;
+
+	private volatile long reads = 0;
+
+	/**
+	 * Creates a new SamplePublisher. Use <code>Sensor.values()</code> to share one with the other users of the sensor.
+	 * @param sensor The Sensor
+	 * @param mode The mode to read the values in
+	 * @param sampler The SensorSampler of the period
+	 */
+	SamplePublisher(Sensor sensor, String mode, SensorSampler sampler){
+		this.sensor = sensor;
+		this.mode = mode;
+		this.sampler = sampler;
+	}
+
+	/**
+	 * Returns the Sensor being sampled
+	 * @return The Sensor
+	 */
+	public Sensor getSensor(){
+		return sensor;
+	}
+
+	/**
+	 * Returns the mode the values are read in
+	 * @return The mode
+	 */
+	public String getMode(){
+		return mode;
+	}
+
+	/**
+	 * Returns the time between two samples
+	 * @return The period in nanoseconds
+	 */
+	public long getPeriodNanos(){
+		return sampler.getPeriodNanos();
+	}
+
+	/**
+	 * Subscribes with a buffer of <code>DEFAULT_BUFFER_SIZE</code> samples, dropping the oldest sample when it is full
+	 * @param subscriber The Subscriber
+	 */
+	@Override
+	public void subscribe(Flow.Subscriber<? super Sample> subscriber){
+		subscribe(subscriber, DEFAULT_BUFFER_SIZE, OverflowPolicy.DROP_OLDEST);
+	}
+
+	/**
+	 * Subscribes with a buffer of the size specified
+	 * @param subscriber The Subscriber
+	 * @param bufferSize The maximum number of samples kept for the subscriber until it requests them
+	 * @param policy What to drop when the buffer is full
+	 */
+	public void subscribe(Flow.Subscriber<? super Sample> subscriber, int bufferSize, OverflowPolicy policy){
+		subscribe(subscriber, bufferSize, policy, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Subscribes with a buffer of the size specified, delivering the samples on the Executor specified
+	 * @param subscriber The Subscriber
+	 * @param bufferSize The maximum number of samples kept for the subscriber until it requests them
+	 * @param policy What to drop when the buffer is full
+	 * @param executor The Executor calling the subscriber
+	 */
+	public void subscribe(Flow.Subscriber<? super Sample> subscriber, int bufferSize, OverflowPolicy policy, Executor executor){
+		if (subscriber == null || policy == null || executor == null){
+			throw new NullPointerException();
+		}
+		if (bufferSize <= 0){
+			throw new IllegalArgumentException("The buffer size must be positive: " + bufferSize);
+		}
+		SampleSubscription subscription = new SampleSubscription(subscriber, bufferSize, policy, executor);
+		subscriber.onSubscribe(subscription);
+		synchronized (this){
+			if (subscription.isClosed()){
+				return;
+			}
+			subscriptions.add(subscription);
+			if (subscriptions.size() == 1){
+				sampler.activate(this);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of subscribers
+	 * @return The number of subscribers
+	 */
+	public int getSubscriberCount(){
+		return subscriptions.size();
+	}
+
+	/**
+	 * Returns the number of times the sensor has been read by this publisher
+	 * @return The number of reads
+	 */
+	public long getReadCount(){
+		return reads;
+	}
+
+	/**
+	 * Stops sampling and completes all the current subscribers, after the samples they have requested.
+	 *  A new subscriber starts the sampling again.
+	 */
+	public synchronized void close(){
+		stop();
+		for (SampleSubscription subscription : subscriptions){
+			subscription.terminate(null);
+		}
+		subscriptions.clear();
+	}
+
+	/**
+	 * Reads the sensor and offers the Sample to every subscriber. Called by the SensorSampler on the sampling thread.
+	 */
+	void tick(){
+		Sample sample;
+		try {
+			if (!sensor.getMode().equals(mode)){
+				sensor.setMode(mode);
+			}
+			int n = sensor.readValues(buffer);
+			sample = new Sample(++sequence, System.nanoTime(), mode, sensor.getDecimals(), Arrays.copyOf(buffer, n));
+		} catch (RuntimeException e){
+			synchronized (this){
+				stop();
+				for (SampleSubscription subscription : subscriptions){
+					subscription.terminate(e);
+				}
+				subscriptions.clear();
+			}
+			return;
+		} finally {
+			reads++;
+		}
+		for (SampleSubscription subscription : subscriptions){
+			subscription.offer(sample);
+		}
+	}
+
+	private void stop(){
+		sampler.deactivate(this);
+	}
+
+	private synchronized void remove(SampleSubscription subscription){
+		if (subscriptions.remove(subscription) && subscriptions.isEmpty()){
+			stop();
+		}
+	}
+
+	/**
+	 * The buffer and demand of one subscriber
+	 */
+	private class SampleSubscription implements Flow.Subscription {
+
+		private final Flow.Subscriber<? super Sample> subscriber;
+
+		private final ArrayDeque<Sample> queue;
+
+		private final int capacity;
+
+		private final OverflowPolicy policy;
+
+		private final Executor executor;
+
+		private long demand = 0;
+
+		private boolean draining = false;
+
+		private boolean terminated = false;
+
+		private Throwable error = null;
+
+		private volatile boolean cancelled = false;
+
+		private final Runnable drainer = new Runnable(){
+			public void run(){
+				drain();
+			}
+		};
+
+		private SampleSubscription(Flow.Subscriber<? super Sample> subscriber, int capacity, OverflowPolicy policy, Executor executor){
+			this.subscriber = subscriber;
+			this.capacity = capacity;
+			this.policy = policy;
+			this.executor = executor;
+			this.queue = new ArrayDeque<Sample>(capacity);
+		}
+
+		@Override
+		public void request(long n){
+			if (n <= 0){
+				terminate(new IllegalArgumentException("The number of samples requested must be positive: " + n));
+				remove(this);
+				return;
+			}
+			synchronized (this){
+				demand += n;
+				if (demand < 0){
+					demand = Long.MAX_VALUE;
+				}
+				schedule();
+			}
+		}
+
+		@Override
+		public void cancel(){
+			synchronized (this){
+				cancelled = true;
+				queue.clear();
+			}
+			remove(this);
+		}
+
+		private synchronized boolean isClosed(){
+			return cancelled || terminated;
+		}
+
+		private void offer(Sample sample){
+			synchronized (this){
+				if (cancelled || terminated){
+					return;
+				}
+				if (queue.size() == capacity){
+					if (policy == OverflowPolicy.DROP_LATEST){
+						return;
+					}
+					queue.poll();
+				}
+				queue.add(sample);
+				schedule();
+			}
+		}
+
+		private void terminate(Throwable error){
+			synchronized (this){
+				if (cancelled || terminated){
+					return;
+				}
+				terminated = true;
+				this.error = error;
+				schedule();
+			}
+		}
+
+		private void schedule(){
+			if (!draining && (terminated || demand > 0 && !queue.isEmpty())){
+				draining = true;
+				executor.execute(drainer);
+			}
+		}
+
+		private void drain(){
+			Sample sample;
+			Throwable error;
+			for (int n = 0; ; n++){
+				synchronized (this){
+					if (cancelled){
+						draining = false;
+						return;
+					}
+					if (n == MAX_BATCH_SIZE){
+						//Let the other subscribers have the thread
+						executor.execute(drainer);
+						return;
+					}
+					if (demand > 0 && !queue.isEmpty()){
+						sample = queue.poll();
+						if (demand != Long.MAX_VALUE){
+							demand--;
+						}
+					} else if (terminated && (queue.isEmpty() || this.error != null)){
+						cancelled = true;
+						queue.clear();
+						sample = null;
+					} else {
+						draining = false;
+						return;
+					}
+					error = this.error;
+				}
+				try {
+					if (sample != null){
+						subscriber.onNext(sample);
+					} else if (error != null){
+						subscriber.onError(error);
+					} else {
+						subscriber.onComplete();
+					}
+				} catch (Throwable e){
+					cancel();
+					if (sample != null){
+						subscriber.onError(e);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package org.ev3dev.hardware.sensors;
+
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/***
+ * Operators over streams of samples, such as the ones returned by <code>Sensor.values()</code>.<br>
+ * <br>
+ * Each operator returns a Publisher that subscribes to its source for every subscriber, and keeps its state per subscriber.
+ *  Samples that are filtered out are requested again from the source, so the demand of the subscriber is honored.
+ * <pre>
+ * Flow.Publisher&lt;Sample&gt; rate = gyro.values(GyroSensor.SYSFS_RATE_MODE, 10, TimeUnit.MILLISECONDS);
+ * Samples.changes(Samples.window(rate, 10, Aggregation.MEAN), 1).subscribe(display);
+ * </pre>
+ * @author Anthony
+ *
+ */
+public class Samples {
+
+	private Samples(){
+
+	}
+
+	/**
+	 * Keeps one sample out of <code>factor</code>, starting from the first one
+	 * @param source The source of samples
+	 * @param factor The number of samples for one kept sample
+	 * @return A new Publisher
+	 */
+	public static Flow.Publisher<Sample> downsample(Flow.Publisher<Sample> source, final int factor){
+		if (factor <= 0){
+			throw new IllegalArgumentException("The factor must be positive: " + factor);
+		}
+		return new Operator(source, () -> new UnaryOperator<Sample>(){
+			private long count = 0;
+
+			public Sample apply(Sample sample){
+				return count++ % factor == 0 ? sample : null;
+			}
+		});
+	}
+
+	/**
+	 * Keeps only the samples whose values differ from the last sample kept
+	 * @param source The source of samples
+	 * @return A new Publisher
+	 */
+	public static Flow.Publisher<Sample> changes(Flow.Publisher<Sample> source){
+		return changes(source, 0);
+	}
+
+	/**
+	 * Keeps only the samples with a value that differs by more than <code>threshold</code> from the last sample kept
+	 * @param source The source of samples
+	 * @param threshold The largest change ignored, in fixed-point form
+	 * @return A new Publisher
+	 */
+	public static Flow.Publisher<Sample> changes(Flow.Publisher<Sample> source, final int threshold){
+		if (threshold < 0){
+			throw new IllegalArgumentException("The threshold must not be negative: " + threshold);
+		}
+		return new Operator(source, () -> new UnaryOperator<Sample>(){
+			private Sample last = null;
+
+			public Sample apply(Sample sample){
+				if (last != null && last.getValueCount() == sample.getValueCount()){
+					int i = 0;
+					while (i < sample.getValueCount() && Math.abs((long) sample.getValue(i) - last.getValue(i)) <= threshold){
+						i++;
+					}
+					if (i == sample.getValueCount()){
+						return null;
+					}
+				}
+				last = sample;
+				return sample;
+			}
+		});
+	}
+
+	/**
+	 * Combines every <code>size</code> consecutive samples into one. The combined sample has the sequence number
+	 *  and timestamp of the last sample of its window.
+	 * @param source The source of samples
+	 * @param size The number of samples of a window
+	 * @param aggregation How the values are combined
+	 * @return A new Publisher
+	 */
+	public static Flow.Publisher<Sample> window(Flow.Publisher<Sample> source, final int size, final Aggregation aggregation){
+		if (size <= 0){
+			throw new IllegalArgumentException("The window size must be positive: " + size);
+		}
+		if (aggregation == null){
+			throw new NullPointerException();
+		}
+		return new Operator(source, () -> new UnaryOperator<Sample>(){
+			private final long[] acc = new long[Sensor.MAX_NUM_VALUES];
+
+			private int valueCount = 0;
+
+			private int count = 0;
+
+			public Sample apply(Sample sample){
+				if (count == 0){
+					valueCount = sample.getValueCount();
+				} else {
+					valueCount = Math.min(valueCount, sample.getValueCount());
+				}
+				for (int i = 0; i < valueCount; i++){
+					long value = sample.getValue(i);
+					if (count == 0){
+						acc[i] = value;
+					} else if (aggregation == Aggregation.MEAN){
+						acc[i] += value;
+					} else if (aggregation == Aggregation.MIN){
+						acc[i] = Math.min(acc[i], value);
+					} else {
+						acc[i] = Math.max(acc[i], value);
+					}
+				}
+				if (++count < size){
+					return null;
+				}
+				int[] values = new int[valueCount];
+				for (int i = 0; i < valueCount; i++){
+					values[i] = (int) (aggregation == Aggregation.MEAN ? mean(acc[i], size) : acc[i]);
+				}
+				count = 0;
+				return new Sample(sample.getSequence(), sample.getTimestamp(), sample.getMode(), sample.getDecimals(), values);
+			}
+		});
+	}
+
+	/**
+	 * Divides a sum of values by their count, rounding half away from zero, in integer arithmetic
+	 * @param sum The sum of the values
+	 * @param count The number of values
+	 * @return The rounded mean
+	 */
+	static long mean(long sum, int count){
+		long half = count / 2;
+		return sum >= 0 ? (sum + half) / count : -((half - sum) / count);
+	}
+
+	/**
+	 * A Publisher applying a function to the samples of a source, dropping the samples it maps to <code>null</code>
+	 */
+	private static class Operator implements Flow.Publisher<Sample> {
+
+		private final Flow.Publisher<Sample> source;
+
+		private final Supplier<UnaryOperator<Sample>> functions;
+
+		private Operator(Flow.Publisher<Sample> source, Supplier<UnaryOperator<Sample>> functions){
+			if (source == null){
+				throw new NullPointerException();
+			}
+			this.source = source;
+			this.functions = functions;
+		}
+
+		@Override
+		public void subscribe(Flow.Subscriber<? super Sample> subscriber){
+			if (subscriber == null){
+				throw new NullPointerException();
+			}
+			source.subscribe(new Stage(subscriber, functions.get()));
+		}
+	}
+
+	/**
+	 * The link between one subscriber and its subscription to the source
+	 */
+	private static class Stage implements Flow.Subscriber<Sample>, Flow.Subscription {
+
+		private final Flow.Subscriber<? super Sample> downstream;
+
+		private final UnaryOperator<Sample> function;
+
+		private volatile Flow.Subscription upstream = null;
+
+		private Stage(Flow.Subscriber<? super Sample> downstream, UnaryOperator<Sample> function){
+			this.downstream = downstream;
+			this.function = function;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription){
+			if (upstream != null){
+				subscription.cancel();
+				return;
+			}
+			upstream = subscription;
+			downstream.onSubscribe(this);
+		}
+
+		@Override
+		public void onNext(Sample sample){
+			Sample result = function.apply(sample);
+			if (result == null){
+				upstream.request(1);
+			} else {
+				downstream.onNext(result);
+			}
+		}
+
+		@Override
+		public void onError(Throwable error){
+			downstream.onError(error);
+		}
+
+		@Override
+		public void onComplete(){
+			downstream.onComplete();
+		}
+
+		@Override
+		public void request(long n){
+			upstream.request(n);
+		}
+
+		@Override
+		public void cancel(){
+			upstream.cancel();
+		}
+	}
+}
@@ -1,10 +1,18 @@
 package org.ev3dev.hardware.sensors;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 import org.ev3dev.exception.EV3LibraryException;
 import org.ev3dev.exception.InvalidPortException;
+import org.ev3dev.hardware.AsyncDevice;
+import org.ev3dev.hardware.CachePolicy;
 import org.ev3dev.hardware.Device;
 import org.ev3dev.hardware.ports.LegoPort;
-import org.ev3dev.io.Sysfs;
 
 /**
  * The sensor class provides a uniform interface for using most of the sensors available for the EV3.
@@ -67,6 +75,21 @@ public class Sensor extends Device{
 	 */
 	public static final String SYSFS_PROPERTY_UNITS = "units";
 	
+	/**
+	 * The Sysfs class's <code>bin_data</code> property name
+	 */
+	public static final String SYSFS_PROPERTY_BIN_DATA = "bin_data";
+	
+	/**
+	 * The Sysfs class's <code>bin_data_format</code> property name
+	 */
+	public static final String SYSFS_PROPERTY_BIN_DATA_FORMAT = "bin_data_format";
+	
+	/**
+	 * The maximum number of value[N] attributes of a sensor
+	 */
+	public static final int MAX_NUM_VALUES = 8;
+	
 	/**
 	 * This Sysfs's class name (e.g. <code>/sys/class/lego-sensor</code>, and <code>lego-sensor</code> is the class name)
 	 */
@@ -76,6 +99,44 @@ public class Sensor extends Device{
 	 * This Sysfs's class name prefix (e.g. <code>/sys/class/lego-sensor/sensor0</code>, and <code>sensor</code> is the class name prefix without the [N] value.)
 	 */
 	public static final String CLASS_NAME_PREFIX = "sensor";
+	
+	private static final String[] SYSFS_PROPERTY_VALUES = new String[MAX_NUM_VALUES];
+	
+	/**
+	 * The modes (as <code>driver_name mode</code>) whose raw range is the same as their scaled range, so <code>bin_data</code>
+	 *  holds the value[N] values. Modes that scale the raw value are left out, e.g. <code>US-DIST-IN</code> (raw 0-2550 for 0-100.3 in)
+	 *  and every analog driver.
+	 */
+	private static final Set<String> RAW_MODES = new HashSet<String>(Arrays.asList(
+			"lego-ev3-color COL-REFLECT", "lego-ev3-color COL-AMBIENT", "lego-ev3-color COL-COLOR", "lego-ev3-color REF-RAW",
+			"lego-ev3-color RGB-RAW", "lego-ev3-color COL-CAL",
+			"lego-ev3-us US-DIST-CM", "lego-ev3-us US-LISTEN", "lego-ev3-us US-SI-CM", "lego-ev3-us US-DC-CM",
+			"lego-ev3-gyro GYRO-ANG", "lego-ev3-gyro GYRO-RATE", "lego-ev3-gyro GYRO-FAS", "lego-ev3-gyro GYRO-G&A",
+			"lego-ev3-gyro GYRO-CAL", "lego-ev3-gyro TILT-RATE", "lego-ev3-gyro TILT-ANGLE",
+			"lego-ev3-ir IR-PROX", "lego-ev3-ir IR-SEEK", "lego-ev3-ir IR-REMOTE", "lego-ev3-ir IR-REM-A", "lego-ev3-ir IR-S-ALT",
+			"lego-ev3-ir IR-CAL",
+			"lego-nxt-us US-DIST-CM", "lego-nxt-us US-SI-CM", "lego-nxt-us US-LISTEN"));
+	
+	static {
+		for (int i = 0; i < MAX_NUM_VALUES; i++){
+			SYSFS_PROPERTY_VALUES[i] = "value" + i;
+		}
+	}
+	
+	private static final Set<String> STATIC_PROPERTIES = new HashSet<String>(Arrays.asList(
+			SYSFS_PROPERTY_ADDRESS, SYSFS_PROPERTY_COMMANDS, SYSFS_PROPERTY_DRIVER_NAME, SYSFS_PROPERTY_MODES));
+	
+	private volatile String cachedMode = null;
+	
+	private volatile ModeInfo modeInfo = null;
+	
+	private volatile boolean binDataEnabled = true;
+	
+	private final BinData binData = new BinData();
+	
+	private final int[] floatValues = new int[MAX_NUM_VALUES];
+	
+	private final Map<String, SamplePublisher> publishers = new HashMap<String, SamplePublisher>();
 
 	/**
 	 * Creates a new Sensor instance using a LegoPort
@@ -126,17 +187,17 @@ public class Sensor extends Device{
 	 * @throws EV3LibraryException If I/O goes wrong
 	 */
 	public String[] getCommands() throws EV3LibraryException{
-		String str = getCommandsViaString();
-		return Sysfs.separateSpace(str);
+		return this.getListAttribute(SYSFS_PROPERTY_COMMANDS);
 	}
 	
 	/**
 	 * Returns the number of decimal places for the values in the value[N] attributes of the current mode.
+	 *  It is only read the first time each mode is used.
 	 * @return The number of decimal places
 	 * @throws EV3LibraryException If I/O goes wrong
 	 */
 	public int getDecimals() throws EV3LibraryException{
-		String str = this.getAttribute(SYSFS_PROPERTY_DECIMALS);
+		String str = this.getModeAttribute(getMode(), SYSFS_PROPERTY_DECIMALS);
 		return Integer.parseInt(str);
 	}
 	
@@ -150,12 +211,38 @@ public class Sensor extends Device{
 	}
 	
 	/**
-	 * Returns the current mode. Writing one of the values returned by modes sets the sensor to that mode.
+	 * Returns the current mode. Writing one of the values returned by modes sets the sensor to that mode.<br>
+	 * <br>
+	 * The mode last written by <code>setMode()</code> or read by <code>refreshMode()</code> is kept in memory,
+	 *  so this does not read Sysfs again. Use <code>refreshMode()</code> if the mode may have been changed by another program.
 	 * @return The current mode
 	 * @throws EV3LibraryException If I/O goes wrong
 	 */
 	public String getMode() throws EV3LibraryException{
-		return this.getAttribute(SYSFS_PROPERTY_MODE);
+		String mode = cachedMode;
+		if (mode == null){
+			mode = refreshMode();
+		}
+		return mode;
+	}
+	
+	/**
+	 * Returns the mode kept in memory, without any I/O
+	 * @return The current mode, or <code>null</code> if it isn't known
+	 */
+	String getCachedMode(){
+		return cachedMode;
+	}
+	
+	/**
+	 * Reads the current mode from Sysfs and keeps it in memory.
+	 * @return The current mode
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public String refreshMode() throws EV3LibraryException{
+		String mode = this.getAttribute(SYSFS_PROPERTY_MODE);
+		cachedMode = mode;
+		return mode;
 	}
 	
 	/**
@@ -164,7 +251,10 @@ public class Sensor extends Device{
 	 * @throws EV3LibraryException If I/O goes wrong
 	 */
 	public void setMode(String mode) throws EV3LibraryException{
+		cachedMode = null;
+		modeInfo = null;
 		this.setAttribute(SYSFS_PROPERTY_MODE, mode);
+		cachedMode = mode;
 	}
 	
 	/**
@@ -187,27 +277,214 @@ public class Sensor extends Device{
 	 * @throws EV3LibraryException If I/O goes wrong
 	 */
 	public String[] getModes() throws EV3LibraryException{
-		String str = getModesViaString();
-		return Sysfs.separateSpace(str);
+		return this.getListAttribute(SYSFS_PROPERTY_MODES);
 	}
 	
 	/**
 	 * Returns the number of value[N] attributes that will return a valid value for the current mode.
+	 *  It is only read the first time each mode is used.
 	 * @return The number if value[N] attributes
 	 * @throws EV3LibraryException If I/O goes wrong
 	 */
 	public int getNumValues() throws EV3LibraryException{
-		String str = this.getAttribute(SYSFS_PROPERTY_NUM_VALUES);
+		String str = this.getModeAttribute(getMode(), SYSFS_PROPERTY_NUM_VALUES);
 		return Integer.parseInt(str);
 	}
 	
 	/**
-	 * Returns the units of the measured value for the current mode. May return empty string
+	 * Returns the units of the measured value for the current mode. May return empty string.
+	 *  It is only read the first time each mode is used.
 	 * @return The units of measured value
 	 * @throws EV3LibraryException If I/O goes wrong
 	 */
 	public String getUnits() throws EV3LibraryException{
-		return this.getAttribute(SYSFS_PROPERTY_UNITS);
+		return this.getModeAttribute(getMode(), SYSFS_PROPERTY_UNITS);
+	}
+	
+	/**
+	 * Reads all the value[N] attributes of the current mode into the array specified. The number of values is given by <code>num_values</code>,
+	 *  which is only read once per mode.<br>
+	 * <br>
+	 * If <code>bin_data</code> is enabled (see <code>setBinDataEnabled()</code>) and holds the value[N] values in this mode, all the values are
+	 *  read with a single <code>read()</code> of <code>bin_data</code> and decoded with <code>bin_data_format</code>, so they cannot tear.
+	 *  Otherwise each value[N] attribute is read in turn. Either way the values are in the fixed-point form of the value[N] attributes
+	 *  (see <code>getDecimals()</code>).
+	 * @param dst The array to read into. Only the first <code>num_values</code> elements are written.
+	 * @return The number of values read, which is the smaller of <code>num_values</code> and the array length
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public int readValues(int[] dst) throws EV3LibraryException{
+		ModeInfo info = getModeInfo();
+		int n = Math.min(info.numValues, dst.length);
+		if (info.binDataRaw && binDataEnabled){
+			synchronized (binData){
+				if (readBinData(info) >= n){
+					for (int i = 0; i < n; i++){
+						dst[i] = binData.getFixedPoint(i, info.decimals);
+					}
+					return n;
+				}
+			}
+		}
+		for (int i = 0; i < n; i++){
+			dst[i] = this.getIntAttribute(SYSFS_PROPERTY_VALUES[i]);
+		}
+		return n;
+	}
+	
+	/**
+	 * Reads one value[N] attribute of the current mode, through <code>bin_data</code> in the same way as <code>readValues()</code>.
+	 *  The typed getters of the sensor classes (e.g. <code>ColorSensor.getReflectedLightIntensity()</code>) read their value with this.
+	 * @param index The N of value[N]
+	 * @return The value, in the fixed-point form of the value[N] attribute
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	protected final int readValue(int index) throws EV3LibraryException{
+		ModeInfo info = getModeInfo();
+		if (info.binDataRaw && binDataEnabled && index < info.numValues){
+			synchronized (binData){
+				if (readBinData(info) > index){
+					return binData.getFixedPoint(index, info.decimals);
+				}
+			}
+		}
+		return this.getIntAttribute(index < MAX_NUM_VALUES ? SYSFS_PROPERTY_VALUES[index] : "value" + index);
+	}
+	
+	/**
+	 * Reads all the value[N] attributes of the current mode like <code>readValues(int[])</code>, with the decimal places applied.
+	 * @param dst The array to read into. Only the first <code>num_values</code> elements are written.
+	 * @return The number of values read, which is the smaller of <code>num_values</code> and the array length
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public int readValues(float[] dst) throws EV3LibraryException{
+		ModeInfo info = getModeInfo();
+		synchronized (floatValues){
+			int n = readValues(floatValues);
+			n = Math.min(n, dst.length);
+			for (int i = 0; i < n; i++){
+				dst[i] = BinData.scale(floatValues[i], info.decimals);
+			}
+			return n;
+		}
+	}
+	
+	/**
+	 * Returns the stream of the values of a mode, read at a fixed rate. The same publisher is returned for the same mode and period,
+	 *  so all its subscribers share one read per tick (see <code>SamplePublisher</code>).
+	 * @param mode The mode listed using <code>getModes()</code>
+	 * @param period The time between two samples
+	 * @param unit The unit of <code>period</code>
+	 * @return The SamplePublisher
+	 */
+	public SamplePublisher values(String mode, long period, TimeUnit unit){
+		long periodNanos = unit.toNanos(period);
+		if (periodNanos <= 0){
+			throw new IllegalArgumentException("The period must be positive: " + period);
+		}
+		String key = mode + '@' + periodNanos;
+		synchronized (publishers){
+			SamplePublisher publisher = publishers.get(key);
+			if (publisher == null){
+				publisher = new SamplePublisher(this, mode, SensorSampler.forPeriod(periodNanos));
+				publishers.put(key, publisher);
+			}
+			return publisher;
+		}
+	}
+	
+	/**
+	 * Sets whether <code>readValues()</code> and the typed getters read the values through <code>bin_data</code>.<br>
+	 * <br>
+	 * <code>bin_data</code> holds the unscaled raw values. They are only the same as the value[N] attributes in the modes whose raw and SI ranges
+	 *  are the same, such as most modes of the LEGO EV3 UART sensors, so it is only used in the modes known to be like this. The other modes,
+	 *  e.g. <code>US-DIST-IN</code> and the analog drivers, always read the value[N] attributes.
+	 * (Default: enabled)
+	 * @param enabled Whether to use <code>bin_data</code>
+	 */
+	public void setBinDataEnabled(boolean enabled){
+		this.binDataEnabled = enabled;
+	}
+	
+	/**
+	 * Returns whether <code>readValues()</code> and the typed getters read the values through <code>bin_data</code>, in the modes where it holds the value[N] values.
+	 * @return A Boolean
+	 */
+	public boolean isBinDataEnabled(){
+		return binDataEnabled;
+	}
+	
+	/**
+	 * Drops the mode kept in memory, so the next <code>getMode()</code> reads it from Sysfs again.
+	 */
+	@Override
+	protected void invalidateCache(){
+		cachedMode = null;
+		modeInfo = null;
+	}
+	
+	@Override
+	protected CachePolicy getCachePolicy(String property){
+		return STATIC_PROPERTIES.contains(property) ? CachePolicy.STATIC : CachePolicy.VOLATILE;
+	}
+	
+	@Override
+	public AsyncSensor async(){
+		return (AsyncSensor) super.async();
+	}
+	
+	@Override
+	protected AsyncDevice newAsyncDevice(){
+		return new AsyncSensor(this);
+	}
+	
+	private ModeInfo getModeInfo() throws EV3LibraryException{
+		String mode = getMode();
+		ModeInfo info = modeInfo;
+		if (info == null || !info.mode.equals(mode)){
+			BinData.Format format = BinData.Format.fromSysfsName(getModeAttribute(mode, SYSFS_PROPERTY_BIN_DATA_FORMAT));
+			info = new ModeInfo(mode, Math.min(Integer.parseInt(getModeAttribute(mode, SYSFS_PROPERTY_NUM_VALUES)), MAX_NUM_VALUES),
+					Integer.parseInt(getModeAttribute(mode, SYSFS_PROPERTY_DECIMALS)), format,
+					format != null && RAW_MODES.contains(getDriverName() + ' ' + mode));
+			modeInfo = info;
+		}
+		return info;
+	}
+	
+	/**
+	 * Reads <code>bin_data</code> into <code>binData</code>. The caller holds the lock of <code>binData</code>.
+	 * @param info The ModeInfo of the current mode
+	 * @return The number of values read
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	private int readBinData(ModeInfo info) throws EV3LibraryException{
+		binData.setFormat(info.binDataFormat);
+		getBinaryAttribute(SYSFS_PROPERTY_BIN_DATA, binData.clear());
+		return binData.getValueCount();
+	}
+	
+	/**
+	 * The number of values, decimals and <code>bin_data</code> format of one mode, and whether <code>bin_data</code> holds the value[N] values
+	 */
+	private static class ModeInfo {
+		
+		private final String mode;
+		
+		private final int numValues;
+		
+		private final int decimals;
+		
+		private final BinData.Format binDataFormat;
+		
+		private final boolean binDataRaw;
+		
+		private ModeInfo(String mode, int numValues, int decimals, BinData.Format binDataFormat, boolean binDataRaw){
+			this.mode = mode;
+			this.numValues = numValues;
+			this.decimals = decimals;
+			this.binDataFormat = binDataFormat;
+			this.binDataRaw = binDataRaw;
+		}
 	}
 	
 }
@@ -0,0 +1,119 @@
+package org.ev3dev.hardware.sensors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.ev3dev.hardware.SamplingEngine;
+
+/***
+ * Reads the SamplePublishers of one period on the tick of the shared SamplingEngine of that period.<br>
+ * <br>
+ * The publishers with subscribers are grouped by sensor, so each sensor is read once per mode and tick. The publishers of the mode
+ *  the sensor is already in are read first, so a sensor published in one mode is never switched.
+ * @author Anthony
+ *
+ */
+class SensorSampler implements Runnable {
+
+	private static final Map<Long, SensorSampler> SAMPLERS = new HashMap<Long, SensorSampler>();
+
+	private final SamplingEngine engine;
+
+	private final Map<Sensor, List<SamplePublisher>> active = new LinkedHashMap<Sensor, List<SamplePublisher>>();
+
+	private volatile SamplePublisher[][] groups = new SamplePublisher[0][];
+
+	private SensorSampler(SamplingEngine engine){
+		this.engine = engine;
+	}
+
+	/**
+	 * Returns the sampler of a period, shared by all the sensors
+	 * @param periodNanos The time between two samples, in nanoseconds
+	 * @return The SensorSampler
+	 */
+	static SensorSampler forPeriod(long periodNanos){
+		synchronized (SAMPLERS){
+			SensorSampler sampler = SAMPLERS.get(periodNanos);
+			if (sampler == null){
+				sampler = new SensorSampler(SamplingEngine.getSharedEngine(periodNanos, TimeUnit.NANOSECONDS));
+				SAMPLERS.put(periodNanos, sampler);
+			}
+			return sampler;
+		}
+	}
+
+	/**
+	 * Returns the time between two samples
+	 * @return The period in nanoseconds
+	 */
+	long getPeriodNanos(){
+		return engine.getPeriodNanos();
+	}
+
+	/**
+	 * Starts reading a publisher at every tick
+	 * @param publisher The SamplePublisher, which has subscribers
+	 */
+	synchronized void activate(SamplePublisher publisher){
+		List<SamplePublisher> publishers = active.get(publisher.getSensor());
+		if (publishers == null){
+			publishers = new ArrayList<SamplePublisher>();
+			active.put(publisher.getSensor(), publishers);
+		}
+		if (!publishers.contains(publisher)){
+			publishers.add(publisher);
+			update();
+		}
+	}
+
+	/**
+	 * Stops reading a publisher
+	 * @param publisher The SamplePublisher, which has no subscribers left
+	 */
+	synchronized void deactivate(SamplePublisher publisher){
+		List<SamplePublisher> publishers = active.get(publisher.getSensor());
+		if (publishers != null && publishers.remove(publisher)){
+			if (publishers.isEmpty()){
+				active.remove(publisher.getSensor());
+			}
+			update();
+		}
+	}
+
+	@Override
+	public void run(){
+		for (SamplePublisher[] group : groups){
+			String mode = group[0].getSensor().getCachedMode();
+			for (SamplePublisher publisher : group){
+				if (publisher.getMode().equals(mode)){
+					publisher.tick();
+				}
+			}
+			for (SamplePublisher publisher : group){
+				if (!publisher.getMode().equals(mode)){
+					publisher.tick();
+				}
+			}
+		}
+	}
+
+	private void update(){
+		SamplePublisher[][] groups = new SamplePublisher[active.size()][];
+		int i = 0;
+		for (List<SamplePublisher> publishers : active.values()){
+			groups[i++] = publishers.toArray(new SamplePublisher[publishers.size()]);
+		}
+		boolean wasIdle = this.groups.length == 0;
+		this.groups = groups;
+		if (wasIdle && groups.length > 0){
+			engine.addTickListener(this);
+		} else if (!wasIdle && groups.length == 0){
+			engine.removeTickListener(this);
+		}
+	}
+}
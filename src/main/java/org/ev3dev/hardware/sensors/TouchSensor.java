@@ -4,6 +4,8 @@ import org.ev3dev.exception.EV3LibraryException;
 import org.ev3dev.exception.InvalidModeException;
 import org.ev3dev.exception.InvalidPortException;
 import org.ev3dev.exception.InvalidSensorException;
+import org.ev3dev.hardware.InputEventLoop;
+import org.ev3dev.hardware.PressListener;
 import org.ev3dev.hardware.ports.LegoPort;
 
 public class TouchSensor extends Sensor {
@@ -63,8 +65,40 @@ public class TouchSensor extends Sensor {
 				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_REQUIRED_MODE + ")! Yours: " + this.getMode());
 			}
 		}
-		String str = this.getAttribute("value" + SYSFS_VALUE_INDEX);
-		return str.equals("1");
+		return this.readValue(SYSFS_VALUE_INDEX) == 1;
+	}
+	
+	/**
+	 * Registers a listener called when the touch sensor is pressed. The sensor is read by the <code>InputEventLoop</code>
+	 *  at its sampling rate, in the mode it is in.
+	 * @param listener The PressListener
+	 */
+	public void addPressListener(PressListener listener){
+		InputEventLoop.getInstance().addPressListener(this, listener);
+	}
+	
+	/**
+	 * Registers a listener called when the touch sensor is released (see <code>addPressListener()</code>)
+	 * @param listener The PressListener
+	 */
+	public void addReleaseListener(PressListener listener){
+		InputEventLoop.getInstance().addReleaseListener(this, listener);
+	}
+	
+	/**
+	 * Registers a listener called when the touch sensor is pressed or released (see <code>addPressListener()</code>)
+	 * @param listener The PressListener
+	 */
+	public void onChange(PressListener listener){
+		InputEventLoop.getInstance().onChange(this, listener);
+	}
+	
+	/**
+	 * Unregisters a listener registered on this touch sensor
+	 * @param listener The PressListener
+	 */
+	public void removeListener(PressListener listener){
+		InputEventLoop.getInstance().removeListener(this, listener);
 	}
 	
 	/**
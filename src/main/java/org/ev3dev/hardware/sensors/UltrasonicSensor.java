@@ -80,8 +80,7 @@ public class UltrasonicSensor extends Sensor {
 				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_CM_MODE + ")! Yours: " + this.getMode());
 			}
 		}
-		String str = this.getAttribute("value" + SYSFS_CM_VALUE_INDEX);
-		return Float.parseFloat(str);
+		return this.readValue(SYSFS_CM_VALUE_INDEX);
 	}
 	
 	/**
@@ -98,8 +97,7 @@ public class UltrasonicSensor extends Sensor {
 				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_IN_MODE + ")! Yours: " + this.getMode());
 			}
 		}
-		String str = this.getAttribute("value" + SYSFS_IN_VALUE_INDEX);
-		return Float.parseFloat(str);
+		return this.readValue(SYSFS_IN_VALUE_INDEX);
 	}
 	
 	/**
@@ -116,8 +114,7 @@ public class UltrasonicSensor extends Sensor {
 				throw new InvalidModeException("[Auto-switch is off] You are not using a correct mode(" + SYSFS_OTHER_PRESENT_MODE + ")! Yours: " + this.getMode());
 			}
 		}
-		String str = this.getAttribute("value" + SYSFS_OTHER_PRESENT_VALUE_INDEX);
-		return str.equals("1");
+		return this.readValue(SYSFS_OTHER_PRESENT_VALUE_INDEX) == 1;
 	}
 	
 	/**
@@ -260,6 +260,8 @@ public class PixyCmucam5Sensor extends I2CSensor {
 		
 		private boolean autoSwitchMode = true;
 		
+		private final int[] values = new int[6];
+		
 		private ModeAll(String mode){
 			this.mode = mode;
 		}
@@ -364,6 +366,28 @@ public class PixyCmucam5Sensor extends I2CSensor {
 			String str = getAttribute("value" + MODE_ALL_HEIGHT_VALUE_INDEX);
 			return Integer.parseInt(str);
 		}
+		
+		/**
+		 * Reads the signature, X point, Y point, width and height of the largest block with one <code>readValues()</code>.
+		 *  The Pixy's values aren't read from <code>bin_data</code>, so they are read one by one and may come from different frames.
+		 *  The count of the block returned is always 0 in this mode.
+		 * @param block The Block to read into
+		 * @return The Block specified
+		 * @throws EV3LibraryException If I/O goes wrong
+		 */
+		public Block getBlock(Block block) throws EV3LibraryException{
+			fixMode();
+			synchronized (values){
+				readValues(values);
+				block.signature = (values[MODE_ALL_SIG_HIGH_BYTE_VALUE_INDEX] & 0xff) << 8 | (values[MODE_ALL_SIG_LOW_BYTE_VALUE_INDEX] & 0xff);
+				block.count = 0;
+				block.x = values[MODE_ALL_X_VALUE_INDEX];
+				block.y = values[MODE_ALL_Y_VALUE_INDEX];
+				block.width = values[MODE_ALL_WIDTH_VALUE_INDEX];
+				block.height = values[MODE_ALL_HEIGHT_VALUE_INDEX];
+			}
+			return block;
+		}
 	}
 	
 	/**
@@ -377,6 +401,8 @@ public class PixyCmucam5Sensor extends I2CSensor {
 		
 		private boolean autoSwitchMode = true;
 		
+		private final int[] values = new int[5];
+		
 		private ModeSig(String mode){
 			this.mode = mode;
 		}
@@ -470,6 +496,95 @@ public class PixyCmucam5Sensor extends I2CSensor {
 			String str = getAttribute("value" + MODE_SIG_HEIGHT_VALUE_INDEX);
 			return Integer.parseInt(str);
 		}
+		
+		/**
+		 * Reads the count, X point, Y point, width and height of the largest block of this signature with one <code>readValues()</code>.
+		 *  The Pixy's values aren't read from <code>bin_data</code>, so they are read one by one and may come from different frames.
+		 * @param block The Block to read into
+		 * @return The Block specified
+		 * @throws EV3LibraryException If I/O goes wrong
+		 */
+		public Block getBlock(Block block) throws EV3LibraryException{
+			fixMode();
+			synchronized (values){
+				readValues(values);
+				block.signature = Integer.parseInt(mode.substring(PREFIX_MODE_SIG.length()));
+				block.count = values[MODE_SIG_COUNT_VALUE_INDEX];
+				block.x = values[MODE_SIG_X_VALUE_INDEX];
+				block.y = values[MODE_SIG_Y_VALUE_INDEX];
+				block.width = values[MODE_SIG_WIDTH_VALUE_INDEX];
+				block.height = values[MODE_SIG_HEIGHT_VALUE_INDEX];
+			}
+			return block;
+		}
+	}
+	
+	/**
+	 * A detected block. Instances can be reused across reads to avoid allocations.
+	 * @author Anthony
+	 *
+	 */
+	public static class Block {
+		
+		private int signature;
+		
+		private int count;
+		
+		private int x;
+		
+		private int y;
+		
+		private int width;
+		
+		private int height;
+		
+		/**
+		 * Returns the signature of the block
+		 * @return Signature
+		 */
+		public int getSignature(){
+			return signature;
+		}
+		
+		/**
+		 * Returns the number of blocks detected, in <code>SIG[N]</code> modes
+		 * @return Count
+		 */
+		public int getCount(){
+			return count;
+		}
+		
+		/**
+		 * Returns the X point
+		 * @return X point
+		 */
+		public int getX(){
+			return x;
+		}
+		
+		/**
+		 * Returns the Y point
+		 * @return Y point
+		 */
+		public int getY(){
+			return y;
+		}
+		
+		/**
+		 * Returns the width
+		 * @return Width
+		 */
+		public int getWidth(){
+			return width;
+		}
+		
+		/**
+		 * Returns the height
+		 * @return Height
+		 */
+		public int getHeight(){
+			return height;
+		}
 	}
 
 }
@@ -35,7 +35,7 @@ public class DflexSensor extends NXTAnalogSensor {
 	 * @return an integer from 0-100
 	 */
 	public int getFlex(){
-		return Integer.parseInt(this.getAttribute("value" + MODE_FLEX_VALUE_INDEX));
+		return this.readValue(MODE_FLEX_VALUE_INDEX);
 	}
 
 }
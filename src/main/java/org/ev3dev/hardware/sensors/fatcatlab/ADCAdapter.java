@@ -95,7 +95,7 @@ public class ADCAdapter extends Sensor {
 	 * @throws EV3LibraryException If the mode is invalid or I/O goes wrong
 	 */
 	public int getCh1Volt() throws EV3LibraryException{
-		String mode = getAttribute(SYSFS_PROPERTY_MODE);
+		String mode = getMode();
 		if (mode.equals(MODE_CH1_VOLTAGE) || mode.equals(MODE_ALL_VOLTAGE)){
 			String str = getAttribute(PROPERTY_PREFIX + INDEX_MODE_CH1_VOLTAGE);
 			return Integer.parseInt(str);
@@ -110,7 +110,7 @@ public class ADCAdapter extends Sensor {
 	 * @throws EV3LibraryException If the mode is invalid or I/O goes wrong
 	 */
 	public int getCh2Volt() throws EV3LibraryException{
-		String mode = getAttribute(SYSFS_PROPERTY_MODE);
+		String mode = getMode();
 		if (mode.equals(MODE_CH2_VOLTAGE) || mode.equals(MODE_ALL_VOLTAGE)){
 			String str = getAttribute(PROPERTY_PREFIX + (mode.equals(MODE_ALL_VOLTAGE) ? INDEX_MODE_ALL_CH2_VOLTAGE : INDEX_MODE_CH1_VOLTAGE));
 			return Integer.parseInt(str);
@@ -118,5 +118,24 @@ public class ADCAdapter extends Sensor {
 			throw new InvalidModeException("The Channel 2 voltage property cannot be accessed if the mode is not \"" + MODE_CH2_VOLTAGE + "\" or \"" + MODE_ALL_VOLTAGE + "\"");
 		}
 	}
+	
+	/**
+	 * Gets the voltages in millivolts from both channels with one <code>readValues()</code>. They aren't read from <code>bin_data</code>
+	 *  (its raw values aren't in millivolts), so they are read one by one and may come from different samples. The device mode must be <code>VOLTAGE</code>. Otherwise, a <code>InvalidModeException</code> will be thrown.
+	 * @param volts An array of at least 2 elements, which receives the channel 1 and channel 2 voltages
+	 * @return The array specified
+	 * @throws EV3LibraryException If the mode is invalid or I/O goes wrong
+	 */
+	public int[] getAllChVolt(int[] volts) throws EV3LibraryException{
+		if (volts.length < 2){
+			throw new IllegalArgumentException("The array must hold at least 2 values");
+		}
+		String mode = getMode();
+		if (!mode.equals(MODE_ALL_VOLTAGE)){
+			throw new InvalidModeException("The voltages of all channels cannot be accessed if the mode is not \"" + MODE_ALL_VOLTAGE + "\"");
+		}
+		readValues(volts);
+		return volts;
+	}
 
 }
@@ -2,6 +2,7 @@ package org.ev3dev.hardware.sensors.generic;
 
 import org.ev3dev.exception.EV3LibraryException;
 import org.ev3dev.hardware.ports.LegoPort;
+import org.ev3dev.hardware.sensors.BinData;
 import org.ev3dev.hardware.sensors.Sensor;
 
 /**
@@ -66,14 +67,7 @@ public class EV3AnalogSensor extends Sensor {
 	 * @return The voltage
 	 */
 	public float getValue() throws EV3LibraryException{
-		float out = getRawValue();
-		
-		int dec = getDecimals();
-		for (int i = 1; i <= dec; i++){
-			out /= 10;
-		}
-		
-		return out;
+		return BinData.scale(getRawValue(), getDecimals());
 	}
 
 	
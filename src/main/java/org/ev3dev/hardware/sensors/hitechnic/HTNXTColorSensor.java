@@ -223,4 +223,22 @@ public class HTNXTColorSensor extends I2CSensor {
 		}
 		return Integer.parseInt(str);
 	}
+	
+	/**
+	 * <b>This function requires mode <code>ALL</code>.</b><br>
+	 * <br>
+	 * Reads the color, red, green and blue values with one <code>readValues()</code>. They aren't read from <code>bin_data</code>,
+	 *  so they are read one by one and may come from different samples.
+	 *  Use the <code>INDEX_MODE_ALL_*</code> constants to index the array.
+	 * @param values The array to read into
+	 * @return The number of values read
+	 * @throws EV3LibraryException If the mode is invalid or I/O goes wrong
+	 */
+	public int getAllValues(int[] values) throws EV3LibraryException{
+		String mode = getMode();
+		if (!mode.equals(MODE_ALL)){
+			throw new EV3LibraryException("The function does not support with the current mode: " + mode);
+		}
+		return readValues(values);
+	}
 }
@@ -0,0 +1,417 @@
+package org.ev3dev.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/***
+ * A cached handle to a single Sysfs attribute file.<br>
+ * <br>
+ * The underlying <code>FileChannel</code> is opened on first use and kept open, so repeated
+ * reads and writes only cost one positional <code>read()</code>/<code>write()</code> syscall
+ * instead of an open/read/close cycle. Reads are always done from offset 0, which makes the
+ * kernel regenerate the attribute value.<br>
+ * <br>
+ * Instances are thread-safe. A channel that failed with an <code>IOException</code> should be
+ * closed and re-opened, as the attribute file usually disappears with its device. A channel that
+ * is being replaced should be disposed, so a thread still holding it can't re-open it.<br>
+ * <br>
+ * The file is opened through a <code>DeviceFileSystem</code>, so the same code runs against a fake device tree.
+ * @author Anthony
+ *
+ */
+public class AttributeChannel implements Closeable{
+
+	/**
+	 * Sysfs attribute values are never larger than a page.
+	 */
+	public static final int MAX_ATTRIBUTE_SIZE = 4096;
+
+	private static final int INITIAL_BUFFER_SIZE = 64;
+
+	private static final Charset CHARSET = StandardCharsets.US_ASCII;
+
+	private static final DeviceFileSystem LOCAL_FILE_SYSTEM = new RealDeviceFileSystem();
+
+	private final DeviceFileSystem fs;
+
+	private final String path;
+
+	private FileChannel readChannel = null;
+
+	private FileChannel writeChannel = null;
+
+	private boolean truncateOnWrite;
+
+	private boolean disposed = false;
+
+	private ByteBuffer buf = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+
+	private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+
+	/**
+	 * Creates a new attribute channel. No file is opened until the first read or write.
+	 * @param path The full path of the attribute file on this computer
+	 */
+	public AttributeChannel(Path path){
+		this(LOCAL_FILE_SYSTEM, path.toAbsolutePath().toString());
+	}
+
+	/**
+	 * Creates a new attribute channel on a DeviceFileSystem. No file is opened until the first read or write.
+	 * @param fs The DeviceFileSystem
+	 * @param path The full path of the attribute file (e.g. <code>/sys/class/tacho-motor/motor0/position</code>)
+	 */
+	public AttributeChannel(DeviceFileSystem fs, String path){
+		this.fs = fs;
+		this.path = path;
+	}
+
+	/**
+	 * Returns the path of the attribute file. This is where the file really is on disk, or the path in the
+	 *  DeviceFileSystem if it isn't on disk (see <code>getAttributePath()</code>).
+	 * @return The attribute path
+	 */
+	public Path getPath(){
+		Path realPath = fs.toRealPath(path);
+		return realPath == null ? Paths.get(path) : realPath;
+	}
+
+	/**
+	 * Returns the path of the attribute file in the DeviceFileSystem (e.g. <code>/sys/class/tacho-motor/motor0/position</code>)
+	 * @return The attribute path
+	 */
+	public String getAttributePath(){
+		return path;
+	}
+
+	/**
+	 * Returns the DeviceFileSystem the attribute file is opened through
+	 * @return The DeviceFileSystem
+	 */
+	public DeviceFileSystem getFileSystem(){
+		return fs;
+	}
+
+	/**
+	 * Reads the attribute value. Line breaks are stripped, the same as <code>Sysfs.getAttribute()</code>.
+	 * @return The value of the attribute
+	 * @throws IOException If the attribute couldn't be read
+	 */
+	public synchronized String read() throws IOException{
+		int len = fill();
+		if (bytes.length < len){
+			bytes = new byte[buf.capacity()];
+		}
+		int n = 0;
+		byte b;
+		for (int i = 0; i < len; i++){
+			b = buf.get(i);
+			if (b != '\n' && b != '\r'){
+				bytes[n++] = b;
+			}
+		}
+		return new String(bytes, 0, n, CHARSET);
+	}
+
+	/**
+	 * Reads the raw bytes of the attribute into the buffer specified, in one <code>read()</code> call
+	 *  if it has room for the whole value. The bytes are put from the current position of the buffer.
+	 * @param dst The buffer to read into
+	 * @return The number of bytes read
+	 * @throws IOException If the attribute couldn't be read
+	 */
+	public synchronized int read(ByteBuffer dst) throws IOException{
+		if (readChannel == null){
+			readChannel = open(false);
+		}
+		return DeviceFileSystem.readFully(readChannel, dst);
+	}
+
+	/**
+	 * Writes the attribute value in one <code>write()</code> call.
+	 * @param value The new value of the attribute
+	 * @throws IOException If the attribute couldn't be written
+	 */
+	public synchronized void write(String value) throws IOException{
+		int len = value.length();
+		ensureCapacity(len);
+		buf.clear();
+		for (int i = 0; i < len; i++){
+			buf.put((byte) value.charAt(i));
+		}
+		buf.flip();
+		flush();
+	}
+
+	/**
+	 * Reads the attribute value as a decimal integer. The digits are parsed straight from the
+	 * internal buffer, so no garbage is produced.
+	 * @return The value of the attribute
+	 * @throws IOException If the attribute couldn't be read
+	 * @throws NumberFormatException If the attribute isn't a decimal integer
+	 */
+	public synchronized int readInt() throws IOException{
+		return parseInt(buf, 0, fill());
+	}
+
+	/**
+	 * Reads the attribute value as a list of flags separated by spaces (e.g. <code>state</code>). The flags are matched
+	 * straight in the internal buffer, so no garbage is produced.
+	 * @param flags The flag names. Bit N of the result is set if <code>flags[N]</code> is present, at most 32 flags.
+	 * @return The bitmask of the flags present. Unknown flags are ignored.
+	 * @throws IOException If the attribute couldn't be read
+	 */
+	public synchronized int readFlags(String[] flags) throws IOException{
+		return parseFlags(buf, 0, fill(), flags);
+	}
+
+	/**
+	 * Writes a decimal integer to the attribute. The digits are formatted straight into the
+	 * internal buffer, so no garbage is produced.
+	 * @param value The new value of the attribute
+	 * @throws IOException If the attribute couldn't be written
+	 */
+	public synchronized void writeInt(int value) throws IOException{
+		buf.clear();
+		formatInt(value, buf);
+		buf.flip();
+		flush();
+	}
+
+	/**
+	 * Parses a decimal integer from the bytes specified. Leading and trailing whitespace is ignored.
+	 * @param src The buffer to parse from
+	 * @param offset The absolute index of the first byte
+	 * @param len The number of bytes
+	 * @return The integer parsed
+	 * @throws NumberFormatException If the bytes aren't a decimal integer
+	 */
+	public static int parseInt(ByteBuffer src, int offset, int len){
+		int end = offset + len;
+		int i = offset;
+		while (i < end && isSpace(src.get(i))){
+			i++;
+		}
+		while (end > i && isSpace(src.get(end - 1))){
+			end--;
+		}
+		boolean negative = false;
+		if (i < end && (src.get(i) == '-' || src.get(i) == '+')){
+			negative = src.get(i) == '-';
+			i++;
+		}
+		if (i == end){
+			throw numberFormatException(src, offset, len);
+		}
+		long value = 0;
+		byte b;
+		for (; i < end; i++){
+			b = src.get(i);
+			if (b < '0' || b > '9'){
+				throw numberFormatException(src, offset, len);
+			}
+			value = value * 10 + (b - '0');
+			if (value > (long) Integer.MAX_VALUE + 1){
+				throw numberFormatException(src, offset, len);
+			}
+		}
+		if (negative){
+			value = -value;
+		} else if (value > Integer.MAX_VALUE){
+			throw numberFormatException(src, offset, len);
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Parses a list of flags separated by whitespace from the bytes specified, in one pass.
+	 * @param src The buffer to parse from
+	 * @param offset The absolute index of the first byte
+	 * @param len The number of bytes
+	 * @param flags The flag names. Bit N of the result is set if <code>flags[N]</code> is present, at most 32 flags.
+	 * @return The bitmask of the flags present. Unknown flags are ignored.
+	 */
+	public static int parseFlags(ByteBuffer src, int offset, int len, String[] flags){
+		int end = offset + len;
+		int mask = 0;
+		int start = -1;
+		for (int i = offset; i <= end; i++){
+			if (i == end || isSpace(src.get(i))){
+				if (start >= 0){
+					for (int f = 0; f < flags.length; f++){
+						if (matches(src, start, i - start, flags[f])){
+							mask |= 1 << f;
+							break;
+						}
+					}
+					start = -1;
+				}
+			} else if (start < 0){
+				start = i;
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Formats a decimal integer into the buffer specified, at its current position.
+	 * @param value The integer to be formatted
+	 * @param dst The buffer to format into, with at least 11 bytes remaining
+	 */
+	public static void formatInt(int value, ByteBuffer dst){
+		long v = value;
+		if (v < 0){
+			dst.put((byte) '-');
+			v = -v;
+		}
+		int digits = 1;
+		for (long p = 10; p <= v; p *= 10){
+			digits++;
+		}
+		int start = dst.position();
+		for (int i = digits - 1; i >= 0; i--){
+			dst.put(start + i, (byte) ('0' + (int) (v % 10)));
+			v /= 10;
+		}
+		dst.position(start + digits);
+	}
+
+	/**
+	 * Opens the file for writing ahead of time, so the next write only issues the <code>write()</code> itself
+	 * @throws IOException If I/O goes wrong
+	 */
+	public synchronized void openForWrite() throws IOException{
+		if (writeChannel == null){
+			writeChannel = open(true);
+			//Sysfs takes the whole value from one write(), regular files must be cut to size
+			truncateOnWrite = !fs.isKernelAttribute(path);
+		}
+	}
+	
+	/**
+	 * Closes the underlying file channels. The channel will be re-opened on the next read or write.
+	 * @throws IOException If the channels couldn't be closed
+	 */
+	@Override
+	public synchronized void close() throws IOException{
+		IOException ex = null;
+		try {
+			if (readChannel != null){
+				readChannel.close();
+			}
+		} catch (IOException e){
+			ex = e;
+		}
+		try {
+			if (writeChannel != null){
+				writeChannel.close();
+			}
+		} catch (IOException e){
+			ex = e;
+		}
+		readChannel = null;
+		writeChannel = null;
+		if (ex != null){
+			throw ex;
+		}
+	}
+
+	/**
+	 * Closes the underlying file channels for good. Reads and writes that were waiting for this channel,
+	 *  or come after, fail with a <code>ClosedChannelException</code> instead of re-opening the file.
+	 * @throws IOException If the channels couldn't be closed
+	 */
+	public synchronized void dispose() throws IOException{
+		disposed = true;
+		close();
+	}
+
+	/**
+	 * Reads the whole attribute from offset 0 into the internal buffer.
+	 * @return The number of bytes read
+	 * @throws IOException If the attribute couldn't be read
+	 */
+	private int fill() throws IOException{
+		if (readChannel == null){
+			readChannel = open(false);
+		}
+		buf.clear();
+		int n;
+		int pos = 0;
+		while ((n = readChannel.read(buf, pos)) > 0){
+			pos += n;
+			//A short read means the whole value has been returned
+			if (buf.hasRemaining() || buf.capacity() >= MAX_ATTRIBUTE_SIZE){
+				break;
+			}
+			ByteBuffer grown = ByteBuffer.allocateDirect(Math.min(buf.capacity() * 2, MAX_ATTRIBUTE_SIZE));
+			buf.flip();
+			grown.put(buf);
+			buf = grown;
+		}
+		return pos;
+	}
+
+	private FileChannel open(boolean write) throws IOException{
+		if (disposed){
+			throw new ClosedChannelException();
+		}
+		return fs.open(path, write);
+	}
+
+	/**
+	 * Writes the flipped internal buffer to offset 0.
+	 * @throws IOException If the attribute couldn't be written
+	 */
+	private void flush() throws IOException{
+		openForWrite();
+		int len = buf.remaining();
+		int pos = 0;
+		while (buf.hasRemaining()){
+			pos += writeChannel.write(buf, pos);
+		}
+		if (truncateOnWrite){
+			writeChannel.truncate(len);
+		}
+	}
+
+	private static boolean isSpace(byte b){
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+	}
+
+	private static boolean matches(ByteBuffer src, int offset, int len, String str){
+		if (str.length() != len){
+			return false;
+		}
+		for (int i = 0; i < len; i++){
+			if (src.get(offset + i) != str.charAt(i)){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static NumberFormatException numberFormatException(ByteBuffer src, int offset, int len){
+		byte[] arr = new byte[len];
+		for (int i = 0; i < len; i++){
+			arr[i] = src.get(offset + i);
+		}
+		return new NumberFormatException("For input string: \"" + new String(arr, CHARSET).trim() + "\"");
+	}
+
+	private void ensureCapacity(int len) throws IOException{
+		if (len > MAX_ATTRIBUTE_SIZE){
+			throw new IOException("Attribute value is too long: " + len + " bytes");
+		}
+		if (buf.capacity() < len){
+			buf = ByteBuffer.allocateDirect(Math.max(len, Math.min(buf.capacity() * 2, MAX_ATTRIBUTE_SIZE)));
+		}
+	}
+}
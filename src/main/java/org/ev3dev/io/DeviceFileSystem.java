@@ -0,0 +1,237 @@
+package org.ev3dev.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/***
+ * The files a Device is controlled through: the ev3dev Sysfs classes under <code>/sys/class/</code> and the
+ *  devices under <code>/dev/</code>, such as the framebuffer and the button events.<br>
+ * <br>
+ * Paths are always given as they are on the EV3 (e.g. <code>/sys/class/tacho-motor/motor0/position</code>),
+ *  and each implementation decides where they really are:
+ * <ul>
+ * <li><code>RealDeviceFileSystem</code>: the real files, or a copy of the tree anywhere on disk</li>
+ * <li><code>TempDeviceFileSystem</code>: a tree in a temporary directory, deleted when closed</li>
+ * <li><code>MemoryDeviceFileSystem</code>: a tree in memory, with no file I/O at all</li>
+ * </ul>
+ * A <code>LegoPort</code> is given a DeviceFileSystem, and the Devices created on it use the same one, so
+ *  devices on different file-systems can be used side by side. <code>getDefault()</code> is used when none is given.
+ *  The tests build realistic device trees on a file-system with <code>DeviceFixture</code> (under <code>src/test</code>),
+ *  which is not shipped with the library.
+ * @author Anthony
+ *
+ */
+public abstract class DeviceFileSystem {
+
+	/**
+	 * The path of the ev3dev Sysfs classes
+	 */
+	public static final String SYSFS_CLASS_PATH = "/sys/class/";
+
+	/**
+	 * The path of the device files
+	 */
+	public static final String DEV_PATH = "/dev/";
+
+	private static volatile DeviceFileSystem defaultFileSystem = new RealDeviceFileSystem();
+
+	private volatile DeviceRegistry registry = null;
+
+	/**
+	 * Returns the DeviceFileSystem used when none is specified.<br>
+	 * (Default: the real files of the EV3)
+	 * @return The default DeviceFileSystem
+	 */
+	public static DeviceFileSystem getDefault(){
+		return defaultFileSystem;
+	}
+
+	/**
+	 * Sets the DeviceFileSystem used when none is specified. Devices already created keep the one they were created with.
+	 * @param fs The DeviceFileSystem
+	 */
+	public static void setDefault(DeviceFileSystem fs){
+		if (fs == null){
+			throw new NullPointerException();
+		}
+		defaultFileSystem = fs;
+	}
+
+	/**
+	 * Returns the path of an attribute of a Sysfs class node
+	 * @param className The class name (e.g. tacho-motor)
+	 * @param node The node name (e.g. motor0)
+	 * @param property The property name (e.g. position)
+	 * @return The path (e.g. <code>/sys/class/tacho-motor/motor0/position</code>)
+	 */
+	public static String getAttributePath(String className, String node, String property){
+		return SYSFS_CLASS_PATH + className + "/" + node + "/" + property;
+	}
+
+	/**
+	 * Opens a file
+	 * @param path The path of the file
+	 * @param write Whether to open it for writing (<code>true</code>) or reading (<code>false</code>)
+	 * @return A new FileChannel, positioned at the start of the file
+	 * @throws IOException If the file doesn't exist or can't be opened
+	 */
+	public abstract FileChannel open(String path, boolean write) throws IOException;
+
+	/**
+	 * Maps the start of a file into memory for reading and writing, e.g. the framebuffer.
+	 *  A regular file is grown to the size specified if it is smaller. Device nodes (see <code>isDevice()</code>) can't be mapped.
+	 * @param path The path of the file
+	 * @param size The number of bytes to map
+	 * @return A buffer of the size specified, whose changes are written to the file
+	 * @throws IOException If the file doesn't exist, is a device node or can't be mapped
+	 */
+	public abstract ByteBuffer map(String path, int size) throws IOException;
+
+	/**
+	 * Returns whether a file is a device node (e.g. the character device <code>/dev/fb0</code>) rather than a regular file.
+	 *  Device nodes have no size, so they are written with positioned writes instead of being mapped.
+	 * @param path The path of the file
+	 * @return Whether the file is a device node
+	 */
+	public boolean isDevice(String path){
+		return false;
+	}
+
+	/**
+	 * Returns whether a file or directory exists
+	 * @param path The path
+	 * @return Whether it exists
+	 */
+	public abstract boolean exists(String path);
+
+	/**
+	 * Returns the names of the entries of a directory
+	 * @param path The path of the directory
+	 * @return The names, or <code>null</code> if it isn't a directory
+	 */
+	public abstract String[] list(String path);
+
+	/**
+	 * Returns whether a file is a kernel attribute, which takes its whole value from one <code>write()</code> at offset 0.
+	 *  Other files are cut to the size of the value written.
+	 * @param path The path of the file
+	 * @return Whether the file is a kernel attribute
+	 */
+	public abstract boolean isKernelAttribute(String path);
+
+	/**
+	 * Returns where a path really is on disk, for the <code>WatchService</code>s waiting for changes
+	 * @param path The path
+	 * @return The real path, or <code>null</code> if the file-system isn't on disk
+	 */
+	public Path toRealPath(String path){
+		return null;
+	}
+
+	/**
+	 * Creates a directory and its missing parents, for building a device tree
+	 * @param path The path of the directory
+	 * @throws IOException If I/O goes wrong
+	 */
+	public abstract void createDirectories(String path) throws IOException;
+
+	/**
+	 * Creates or replaces a file and its missing parent directories, for building a device tree
+	 * @param path The path of the file
+	 * @param content The content of the file
+	 * @throws IOException If I/O goes wrong
+	 */
+	public abstract void writeFile(String path, byte[] content) throws IOException;
+
+	/**
+	 * Appends to a file, creating it if necessary. Readers at the end of the file see the new bytes (e.g. button events).
+	 * @param path The path of the file
+	 * @param content The bytes to append
+	 * @throws IOException If I/O goes wrong
+	 */
+	public abstract void appendFile(String path, byte[] content) throws IOException;
+
+	/**
+	 * Deletes a file, or a directory and everything in it, e.g. to unplug a device. Does nothing if it doesn't exist.
+	 * @param path The path
+	 * @throws IOException If I/O goes wrong
+	 */
+	public abstract void delete(String path) throws IOException;
+
+	/**
+	 * Reads a whole attribute. Line breaks are stripped, the same as <code>AttributeChannel.read()</code>.
+	 * @param path The path of the attribute
+	 * @return The value of the attribute
+	 * @throws IOException If the attribute couldn't be read
+	 */
+	public String readAttribute(String path) throws IOException{
+		AttributeChannel channel = new AttributeChannel(this, path);
+		try {
+			return channel.read();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Writes a whole attribute in one <code>write()</code> call
+	 * @param path The path of the attribute
+	 * @param value The new value of the attribute
+	 * @throws IOException If the attribute couldn't be written
+	 */
+	public void writeAttribute(String path, String value) throws IOException{
+		AttributeChannel channel = new AttributeChannel(this, path);
+		try {
+			channel.write(value);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Creates or replaces a text file, for building a device tree. A line break is added, as Sysfs does.
+	 * @param path The path of the file
+	 * @param value The text
+	 * @throws IOException If I/O goes wrong
+	 */
+	public void writeText(String path, String value) throws IOException{
+		writeFile(path, (value + "\n").getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Returns the index of the device nodes of this file-system
+	 * @return The DeviceRegistry
+	 */
+	public DeviceRegistry getRegistry(){
+		DeviceRegistry r = registry;
+		if (r == null){
+			synchronized (this){
+				r = registry;
+				if (r == null){
+					r = new DeviceRegistry(this);
+					registry = r;
+				}
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Reads a file from the start until the buffer is full or the end of the file
+	 * @param channel The FileChannel
+	 * @param dst The buffer to read into
+	 * @return The number of bytes read
+	 * @throws IOException If I/O goes wrong
+	 */
+	static int readFully(FileChannel channel, ByteBuffer dst) throws IOException{
+		int n;
+		int pos = 0;
+		while (dst.hasRemaining() && (n = channel.read(dst, pos)) > 0){
+			pos += n;
+		}
+		return pos;
+	}
+}
@@ -0,0 +1,249 @@
+package org.ev3dev.io;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/***
+ * An index of the device nodes in the ev3dev Sysfs classes, by port address.<br>
+ * <br>
+ * Each indexed class (e.g. <code>/sys/class/tacho-motor</code>) keeps an <code>address &rarr; node</code> map.
+ * Lookups are served from memory. A refresh only lists the class directory once and only reads the
+ * <code>address</code> file of nodes that were not seen before, so nodes that stay attached are never
+ * re-read. The <code>leds</code> class has no <code>address</code> file, so its nodes are indexed by their own name.<br>
+ * <br>
+ * Each <code>DeviceFileSystem</code> has its own index (see <code>DeviceFileSystem.getRegistry()</code>).
+ * @author Anthony
+ *
+ */
+public class DeviceRegistry {
+
+	/**
+	 * The Sysfs classes that are indexed by default
+	 */
+	public static final String[] INDEXED_CLASSES = {"tacho-motor", "dc-motor", "servo-motor", "lego-sensor", "lego-port", "leds"};
+
+	private static final String PROPERTY_ADDRESS = "address";
+
+	private static final String CLASS_LEDS = "leds";
+
+	private final DeviceFileSystem fs;
+
+	private final Map<String, ClassIndex> indexes = new ConcurrentHashMap<String, ClassIndex>();
+	
+	private final List<ChangeListener> listeners = new CopyOnWriteArrayList<ChangeListener>();
+
+	/**
+	 * Returns the DeviceRegistry of <code>DeviceFileSystem.getDefault()</code>
+	 * @return The DeviceRegistry
+	 */
+	public static DeviceRegistry getInstance(){
+		return DeviceFileSystem.getDefault().getRegistry();
+	}
+
+	DeviceRegistry(DeviceFileSystem fs){
+		this.fs = fs;
+	}
+
+	/**
+	 * Returns the DeviceFileSystem indexed
+	 * @return The DeviceFileSystem
+	 */
+	public DeviceFileSystem getFileSystem(){
+		return fs;
+	}
+
+	/**
+	 * Returns the node name (e.g. <code>motor0</code>) of the device in the class specified with the address specified.
+	 *  This only looks at the index and never touches the file-system. Use <code>refresh()</code> to update the index.
+	 * @param className The class name (e.g. tacho-motor)
+	 * @param address The port address (e.g. outA)
+	 * @return The node name, or <code>null</code> if none is indexed
+	 */
+	public String lookup(String className, String address){
+		ClassIndex index = indexes.get(className);
+		if (index == null){
+			return null;
+		}
+		return index.byAddress.get(address);
+	}
+
+	/**
+	 * Returns the node name of the device in the class specified with the address specified, refreshing
+	 *  the class index if the address is not indexed or its node has gone away.
+	 * @param className The class name (e.g. tacho-motor)
+	 * @param address The port address (e.g. outA)
+	 * @return The node name, or <code>null</code> if no such device is attached
+	 */
+	public String resolve(String className, String address){
+		String node = lookup(className, address);
+		if (node != null && fs.exists(DeviceFileSystem.SYSFS_CLASS_PATH + className + "/" + node)){
+			return node;
+		}
+		refresh(className);
+		return lookup(className, address);
+	}
+
+	/**
+	 * Returns a copy of the <code>address &rarr; node</code> index of the class specified
+	 * @param className The class name (e.g. tacho-motor)
+	 * @return A map from address to node name
+	 */
+	public Map<String, String> getDevices(String className){
+		ClassIndex index = indexes.get(className);
+		if (index == null){
+			return new HashMap<String, String>();
+		}
+		return new HashMap<String, String>(index.byAddress);
+	}
+
+	/**
+	 * Refreshes all the indexed classes
+	 */
+	public void refreshAll(){
+		for (String className : INDEXED_CLASSES){
+			refresh(className);
+		}
+	}
+
+	/**
+	 * Updates the index of the class specified with the nodes currently in Sysfs. Only new nodes have their address read.
+	 *  The registered listeners are notified of every node added or removed.
+	 * @param className The class name (e.g. tacho-motor)
+	 * @return Whether any node was added or removed
+	 */
+	public boolean refresh(String className){
+		ClassIndex index;
+		synchronized (this){
+			index = indexes.get(className);
+			if (index == null){
+				index = new ClassIndex(fs);
+				indexes.put(className, index);
+			}
+		}
+		synchronized (index){
+			return index.refresh(className, listeners);
+		}
+	}
+	
+	/**
+	 * Registers a listener to be notified of the nodes added and removed by any refresh
+	 * @param listener The listener
+	 */
+	public void addChangeListener(ChangeListener listener){
+		listeners.add(listener);
+	}
+	
+	/**
+	 * Unregisters a listener
+	 * @param listener The listener
+	 */
+	public void removeChangeListener(ChangeListener listener){
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Drops all the indexes. They will be rebuilt on the next refresh.
+	 */
+	public void clear(){
+		indexes.clear();
+	}
+
+	/**
+	 * Receives the changes found by <code>DeviceRegistry.refresh()</code>
+	 * @author Anthony
+	 *
+	 */
+	public interface ChangeListener {
+
+		/**
+		 * Called when a node has been added to the index
+		 * @param className The class name
+		 * @param node The node name
+		 * @param address The port address
+		 */
+		public void nodeAdded(String className, String node, String address);
+
+		/**
+		 * Called when a node has been removed from the index
+		 * @param className The class name
+		 * @param node The node name
+		 * @param address The port address
+		 */
+		public void nodeRemoved(String className, String node, String address);
+	}
+
+	private static class ClassIndex {
+
+		private final DeviceFileSystem fs;
+
+		//ConcurrentMap.remove(key, value) exists since 1.5, Map.remove(key, value) only since 1.8
+		private final ConcurrentMap<String, String> byAddress = new ConcurrentHashMap<String, String>();
+
+		private final Map<String, String> byNode = new HashMap<String, String>();
+
+		private ClassIndex(DeviceFileSystem fs){
+			this.fs = fs;
+		}
+
+		private boolean refresh(String className, List<ChangeListener> listeners){
+			String[] nodes = fs.list(DeviceFileSystem.SYSFS_CLASS_PATH + className);
+			if (nodes == null){
+				nodes = new String[0];
+			}
+			boolean changed = false;
+			Set<String> present = new HashSet<String>(nodes.length * 2);
+			String address;
+			for (String node : nodes){
+				present.add(node);
+				if (byNode.containsKey(node)){
+					continue;
+				}
+				address = readAddress(className, node);
+				if (address == null){
+					//Not ready yet, retried on the next refresh
+					continue;
+				}
+				byNode.put(node, address);
+				byAddress.put(address, node);
+				changed = true;
+				for (ChangeListener listener : listeners){
+					listener.nodeAdded(className, node, address);
+				}
+			}
+			Iterator<Map.Entry<String, String>> it = byNode.entrySet().iterator();
+			Map.Entry<String, String> entry;
+			while (it.hasNext()){
+				entry = it.next();
+				if (present.contains(entry.getKey())){
+					continue;
+				}
+				it.remove();
+				byAddress.remove(entry.getValue(), entry.getKey());
+				changed = true;
+				for (ChangeListener listener : listeners){
+					listener.nodeRemoved(className, entry.getKey(), entry.getValue());
+				}
+			}
+			return changed;
+		}
+
+		private String readAddress(String className, String node){
+			if (CLASS_LEDS.equals(className)){
+				return node;
+			}
+			try {
+				return fs.readAttribute(DeviceFileSystem.getAttributePath(className, node, PROPERTY_ADDRESS));
+			} catch (IOException e){
+				return null;
+			}
+		}
+	}
+}
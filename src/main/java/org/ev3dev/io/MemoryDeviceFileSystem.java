@@ -0,0 +1,423 @@
+package org.ev3dev.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/***
+ * A DeviceFileSystem in memory, for tests and benchmarks of the library itself: opening, reading and writing
+ *  an attribute never makes a system call.<br>
+ * <br>
+ * Files under <code>/sys/class/</code> behave like kernel attributes: a write at offset 0 replaces the whole value.
+ *  A file that is deleted while open fails every read and write with an <code>IOException</code>, as the attributes
+ *  of an unplugged device do. Other files behave like regular files, so an <code>InputEventReader</code> can
+ *  follow the events appended by <code>appendFile()</code>.<br>
+ * <br>
+ * <code>map()</code> returns a view of the file in memory. A view may be lost if the file later grows past the size mapped.
+ * @author Anthony
+ *
+ */
+public class MemoryDeviceFileSystem extends DeviceFileSystem {
+
+	private final Node root = new Node(null);
+
+	@Override
+	public FileChannel open(String path, boolean write) throws IOException{
+		Node node;
+		synchronized (this){
+			node = find(path);
+		}
+		if (node == null || node.children != null){
+			throw new NoSuchFileException(path);
+		}
+		return new MemoryFileChannel(node, write);
+	}
+
+	@Override
+	public ByteBuffer map(String path, int size) throws IOException{
+		Node node;
+		synchronized (this){
+			node = find(path);
+		}
+		if (node == null || node.children != null){
+			throw new NoSuchFileException(path);
+		}
+		synchronized (node){
+			node.ensureCapacity(size);
+			node.size = Math.max(node.size, size);
+			return ByteBuffer.wrap(node.data, 0, size).slice();
+		}
+	}
+
+	@Override
+	public synchronized boolean exists(String path){
+		return find(path) != null;
+	}
+
+	@Override
+	public synchronized String[] list(String path){
+		Node node = find(path);
+		if (node == null || node.children == null){
+			return null;
+		}
+		return node.children.keySet().toArray(new String[node.children.size()]);
+	}
+
+	@Override
+	public boolean isKernelAttribute(String path){
+		return path.startsWith(SYSFS_CLASS_PATH);
+	}
+
+	@Override
+	public synchronized void createDirectories(String path) throws IOException{
+		Node dir = root;
+		Node child;
+		for (String name : split(path)){
+			child = dir.children.get(name);
+			if (child == null){
+				child = new Node(null);
+				dir.children.put(name, child);
+			} else if (child.children == null){
+				throw new IOException("Not a directory: " + path);
+			}
+			dir = child;
+		}
+	}
+
+	@Override
+	public void writeFile(String path, byte[] content) throws IOException{
+		Node file = getFile(path);
+		synchronized (file){
+			file.ensureCapacity(content.length);
+			System.arraycopy(content, 0, file.data, 0, content.length);
+			file.size = content.length;
+		}
+	}
+
+	@Override
+	public void appendFile(String path, byte[] content) throws IOException{
+		Node file = getFile(path);
+		synchronized (file){
+			file.ensureCapacity(file.size + content.length);
+			System.arraycopy(content, 0, file.data, file.size, content.length);
+			file.size += content.length;
+		}
+	}
+
+	@Override
+	public synchronized void delete(String path) throws IOException{
+		String[] names = split(path);
+		if (names.length == 0){
+			throw new IOException("Cannot delete the root");
+		}
+		Node parent = find(names, names.length - 1);
+		if (parent == null || parent.children == null){
+			return;
+		}
+		Node node = parent.children.remove(names[names.length - 1]);
+		if (node != null){
+			node.remove();
+		}
+	}
+
+	@Override
+	public String toString(){
+		return "MemoryDeviceFileSystem@" + Integer.toHexString(hashCode());
+	}
+
+	/**
+	 * Returns the file at the path specified, creating it and its parent directories if necessary
+	 * @param path The path of the file
+	 * @return The file node
+	 * @throws IOException If the path is a directory
+	 */
+	private synchronized Node getFile(String path) throws IOException{
+		String[] names = split(path);
+		if (names.length == 0){
+			throw new IOException("Not a file: " + path);
+		}
+		StringBuilder parent = new StringBuilder("/");
+		for (int i = 0; i < names.length - 1; i++){
+			parent.append(names[i]).append('/');
+		}
+		createDirectories(parent.toString());
+		Node dir = find(names, names.length - 1);
+		Node file = dir.children.get(names[names.length - 1]);
+		if (file == null){
+			file = new Node(new byte[0]);
+			file.attribute = isKernelAttribute(path);
+			dir.children.put(names[names.length - 1], file);
+		} else if (file.children != null){
+			throw new IOException("Not a file: " + path);
+		}
+		return file;
+	}
+
+	private Node find(String path){
+		String[] names = split(path);
+		return find(names, names.length);
+	}
+
+	private Node find(String[] names, int count){
+		Node node = root;
+		for (int i = 0; i < count; i++){
+			if (node.children == null){
+				return null;
+			}
+			node = node.children.get(names[i]);
+			if (node == null){
+				return null;
+			}
+		}
+		return node;
+	}
+
+	private static String[] split(String path){
+		String[] parts = path.split("/");
+		int n = 0;
+		for (String part : parts){
+			if (!part.isEmpty()){
+				parts[n++] = part;
+			}
+		}
+		return Arrays.copyOf(parts, n);
+	}
+
+	/**
+	 * A directory or a file of the tree
+	 */
+	private static class Node {
+
+		private final Map<String, Node> children;
+
+		private byte[] data;
+
+		private int size = 0;
+
+		private boolean attribute = false;
+
+		private volatile boolean removed = false;
+
+		private Node(byte[] data){
+			this.data = data;
+			this.children = data == null ? new TreeMap<String, Node>() : null;
+		}
+
+		private void ensureCapacity(int capacity){
+			if (data.length < capacity){
+				data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+			}
+		}
+
+		private void remove(){
+			removed = true;
+			if (children != null){
+				for (Node child : children.values()){
+					child.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * A FileChannel on a file in memory. Mapping, locking and transfers are not supported.
+	 */
+	private static class MemoryFileChannel extends FileChannel {
+
+		private final Node file;
+
+		private final boolean write;
+
+		private long position = 0;
+
+		private MemoryFileChannel(Node file, boolean write){
+			this.file = file;
+			this.write = write;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException{
+			synchronized (file){
+				int n = read(dst, position);
+				if (n > 0){
+					position += n;
+				}
+				return n;
+			}
+		}
+
+		@Override
+		public long read(ByteBuffer[] dsts, int offset, int length) throws IOException{
+			long total = 0;
+			int n;
+			for (int i = offset; i < offset + length; i++){
+				n = read(dsts[i]);
+				if (n < 0){
+					return total == 0 ? -1 : total;
+				}
+				total += n;
+				if (dsts[i].hasRemaining()){
+					break;
+				}
+			}
+			return total;
+		}
+
+		@Override
+		public int read(ByteBuffer dst, long position) throws IOException{
+			check(false);
+			synchronized (file){
+				if (position >= file.size){
+					return -1;
+				}
+				int n = (int) Math.min(dst.remaining(), file.size - position);
+				dst.put(file.data, (int) position, n);
+				return n;
+			}
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException{
+			synchronized (file){
+				int n = write(src, position);
+				position += n;
+				return n;
+			}
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) throws IOException{
+			long total = 0;
+			for (int i = offset; i < offset + length; i++){
+				total += write(srcs[i]);
+			}
+			return total;
+		}
+
+		@Override
+		public int write(ByteBuffer src, long position) throws IOException{
+			check(true);
+			synchronized (file){
+				int n = src.remaining();
+				if (file.attribute && position == 0){
+					//A kernel attribute takes its whole value from one write
+					file.size = 0;
+				}
+				file.ensureCapacity((int) position + n);
+				if (position > file.size){
+					Arrays.fill(file.data, file.size, (int) position, (byte) 0);
+				}
+				src.get(file.data, (int) position, n);
+				file.size = Math.max(file.size, (int) position + n);
+				return n;
+			}
+		}
+
+		@Override
+		public long position() throws IOException{
+			check();
+			synchronized (file){
+				return position;
+			}
+		}
+
+		@Override
+		public FileChannel position(long newPosition) throws IOException{
+			check();
+			if (newPosition < 0){
+				throw new IllegalArgumentException();
+			}
+			synchronized (file){
+				position = newPosition;
+			}
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException{
+			check();
+			synchronized (file){
+				return file.size;
+			}
+		}
+
+		@Override
+		public FileChannel truncate(long size) throws IOException{
+			check(true);
+			if (size < 0){
+				throw new IllegalArgumentException();
+			}
+			synchronized (file){
+				if (size < file.size){
+					file.size = (int) size;
+				}
+				position = Math.min(position, size);
+			}
+			return this;
+		}
+
+		@Override
+		public void force(boolean metaData) throws IOException{
+			check();
+		}
+
+		@Override
+		public long transferTo(long position, long count, WritableByteChannel target) throws IOException{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException{
+			throw new UnsupportedOperationException("A MemoryDeviceFileSystem file cannot be mapped");
+		}
+
+		@Override
+		public FileLock lock(long position, long size, boolean shared) throws IOException{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public FileLock tryLock(long position, long size, boolean shared) throws IOException{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		protected void implCloseChannel() throws IOException{
+
+		}
+
+		private void check() throws IOException{
+			if (!isOpen()){
+				throw new ClosedChannelException();
+			}
+			if (file.removed){
+				throw new IOException("No such device");
+			}
+		}
+
+		private void check(boolean writing) throws IOException{
+			check();
+			if (writing && !write){
+				throw new NonWritableChannelException();
+			} else if (!writing && write){
+				throw new NonReadableChannelException();
+			}
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package org.ev3dev.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/***
+ * A DeviceFileSystem on disk. <code>/sys/class/</code> and <code>/dev/</code> are mapped to the directories specified,
+ *  so a copy of the device tree can be used anywhere, e.g. on a computer. Other paths are used as they are.
+ * <pre>
+ * //The real files of the EV3
+ * new RealDeviceFileSystem();
+ * //A tree at /tmp/ev3/sys/class/ and /tmp/ev3/dev/
+ * new RealDeviceFileSystem(Paths.get("/tmp/ev3"));
+ * </pre>
+ * @author Anthony
+ *
+ */
+public class RealDeviceFileSystem extends DeviceFileSystem {
+
+	private final String classPath;
+
+	private final String devPath;
+
+	/**
+	 * Creates a new RealDeviceFileSystem on the real files of the EV3
+	 */
+	public RealDeviceFileSystem(){
+		this(SYSFS_CLASS_PATH, DEV_PATH);
+	}
+
+	/**
+	 * Creates a new RealDeviceFileSystem on a tree with <code>sys/class/</code> and <code>dev/</code> directories
+	 * @param root The root directory of the tree
+	 */
+	public RealDeviceFileSystem(Path root){
+		this(root.resolve("sys/class").toString() + "/", root.resolve("dev").toString() + "/");
+	}
+
+	/**
+	 * Creates a new RealDeviceFileSystem
+	 * @param classPath The directory standing for <code>/sys/class/</code>, ending with a slash
+	 * @param devPath The directory standing for <code>/dev/</code>, ending with a slash
+	 */
+	public RealDeviceFileSystem(String classPath, String devPath){
+		this.classPath = classPath;
+		this.devPath = devPath;
+	}
+
+	/**
+	 * Returns the directory standing for <code>/sys/class/</code>
+	 * @return The path, ending with a slash
+	 */
+	public String getClassPath(){
+		return classPath;
+	}
+
+	/**
+	 * Returns the directory standing for <code>/dev/</code>
+	 * @return The path, ending with a slash
+	 */
+	public String getDevPath(){
+		return devPath;
+	}
+
+	@Override
+	public FileChannel open(String path, boolean write) throws IOException{
+		return FileChannel.open(toRealPath(path), write ? StandardOpenOption.WRITE : StandardOpenOption.READ);
+	}
+
+	@Override
+	public ByteBuffer map(String path, int size) throws IOException{
+		//FileChannel.map() grows a file smaller than the mapping, which fails on a character device of size 0
+		if (isDevice(path)){
+			throw new IOException("A device node cannot be mapped: " + path);
+		}
+		//The mapping stays valid after the channel is closed
+		try (FileChannel channel = FileChannel.open(toRealPath(path), StandardOpenOption.READ, StandardOpenOption.WRITE)){
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+	@Override
+	public boolean isDevice(String path){
+		try {
+			return Files.readAttributes(toRealPath(path), BasicFileAttributes.class).isOther();
+		} catch (IOException e){
+			return false;
+		}
+	}
+
+	@Override
+	public boolean exists(String path){
+		return Files.exists(toRealPath(path));
+	}
+
+	@Override
+	public String[] list(String path){
+		Path dir = toRealPath(path);
+		if (!Files.isDirectory(dir)){
+			return null;
+		}
+		List<String> names = new ArrayList<String>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)){
+			for (Path entry : stream){
+				names.add(entry.getFileName().toString());
+			}
+		} catch (IOException e){
+			return null;
+		}
+		return names.toArray(new String[names.size()]);
+	}
+
+	@Override
+	public boolean isKernelAttribute(String path){
+		try {
+			return "sysfs".equals(Files.getFileStore(toRealPath(path)).type());
+		} catch (IOException e){
+			return false;
+		}
+	}
+
+	@Override
+	public Path toRealPath(String path){
+		if (path.startsWith(SYSFS_CLASS_PATH)){
+			return Paths.get(classPath + path.substring(SYSFS_CLASS_PATH.length()));
+		} else if (path.startsWith(DEV_PATH)){
+			return Paths.get(devPath + path.substring(DEV_PATH.length()));
+		}
+		return Paths.get(path);
+	}
+
+	@Override
+	public void createDirectories(String path) throws IOException{
+		Files.createDirectories(toRealPath(path));
+	}
+
+	@Override
+	public void writeFile(String path, byte[] content) throws IOException{
+		Path file = toRealPath(path);
+		Files.createDirectories(file.getParent());
+		Files.write(file, content);
+	}
+
+	@Override
+	public void appendFile(String path, byte[] content) throws IOException{
+		Path file = toRealPath(path);
+		Files.createDirectories(file.getParent());
+		Files.write(file, content, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+
+	@Override
+	public void delete(String path) throws IOException{
+		delete(toRealPath(path));
+	}
+
+	/**
+	 * Deletes a file, or a directory and everything in it. Does nothing if it doesn't exist.
+	 * @param file The path
+	 * @throws IOException If I/O goes wrong
+	 */
+	static void delete(Path file) throws IOException{
+		if (!Files.exists(file)){
+			return;
+		}
+		try (Stream<Path> walk = Files.walk(file)){
+			//Children first
+			Path[] paths = walk.sorted(Comparator.reverseOrder()).toArray(Path[]::new);
+			for (Path p : paths){
+				Files.deleteIfExists(p);
+			}
+		}
+	}
+
+	@Override
+	public String toString(){
+		return "RealDeviceFileSystem[" + classPath + ", " + devPath + "]";
+	}
+}
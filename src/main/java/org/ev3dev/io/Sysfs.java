@@ -1,17 +1,13 @@
 package org.ev3dev.io;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /***
- * A class for reading/writing to the EV3 driver system classes
+ * A class for reading/writing to the EV3 driver system classes, through <code>DeviceFileSystem.getDefault()</code>
  * @author Anthony
  *
  */
@@ -25,13 +21,34 @@ public class Sysfs {
 	private static String SYSTEM_CLASS_PATH = DEFAULT_SYSTEM_CLASS_PATH;
 	
 	/**
-	 * Get all sub-class files
+	 * The values of the list attributes that are read over and over (state flags, commands, stop actions and polarities).
+	 *  <code>separateSpace()</code> returns these instances instead of new Strings.
+	 */
+	private static final String[] KNOWN_TOKENS = {
+		"running", "ramping", "holding", "overloaded", "stalled",
+		"run-forever", "run-to-abs-pos", "run-to-rel-pos", "run-timed", "run-direct", "stop", "reset",
+		"coast", "brake", "hold", "normal", "inversed"
+	};
+	
+	/**
+	 * Get all sub-class files, listed through <code>DeviceFileSystem.getDefault()</code>. The files are where the nodes
+	 *  really are on disk, or their Sysfs paths if the file-system isn't on disk.
 	 * @param class_name Main Class Name
-	 * @return File Array
+	 * @return File Array, or <code>null</code> if the class doesn't exist
 	 */
 	public static File[] getAllSubClass(String class_name){
-		File file = new File(SYSTEM_CLASS_PATH + class_name);
-		File[] files = file.listFiles();
+		DeviceFileSystem fs = DeviceFileSystem.getDefault();
+		String classPath = DeviceFileSystem.SYSFS_CLASS_PATH + class_name;
+		String[] names = fs.list(classPath);
+		if (names == null){
+			return null;
+		}
+		File[] files = new File[names.length];
+		for (int i = 0; i < names.length; i++){
+			String path = classPath + "/" + names[i];
+			Path realPath = fs.toRealPath(path);
+			files[i] = realPath == null ? new File(path) : realPath.toFile();
+		}
 		return files;
 	}
 	
@@ -45,10 +62,12 @@ public class Sysfs {
 	
 	/**
 	 * Modify the current ev3dev Sysfs path in this library instance to be used. This is probably used for debugging purpose. Any invalid modification to the path will break the library.
+	 *  This sets <code>DeviceFileSystem.getDefault()</code> to a <code>RealDeviceFileSystem</code> on the path specified.
 	 * @param path The file-system path to be used
 	 */
 	public static void setSysfsPath(String path){
 		SYSTEM_CLASS_PATH = path;
+		DeviceFileSystem.setDefault(new RealDeviceFileSystem(path, DeviceFileSystem.DEV_PATH));
 	}
 	
 	/**
@@ -56,6 +75,7 @@ public class Sysfs {
 	 */
 	public static void resetSysfsPath(){
 		SYSTEM_CLASS_PATH = DEFAULT_SYSTEM_CLASS_PATH;
+		DeviceFileSystem.setDefault(new RealDeviceFileSystem());
 	}
 	
 	/***
@@ -67,31 +87,7 @@ public class Sysfs {
 	 * @throws IOException If the API couldn't read the class's property
 	 */
 	public static String getAttribute(String class_name, String property) throws FileNotFoundException, IOException{
-		File file = new File(SYSTEM_CLASS_PATH + class_name + "/" + property);
-		class_name = class_name.toLowerCase();
-		property = property.toLowerCase();
-		FileInputStream in = new FileInputStream(file);
-		StringBuilder sb = new StringBuilder();
-		BufferedReader br = null;
-		String line;
-		try {
-			br = new BufferedReader(new InputStreamReader(in));
-			while ((line = br.readLine()) != null) {
-				sb.append(line);
-			}
-
-		} catch (IOException e) {
-			throw e;
-		} finally {
-			if (br != null) {
-				try {
-					br.close();
-				} catch (IOException e) {
-					throw e;
-				}
-			}
-		}
-		return sb.toString();
+		return DeviceFileSystem.getDefault().readAttribute(DeviceFileSystem.SYSFS_CLASS_PATH + class_name + "/" + property);
 	}
 	
 	/***
@@ -129,88 +125,102 @@ public class Sysfs {
 	 * @throws IOException If the API couldn't read the class's property
 	 */
 	public static void setAttribute(String class_name, String property, String new_value) throws FileNotFoundException, IOException{
-		PrintWriter out = new PrintWriter(SYSTEM_CLASS_PATH + class_name + "/" + property);
-		out.write(new_value);
-		out.flush();
-		out.close();
+		DeviceFileSystem.getDefault().writeAttribute(DeviceFileSystem.SYSFS_CLASS_PATH + class_name + "/" + property, new_value);
+	}
+	
+	/***
+	 * Reads the property of the class and subclass specified as a decimal integer, without creating any String.
+	 * @param class_name The class name.
+	 * @param subclass The Sub-class name.
+	 * @param property The property name of the class
+	 * @return The value of the property
+	 * @throws IOException If the API couldn't read the class's property
+	 * @throws NumberFormatException If the property isn't a decimal integer
+	 */
+	public static int readInt(String class_name, String subclass, String property) throws IOException{
+		AttributeChannel channel = openAttribute(class_name, subclass, property);
+		try {
+			return channel.readInt();
+		} finally {
+			channel.close();
+		}
 	}
 	
 	/***
-	 * A function to separate space from a spaced-array.
+	 * Writes a decimal integer to the property of the class and subclass specified, without creating any String.
+	 * @param class_name The class name.
+	 * @param subclass The Sub-class name.
+	 * @param property The property name of the class
+	 * @param new_value The new value of the property
+	 * @throws IOException If the API couldn't write the class's property
+	 */
+	public static void writeInt(String class_name, String subclass, String property, int new_value) throws IOException{
+		AttributeChannel channel = openAttribute(class_name, subclass, property);
+		try {
+			channel.writeInt(new_value);
+		} finally {
+			channel.close();
+		}
+	}
+	
+	/***
+	 * Creates a cached handle to the property of the class and subclass specified. The file is opened on first use and kept open until the channel is closed.
+	 * @param class_name The class name.
+	 * @param subclass The Sub-class name.
+	 * @param property The property name of the class
+	 * @return A new AttributeChannel
+	 */
+	public static AttributeChannel openAttribute(String class_name, String subclass, String property){
+		return new AttributeChannel(DeviceFileSystem.getDefault(), DeviceFileSystem.getAttributePath(class_name, subclass, property));
+	}
+
+	/***
+	 * A function to separate space from a spaced-array. The string is scanned once, and repeated whitespace is skipped.
+	 *  Well-known values (e.g. <code>running</code>, <code>hold</code>) are returned as shared constants instead of new Strings.
 	 * @param space_array A string
 	 * @return A array of the string/space-array
 	 */
 	public static String[] separateSpace(String space_array){
-		int i;
-		int j;
-		String sep;
-		List<String> list = new ArrayList<String>(50);
-		for (i = 0; i < space_array.length(); i++){
-			for (j = i; j < space_array.length(); j++){
-				if (space_array.charAt(j) == ' '){
-					break;
+		String[] tokens = new String[8];
+		int n = 0;
+		int start = -1;
+		int len = space_array.length();
+		char c;
+		for (int i = 0; i <= len; i++){
+			c = i < len ? space_array.charAt(i) : ' ';
+			if (c == ' ' || c == '\n' || c == '\r' || c == '\t'){
+				if (start >= 0){
+					if (n == tokens.length){
+						tokens = Arrays.copyOf(tokens, n * 2);
+					}
+					tokens[n++] = token(space_array, start, i);
+					start = -1;
 				}
+			} else if (start < 0){
+				start = i;
 			}
-			if (j == space_array.length()){
-				break;
-			}
-			sep = space_array.substring(i, j + 1);
-			list.add(sep);
-			i = j;
-		}
-		Object[] objarr = list.toArray();
-		String[] strarr = new String[objarr.length];
-		for (i = 0; i < strarr.length; i++){
-			strarr[i] = (String) objarr[i];
 		}
-		return strarr;
+		return n == tokens.length ? tokens : Arrays.copyOf(tokens, n);
 	}
 	
-	private static String readFile(File file) throws IOException{
-		FileInputStream in = new FileInputStream(file);
-		StringBuilder sb = new StringBuilder();
-		BufferedReader br = null;
-		String line;
-		try {
-			br = new BufferedReader(new InputStreamReader(in));
-			while ((line = br.readLine()) != null) {
-				sb.append(line);
-			}
-
-		} catch (IOException e) {
-			throw e;
-		} finally {
-			if (br != null) {
-				try {
-					br.close();
-				} catch (IOException e) {
-					throw e;
-				}
+	private static String token(String str, int start, int end){
+		int len = end - start;
+		for (String known : KNOWN_TOKENS){
+			if (known.length() == len && str.regionMatches(start, known, 0, len)){
+				return known;
 			}
 		}
-		return sb.toString();
+		return str.substring(start, end);
 	}
 	
 	/**
-	 * Search the full class name, using a class name, FS folder prefix and an address
+	 * Search the full class name, using a class name, FS folder prefix and an address. The lookup is served by the <code>DeviceRegistry</code> index, which is only refreshed if the address is unknown or its node has gone away.
 	 * @param classname The class Name (e.g. lego-port, tacho-motor)
 	 * @param fsFolderPrefix The FS folder prefix, without the value [N] (e.g. motor, sensor)
 	 * @param address Port address (e.g. outA, in1)
 	 * @return The full FS class folder name, with the same port address, if none, returns null
 	 */
 	public static String searchClassFullName(String classname, String fsFolderPrefix, String address){
-		File[] sub = Sysfs.getAllSubClass(classname);
-		File file;
-		String data;
-		for (File asub : sub){
-			file = new File(asub.getAbsolutePath() + "/address");
-			try {
-				data = readFile(file);
-				if(data.equals(address)){
-					return asub.getName();
-				}
-			} catch (Exception ignore){}
-		}
-		return null;
+		return DeviceFileSystem.getDefault().getRegistry().resolve(classname, address);
 	}
 }
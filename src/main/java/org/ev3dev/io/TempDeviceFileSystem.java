@@ -0,0 +1,58 @@
+package org.ev3dev.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/***
+ * A DeviceFileSystem in a new temporary directory, for tests that need real files (e.g. to be watched for changes).
+ *  The directory and everything in it is deleted when it is closed.<br>
+ * <br>
+ * Unlike a Sysfs attribute, a regular file can still be read through a channel opened before it was deleted.
+ *  Use a <code>MemoryDeviceFileSystem</code> to test unplugging devices.
+ * <pre>
+ * try (TempDeviceFileSystem fs = new TempDeviceFileSystem()){
+ *     fs.writeFile(DeviceFileSystem.SYSFS_CLASS_PATH + "lego-port/port0/address", "outA\n".getBytes());
+ *     ...
+ * }
+ * </pre>
+ * @author Anthony
+ *
+ */
+public class TempDeviceFileSystem extends RealDeviceFileSystem implements Closeable {
+
+	private final Path root;
+
+	/**
+	 * Creates a new TempDeviceFileSystem, with empty <code>sys/class/</code> and <code>dev/</code> directories
+	 * @throws IOException If the temporary directory couldn't be created
+	 */
+	public TempDeviceFileSystem() throws IOException{
+		this(Files.createTempDirectory("ev3dev"));
+	}
+
+	private TempDeviceFileSystem(Path root) throws IOException{
+		super(root);
+		this.root = root;
+		createDirectories(SYSFS_CLASS_PATH);
+		createDirectories(DEV_PATH);
+	}
+
+	/**
+	 * Returns the temporary directory
+	 * @return The root of the tree
+	 */
+	public Path getRoot(){
+		return root;
+	}
+
+	/**
+	 * Deletes the temporary directory and everything in it
+	 * @throws IOException If I/O goes wrong
+	 */
+	@Override
+	public void close() throws IOException{
+		delete(root);
+	}
+}
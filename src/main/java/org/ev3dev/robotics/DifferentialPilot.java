@@ -0,0 +1,693 @@
+package org.ev3dev.robotics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.ev3dev.exception.EV3LibraryException;
+import org.ev3dev.hardware.motors.Motor;
+import org.ev3dev.hardware.motors.MotorCommand;
+import org.ev3dev.hardware.motors.MotorGroup;
+
+/***
+ * Drives a robot with two independently driven wheels on a common axle.<br>
+ * <br>
+ * A dedicated thread runs a fixed-rate control loop. Every tick reads the position of both motors, integrates the
+ *  odometry from the position deltas and <code>count_per_rot</code>, and, while a move is active, follows a trapezoidal
+ *  velocity profile: the profile velocity is fed forward and the position error is corrected proportionally. The
+ *  resulting <code>speed_sp</code> of each wheel is only written when it changes, through the attribute files kept open
+ *  by the motors, and both motors are restarted together by a <code>MotorGroup</code>.<br>
+ * <br>
+ * Distances are in the units of the wheel diameter (e.g. millimetres) and angles in degrees. Positive angles turn left.<br>
+ * <br>
+ * Example:
+ * <pre>
+ * DifferentialPilot pilot = new DifferentialPilot(leftMotor, rightMotor, 56, 120);
+ * pilot.setTravelSpeed(200);
+ * pilot.travel(500);
+ * pilot.rotate(90);
+ * pilot.arc(300, -45);
+ * System.out.println(pilot.getPose() + " " + pilot.getLoopStatistics());
+ * pilot.close();
+ * </pre>
+ * @author Anthony
+ *
+ */
+public class DifferentialPilot {
+
+	/**
+	 * The default loop period, in milliseconds
+	 */
+	public static final long DEFAULT_PERIOD = 10;
+
+	/**
+	 * The time a move may take after its profile has ended to reach the target, in milliseconds
+	 */
+	public static final long SETTLE_TIMEOUT = 500;
+
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	private final Motor left;
+
+	private final Motor right;
+
+	private final MotorGroup group;
+
+	private final double trackWidth;
+
+	private final double distancePerCountLeft;
+
+	private final double distancePerCountRight;
+
+	private final int maxSpeedLeft;
+
+	private final int maxSpeedRight;
+
+	private final AtomicReference<Pose> pose = new AtomicReference<Pose>(new Pose(0, 0, 0));
+
+	private final Object lock = new Object();
+
+	private long periodNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_PERIOD);
+
+	private double travelSpeed;
+
+	private double acceleration;
+
+	private double positionGain = 5;
+
+	private int tolerance = 2;
+
+	private MotorCommand stopCommand = new MotorCommand.Builder(null).setStopAction("brake").build();
+
+	private Move pendingMove = null;
+
+	private Move activeMove = null;
+
+	private boolean stopRequested = false;
+
+	private Pose pendingPose = null;
+
+	private EV3LibraryException failure = null;
+
+	private volatile boolean running = false;
+
+	private Thread thread = null;
+
+	//Odometry, only touched by the control thread
+	private boolean odometryStarted = false;
+
+	private int lastLeft;
+
+	private int lastRight;
+
+	private double x;
+
+	private double y;
+
+	private double heading;
+
+	private int lastSpeedLeft;
+
+	private int lastSpeedRight;
+
+	private boolean driving = false;
+
+	//Loop statistics, guarded by lock
+	private long ticks = 0;
+
+	private long firstTick;
+
+	private long lastTick;
+
+	private long totalJitter = 0;
+
+	private long maxJitter = 0;
+
+	private long overruns = 0;
+
+	/**
+	 * Creates a new DifferentialPilot. The control thread is started by the first move, or by <code>start()</code>.
+	 * @param left The left Motor
+	 * @param right The right Motor
+	 * @param wheelDiameter The diameter of the wheels
+	 * @param trackWidth The distance between the centres of the two wheels, in the same unit
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	public DifferentialPilot(Motor left, Motor right, double wheelDiameter, double trackWidth) throws EV3LibraryException{
+		if (wheelDiameter <= 0 || trackWidth <= 0){
+			throw new IllegalArgumentException("The wheel diameter and the track width must be positive");
+		}
+		this.left = left;
+		this.right = right;
+		this.group = new MotorGroup(left, right);
+		this.trackWidth = trackWidth;
+		//The motors may differ, e.g. a large and a medium motor
+		this.distancePerCountLeft = Math.PI * wheelDiameter / left.getCountPerRot();
+		this.distancePerCountRight = Math.PI * wheelDiameter / right.getCountPerRot();
+		this.maxSpeedLeft = left.getMaxSpeed();
+		this.maxSpeedRight = right.getMaxSpeed();
+		this.travelSpeed = 0.5 * wheelDiameter * Math.PI;
+		this.acceleration = 2 * travelSpeed;
+	}
+
+	/**
+	 * Sets the period of the control loop. Takes effect the next time the thread is started.
+	 * @param period The period
+	 * @param unit The unit of <code>period</code>
+	 */
+	public void setPeriod(long period, TimeUnit unit){
+		if (period <= 0){
+			throw new IllegalArgumentException("The period must be positive: " + period);
+		}
+		synchronized (lock){
+			this.periodNanos = unit.toNanos(period);
+		}
+	}
+
+	/**
+	 * Sets the maximum speed of the moves that follow. For arcs and rotations, this is the speed of the outer wheel.<br>
+	 * (Default: half a wheel turn per second)
+	 * @param speed The speed in distance units per second
+	 */
+	public void setTravelSpeed(double speed){
+		if (speed <= 0){
+			throw new IllegalArgumentException("The speed must be positive: " + speed);
+		}
+		synchronized (lock){
+			this.travelSpeed = speed;
+		}
+	}
+
+	/**
+	 * Returns the maximum speed of the moves
+	 * @return The speed in distance units per second
+	 */
+	public double getTravelSpeed(){
+		synchronized (lock){
+			return travelSpeed;
+		}
+	}
+
+	/**
+	 * Sets the acceleration and deceleration of the moves that follow.<br>
+	 * (Default: reaches the default speed in half a second)
+	 * @param acceleration The acceleration in distance units per second squared
+	 */
+	public void setAcceleration(double acceleration){
+		if (acceleration <= 0){
+			throw new IllegalArgumentException("The acceleration must be positive: " + acceleration);
+		}
+		synchronized (lock){
+			this.acceleration = acceleration;
+		}
+	}
+
+	/**
+	 * Returns the acceleration of the moves
+	 * @return The acceleration in distance units per second squared
+	 */
+	public double getAcceleration(){
+		synchronized (lock){
+			return acceleration;
+		}
+	}
+
+	/**
+	 * Sets the proportional gain applied to the position error of each wheel.<br>
+	 * (Default: 5 per second)
+	 * @param gain The correction speed per unit of error, in 1/s
+	 */
+	public void setPositionGain(double gain){
+		synchronized (lock){
+			this.positionGain = gain;
+		}
+	}
+
+	/**
+	 * Sets how close to its target each wheel must be for a move to complete.<br>
+	 * (Default: 2)
+	 * @param counts The tolerance in tacho counts
+	 */
+	public void setTolerance(int counts){
+		synchronized (lock){
+			this.tolerance = counts;
+		}
+	}
+
+	/**
+	 * Sets the stop action of the motors used at the end of each move.<br>
+	 * (Default: brake)
+	 * @param stopAction A stop action listed by <code>Motor.getStopCommands()</code>
+	 */
+	public void setStopAction(String stopAction){
+		synchronized (lock){
+			this.stopCommand = new MotorCommand.Builder(null).setStopAction(stopAction).build();
+		}
+	}
+
+	/**
+	 * Returns the pose estimated by odometry in the last tick
+	 * @return The Pose
+	 */
+	public Pose getPose(){
+		return pose.get();
+	}
+
+	/**
+	 * Replaces the pose estimated by odometry. Takes effect at the next tick.
+	 * @param pose The new Pose
+	 */
+	public void setPose(Pose pose){
+		synchronized (lock){
+			pendingPose = pose;
+			if (!running){
+				this.pose.set(pose);
+			}
+		}
+	}
+
+	/**
+	 * Returns the timing statistics of the control loop
+	 * @return A LoopStatistics
+	 */
+	public LoopStatistics getLoopStatistics(){
+		synchronized (lock){
+			long meanPeriod = ticks > 1 ? (lastTick - firstTick) / (ticks - 1) : 0;
+			long meanJitter = ticks > 0 ? totalJitter / ticks : 0;
+			return new LoopStatistics(periodNanos, ticks, meanPeriod, meanJitter, maxJitter, overruns);
+		}
+	}
+
+	/**
+	 * Clears the timing statistics of the control loop
+	 */
+	public void resetLoopStatistics(){
+		synchronized (lock){
+			ticks = 0;
+			totalJitter = 0;
+			maxJitter = 0;
+			overruns = 0;
+		}
+	}
+
+	/**
+	 * Moves straight forward, or backward if the distance is negative, and waits for the move to complete.
+	 * @param distance The distance
+	 * @throws EV3LibraryException If I/O goes wrong
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public void travel(double distance) throws EV3LibraryException, InterruptedException{
+		travel(distance, false);
+	}
+
+	/**
+	 * Moves straight forward, or backward if the distance is negative. A move in progress is replaced.
+	 * @param distance The distance
+	 * @param immediateReturn <code>true</code> to return at once, <code>false</code> to wait for the move to complete
+	 * @throws EV3LibraryException If I/O goes wrong
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public void travel(double distance, boolean immediateReturn) throws EV3LibraryException, InterruptedException{
+		move(distance, distance, immediateReturn);
+	}
+
+	/**
+	 * Turns on the spot and waits for the move to complete.
+	 * @param angle The angle in degrees, positive to the left
+	 * @throws EV3LibraryException If I/O goes wrong
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public void rotate(double angle) throws EV3LibraryException, InterruptedException{
+		rotate(angle, false);
+	}
+
+	/**
+	 * Turns on the spot. A move in progress is replaced.
+	 * @param angle The angle in degrees, positive to the left
+	 * @param immediateReturn <code>true</code> to return at once, <code>false</code> to wait for the move to complete
+	 * @throws EV3LibraryException If I/O goes wrong
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public void rotate(double angle, boolean immediateReturn) throws EV3LibraryException, InterruptedException{
+		arc(0, angle, immediateReturn);
+	}
+
+	/**
+	 * Moves along an arc and waits for the move to complete.
+	 * @param radius The radius of the arc followed by the centre of the robot, positive if the centre of the arc is on the left
+	 * @param angle The angle in degrees to turn by, negative to move backward
+	 * @throws EV3LibraryException If I/O goes wrong
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public void arc(double radius, double angle) throws EV3LibraryException, InterruptedException{
+		arc(radius, angle, false);
+	}
+
+	/**
+	 * Moves along an arc. A move in progress is replaced.
+	 * @param radius The radius of the arc followed by the centre of the robot, positive if the centre of the arc is on the left
+	 * @param angle The angle in degrees to turn by, negative to move backward
+	 * @param immediateReturn <code>true</code> to return at once, <code>false</code> to wait for the move to complete
+	 * @throws EV3LibraryException If I/O goes wrong
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public void arc(double radius, double angle, boolean immediateReturn) throws EV3LibraryException, InterruptedException{
+		double radians = Math.toRadians(angle);
+		move((radius - trackWidth / 2) * radians, (radius + trackWidth / 2) * radians, immediateReturn);
+	}
+
+	/**
+	 * Stops the move in progress and waits for the motors to be stopped
+	 * @throws EV3LibraryException If I/O goes wrong
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public void stop() throws EV3LibraryException, InterruptedException{
+		synchronized (lock){
+			if (!running){
+				return;
+			}
+			pendingMove = null;
+			stopRequested = true;
+		}
+		waitComplete();
+	}
+
+	/**
+	 * Returns whether a move is in progress
+	 * @return A Boolean
+	 */
+	public boolean isMoving(){
+		synchronized (lock){
+			return pendingMove != null || activeMove != null || stopRequested;
+		}
+	}
+
+	/**
+	 * Waits for the move in progress to complete
+	 * @throws EV3LibraryException If the move was aborted because I/O went wrong
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public void waitComplete() throws EV3LibraryException, InterruptedException{
+		synchronized (lock){
+			while (running && (pendingMove != null || activeMove != null || stopRequested)){
+				lock.wait();
+			}
+			checkFailure();
+		}
+	}
+
+	/**
+	 * Starts the control thread, which keeps the odometry up to date even when no move is in progress
+	 */
+	public void start(){
+		synchronized (lock){
+			if (running){
+				return;
+			}
+			running = true;
+			failure = null;
+			thread = new Thread(new Runnable(){
+				public void run(){
+					loop();
+				}
+			}, "ev3dev-differential-pilot");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Stops the motors and the control thread, and waits for the thread to finish
+	 * @throws InterruptedException If interrupted while waiting for the thread
+	 */
+	public void close() throws InterruptedException{
+		Thread t;
+		synchronized (lock){
+			running = false;
+			t = thread;
+			thread = null;
+			lock.notifyAll();
+		}
+		if (t != null){
+			LockSupport.unpark(t);
+			t.join();
+		}
+	}
+
+	private void move(double leftDistance, double rightDistance, boolean immediateReturn) throws EV3LibraryException, InterruptedException{
+		double reference = Math.max(Math.abs(leftDistance), Math.abs(rightDistance));
+		Move move;
+		synchronized (lock){
+			if (reference == 0){
+				move = null;
+			} else {
+				move = new Move(new TrapezoidalProfile(reference, travelSpeed, acceleration),
+						leftDistance / reference / distancePerCountLeft, rightDistance / reference / distancePerCountRight);
+			}
+			pendingMove = move;
+			stopRequested = move == null;
+		}
+		start();
+		if (!immediateReturn){
+			waitComplete();
+		}
+	}
+
+	private void checkFailure() throws EV3LibraryException{
+		if (failure != null){
+			EV3LibraryException e = failure;
+			failure = null;
+			throw e;
+		}
+	}
+
+	private void loop(){
+		long period;
+		synchronized (lock){
+			period = periodNanos;
+		}
+		odometryStarted = false;
+		driving = false;
+		long next = System.nanoTime();
+		long now;
+		long skipped;
+		while (running){
+			now = System.nanoTime();
+			recordTick(now, now - next);
+			try {
+				tick(now);
+			} catch (EV3LibraryException e){
+				abort(e);
+			} catch (RuntimeException e){
+				abort(new EV3LibraryException("The control loop failed", e));
+			}
+			next += period;
+			now = System.nanoTime();
+			if (now - next > 0){
+				//Too slow, skip the ticks missed instead of bursting
+				skipped = (now - next) / period + 1;
+				next += skipped * period;
+				synchronized (lock){
+					overruns += skipped;
+				}
+			}
+			while (running && (now = System.nanoTime()) - next < 0){
+				LockSupport.parkNanos(this, next - now);
+			}
+		}
+		try {
+			halt();
+		} catch (EV3LibraryException ignore){}
+		synchronized (lock){
+			pendingMove = null;
+			activeMove = null;
+			stopRequested = false;
+			lock.notifyAll();
+		}
+	}
+
+	private void recordTick(long now, long jitter){
+		synchronized (lock){
+			if (ticks == 0){
+				firstTick = now;
+			}
+			lastTick = now;
+			ticks++;
+			totalJitter += jitter;
+			maxJitter = Math.max(maxJitter, jitter);
+		}
+	}
+
+	private void tick(long now) throws EV3LibraryException{
+		int positionLeft = left.getPosition();
+		int positionRight = right.getPosition();
+		updateOdometry(positionLeft, positionRight);
+
+		Move move;
+		Move started = null;
+		boolean stopping = false;
+		MotorCommand stopAction;
+		double gain;
+		int tol;
+		synchronized (lock){
+			if (stopRequested || pendingMove != null){
+				stopping = activeMove != null || stopRequested;
+				started = pendingMove;
+				activeMove = pendingMove;
+				pendingMove = null;
+				stopRequested = false;
+				if (started != null){
+					started.start(now, positionLeft, positionRight);
+				}
+			}
+			move = activeMove;
+			stopAction = stopCommand;
+			gain = positionGain;
+			tol = tolerance;
+		}
+		if (stopping){
+			halt();
+		}
+		if (started != null){
+			group.execute(stopAction);
+		}
+		if (move == null){
+			if (stopping){
+				synchronized (lock){
+					lock.notifyAll();
+				}
+			}
+			return;
+		}
+
+		double t = (now - move.startTime) / NANOS_PER_SECOND;
+		double s = move.profile.getPosition(t);
+		double v = move.profile.getVelocity(t);
+		double errorLeft = move.startLeft + s * move.countsLeft - positionLeft;
+		double errorRight = move.startRight + s * move.countsRight - positionRight;
+
+		if (t >= move.profile.getDuration()
+				&& ((Math.abs(errorLeft) <= tol && Math.abs(errorRight) <= tol) || t >= move.profile.getDuration() + SETTLE_TIMEOUT / 1000.0)){
+			halt();
+			synchronized (lock){
+				if (activeMove == move){
+					activeMove = null;
+				}
+				lock.notifyAll();
+			}
+			return;
+		}
+
+		drive((int) Math.round(v * move.countsLeft + gain * errorLeft), (int) Math.round(v * move.countsRight + gain * errorRight));
+	}
+
+	/**
+	 * Writes the speed of both wheels and restarts the motors. If either speed is out of the range of its motor, both are scaled down
+	 *  by the same factor, so the robot still follows the same curve, only slower.
+	 * @param speedLeft The speed of the left wheel, in tacho counts per second
+	 * @param speedRight The speed of the right wheel, in tacho counts per second
+	 * @throws EV3LibraryException If I/O goes wrong
+	 */
+	private void drive(int speedLeft, int speedRight) throws EV3LibraryException{
+		double scale = 1;
+		if (Math.abs(speedLeft) > maxSpeedLeft){
+			scale = (double) maxSpeedLeft / Math.abs(speedLeft);
+		}
+		if (Math.abs(speedRight) > maxSpeedRight){
+			scale = Math.min(scale, (double) maxSpeedRight / Math.abs(speedRight));
+		}
+		if (scale < 1){
+			speedLeft = (int) (speedLeft * scale);
+			speedRight = (int) (speedRight * scale);
+		}
+		if (driving && speedLeft == lastSpeedLeft && speedRight == lastSpeedRight){
+			return;
+		}
+		left.setSpeed_SP(speedLeft);
+		right.setSpeed_SP(speedRight);
+		//speed_sp only takes effect when a run command is sent
+		group.runForever();
+		lastSpeedLeft = speedLeft;
+		lastSpeedRight = speedRight;
+		driving = true;
+	}
+
+	private void halt() throws EV3LibraryException{
+		if (driving){
+			driving = false;
+			group.stop();
+		}
+	}
+
+	private void abort(EV3LibraryException e){
+		try {
+			halt();
+		} catch (EV3LibraryException ignore){}
+		synchronized (lock){
+			failure = e;
+			pendingMove = null;
+			activeMove = null;
+			stopRequested = false;
+			lock.notifyAll();
+		}
+		odometryStarted = false;
+	}
+
+	private void updateOdometry(int positionLeft, int positionRight){
+		Pose reset;
+		synchronized (lock){
+			reset = pendingPose;
+			pendingPose = null;
+		}
+		if (reset != null){
+			x = reset.getX();
+			y = reset.getY();
+			heading = Math.toRadians(reset.getHeading());
+		}
+		if (odometryStarted){
+			double dl = (positionLeft - lastLeft) * distancePerCountLeft;
+			double dr = (positionRight - lastRight) * distancePerCountRight;
+			double ds = (dl + dr) / 2;
+			double dh = (dr - dl) / trackWidth;
+			//Midpoint integration of the arc travelled during the tick
+			x += ds * Math.cos(heading + dh / 2);
+			y += ds * Math.sin(heading + dh / 2);
+			heading = Math.IEEEremainder(heading + dh, 2 * Math.PI);
+		} else {
+			odometryStarted = true;
+		}
+		lastLeft = positionLeft;
+		lastRight = positionRight;
+		pose.set(new Pose(x, y, Math.toDegrees(heading)));
+	}
+
+	/**
+	 * A move being followed: the profile of the reference distance, and the tacho counts of each wheel per unit of it
+	 */
+	private static class Move {
+
+		private final TrapezoidalProfile profile;
+
+		private final double countsLeft;
+
+		private final double countsRight;
+
+		private long startTime;
+
+		private int startLeft;
+
+		private int startRight;
+
+		private Move(TrapezoidalProfile profile, double countsLeft, double countsRight){
+			this.profile = profile;
+			this.countsLeft = countsLeft;
+			this.countsRight = countsRight;
+		}
+
+		private void start(long time, int positionLeft, int positionRight){
+			this.startTime = time;
+			this.startLeft = positionLeft;
+			this.startRight = positionRight;
+		}
+	}
+}
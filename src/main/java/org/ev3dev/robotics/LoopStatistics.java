@@ -0,0 +1,85 @@
+package org.ev3dev.robotics;
+
+/***
+ * Immutable timing statistics of a fixed-rate control loop. Jitter is the difference between the time a tick
+ *  was scheduled for and the time it actually started.
+ * @author Anthony
+ *
+ */
+public class LoopStatistics {
+
+	private final long targetPeriod;
+
+	private final long ticks;
+
+	private final long meanPeriod;
+
+	private final long meanJitter;
+
+	private final long maxJitter;
+
+	private final long overruns;
+
+	LoopStatistics(long targetPeriod, long ticks, long meanPeriod, long meanJitter, long maxJitter, long overruns){
+		this.targetPeriod = targetPeriod;
+		this.ticks = ticks;
+		this.meanPeriod = meanPeriod;
+		this.meanJitter = meanJitter;
+		this.maxJitter = maxJitter;
+		this.overruns = overruns;
+	}
+
+	/**
+	 * Returns the period the loop aims for
+	 * @return The period in nanoseconds
+	 */
+	public long getTargetPeriod(){
+		return targetPeriod;
+	}
+
+	/**
+	 * Returns the number of ticks run
+	 * @return The number of ticks
+	 */
+	public long getTickCount(){
+		return ticks;
+	}
+
+	/**
+	 * Returns the average time between the start of two ticks
+	 * @return The period in nanoseconds
+	 */
+	public long getMeanPeriod(){
+		return meanPeriod;
+	}
+
+	/**
+	 * Returns the average lateness of a tick
+	 * @return The jitter in nanoseconds
+	 */
+	public long getMeanJitter(){
+		return meanJitter;
+	}
+
+	/**
+	 * Returns the largest lateness of a tick
+	 * @return The jitter in nanoseconds
+	 */
+	public long getMaxJitter(){
+		return maxJitter;
+	}
+
+	/**
+	 * Returns the number of ticks skipped because a tick took longer than the period
+	 * @return The number of skipped ticks
+	 */
+	public long getOverruns(){
+		return overruns;
+	}
+
+	@Override
+	public String toString(){
+		return "LoopStatistics[target=" + targetPeriod + "ns, ticks=" + ticks + ", meanPeriod=" + meanPeriod
+				+ "ns, meanJitter=" + meanJitter + "ns, maxJitter=" + maxJitter + "ns, overruns=" + overruns + "]";
+	}
+}
@@ -0,0 +1,68 @@
+package org.ev3dev.robotics;
+
+/***
+ * An immutable position and heading of a robot on the floor.<br>
+ * <br>
+ * The X axis points forward from where the robot started, the Y axis to its left, and the heading is measured
+ *  counter-clockwise from the X axis.
+ * @author Anthony
+ *
+ */
+public class Pose {
+
+	private final double x;
+
+	private final double y;
+
+	private final double heading;
+
+	/**
+	 * Creates a new Pose
+	 * @param x The X coordinate
+	 * @param y The Y coordinate
+	 * @param heading The heading in degrees
+	 */
+	public Pose(double x, double y, double heading){
+		this.x = x;
+		this.y = y;
+		this.heading = heading;
+	}
+
+	/**
+	 * Returns the X coordinate, in the units of the wheel diameter
+	 * @return The X coordinate
+	 */
+	public double getX(){
+		return x;
+	}
+
+	/**
+	 * Returns the Y coordinate, in the units of the wheel diameter
+	 * @return The Y coordinate
+	 */
+	public double getY(){
+		return y;
+	}
+
+	/**
+	 * Returns the heading, normalized to (-180, 180]
+	 * @return The heading in degrees
+	 */
+	public double getHeading(){
+		return heading;
+	}
+
+	/**
+	 * Returns the distance to another pose
+	 * @param other The other Pose
+	 * @return The distance
+	 */
+	public double distanceTo(Pose other){
+		return Math.hypot(other.x - x, other.y - y);
+	}
+
+	@Override
+	public String toString(){
+		return "Pose[x=" + x + ", y=" + y + ", heading=" + heading + "]";
+	}
+}
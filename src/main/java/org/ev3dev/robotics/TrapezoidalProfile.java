@@ -0,0 +1,113 @@
+package org.ev3dev.robotics;
+
+/***
+ * A trapezoidal velocity profile: accelerate at a constant rate, cruise at the maximum velocity, then decelerate
+ *  at the same rate to stop exactly at the distance given. If the distance is too short to reach the maximum
+ *  velocity, the profile is triangular.<br>
+ * <br>
+ * Negative distances are travelled backwards with negative velocities.
+ * @author Anthony
+ *
+ */
+public class TrapezoidalProfile {
+
+	private final double distance;
+
+	private final double sign;
+
+	private final double acceleration;
+
+	private final double peakVelocity;
+
+	private final double accelTime;
+
+	private final double cruiseTime;
+
+	private final double accelDistance;
+
+	/**
+	 * Creates a new TrapezoidalProfile
+	 * @param distance The distance to travel
+	 * @param maxVelocity The maximum velocity, in distance units per second
+	 * @param acceleration The acceleration, in distance units per second squared
+	 */
+	public TrapezoidalProfile(double distance, double maxVelocity, double acceleration){
+		if (maxVelocity <= 0 || acceleration <= 0){
+			throw new IllegalArgumentException("The velocity and acceleration must be positive");
+		}
+		double d = Math.abs(distance);
+		this.distance = d;
+		this.sign = distance < 0 ? -1 : 1;
+		this.acceleration = acceleration;
+		if (d * acceleration < maxVelocity * maxVelocity){
+			//Triangular, maxVelocity is never reached
+			peakVelocity = Math.sqrt(d * acceleration);
+			accelTime = peakVelocity / acceleration;
+			accelDistance = d / 2;
+			cruiseTime = 0;
+		} else {
+			peakVelocity = maxVelocity;
+			accelTime = maxVelocity / acceleration;
+			accelDistance = maxVelocity * accelTime / 2;
+			cruiseTime = (d - 2 * accelDistance) / maxVelocity;
+		}
+	}
+
+	/**
+	 * Returns the time needed to travel the whole distance
+	 * @return The duration in seconds
+	 */
+	public double getDuration(){
+		return 2 * accelTime + cruiseTime;
+	}
+
+	/**
+	 * Returns the highest velocity reached
+	 * @return The peak velocity, always positive
+	 */
+	public double getPeakVelocity(){
+		return peakVelocity;
+	}
+
+	/**
+	 * Returns the distance travelled at a time
+	 * @param t The time in seconds since the start
+	 * @return The distance travelled
+	 */
+	public double getPosition(double t){
+		if (t <= 0){
+			return 0;
+		}
+		double p;
+		if (t < accelTime){
+			p = acceleration * t * t / 2;
+		} else if (t < accelTime + cruiseTime){
+			p = accelDistance + peakVelocity * (t - accelTime);
+		} else if (t < getDuration()){
+			double r = getDuration() - t;
+			p = distance - acceleration * r * r / 2;
+		} else {
+			p = distance;
+		}
+		return sign * p;
+	}
+
+	/**
+	 * Returns the velocity at a time
+	 * @param t The time in seconds since the start
+	 * @return The velocity
+	 */
+	public double getVelocity(double t){
+		double v;
+		if (t <= 0 || t >= getDuration()){
+			v = 0;
+		} else if (t < accelTime){
+			v = acceleration * t;
+		} else if (t < accelTime + cruiseTime){
+			v = peakVelocity;
+		} else {
+			v = acceleration * (getDuration() - t);
+		}
+		return sign * v;
+	}
+}
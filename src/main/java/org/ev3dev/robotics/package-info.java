@@ -0,0 +1,6 @@
+/**
+ * Motion control built on top of the hardware classes, e.g. DifferentialPilot
+ * @author Anthony
+ *
+ */
+package org.ev3dev.robotics;
\ No newline at end of file
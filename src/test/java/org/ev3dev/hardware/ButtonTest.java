@@ -0,0 +1,48 @@
+package org.ev3dev.hardware;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.ev3dev.io.MemoryDeviceFileSystem;
+import org.junit.Before;
+import org.junit.Test;
+
+/***
+ * Reads the button events of a device tree in memory
+ * @author Anthony
+ *
+ */
+public class ButtonTest {
+
+	private DeviceFixture fixture;
+
+	private InputEventReader reader;
+
+	@Before
+	public void setUp() throws Exception{
+		MemoryDeviceFileSystem fs = new MemoryDeviceFileSystem();
+		fixture = DeviceFixture.createEV3(fs);
+		reader = new InputEventReader(fs, Button.SYSTEM_EVENT_PATH, InputEventReader.DEFAULT_EVENT_SIZE);
+		reader.start();
+	}
+
+	@Test
+	public void followsPressesAndReleases() throws Exception{
+		assertFalse(reader.isPressed(Button.BUTTON_ENTER));
+		fixture.pressButton(Button.BUTTON_ENTER);
+		assertEquals(Button.BUTTON_ENTER, reader.waitForAnyPress(5000));
+		assertTrue(reader.isPressed(Button.BUTTON_ENTER));
+		fixture.releaseButton(Button.BUTTON_ENTER);
+		InputEvent event;
+		do {
+			event = reader.takeEvent(5000);
+		} while (event != null && event.getValue() != InputEvent.VALUE_RELEASE);
+		assertFalse(reader.isPressed(Button.BUTTON_ENTER));
+	}
+
+	@Test
+	public void timesOutWithoutPresses() throws Exception{
+		assertEquals(-1, reader.waitForAnyPress(50));
+	}
+}
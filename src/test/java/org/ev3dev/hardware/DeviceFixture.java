@@ -0,0 +1,391 @@
+package org.ev3dev.hardware;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.ev3dev.hardware.motors.Motor;
+import org.ev3dev.hardware.ports.LegoPort;
+import org.ev3dev.hardware.sensors.Sensor;
+import org.ev3dev.io.DeviceFileSystem;
+
+/***
+ * Builds realistic ev3dev device trees in a <code>DeviceFileSystem</code>, for tests and benchmarks that run
+ *  without an EV3: <code>lego-port</code>, <code>tacho-motor</code> and <code>lego-sensor</code> nodes with the attributes
+ *  the drivers have, the LEDs, the framebuffer and the button events.<br>
+ * <br>
+ * Nodes are numbered in the order they are added, as the kernel does. A test plays the part of the driver with
+ *  <code>setAttribute()</code> (e.g. to move a motor), and of the user with <code>pressButton()</code>.
+ * <pre>
+ * MemoryDeviceFileSystem fs = new MemoryDeviceFileSystem();
+ * DeviceFixture fixture = DeviceFixture.createEV3(fs);
+ * String node = fixture.addTachoMotor("outA", "lego-ev3-l-motor");
+ * LargeMotor motor = new LargeMotor(new LegoPort(LegoPort.OUTPUT_A, fs));
+ * fixture.setAttribute(Motor.CLASS_NAME, node, "position", "360");
+ * </pre>
+ * @author Anthony
+ *
+ */
+public class DeviceFixture {
+
+	/**
+	 * The modes of the EV3 input ports
+	 */
+	public static final String[] EV3_INPUT_PORT_MODES = {"auto", "nxt-analog", "nxt-color", "nxt-i2c", "other-i2c", "ev3-analog", "ev3-uart", "other-uart", "raw"};
+
+	/**
+	 * The modes of the EV3 output ports
+	 */
+	public static final String[] EV3_OUTPUT_PORT_MODES = {"auto", "tacho-motor", "dc-motor", "led", "raw"};
+
+	/**
+	 * The commands of the tacho motor drivers
+	 */
+	public static final String[] TACHO_MOTOR_COMMANDS = {"run-forever", "run-to-abs-pos", "run-to-rel-pos", "run-timed", "run-direct", "stop", "reset"};
+
+	/**
+	 * The stop actions of the tacho motor drivers
+	 */
+	public static final String[] TACHO_MOTOR_STOP_ACTIONS = {"coast", "brake", "hold"};
+
+	/**
+	 * The names of the EV3 LEDs
+	 */
+	public static final String[] EV3_LEDS = {"ev3:left:green:ev3dev", "ev3:left:red:ev3dev", "ev3:right:green:ev3dev", "ev3:right:red:ev3dev"};
+
+	/**
+	 * The sensors known by <code>addSensor()</code>: the driver name, the units, decimals and <code>bin_data_format</code>
+	 *  of the first mode, then the modes
+	 */
+	private static final String[][] SENSORS = {
+		{"lego-ev3-touch", "", "0", "u8", "TOUCH"},
+		{"lego-ev3-color", "pct", "0", "s8", "COL-REFLECT", "COL-AMBIENT", "COL-COLOR", "REF-RAW", "RGB-RAW", "COL-CAL"},
+		{"lego-ev3-us", "cm", "1", "u16", "US-DIST-CM", "US-DIST-IN", "US-LISTEN", "US-SI-CM", "US-SI-IN", "US-DC-CM", "US-DC-IN"},
+		{"lego-ev3-gyro", "deg", "0", "s16", "GYRO-ANG", "GYRO-RATE", "GYRO-FAS", "GYRO-G&A", "GYRO-CAL", "TILT-RATE", "TILT-ANGLE"},
+		{"lego-ev3-ir", "pct", "0", "s8", "IR-PROX", "IR-SEEK", "IR-REMOTE", "IR-REM-A", "IR-S-ALT", "IR-CAL"},
+		{"lego-nxt-touch", "", "0", "u8", "TOUCH"},
+		{"lego-nxt-light", "pct", "1", "s16", "REFLECT", "AMBIENT"},
+		{"lego-nxt-sound", "pct", "1", "s16", "DB", "DBA"},
+	};
+
+	private static final int MAX_VALUES = 8;
+
+	private static final int BIN_DATA_SIZE = 32;
+
+	private final DeviceFileSystem fs;
+
+	private int ports = 0;
+
+	private int motors = 0;
+
+	private int sensors = 0;
+
+	/**
+	 * Creates a new DeviceFixture
+	 * @param fs The DeviceFileSystem to build the trees in
+	 */
+	public DeviceFixture(DeviceFileSystem fs){
+		this.fs = fs;
+	}
+
+	/**
+	 * Builds an EV3 with nothing plugged in: the 8 ports (<code>port0</code> to <code>port7</code>, the same as
+	 *  <code>LegoPort.INPUT_1</code> to <code>LegoPort.OUTPUT_D</code>), the LEDs, the framebuffer and the buttons
+	 * @param fs The DeviceFileSystem to build the EV3 in
+	 * @return The DeviceFixture, to plug devices in
+	 * @throws IOException If I/O goes wrong
+	 */
+	public static DeviceFixture createEV3(DeviceFileSystem fs) throws IOException{
+		DeviceFixture fixture = new DeviceFixture(fs);
+		for (int i = 1; i <= 4; i++){
+			fixture.addPort("in" + i);
+		}
+		for (char c = 'A'; c <= 'D'; c++){
+			fixture.addPort("out" + c);
+		}
+		fixture.addLeds();
+		fixture.addFramebuffer();
+		fixture.addButtons();
+		fs.createDirectories(DeviceFileSystem.SYSFS_CLASS_PATH + Motor.CLASS_NAME);
+		fs.createDirectories(DeviceFileSystem.SYSFS_CLASS_PATH + Sensor.CLASS_NAME);
+		return fixture;
+	}
+
+	/**
+	 * Returns the DeviceFileSystem the trees are built in
+	 * @return The DeviceFileSystem
+	 */
+	public DeviceFileSystem getFileSystem(){
+		return fs;
+	}
+
+	/**
+	 * Adds a port. Addresses starting with <code>in</code> get the EV3 input port driver, the others the output port driver.
+	 * @param address The port address (e.g. in1, outA)
+	 * @return The node name (e.g. port0)
+	 * @throws IOException If I/O goes wrong
+	 */
+	public String addPort(String address) throws IOException{
+		boolean input = address.startsWith("in");
+		String node = "port" + ports++;
+		setAttribute(LegoPort.CLASS_NAME, node, "address", address);
+		setAttribute(LegoPort.CLASS_NAME, node, "driver_name", input ? "legoev3-input-port" : "legoev3-output-port");
+		setAttribute(LegoPort.CLASS_NAME, node, "modes", join(input ? EV3_INPUT_PORT_MODES : EV3_OUTPUT_PORT_MODES));
+		setAttribute(LegoPort.CLASS_NAME, node, "mode", "auto");
+		setAttribute(LegoPort.CLASS_NAME, node, "status", input ? "no-sensor" : "no-motor");
+		setAttribute(LegoPort.CLASS_NAME, node, "set_device", "");
+		return node;
+	}
+
+	/**
+	 * Plugs a tacho motor in, stopped at position 0
+	 * @param address The port address (e.g. outA)
+	 * @param driverName The driver name (e.g. lego-ev3-l-motor, lego-ev3-m-motor)
+	 * @return The node name (e.g. motor0)
+	 * @throws IOException If I/O goes wrong
+	 */
+	public String addTachoMotor(String address, String driverName) throws IOException{
+		String node = Motor.CLASS_NAME_PREFIX + motors++;
+		int maxSpeed = "lego-ev3-m-motor".equals(driverName) ? 1560 : "lego-ev3-l-motor".equals(driverName) ? 1050 : 1020;
+		setAttribute(Motor.CLASS_NAME, node, "address", address);
+		setAttribute(Motor.CLASS_NAME, node, "driver_name", driverName);
+		setAttribute(Motor.CLASS_NAME, node, "commands", join(TACHO_MOTOR_COMMANDS));
+		setAttribute(Motor.CLASS_NAME, node, "command", "");
+		setAttribute(Motor.CLASS_NAME, node, "count_per_rot", "360");
+		setAttribute(Motor.CLASS_NAME, node, "max_speed", Integer.toString(maxSpeed));
+		setAttribute(Motor.CLASS_NAME, node, "polarity", "normal");
+		setAttribute(Motor.CLASS_NAME, node, "state", "");
+		setAttribute(Motor.CLASS_NAME, node, "stop_action", "coast");
+		setAttribute(Motor.CLASS_NAME, node, "stop_actions", join(TACHO_MOTOR_STOP_ACTIONS));
+		for (String property : new String[]{"duty_cycle", "duty_cycle_sp", "position", "position_sp", "speed", "speed_sp",
+				"ramp_up_sp", "ramp_down_sp", "time_sp"}){
+			setAttribute(Motor.CLASS_NAME, node, property, "0");
+		}
+		//The output ports report the class of the device loaded
+		setPortStatus(address, Motor.CLASS_NAME);
+		return node;
+	}
+
+	/**
+	 * Plugs a sensor in, in its first mode with all its values at 0. The modes, units and decimals of the sensors
+	 *  of the EV3 and NXT kits are known.
+	 * @param address The port address (e.g. in1)
+	 * @param driverName The driver name (e.g. lego-ev3-color)
+	 * @param modes The modes of the sensor, or none for the modes of a known driver
+	 * @return The node name (e.g. sensor0)
+	 * @throws IOException If I/O goes wrong
+	 * @throws IllegalArgumentException If no modes are specified and the driver is not known
+	 */
+	public String addSensor(String address, String driverName, String... modes) throws IOException{
+		String[] known = null;
+		for (String[] sensor : SENSORS){
+			if (sensor[0].equals(driverName)){
+				known = sensor;
+			}
+		}
+		if (modes.length == 0){
+			if (known == null){
+				throw new IllegalArgumentException("The modes of the sensor driver are not known: " + driverName);
+			}
+			modes = new String[known.length - 4];
+			System.arraycopy(known, 4, modes, 0, modes.length);
+		}
+		String node = Sensor.CLASS_NAME_PREFIX + sensors++;
+		setAttribute(Sensor.CLASS_NAME, node, "address", address);
+		setAttribute(Sensor.CLASS_NAME, node, "driver_name", driverName);
+		setAttribute(Sensor.CLASS_NAME, node, "modes", join(modes));
+		setAttribute(Sensor.CLASS_NAME, node, "mode", modes[0]);
+		setAttribute(Sensor.CLASS_NAME, node, "commands", "");
+		setAttribute(Sensor.CLASS_NAME, node, "command", "");
+		setAttribute(Sensor.CLASS_NAME, node, "num_values", "1");
+		setAttribute(Sensor.CLASS_NAME, node, "units", known == null ? "" : known[1]);
+		setAttribute(Sensor.CLASS_NAME, node, "decimals", known == null ? "0" : known[2]);
+		setAttribute(Sensor.CLASS_NAME, node, "bin_data_format", known == null ? "s32" : known[3]);
+		setAttribute(Sensor.CLASS_NAME, node, "poll_ms", "10");
+		setAttribute(Sensor.CLASS_NAME, node, "fw_version", "");
+		for (int i = 0; i < MAX_VALUES; i++){
+			setAttribute(Sensor.CLASS_NAME, node, "value" + i, "0");
+		}
+		fs.writeFile(DeviceFileSystem.getAttributePath(Sensor.CLASS_NAME, node, "bin_data"), new byte[BIN_DATA_SIZE]);
+		//The input ports report the mode they detected the sensor in
+		setPortStatus(address, driverName.startsWith("lego-nxt") ? "nxt-analog" : "lego-ev3-touch".equals(driverName) ? "ev3-analog" : "ev3-uart");
+		return node;
+	}
+
+	/**
+	 * Sets the values of a sensor, and its <code>num_values</code>. <code>bin_data</code> gets the same values,
+	 *  encoded with the current <code>bin_data_format</code>, as for the sensors whose raw and scaled values are the same.
+	 * @param node The node name (e.g. sensor0)
+	 * @param values The values, at most 8
+	 * @throws IOException If I/O goes wrong
+	 */
+	public void setSensorValues(String node, int... values) throws IOException{
+		if (values.length > MAX_VALUES){
+			throw new IllegalArgumentException("A sensor has at most " + MAX_VALUES + " values: " + values.length);
+		}
+		for (int i = 0; i < values.length; i++){
+			setAttribute(Sensor.CLASS_NAME, node, "value" + i, Integer.toString(values[i]));
+		}
+		setAttribute(Sensor.CLASS_NAME, node, "num_values", Integer.toString(values.length));
+		String format = getAttribute(Sensor.CLASS_NAME, node, "bin_data_format");
+		ByteBuffer binData = ByteBuffer.allocate(BIN_DATA_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		for (int value : values){
+			if ("u8".equals(format) || "s8".equals(format)){
+				binData.put((byte) value);
+			} else if ("u16".equals(format) || "s16".equals(format)){
+				binData.putShort((short) value);
+			} else if ("s16_be".equals(format)){
+				binData.order(ByteOrder.BIG_ENDIAN).putShort((short) value).order(ByteOrder.LITTLE_ENDIAN);
+			} else if ("s32_be".equals(format)){
+				binData.order(ByteOrder.BIG_ENDIAN).putInt(value).order(ByteOrder.LITTLE_ENDIAN);
+			} else if ("float".equals(format)){
+				binData.putFloat(value);
+			} else {
+				binData.putInt(value);
+			}
+		}
+		fs.writeFile(DeviceFileSystem.getAttributePath(Sensor.CLASS_NAME, node, "bin_data"), binData.array());
+	}
+
+	/**
+	 * Unplugs a device. Its attribute files are deleted, so Device objects still using them fail as on a real EV3.
+	 * @param className The class name (e.g. tacho-motor)
+	 * @param node The node name (e.g. motor0)
+	 * @throws IOException If I/O goes wrong
+	 */
+	public void removeDevice(String className, String node) throws IOException{
+		String address = null;
+		try {
+			address = getAttribute(className, node, "address");
+		} catch (IOException ignore){}
+		fs.delete(DeviceFileSystem.SYSFS_CLASS_PATH + className + "/" + node);
+		if (address != null){
+			setPortStatus(address, address.startsWith("in") ? "no-sensor" : "no-motor");
+		}
+	}
+
+	/**
+	 * Creates or replaces an attribute, as the driver would
+	 * @param className The class name (e.g. tacho-motor)
+	 * @param node The node name (e.g. motor0)
+	 * @param property The property name (e.g. position)
+	 * @param value The new value
+	 * @throws IOException If I/O goes wrong
+	 */
+	public void setAttribute(String className, String node, String property, String value) throws IOException{
+		fs.writeText(DeviceFileSystem.getAttributePath(className, node, property), value);
+	}
+
+	/**
+	 * Reads an attribute, e.g. what the library wrote to it
+	 * @param className The class name (e.g. tacho-motor)
+	 * @param node The node name (e.g. motor0)
+	 * @param property The property name (e.g. command)
+	 * @return The value, without line breaks
+	 * @throws IOException If I/O goes wrong
+	 */
+	public String getAttribute(String className, String node, String property) throws IOException{
+		return fs.readAttribute(DeviceFileSystem.getAttributePath(className, node, property));
+	}
+
+	/**
+	 * Adds the 4 EV3 LEDs (see <code>EV3_LEDS</code>), off
+	 * @throws IOException If I/O goes wrong
+	 */
+	public void addLeds() throws IOException{
+		for (String led : EV3_LEDS){
+			setAttribute(LED.CLASS_NAME, led, LED.SYSFS_PROPERTY_BRIGHTNESS, "0");
+			setAttribute(LED.CLASS_NAME, led, LED.SYSFS_PROPERTY_MAX_BRIGHTNESS, "255");
+			setAttribute(LED.CLASS_NAME, led, LED.SYSFS_PROPERTY_TRIGGER, "[none] mmc0 timer heartbeat default-on");
+		}
+	}
+
+	/**
+	 * Adds the 1 bit per pixel framebuffer of the EV3 (<code>LCD.FB_PATH</code>), blank, and its Sysfs attributes
+	 * @throws IOException If I/O goes wrong
+	 */
+	public void addFramebuffer() throws IOException{
+		//Each line is padded to 32 bits
+		addFramebuffer(LCD.SCREEN_WIDTH, LCD.SCREEN_HEIGHT, 1, (LCD.SCREEN_WIDTH + 31) / 32 * 4);
+	}
+
+	/**
+	 * Adds a framebuffer (<code>LCD.FB_PATH</code>), blank, and its Sysfs attributes (see <code>MappedLCD</code>)
+	 * @param width The width in pixels
+	 * @param height The height in pixels
+	 * @param bitsPerPixel The number of bits of a pixel
+	 * @param stride The number of bytes of a line
+	 * @throws IOException If I/O goes wrong
+	 */
+	public void addFramebuffer(int width, int height, int bitsPerPixel, int stride) throws IOException{
+		fs.writeFile(LCD.FB_PATH, new byte[stride * height]);
+		fs.writeText(MappedLCD.FB_SYSFS_PATH + MappedLCD.SYSFS_PROPERTY_VIRTUAL_SIZE, width + "," + height);
+		fs.writeText(MappedLCD.FB_SYSFS_PATH + MappedLCD.SYSFS_PROPERTY_BITS_PER_PIXEL, Integer.toString(bitsPerPixel));
+		fs.writeText(MappedLCD.FB_SYSFS_PATH + MappedLCD.SYSFS_PROPERTY_STRIDE, Integer.toString(stride));
+	}
+
+	/**
+	 * Adds the button event device (<code>Button.SYSTEM_EVENT_PATH</code>), with no events
+	 * @throws IOException If I/O goes wrong
+	 */
+	public void addButtons() throws IOException{
+		fs.writeFile(Button.SYSTEM_EVENT_PATH, new byte[0]);
+	}
+
+	/**
+	 * Appends a key press to the button events
+	 * @param button The button (e.g. <code>Button.BUTTON_ENTER</code>)
+	 * @throws IOException If I/O goes wrong
+	 */
+	public void pressButton(int button) throws IOException{
+		appendKeyEvent(button, InputEvent.VALUE_PRESS);
+	}
+
+	/**
+	 * Appends a key release to the button events
+	 * @param button The button (e.g. <code>Button.BUTTON_ENTER</code>)
+	 * @throws IOException If I/O goes wrong
+	 */
+	public void releaseButton(int button) throws IOException{
+		appendKeyEvent(button, InputEvent.VALUE_RELEASE);
+	}
+
+	private void appendKeyEvent(int code, int value) throws IOException{
+		int size = InputEventReader.DEFAULT_EVENT_SIZE;
+		long micros = System.nanoTime() / 1000;
+		ByteBuffer event = ByteBuffer.allocate(size).order(ByteOrder.nativeOrder());
+		if (size == InputEventReader.EVENT_SIZE_64){
+			event.putLong(micros / 1000000).putLong(micros % 1000000);
+		} else {
+			event.putInt((int) (micros / 1000000)).putInt((int) (micros % 1000000));
+		}
+		event.putShort((short) InputEventReader.EV_KEY).putShort((short) code).putInt(value);
+		fs.appendFile(Button.SYSTEM_EVENT_PATH, event.array());
+	}
+
+	private void setPortStatus(String address, String status) throws IOException{
+		String[] nodes = fs.list(DeviceFileSystem.SYSFS_CLASS_PATH + LegoPort.CLASS_NAME);
+		if (nodes == null){
+			return;
+		}
+		for (String node : nodes){
+			try {
+				if (address.equals(getAttribute(LegoPort.CLASS_NAME, node, "address"))){
+					setAttribute(LegoPort.CLASS_NAME, node, "status", status);
+					return;
+				}
+			} catch (IOException ignore){}
+		}
+	}
+
+	private static String join(String[] values){
+		StringBuilder sb = new StringBuilder();
+		for (String value : values){
+			if (sb.length() > 0){
+				sb.append(' ');
+			}
+			sb.append(value);
+		}
+		return sb.toString();
+	}
+}
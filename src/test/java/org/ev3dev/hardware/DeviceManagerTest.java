@@ -0,0 +1,71 @@
+package org.ev3dev.hardware;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.ev3dev.hardware.motors.LargeMotor;
+import org.ev3dev.hardware.motors.Motor;
+import org.ev3dev.hardware.ports.LegoPort;
+import org.ev3dev.io.MemoryDeviceFileSystem;
+import org.junit.Test;
+
+/***
+ * Reports the devices plugged in and unplugged in a device tree in memory
+ * @author Anthony
+ *
+ */
+public class DeviceManagerTest {
+
+	@Test
+	public void callsTheListenersFromItsOwnThread() throws Exception{
+		MemoryDeviceFileSystem fs = new MemoryDeviceFileSystem();
+		DeviceFixture fixture = DeviceFixture.createEV3(fs);
+		final BlockingQueue<DeviceEvent> events = new ArrayBlockingQueue<DeviceEvent>(64);
+		final BlockingQueue<String> threads = new ArrayBlockingQueue<String>(64);
+		DeviceListener listener = new DeviceListener(){
+			public void onDeviceEvent(DeviceEvent event){
+				threads.offer(Thread.currentThread().getName());
+				events.offer(event);
+			}
+		};
+		DeviceManager manager = DeviceManager.getInstance(fs);
+		manager.onAttach(listener);
+		manager.onDetach(listener);
+		try {
+			//Let the thread back off, so creating the motor refreshes the registry from this thread first
+			Thread.sleep(1000);
+			String node = fixture.addTachoMotor("outA", "lego-ev3-l-motor");
+			new LargeMotor(new LegoPort(LegoPort.OUTPUT_A, fs));
+			DeviceEvent attached = nextMotorEvent(events);
+			assertTrue(attached.isAttached());
+			assertEquals(node, attached.getClassFullName());
+
+			fixture.removeDevice(Motor.CLASS_NAME, node);
+			DeviceEvent detached = nextMotorEvent(events);
+			assertFalse(detached.isAttached());
+			assertEquals("outA", detached.getAddress());
+		} finally {
+			manager.removeListener(listener);
+		}
+		//Including the ports and LEDs indexed on the first refresh
+		for (String thread : threads){
+			assertEquals("ev3dev-device-manager", thread);
+		}
+	}
+
+	private static DeviceEvent nextMotorEvent(BlockingQueue<DeviceEvent> events) throws InterruptedException{
+		DeviceEvent event;
+		do {
+			event = events.poll(5, TimeUnit.SECONDS);
+			if (event == null){
+				throw new AssertionError("No motor event was reported");
+			}
+		} while (!Motor.CLASS_NAME.equals(event.getClassName()));
+		return event;
+	}
+}
@@ -0,0 +1,64 @@
+package org.ev3dev.hardware;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.ev3dev.hardware.ports.LegoPort;
+import org.ev3dev.hardware.sensors.TouchSensor;
+import org.ev3dev.io.MemoryDeviceFileSystem;
+import org.junit.Test;
+
+/***
+ * Dispatches the events of a TouchSensor in a device tree in memory
+ * @author Anthony
+ *
+ */
+public class InputEventLoopTest {
+
+	@Test
+	public void passesListenerFailuresToTheUncaughtExceptionHandler() throws Exception{
+		MemoryDeviceFileSystem fs = new MemoryDeviceFileSystem();
+		DeviceFixture fixture = DeviceFixture.createEV3(fs);
+		String node = fixture.addSensor("in1", TouchSensor.DRIVER_NAME_EV3);
+		fixture.setSensorValues(node, 0);
+		TouchSensor sensor = new TouchSensor(new LegoPort(LegoPort.INPUT_1, fs));
+
+		final BlockingQueue<Throwable> failures = new ArrayBlockingQueue<Throwable>(16);
+		final BlockingQueue<Boolean> events = new ArrayBlockingQueue<Boolean>(16);
+		final RuntimeException failure = new IllegalStateException("Listener failure");
+		PressListener failing = new PressListener(){
+			public void onPressChange(boolean pressed){
+				throw failure;
+			}
+		};
+		PressListener recording = new PressListener(){
+			public void onPressChange(boolean pressed){
+				events.offer(pressed);
+			}
+		};
+		Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler(){
+			public void uncaughtException(Thread t, Throwable e){
+				failures.offer(e);
+			}
+		});
+		InputEventLoop loop = InputEventLoop.getInstance();
+		try {
+			loop.onChange(sensor, failing);
+			loop.onChange(sensor, recording);
+			//Let the loop read the released state first
+			Thread.sleep(100);
+			fixture.setSensorValues(node, 1);
+			assertEquals(Boolean.TRUE, events.poll(5, TimeUnit.SECONDS));
+			assertTrue(failures.poll(5, TimeUnit.SECONDS) == failure);
+		} finally {
+			loop.removeListener(sensor, failing);
+			loop.removeListener(sensor, recording);
+			Thread.setDefaultUncaughtExceptionHandler(handler);
+		}
+	}
+}
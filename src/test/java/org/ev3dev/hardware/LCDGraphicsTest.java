@@ -0,0 +1,324 @@
+package org.ev3dev.hardware;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.ev3dev.io.MemoryDeviceFileSystem;
+import org.junit.Before;
+import org.junit.Test;
+
+/***
+ * Checks the packed 1 bit per pixel raster of LCDGraphics against a reference model of one boolean per pixel,
+ *  and its primitives against Java2D and against each other
+ * @author Anthony
+ *
+ */
+public class LCDGraphicsTest {
+
+	private static final int W = LCD.SCREEN_WIDTH;
+
+	private static final int H = LCD.SCREEN_HEIGHT;
+
+	private LCD lcd;
+
+	@Before
+	public void setUp() throws Exception{
+		MemoryDeviceFileSystem fs = new MemoryDeviceFileSystem();
+		DeviceFixture.createEV3(fs);
+		lcd = new LCD(fs);
+	}
+
+	@Test
+	public void matchesAPerPixelModelOverRandomOperations(){
+		VirtualLCD lcd = new VirtualLCD();
+		LCDGraphics g = new LCDGraphics(lcd);
+		boolean[][] model = new boolean[H][W];
+		Random random = new Random(1);
+		for (int i = 0; i < 20000; i++){
+			int op = random.nextInt(5);
+			//Rectangles partly or entirely off the screen, and empty ones
+			int x = random.nextInt(220) - 20;
+			int y = random.nextInt(160) - 16;
+			int w = random.nextInt(200) - 5;
+			int h = random.nextInt(140) - 5;
+			boolean black = random.nextBoolean();
+			if (black){
+				g.setBlackColor();
+			} else {
+				g.setWhiteColor();
+			}
+			switch (op){
+			case 0:
+				g.fillRect(x, y, w, h);
+				fill(model, x, y, w, h, black);
+				break;
+			case 1:
+				g.clearRect(x, y, w, h);
+				fill(model, x, y, w, h, false);
+				break;
+			case 2:
+				g.plot(x, y);
+				fill(model, x, y, 1, 1, black);
+				break;
+			case 3: {
+				int dx = random.nextInt(100) - 50;
+				int dy = random.nextInt(60) - 30;
+				//Whole bytes are copied with System.arraycopy(), other distances are shifted
+				if (random.nextInt(3) == 0){
+					dx &= ~7;
+				}
+				g.copyArea(x, y, w, h, dx, dy);
+				copy(model, x, y, w, h, dx, dy);
+				break;
+			}
+			default: {
+				int dx = random.nextBoolean() ? 0 : random.nextInt(40) - 20;
+				int dy = random.nextInt(40) - 20;
+				g.scroll(dx, dy);
+				copy(model, 0, 0, W, H, dx, dy);
+				fill(model, 0, dy > 0 ? 0 : H + dy, W, Math.abs(dy), false);
+				fill(model, dx > 0 ? 0 : W + dx, 0, Math.abs(dx), H, false);
+			}
+			}
+			if (i % 97 == 0 || i == 19999){
+				for (int py = 0; py < H; py++){
+					for (int px = 0; px < W; px++){
+						assertEquals("Operation " + i + " at " + px + "," + py, model[py][px], g.getPixel(px, py));
+					}
+				}
+				//The VirtualLCD decodes the flushed spans
+				g.flushIfDirty();
+				for (int py = 0; py < H; py++){
+					for (int px = 0; px < W; px++){
+						assertEquals("Image of operation " + i + " at " + px + "," + py, model[py][px], (lcd.getImage().getRGB(px, py) & 0xffffff) == 0);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void drawsLinesOutlinesAndRectanglesAsJava2D(){
+		Random random = new Random(7);
+		for (int i = 0; i < 900; i++){
+			final int x = random.nextInt(200) - 10;
+			final int y = random.nextInt(150) - 10;
+			final int x2 = random.nextInt(200) - 10;
+			final int y2 = random.nextInt(150) - 10;
+			final int w = random.nextInt(120);
+			final int h = random.nextInt(100);
+			final int n = 3 + random.nextInt(6);
+			final int[] xs = randomPoints(random, n, W);
+			final int[] ys = randomPoints(random, n, H);
+			Primitive primitive;
+			switch (i % 3){
+			case 0:
+				primitive = g -> g.drawLine(x, y, x2, y2);
+				break;
+			case 1:
+				primitive = g -> g.drawPolygon(xs, ys, n);
+				break;
+			default:
+				primitive = g -> g.fillRect(x, y, w, h);
+			}
+			assertEquals("Primitive " + i, 0, diff(draw(primitive), java2D(primitive, false)));
+		}
+	}
+
+	@Test
+	public void fillsThePixelsWhoseCentersAreInside(){
+		Random random = new Random(7);
+		long drawn = 0;
+		long different = 0;
+		for (int i = 0; i < 1200; i++){
+			final int x = random.nextInt(200) - 10;
+			final int y = random.nextInt(150) - 10;
+			final int w = random.nextInt(120);
+			final int h = random.nextInt(100);
+			final int start = random.nextInt(720) - 360;
+			final int extent = random.nextInt(720) - 360;
+			final int arcWidth = random.nextInt(60);
+			final int arcHeight = random.nextInt(60);
+			final int n = 3 + random.nextInt(6);
+			final int[] xs = randomPoints(random, n, W);
+			final int[] ys = randomPoints(random, n, H);
+			Primitive primitive;
+			switch (i % 4){
+			case 0:
+				primitive = g -> g.fillPolygon(xs, ys, n);
+				break;
+			case 1:
+				primitive = g -> g.fillOval(x, y, w, h);
+				break;
+			case 2:
+				primitive = g -> g.fillArc(x, y, w, h, start, extent);
+				break;
+			default:
+				primitive = g -> g.fillRoundRect(x, y, w, h, arcWidth, arcHeight);
+			}
+			//Java2D without stroke normalization fills the pixels whose centers are inside, the edges may round differently
+			boolean[][] reference = java2D(primitive, true);
+			drawn += count(reference);
+			different += diff(draw(primitive), reference);
+		}
+		assertTrue(different + " of " + drawn + " pixels differ", different * 100 < drawn);
+	}
+
+	@Test
+	public void keepsTheInvariantsOfThePrimitives(){
+		Random random = new Random(7);
+		for (int i = 0; i < 300; i++){
+			final int x = random.nextInt(150) - 10;
+			final int y = random.nextInt(110) - 10;
+			final int w = 1 + random.nextInt(80);
+			final int h = 1 + random.nextInt(80);
+			final int start = random.nextInt(360);
+			boolean[][] oval = draw(g -> g.fillOval(x, y, w, h));
+			assertEquals(0, diff(oval, draw(g -> g.fillArc(x, y, w, h, start, 360))));
+			assertEquals(0, diff(oval, draw(g -> {
+				for (int q = 0; q < 4; q++){
+					g.fillArc(x, y, w, h, start + q * 90, 90);
+				}
+			})));
+			assertEquals(0, diff(oval, draw(g -> g.fillRoundRect(x, y, w, h, w, h))));
+			assertEquals(0, diff(draw(g -> g.drawOval(x, y, w, h)), draw(g -> g.drawArc(x, y, w, h, 0, 360))));
+			assertEquals(0, diff(draw(g -> g.fillRect(x, y, w, h)), draw(g -> g.fillPolygon(new int[]{x, x + w, x + w, x}, new int[]{y, y, y + h, y + h}, 4))));
+			assertEquals(0, diff(draw(g -> g.drawRect(x, y, w, h)), draw(g -> g.drawRoundRect(x, y, w, h, 0, 0))));
+
+			//Clipping is the same as masking the unclipped result
+			final int cx = random.nextInt(W);
+			final int cy = random.nextInt(H);
+			final int cw = random.nextInt(W);
+			final int ch = random.nextInt(H);
+			final int[] xs = randomPoints(random, 5, W);
+			final int[] ys = randomPoints(random, 5, H);
+			Primitive primitive = g -> {
+				g.drawOval(x, y, w, h);
+				g.fillPolygon(xs, ys, 5);
+				g.drawLine(x, y, xs[0], ys[0]);
+			};
+			boolean[][] unclipped = draw(primitive);
+			boolean[][] clipped = draw(g -> {
+				g.setClip(cx, cy, cw, ch);
+				primitive.draw(g);
+			});
+			for (int py = 0; py < H; py++){
+				for (int px = 0; px < W; px++){
+					boolean inside = px >= cx && px < cx + cw && py >= cy && py < cy + ch;
+					assertEquals(inside && unclipped[py][px], clipped[py][px]);
+				}
+			}
+
+			//A line has one pixel per step of its longest side, both ends included
+			final int x1 = random.nextInt(W);
+			final int y1 = random.nextInt(H);
+			final int x2 = random.nextInt(W);
+			final int y2 = random.nextInt(H);
+			boolean[][] line = draw(g -> g.drawLine(x1, y1, x2, y2));
+			assertTrue(line[y1][x1]);
+			assertTrue(line[y2][x2]);
+			assertEquals(Math.max(Math.abs(x2 - x1), Math.abs(y2 - y1)) + 1, count(line));
+		}
+	}
+
+	/**
+	 * Draws with LCDGraphics or Java2D
+	 */
+	private interface Primitive {
+
+		void draw(Graphics g);
+	}
+
+	private boolean[][] draw(Primitive primitive){
+		LCDGraphics g = new LCDGraphics(lcd);
+		primitive.draw(g);
+		boolean[][] pixels = new boolean[H][W];
+		for (int y = 0; y < H; y++){
+			for (int x = 0; x < W; x++){
+				pixels[y][x] = g.getPixel(x, y);
+			}
+		}
+		return pixels;
+	}
+
+	private static boolean[][] java2D(Primitive primitive, boolean pure){
+		BufferedImage image = new BufferedImage(W, H, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		if (pure){
+			g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+		}
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, W, H);
+		g.setColor(Color.BLACK);
+		primitive.draw(g);
+		g.dispose();
+		boolean[][] pixels = new boolean[H][W];
+		for (int y = 0; y < H; y++){
+			for (int x = 0; x < W; x++){
+				pixels[y][x] = (image.getRGB(x, y) & 0xffffff) == 0;
+			}
+		}
+		return pixels;
+	}
+
+	private static int[] randomPoints(Random random, int n, int size){
+		int[] points = new int[n];
+		for (int i = 0; i < n; i++){
+			points[i] = random.nextInt(size + size / 4) - size / 8;
+		}
+		return points;
+	}
+
+	private static int diff(boolean[][] a, boolean[][] b){
+		int different = 0;
+		for (int y = 0; y < H; y++){
+			for (int x = 0; x < W; x++){
+				if (a[y][x] != b[y][x]){
+					different++;
+				}
+			}
+		}
+		return different;
+	}
+
+	private static int count(boolean[][] pixels){
+		int black = 0;
+		for (boolean[] line : pixels){
+			for (boolean pixel : line){
+				if (pixel){
+					black++;
+				}
+			}
+		}
+		return black;
+	}
+
+	private static void fill(boolean[][] model, int x, int y, int w, int h, boolean black){
+		for (int py = Math.max(y, 0); py < Math.min(y + h, H); py++){
+			for (int px = Math.max(x, 0); px < Math.min(x + w, W); px++){
+				model[py][px] = black;
+			}
+		}
+	}
+
+	private static void copy(boolean[][] model, int x, int y, int w, int h, int dx, int dy){
+		boolean[][] source = new boolean[H][];
+		for (int py = 0; py < H; py++){
+			source[py] = model[py].clone();
+		}
+		for (int py = Math.max(y, 0); py < Math.min(y + h, H); py++){
+			for (int px = Math.max(x, 0); px < Math.min(x + w, W); px++){
+				if (px + dx >= 0 && px + dx < W && py + dy >= 0 && py + dy < H){
+					model[py + dy][px + dx] = source[py][px];
+				}
+			}
+		}
+	}
+}
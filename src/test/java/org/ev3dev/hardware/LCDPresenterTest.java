@@ -0,0 +1,110 @@
+package org.ev3dev.hardware;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.ev3dev.exception.EV3LibraryException;
+import org.ev3dev.io.MemoryDeviceFileSystem;
+import org.junit.Before;
+import org.junit.Test;
+
+/***
+ * Presents LCDGraphics frames onto slow and failing LCDs in a device tree in memory
+ * @author Anthony
+ *
+ */
+public class LCDPresenterTest {
+
+	private MemoryDeviceFileSystem fs;
+
+	@Before
+	public void setUp() throws Exception{
+		fs = new MemoryDeviceFileSystem();
+		DeviceFixture.createEV3(fs);
+	}
+
+	@Test
+	public void flushesWithoutWaitingForTheLCD() throws Exception{
+		final MappedLCD lcd = new MappedLCD(fs);
+		LCD slow = new LCD(fs){
+			@Override
+			public int drawSpans(byte[] data, int lineLength, int[] starts, int[] ends, int top, int bottom){
+				try {
+					Thread.sleep(30);
+				} catch (InterruptedException e){
+					Thread.currentThread().interrupt();
+				}
+				return lcd.drawSpans(data, lineLength, starts, ends, top, bottom);
+			}
+		};
+		LCDPresenter presenter = new LCDPresenter(slow, 20);
+		LCDGraphics g = new LCDGraphics(presenter);
+		long[] times = new long[200];
+		long start;
+		for (int i = 0; i < times.length; i++){
+			g.fillRect(i % 170, 10, 8, 8);
+			start = System.nanoTime();
+			g.flush();
+			times[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(times);
+		//A flush copies the frame and returns, the LCD takes 30 ms per frame
+		long p99 = times[times.length * 99 / 100];
+		assertTrue("p99 flush time " + p99 + " ns", p99 < 5000000);
+		assertTrue(presenter.awaitIdle(5000));
+		assertTrue(presenter.getDroppedFrames() > 0);
+
+		byte[] expected = new byte[LCDGraphics.LINE_LEN * LCD.SCREEN_HEIGHT];
+		for (int i = 0; i < times.length; i++){
+			for (int y = 10; y < 18; y++){
+				for (int x = i % 170; x < i % 170 + 8; x++){
+					expected[y * LCDGraphics.LINE_LEN + x / 8] |= (byte) (1 << (x & 7));
+				}
+			}
+		}
+		ByteBuffer drawn = ByteBuffer.allocate(expected.length);
+		try (FileChannel channel = fs.open(LCD.FB_PATH, false)){
+			channel.read(drawn, 0);
+		}
+		assertArrayEquals(expected, drawn.array());
+		presenter.close();
+	}
+
+	@Test
+	public void throwsDrawingFailuresOnTheNextFlushAndOnClose() throws Exception{
+		final EV3LibraryException failure = new EV3LibraryException("The LCD is gone");
+		LCD broken = new LCD(fs){
+			@Override
+			public int drawSpans(byte[] data, int lineLength, int[] starts, int[] ends, int top, int bottom){
+				throw failure;
+			}
+		};
+		LCDPresenter presenter = new LCDPresenter(broken, 100);
+		LCDGraphics g = new LCDGraphics(presenter);
+		g.fillRect(0, 0, 10, 10);
+		g.flush();
+		assertTrue(presenter.awaitIdle(5000));
+		g.fillRect(20, 0, 10, 10);
+		try {
+			g.flush();
+			fail("The failure of the previous frame was lost");
+		} catch (EV3LibraryException e){
+			assertSame(failure, e.getCause());
+		}
+		//The failure is only thrown once
+		g.flush();
+		assertTrue(presenter.awaitIdle(5000));
+		try {
+			presenter.close();
+			fail("The failure of the last frame was lost");
+		} catch (EV3LibraryException e){
+			assertSame(failure, e.getCause());
+		}
+	}
+}
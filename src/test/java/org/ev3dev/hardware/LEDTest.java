@@ -0,0 +1,43 @@
+package org.ev3dev.hardware;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.ev3dev.io.MemoryDeviceFileSystem;
+import org.junit.Before;
+import org.junit.Test;
+
+/***
+ * Drives an LED against a device tree in memory
+ * @author Anthony
+ *
+ */
+public class LEDTest {
+
+	private DeviceFixture fixture;
+
+	private LED led;
+
+	@Before
+	public void setUp() throws Exception{
+		MemoryDeviceFileSystem fs = new MemoryDeviceFileSystem();
+		fixture = DeviceFixture.createEV3(fs);
+		led = new LED(DeviceFixture.EV3_LEDS[0], fs);
+	}
+
+	@Test
+	public void setsTheBrightness() throws Exception{
+		assertEquals(255, led.getMaxBrightness());
+		led.setBrightness(128);
+		assertEquals("128", fixture.getAttribute(LED.CLASS_NAME, DeviceFixture.EV3_LEDS[0], LED.SYSFS_PROPERTY_BRIGHTNESS));
+		assertEquals(128, led.getBrightness());
+	}
+
+	@Test
+	public void setsTheTrigger() throws Exception{
+		assertArrayEquals(new String[]{"[none]", "mmc0", "timer", "heartbeat", "default-on"}, led.getTriggers());
+		assertEquals("none", led.getActiveTrigger());
+		led.setTrigger("timer");
+		assertEquals("timer", fixture.getAttribute(LED.CLASS_NAME, DeviceFixture.EV3_LEDS[0], LED.SYSFS_PROPERTY_TRIGGER));
+	}
+}
@@ -0,0 +1,56 @@
+package org.ev3dev.hardware;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.ev3dev.io.TempDeviceFileSystem;
+import org.junit.Assume;
+import org.junit.Test;
+
+/***
+ * Draws into framebuffers that are a regular file and a device node
+ * @author Anthony
+ *
+ */
+public class MappedLCDTest {
+
+	@Test
+	public void mapsARegularFile() throws Exception{
+		try (TempDeviceFileSystem fs = new TempDeviceFileSystem()){
+			new DeviceFixture(fs).addFramebuffer();
+			MappedLCD lcd = new MappedLCD(fs);
+			assertTrue(lcd.isMapped());
+			byte[] frame = new byte[lcd.getFrameSize()];
+			frame[0] = 1;
+			frame[frame.length - 1] = (byte) 0x80;
+			lcd.draw(frame);
+			assertArrayEquals(frame, Files.readAllBytes(fs.toRealPath(LCD.FB_PATH)));
+		}
+	}
+
+	@Test
+	public void writesADeviceNodeWithoutMappingIt() throws Exception{
+		Path zero = Paths.get("/dev/zero");
+		Assume.assumeTrue(Files.isWritable(zero));
+		try (TempDeviceFileSystem fs = new TempDeviceFileSystem()){
+			//A character device of size 0, as the real /dev/fb0
+			Files.createSymbolicLink(fs.toRealPath(LCD.FB_PATH), zero);
+			assertTrue(fs.isDevice(LCD.FB_PATH));
+			MappedLCD lcd = new MappedLCD(fs);
+			assertFalse(lcd.isMapped());
+			byte[] frame = new byte[lcd.getFrameSize()];
+			lcd.draw(frame);
+			int[] starts = new int[LCD.SCREEN_HEIGHT];
+			int[] ends = new int[LCD.SCREEN_HEIGHT];
+			ends[3] = 5;
+			ends[7] = 2;
+			assertEquals(7, lcd.drawSpans(frame, lcd.getStride(), starts, ends, 0, LCD.SCREEN_HEIGHT));
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package org.ev3dev.hardware;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ev3dev.hardware.motors.LargeMotor;
+import org.ev3dev.hardware.motors.Motor;
+import org.ev3dev.hardware.ports.LegoPort;
+import org.ev3dev.io.MemoryDeviceFileSystem;
+import org.junit.Test;
+
+/***
+ * Samples a motor of a device tree in memory
+ * @author Anthony
+ *
+ */
+public class SamplingEngineTest {
+
+	@Test
+	public void restartsAfterStop() throws Exception{
+		MemoryDeviceFileSystem fs = new MemoryDeviceFileSystem();
+		DeviceFixture fixture = DeviceFixture.createEV3(fs);
+		String node = fixture.addTachoMotor("outA", "lego-ev3-l-motor");
+		SamplingEngine engine = new SamplingEngine(1, TimeUnit.MILLISECONDS);
+		int motor = engine.addMotor(new LargeMotor(new LegoPort(LegoPort.OUTPUT_A, fs)));
+		for (int position = 1; position <= 3; position++){
+			fixture.setAttribute(Motor.CLASS_NAME, node, "position", Integer.toString(position));
+			engine.start();
+			assertTrue(engine.isRunning());
+			awaitPosition(engine, motor, position);
+			engine.stop();
+			assertFalse(engine.isRunning());
+		}
+	}
+
+	private static void awaitPosition(SamplingEngine engine, int motor, int position) throws InterruptedException{
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		SampleSnapshot snapshot;
+		while ((snapshot = engine.getSnapshot()) == null || snapshot.getMotorPosition(motor) != position){
+			if (System.nanoTime() - deadline > 0){
+				break;
+			}
+			Thread.sleep(1);
+		}
+		assertEquals(position, engine.getSnapshot().getMotorPosition(motor));
+	}
+}
@@ -0,0 +1,73 @@
+package org.ev3dev.hardware.motors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.ev3dev.exception.EV3LibraryException;
+import org.ev3dev.hardware.DeviceFixture;
+import org.ev3dev.hardware.ports.LegoPort;
+import org.ev3dev.io.MemoryDeviceFileSystem;
+import org.junit.Before;
+import org.junit.Test;
+
+/***
+ * Starts a group of motors of a device tree in memory
+ * @author Anthony
+ *
+ */
+public class MotorGroupTest {
+
+	private MemoryDeviceFileSystem fs;
+
+	private DeviceFixture fixture;
+
+	private String left;
+
+	private String right;
+
+	@Before
+	public void setUp() throws Exception{
+		fs = new MemoryDeviceFileSystem();
+		fixture = DeviceFixture.createEV3(fs);
+		left = fixture.addTachoMotor("outA", "lego-ev3-l-motor");
+		right = fixture.addTachoMotor("outB", "lego-ev3-l-motor");
+	}
+
+	@Test
+	public void startsEveryMotor() throws Exception{
+		for (boolean parallel : new boolean[]{false, true}){
+			MotorGroup group = new MotorGroup(new LargeMotor(new LegoPort(LegoPort.OUTPUT_A, fs)), new LargeMotor(new LegoPort(LegoPort.OUTPUT_B, fs)));
+			group.setParallel(parallel);
+			group.runForever();
+			assertEquals("run-forever", fixture.getAttribute(Motor.CLASS_NAME, left, "command"));
+			assertEquals("run-forever", fixture.getAttribute(Motor.CLASS_NAME, right, "command"));
+			group.stop();
+			assertEquals("stop", fixture.getAttribute(Motor.CLASS_NAME, right, "command"));
+			group.close();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void rethrowsTheFailureOfAWorker() throws Exception{
+		final IllegalStateException failure = new IllegalStateException("Driver gone mad");
+		LargeMotor broken = new LargeMotor(new LegoPort(LegoPort.OUTPUT_B, fs)){
+			@Override
+			public void sendCommand(String command) throws EV3LibraryException{
+				throw failure;
+			}
+		};
+		MotorGroup group = new MotorGroup(new LargeMotor(new LegoPort(LegoPort.OUTPUT_A, fs)), broken);
+		group.setParallel(true);
+		for (int i = 0; i < 2; i++){
+			try {
+				group.runForever();
+				fail("The failure of a worker was lost");
+			} catch (IllegalStateException e){
+				assertSame(failure, e);
+			}
+		}
+		assertEquals("run-forever", fixture.getAttribute(Motor.CLASS_NAME, left, "command"));
+		group.close();
+	}
+}
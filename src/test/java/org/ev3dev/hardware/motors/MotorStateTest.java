@@ -0,0 +1,132 @@
+package org.ev3dev.hardware.motors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ev3dev.hardware.DeviceFixture;
+import org.ev3dev.hardware.ports.LegoPort;
+import org.ev3dev.io.MemoryDeviceFileSystem;
+import org.ev3dev.io.TempDeviceFileSystem;
+import org.junit.Before;
+import org.junit.Test;
+
+/***
+ * Waits for the state of a motor of a device tree in memory
+ * @author Anthony
+ *
+ */
+public class MotorStateTest {
+
+	private static final int WAITERS = 200;
+
+	private static final String WATCHER_THREAD_NAME = "ev3dev-motor-state-watcher";
+
+	private DeviceFixture fixture;
+
+	private String node;
+
+	private LargeMotor motor;
+
+	@Before
+	public void setUp() throws Exception{
+		MemoryDeviceFileSystem fs = new MemoryDeviceFileSystem();
+		fixture = DeviceFixture.createEV3(fs);
+		node = fixture.addTachoMotor("outA", "lego-ev3-l-motor");
+		motor = new LargeMotor(new LegoPort(LegoPort.OUTPUT_A, fs));
+	}
+
+	@Test
+	public void readsTheStateFlags() throws Exception{
+		fixture.setAttribute(Motor.CLASS_NAME, node, Motor.SYSFS_PROPERTY_STATE, "running stalled");
+		assertEquals(EnumSet.of(MotorState.RUNNING, MotorState.STALLED), motor.getStateSet());
+		assertTrue(motor.awaitState(EnumSet.of(MotorState.STALLED), 0));
+		assertFalse(motor.awaitIdle(10));
+	}
+
+	@Test(timeout = 30000)
+	public void wakesManyWaitersWithOneThread() throws Exception{
+		fixture.setAttribute(Motor.CLASS_NAME, node, Motor.SYSFS_PROPERTY_STATE, "running");
+		final CountDownLatch started = new CountDownLatch(WAITERS);
+		final CountDownLatch idle = new CountDownLatch(WAITERS);
+		final AtomicInteger timedOut = new AtomicInteger();
+		for (int i = 0; i < WAITERS; i++){
+			Thread waiter = new Thread(new Runnable(){
+				public void run(){
+					started.countDown();
+					try {
+						if (!motor.awaitIdle(20000)){
+							timedOut.incrementAndGet();
+						}
+					} catch (InterruptedException e){
+						timedOut.incrementAndGet();
+					}
+					idle.countDown();
+				}
+			}, "waiter-" + i);
+			waiter.setDaemon(true);
+			waiter.start();
+		}
+		started.await();
+		//Let the waiters block, then check they share one watcher thread
+		Thread.sleep(200);
+		assertEquals(WAITERS, idle.getCount());
+		assertEquals(1, countThreads(WATCHER_THREAD_NAME));
+
+		long stopped = System.nanoTime();
+		fixture.setAttribute(Motor.CLASS_NAME, node, Motor.SYSFS_PROPERTY_STATE, "");
+		assertTrue(idle.await(10, TimeUnit.SECONDS));
+		assertEquals(0, timedOut.get());
+		long latency = System.nanoTime() - stopped;
+		assertTrue("Woken after " + latency + " ns", latency < TimeUnit.SECONDS.toNanos(1));
+	}
+
+	@Test(timeout = 30000)
+	public void wakesUpForANewWaiterWhileSleepingOnNotifications() throws Exception{
+		try (TempDeviceFileSystem fs = new TempDeviceFileSystem()){
+			DeviceFixture disk = DeviceFixture.createEV3(fs);
+			String first = disk.addTachoMotor("outA", "lego-ev3-l-motor");
+			String second = disk.addTachoMotor("outB", "lego-ev3-l-motor");
+			disk.setAttribute(Motor.CLASS_NAME, first, Motor.SYSFS_PROPERTY_STATE, "running");
+			disk.setAttribute(Motor.CLASS_NAME, second, Motor.SYSFS_PROPERTY_STATE, "running");
+			LargeMotor a = new LargeMotor(new LegoPort(LegoPort.OUTPUT_A, fs));
+			LargeMotor b = new LargeMotor(new LegoPort(LegoPort.OUTPUT_B, fs));
+			MotorStateWatcher watcher = MotorStateWatcher.getInstance();
+			CompletableFuture<Boolean> idleA = watcher.awaitAsync(a, Motor.STATE_RUNNING, 0, 0);
+			//A notification of the kernel lets the thread sleep up to MAX_NOTIFIED_POLL_INTERVAL on the WatchService
+			Thread.sleep(100);
+			disk.setAttribute(Motor.CLASS_NAME, first, Motor.SYSFS_PROPERTY_STATE, "running");
+
+			//Add the new waiters at different points of the sleep, each one resets the backoff
+			long late = 0;
+			long start;
+			for (int i = 0; i < 3; i++){
+				Thread.sleep(700 + 85 * i);
+				start = System.nanoTime();
+				CompletableFuture<Boolean> idleB = watcher.awaitAsync(b, Motor.STATE_RUNNING, 0, 20);
+				assertFalse(idleB.get(5, TimeUnit.SECONDS));
+				late = Math.max(late, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) - 20);
+			}
+			assertTrue("Timed out " + late + " ms late", late < MotorStateWatcher.MAX_NOTIFIED_POLL_INTERVAL / 4);
+
+			disk.setAttribute(Motor.CLASS_NAME, first, Motor.SYSFS_PROPERTY_STATE, "");
+			assertTrue(idleA.get(5, TimeUnit.SECONDS));
+		}
+	}
+
+	private static int countThreads(String name){
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()){
+			if (name.equals(thread.getName())){
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,85 @@
+package org.ev3dev.hardware.motors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import org.ev3dev.exception.EV3LibraryException;
+import org.ev3dev.hardware.DeviceFixture;
+import org.ev3dev.hardware.DeviceManager;
+import org.ev3dev.hardware.ports.LegoPort;
+import org.ev3dev.io.MemoryDeviceFileSystem;
+import org.junit.Before;
+import org.junit.Test;
+
+/***
+ * Drives a LargeMotor against a device tree in memory
+ * @author Anthony
+ *
+ */
+public class MotorTest {
+
+	private MemoryDeviceFileSystem fs;
+
+	private DeviceFixture fixture;
+
+	private String node;
+
+	private LargeMotor motor;
+
+	@Before
+	public void setUp() throws Exception{
+		fs = new MemoryDeviceFileSystem();
+		fixture = DeviceFixture.createEV3(fs);
+		node = fixture.addTachoMotor("outA", "lego-ev3-l-motor");
+		motor = new LargeMotor(new LegoPort(LegoPort.OUTPUT_A, fs));
+	}
+
+	@Test
+	public void writesSetpointsAndCommands() throws Exception{
+		motor.setSpeed_SP(500);
+		motor.runForever();
+		assertEquals("500", fixture.getAttribute(Motor.CLASS_NAME, node, "speed_sp"));
+		assertEquals("run-forever", fixture.getAttribute(Motor.CLASS_NAME, node, "command"));
+		motor.stop();
+		assertEquals("stop", fixture.getAttribute(Motor.CLASS_NAME, node, "command"));
+	}
+
+	@Test
+	public void readsWhatTheDriverReports() throws Exception{
+		fixture.setAttribute(Motor.CLASS_NAME, node, "position", "1234");
+		assertEquals(1234, motor.getPosition());
+		fixture.setAttribute(Motor.CLASS_NAME, node, "position", "-56");
+		assertEquals(-56, motor.getPosition());
+		assertEquals(360, motor.getCountPerRot());
+		assertEquals("lego-ev3-l-motor", motor.getDriverName());
+	}
+
+	@Test
+	public void forgetsTheMetadataOfAFailedNode() throws Exception{
+		assertEquals(1050, motor.getMaxSpeed());
+		fixture.removeDevice(Motor.CLASS_NAME, node);
+		try {
+			motor.getPosition();
+			fail("An unplugged motor was read");
+		} catch (EV3LibraryException expected){
+		}
+		//The same node comes back with another motor, without the DeviceManager running
+		fixture.setAttribute(Motor.CLASS_NAME, node, "max_speed", "1560");
+		assertEquals(1560, motor.getMaxSpeed());
+	}
+
+	@Test
+	public void failsOnceUnpluggedAndIsFoundAgain() throws Exception{
+		motor.getPosition();
+		fixture.removeDevice(Motor.CLASS_NAME, node);
+		try {
+			motor.getPosition();
+			fail("An unplugged motor was read");
+		} catch (EV3LibraryException expected){
+		}
+		fixture.addTachoMotor("outA", "lego-ev3-l-motor");
+		assertNotNull(DeviceManager.getInstance(fs).awaitDevice(Motor.CLASS_NAME, "outA", 5000));
+		assertEquals(0, new LargeMotor(new LegoPort(LegoPort.OUTPUT_A, fs)).getPosition());
+	}
+}
@@ -0,0 +1,152 @@
+package org.ev3dev.hardware.sensors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.ev3dev.hardware.DeviceFixture;
+import org.ev3dev.hardware.ports.LegoPort;
+import org.ev3dev.io.MemoryDeviceFileSystem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/***
+ * Publishes the values of a ColorSensor from the shared SamplingEngine
+ * @author Anthony
+ *
+ */
+public class SamplePublisherTest {
+
+	private static final Executor DIRECT = new Executor(){
+		public void execute(Runnable command){
+			command.run();
+		}
+	};
+
+	private DeviceFixture fixture;
+
+	private ColorSensor sensor;
+
+	private SamplePublisher reflected;
+
+	private SamplePublisher ambient;
+
+	@Before
+	public void setUp() throws Exception{
+		MemoryDeviceFileSystem fs = new MemoryDeviceFileSystem();
+		fixture = DeviceFixture.createEV3(fs);
+		String node = fixture.addSensor("in1", "lego-ev3-color");
+		fixture.setSensorValues(node, 42);
+		sensor = new ColorSensor(new LegoPort(LegoPort.INPUT_1, fs));
+		reflected = sensor.values(ColorSensor.SYSFS_REFLECTED_LIGHT_INTENSITY_MODE, 10, TimeUnit.MILLISECONDS);
+		ambient = sensor.values(ColorSensor.SYSFS_AMBIENT_LIGHT_INTENSITY_MODE, 10, TimeUnit.MILLISECONDS);
+	}
+
+	@After
+	public void tearDown(){
+		reflected.close();
+		ambient.close();
+	}
+
+	@Test
+	public void readsTheSensorOncePerTickAndMode() throws Exception{
+		Collector first = new Collector();
+		Collector second = new Collector();
+		Collector other = new Collector();
+		reflected.subscribe(first, 64, OverflowPolicy.DROP_OLDEST, DIRECT);
+		reflected.subscribe(second, 64, OverflowPolicy.DROP_OLDEST, DIRECT);
+		ambient.subscribe(other, 64, OverflowPolicy.DROP_OLDEST, DIRECT);
+		assertSame(reflected, sensor.values(ColorSensor.SYSFS_REFLECTED_LIGHT_INTENSITY_MODE, 10, TimeUnit.MILLISECONDS));
+
+		//The first subscriber may have been offered samples before the second subscribed
+		Sample sample = first.next();
+		Sample shared = second.next();
+		while (sample.getSequence() < shared.getSequence()){
+			sample = first.next();
+		}
+		for (int i = 0; i < 5; i++){
+			//Both subscribers of a publisher are offered the Sample of a single read
+			assertSame(sample, shared);
+			sample = first.next();
+			shared = second.next();
+			assertEquals(ColorSensor.SYSFS_REFLECTED_LIGHT_INTENSITY_MODE, sample.getMode());
+			assertEquals(ColorSensor.SYSFS_AMBIENT_LIGHT_INTENSITY_MODE, other.next().getMode());
+		}
+		//The samples are published from the tick of the sampling thread, not from a thread of the publisher
+		assertEquals("ev3dev-sampling-engine", first.thread);
+		assertEquals("ev3dev-sampling-engine", other.thread);
+		//Both modes are read on the same tick
+		reflected.close();
+		ambient.close();
+		assertTrue(Math.abs(reflected.getReadCount() - ambient.getReadCount()) <= 1);
+	}
+
+	@Test
+	public void stopsReadingWithoutSubscribers() throws Exception{
+		Collector collector = new Collector();
+		reflected.subscribe(collector, 64, OverflowPolicy.DROP_OLDEST, DIRECT);
+		collector.next();
+		collector.subscription.cancel();
+		long reads = reflected.getReadCount();
+		Thread.sleep(50);
+		assertEquals(0, reflected.getSubscriberCount());
+		assertTrue(reflected.getReadCount() - reads <= 1);
+	}
+
+	@Test
+	public void roundsTheWindowMeanInIntegers(){
+		assertEquals(3, Samples.mean(5, 2));
+		assertEquals(-3, Samples.mean(-5, 2));
+		assertEquals(1, Samples.mean(4, 3));
+		assertEquals(-1, Samples.mean(-4, 3));
+		assertEquals(Integer.MAX_VALUE, Samples.mean(10L * Integer.MAX_VALUE, 10));
+		assertEquals(Integer.MIN_VALUE, Samples.mean(10L * Integer.MIN_VALUE, 10));
+	}
+
+	/**
+	 * Keeps the samples and the name of the thread delivering them
+	 */
+	private static class Collector implements Flow.Subscriber<Sample> {
+
+		private final BlockingQueue<Sample> samples = new ArrayBlockingQueue<Sample>(1024);
+
+		private volatile Flow.Subscription subscription;
+
+		private volatile String thread;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription){
+			this.subscription = subscription;
+			subscription.request(Long.MAX_VALUE);
+		}
+
+		@Override
+		public void onNext(Sample sample){
+			thread = Thread.currentThread().getName();
+			samples.offer(sample);
+		}
+
+		@Override
+		public void onError(Throwable throwable){
+		}
+
+		@Override
+		public void onComplete(){
+		}
+
+		private Sample next() throws InterruptedException{
+			Sample sample = samples.poll(5, TimeUnit.SECONDS);
+			if (sample == null){
+				throw new AssertionError("No sample was published");
+			}
+			return sample;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package org.ev3dev.hardware.sensors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.ev3dev.exception.EV3LibraryException;
+import org.ev3dev.hardware.DeviceFixture;
+import org.ev3dev.hardware.ports.LegoPort;
+import org.ev3dev.io.DeviceFileSystem;
+import org.ev3dev.io.MemoryDeviceFileSystem;
+import org.junit.Before;
+import org.junit.Test;
+
+/***
+ * Drives a ColorSensor against a device tree in memory
+ * @author Anthony
+ *
+ */
+public class SensorTest {
+
+	private MemoryDeviceFileSystem fs;
+
+	private DeviceFixture fixture;
+
+	private String node;
+
+	private ColorSensor sensor;
+
+	@Before
+	public void setUp() throws Exception{
+		fs = new MemoryDeviceFileSystem();
+		fixture = DeviceFixture.createEV3(fs);
+		node = fixture.addSensor("in1", "lego-ev3-color");
+		sensor = new ColorSensor(new LegoPort(LegoPort.INPUT_1, fs));
+	}
+
+	@Test
+	public void readsTheModes() throws Exception{
+		assertEquals("lego-ev3-color", sensor.getDriverName());
+		assertEquals("COL-REFLECT", sensor.getMode());
+		assertArrayEquals(new String[]{"COL-REFLECT", "COL-AMBIENT", "COL-COLOR", "REF-RAW", "RGB-RAW", "COL-CAL"}, sensor.getModes());
+	}
+
+	@Test
+	public void switchesModesAndReadsValues() throws Exception{
+		fixture.setSensorValues(node, 42);
+		assertEquals(42, sensor.getReflectedLightIntensity());
+		assertEquals("COL-REFLECT", fixture.getAttribute(Sensor.CLASS_NAME, node, "mode"));
+		fixture.setSensorValues(node, 7);
+		assertEquals(7, sensor.getAmbientLightIntensity());
+		assertEquals("COL-AMBIENT", fixture.getAttribute(Sensor.CLASS_NAME, node, "mode"));
+		fixture.setSensorValues(node, 10, 20, 30);
+		assertArrayEquals(new int[]{10, 20, 30}, sensor.getRGB(new int[3]));
+		assertEquals("RGB-RAW", fixture.getAttribute(Sensor.CLASS_NAME, node, "mode"));
+	}
+
+	@Test
+	public void readsBinDataOnlyInTheModesWhereItHoldsTheValues() throws Exception{
+		String binData = DeviceFileSystem.getAttributePath(Sensor.CLASS_NAME, node, Sensor.SYSFS_PROPERTY_BIN_DATA);
+		//bin_data is read in one go, so the getter sees what it holds and not value0
+		fixture.setSensorValues(node, 42);
+		fs.writeFile(binData, new byte[]{43});
+		assertEquals(43, sensor.getReflectedLightIntensity());
+		sensor.setBinDataEnabled(false);
+		assertFalse(sensor.isBinDataEnabled());
+		assertEquals(42, sensor.getReflectedLightIntensity());
+
+		//bin_data holds the raw 0-2550 reading in US-DIST-IN, not the value in inches
+		String us = fixture.addSensor("in2", "lego-ev3-us");
+		UltrasonicSensor ultrasonic = new UltrasonicSensor(new LegoPort(LegoPort.INPUT_2, fs));
+		assertTrue(ultrasonic.isBinDataEnabled());
+		fixture.setSensorValues(us, 1000);
+		assertEquals(1000f, ultrasonic.getDistanceCentimeters(), 0f);
+		fixture.setSensorValues(us, 394);
+		fs.writeFile(DeviceFileSystem.getAttributePath(Sensor.CLASS_NAME, us, Sensor.SYSFS_PROPERTY_BIN_DATA), new byte[]{(byte) 1000, (byte) (1000 >> 8)});
+		assertEquals(394f, ultrasonic.getDistanceInches(), 0f);
+		float[] values = new float[1];
+		assertEquals(1, ultrasonic.readValues(values));
+		assertEquals(39.4f, values[0], 0.001f);
+	}
+
+	@Test
+	public void readsValuesAsynchronously() throws Exception{
+		fixture.setSensorValues(node, 42);
+		assertEquals(Integer.valueOf(42), sensor.async().getValue(0).get(5, TimeUnit.SECONDS));
+		CompletableFuture<Integer> outOfRange = sensor.async().getValue(Sensor.MAX_NUM_VALUES);
+		assertTrue(outOfRange.isCompletedExceptionally());
+		try {
+			outOfRange.get();
+			fail("An out of range value was read");
+		} catch (ExecutionException e){
+			assertTrue(e.getCause() instanceof IndexOutOfBoundsException);
+		}
+	}
+
+	@Test
+	public void failsOnceUnplugged() throws Exception{
+		fixture.setSensorValues(node, 1);
+		sensor.getReflectedLightIntensity();
+		fixture.removeDevice(Sensor.CLASS_NAME, node);
+		try {
+			sensor.getReflectedLightIntensity();
+			fail("An unplugged sensor was read");
+		} catch (EV3LibraryException expected){
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package org.ev3dev.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+/***
+ * Reads and writes attributes through AttributeChannels
+ * @author Anthony
+ *
+ */
+public class AttributeChannelTest {
+
+	private static final String POSITION_PATH = DeviceFileSystem.getAttributePath("tacho-motor", "motor0", "position");
+
+	@Test
+	public void readsAndWritesOnDisk() throws Exception{
+		try (TempDeviceFileSystem fs = new TempDeviceFileSystem()){
+			fs.writeText(POSITION_PATH, "12");
+			try (AttributeChannel channel = new AttributeChannel(fs, POSITION_PATH)){
+				assertEquals(POSITION_PATH, channel.getAttributePath());
+				assertTrue(channel.getPath().startsWith(fs.getRoot()));
+				assertTrue(Files.isRegularFile(channel.getPath()));
+				assertEquals("12", channel.read());
+				channel.write("-345");
+				assertEquals("-345", channel.read());
+			}
+		}
+	}
+
+	@Test
+	public void keepsThePathOfAFileSystemInMemory() throws Exception{
+		MemoryDeviceFileSystem fs = new MemoryDeviceFileSystem();
+		fs.writeText(POSITION_PATH, "0");
+		try (AttributeChannel channel = new AttributeChannel(fs, POSITION_PATH)){
+			assertEquals(Paths.get(POSITION_PATH), channel.getPath());
+			assertEquals(0, channel.readInt());
+		}
+	}
+
+	@Test
+	public void reopensAfterCloseButNotAfterDispose() throws Exception{
+		MemoryDeviceFileSystem fs = new MemoryDeviceFileSystem();
+		fs.writeText(POSITION_PATH, "1");
+		AttributeChannel channel = new AttributeChannel(fs, POSITION_PATH);
+		assertEquals(1, channel.readInt());
+		channel.close();
+		assertEquals(1, channel.readInt());
+		channel.dispose();
+		try {
+			channel.readInt();
+			fail("A disposed channel was re-opened");
+		} catch (ClosedChannelException expected){
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package org.ev3dev.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.ev3dev.hardware.DeviceFixture;
+import org.ev3dev.hardware.motors.Motor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/***
+ * Lists the nodes of a device tree through the default DeviceFileSystem
+ * @author Anthony
+ *
+ */
+public class SysfsTest {
+
+	private DeviceFileSystem previous;
+
+	private MemoryDeviceFileSystem fs;
+
+	@Before
+	public void setUp(){
+		previous = DeviceFileSystem.getDefault();
+		fs = new MemoryDeviceFileSystem();
+		DeviceFileSystem.setDefault(fs);
+	}
+
+	@After
+	public void tearDown(){
+		DeviceFileSystem.setDefault(previous);
+	}
+
+	@Test
+	public void listsTheNodesOfAClass() throws Exception{
+		DeviceFixture fixture = DeviceFixture.createEV3(fs);
+		fixture.addTachoMotor("outA", "lego-ev3-l-motor");
+		fixture.addTachoMotor("outB", "lego-ev3-l-motor");
+		File[] files = Sysfs.getAllSubClass(Motor.CLASS_NAME);
+		String[] names = new String[files.length];
+		for (int i = 0; i < files.length; i++){
+			names[i] = files[i].getName();
+		}
+		Arrays.sort(names);
+		assertEquals(Arrays.asList("motor0", "motor1"), Arrays.asList(names));
+		assertNull(Sysfs.getAllSubClass("no-such-class"));
+	}
+}
@@ -0,0 +1,93 @@
+package org.ev3dev.robotics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ev3dev.hardware.DeviceFixture;
+import org.ev3dev.hardware.motors.LargeMotor;
+import org.ev3dev.hardware.motors.Motor;
+import org.ev3dev.hardware.ports.LegoPort;
+import org.ev3dev.io.MemoryDeviceFileSystem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/***
+ * Drives a DifferentialPilot on the motors of a device tree in memory, which never move on their own
+ * @author Anthony
+ *
+ */
+public class DifferentialPilotTest {
+
+	private static final double WHEEL_DIAMETER = 56;
+
+	private DeviceFixture fixture;
+
+	private String left;
+
+	private String right;
+
+	private DifferentialPilot pilot;
+
+	@Before
+	public void setUp() throws Exception{
+		MemoryDeviceFileSystem fs = new MemoryDeviceFileSystem();
+		fixture = DeviceFixture.createEV3(fs);
+		left = fixture.addTachoMotor("outA", "lego-ev3-l-motor");
+		right = fixture.addTachoMotor("outB", "lego-ev3-l-motor");
+		//A motor geared down by 2 on the right
+		fixture.setAttribute(Motor.CLASS_NAME, right, Motor.SYSFS_PROPERTY_COUNT_PER_ROT, "720");
+		pilot = new DifferentialPilot(new LargeMotor(new LegoPort(LegoPort.OUTPUT_A, fs)), new LargeMotor(new LegoPort(LegoPort.OUTPUT_B, fs)),
+				WHEEL_DIAMETER, 120);
+		pilot.setPeriod(1, TimeUnit.MILLISECONDS);
+	}
+
+	@After
+	public void tearDown() throws Exception{
+		pilot.close();
+	}
+
+	@Test
+	public void integratesEachWheelWithItsOwnCountPerRot() throws Exception{
+		pilot.start();
+		//Two ticks, so the odometry has started from the positions at 0
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (pilot.getLoopStatistics().getTickCount() < 2 && System.nanoTime() - deadline < 0){
+			Thread.sleep(1);
+		}
+		awaitX(0);
+		fixture.setAttribute(Motor.CLASS_NAME, left, Motor.SYSFS_PROPERTY_POSITION, "360");
+		fixture.setAttribute(Motor.CLASS_NAME, right, Motor.SYSFS_PROPERTY_POSITION, "720");
+		awaitX(Math.PI * WHEEL_DIAMETER);
+		assertEquals(0, pilot.getPose().getHeading(), 1e-9);
+	}
+
+	@Test
+	public void neverAsksForMoreThanTheMaxSpeed() throws Exception{
+		pilot.setTravelSpeed(100000);
+		pilot.setAcceleration(1000000);
+		pilot.travel(1000, true);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		int speedLeft = 0;
+		int speedRight = 0;
+		while ((speedLeft == 0 || speedRight == 0) && System.nanoTime() - deadline < 0){
+			Thread.sleep(1);
+			speedLeft = Integer.parseInt(fixture.getAttribute(Motor.CLASS_NAME, left, Motor.SYSFS_PROPERTY_SPEED_SP));
+			speedRight = Integer.parseInt(fixture.getAttribute(Motor.CLASS_NAME, right, Motor.SYSFS_PROPERTY_SPEED_SP));
+		}
+		assertTrue("speed_sp " + speedLeft, speedLeft > 0 && speedLeft <= 1050);
+		assertTrue("speed_sp " + speedRight, speedRight > 0 && speedRight <= 1050);
+		//The right wheel turns twice as many counts for the same distance
+		assertEquals(2.0 * speedLeft, speedRight, 2);
+	}
+
+	private void awaitX(double x) throws InterruptedException{
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (Math.abs(pilot.getPose().getX() - x) > 1e-6 && System.nanoTime() - deadline < 0){
+			Thread.sleep(1);
+		}
+		assertEquals(x, pilot.getPose().getX(), 1e-6);
+	}
+}